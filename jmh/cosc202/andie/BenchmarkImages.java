@@ -0,0 +1,47 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Random;
+
+/**
+ * <p>
+ * Test images for the benchmarks.
+ * </p>
+ *
+ * <p>
+ * Images are filled with random colours so that no operation can take a
+ * shortcut on flat areas, and have the 4:3 shape of a typical photo.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class BenchmarkImages {
+
+    /**
+     * BenchmarkImages only has static methods.
+     */
+    private BenchmarkImages() {
+    }
+
+    /**
+     * Create an image of random colours.
+     *
+     * @param megapixels The number of millions of pixels in the image.
+     * @return The image, of type {@link BufferedImage#TYPE_INT_ARGB}.
+     */
+    static BufferedImage random(int megapixels) {
+        int width = (int) Math.round(Math.sqrt(megapixels * 1e6 * 4 / 3));
+        int height = (int) Math.round(megapixels * 1e6 / width);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        Random random = new Random(megapixels);
+        for (int i = 0; i < pixels.length; i++) {
+            pixels[i] = random.nextInt() | 0xFF000000;
+        }
+        return image;
+    }
+}
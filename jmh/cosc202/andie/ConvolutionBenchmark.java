@@ -0,0 +1,83 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.Kernel;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * <p>
+ * Benchmarks for the {@link Convolution} engine on its own.
+ * </p>
+ *
+ * <p>
+ * A mean kernel is used for both the full 2-D convolution and the two 1-D
+ * passes of the separable convolution, so the two can be compared directly.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true" })
+public class ConvolutionBenchmark {
+
+    /** The size of the image in megapixels. */
+    @Param({ "1", "12", "48" })
+    public int megapixels;
+
+    /** The radius of the kernel. */
+    @Param({ "1", "2", "5", "10", "20" })
+    public int radius;
+
+    /** The image to convolve. */
+    private BufferedImage input;
+    /** The image to write the result to. */
+    private BufferedImage output;
+    /** The 1-D mean kernel. */
+    private float[] line;
+    /** The 2-D mean kernel. */
+    private Kernel kernel;
+
+    /**
+     * Create the images and kernels.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        input = BenchmarkImages.random(megapixels);
+        output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+        int size = 2 * radius + 1;
+        line = new float[size];
+        Arrays.fill(line, 1.0f / size);
+        float[] weights = new float[size * size];
+        Arrays.fill(weights, 1.0f / (size * size));
+        kernel = new Kernel(size, size, weights);
+    }
+
+    /**
+     * Convolve with the full 2-D kernel.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public BufferedImage convolveImage() {
+        return new Convolution().convolveImage(input, output, kernel, radius);
+    }
+
+    /**
+     * Convolve with the 1-D kernel along the rows and then down the columns.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public BufferedImage convolveSeparable() {
+        return new Convolution().convolveSeparable(input, output, line, line, new OperationMonitor());
+    }
+}
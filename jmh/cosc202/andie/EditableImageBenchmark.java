@@ -0,0 +1,137 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import javax.imageio.ImageIO;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.BenchmarkParams;
+
+/**
+ * <p>
+ * Benchmarks for applying, undoing and redoing operations on an {@link EditableImage}.
+ * </p>
+ *
+ * <p>
+ * The image starts with a history of operations already applied, so that undo
+ * has to rebuild the image from its checkpoints rather than from an empty list.
+ * Each benchmark puts the history back the way it was after every call, outside
+ * of the measured time.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true" })
+public class EditableImageBenchmark {
+
+    /** The size of the image in megapixels. */
+    @Param({ "1", "12", "48" })
+    public int megapixels;
+
+    /** The radius of the filters in the history. */
+    @Param({ "1", "5", "20" })
+    public int radius;
+
+    /** The image being edited. */
+    private EditableImage image;
+    /** The file the image was opened from. */
+    private File file;
+    /** The number of operations in the history. */
+    private int historyLength;
+
+    /**
+     * Open the image and apply a history of operations to it.
+     *
+     * @throws IOException If the image cannot be written or read.
+     */
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        // EditableImage can only be loaded from a file, and BMP is quick to write and read
+        BufferedImage pixels = BenchmarkImages.random(megapixels);
+        BufferedImage rgb = new BufferedImage(pixels.getWidth(), pixels.getHeight(), BufferedImage.TYPE_INT_RGB);
+        rgb.setRGB(0, 0, pixels.getWidth(), pixels.getHeight(),
+                pixels.getRGB(0, 0, pixels.getWidth(), pixels.getHeight(), null, 0, pixels.getWidth()), 0,
+                pixels.getWidth());
+        file = File.createTempFile("andie-benchmark", ".bmp");
+        ImageIO.write(rgb, "bmp", file);
+
+        image = new EditableImage();
+        image.open(file.getPath());
+        ImageOperation[] history = { new MeanFilter(radius), new InvertColour(), new BrightnessContrast(10, 20),
+                new GaussianBlur(radius), new ConvertToGrey(), new MedianFilter(radius), new SharpenFilter(),
+                new MaximumFilter(radius), new Flip(false), new SoftBlur(), new MinimumFilter(radius),
+                new InvertColour() };
+        for (ImageOperation op : history) {
+            image.apply(op);
+        }
+        historyLength = history.length;
+    }
+
+    /**
+     * Remove the temporary image file.
+     */
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        file.delete();
+        new File(file.getPath() + ".ops").delete();
+    }
+
+    /**
+     * Apply a mean filter to the current image.
+     */
+    @Benchmark
+    public void apply() {
+        image.apply(new MeanFilter(radius));
+    }
+
+    /**
+     * Put the history back the way it was after each call, by undoing an
+     * {@link #apply()} or redoing an {@link #undo()}.
+     */
+    @TearDown(Level.Invocation)
+    public void restoreHistory() {
+        if (image.getOps().size() > historyLength) {
+            image.undo();
+        } else if (image.getOps().size() < historyLength) {
+            image.redo();
+        }
+        image.getRedoOps().clear();
+    }
+
+    /**
+     * Undo the last operation of the history.
+     */
+    @Benchmark
+    public void undo() {
+        image.undo();
+    }
+
+    /**
+     * Redo the last operation of the history, after undoing it outside of the measured time.
+     */
+    @Benchmark
+    public void redo() {
+        image.redo();
+    }
+
+    /**
+     * Undo the last operation before each {@link #redo()}.
+     *
+     * @param params The parameters of the benchmark about to run.
+     */
+    @Setup(Level.Invocation)
+    public void prepareRedo(BenchmarkParams params) {
+        if (params.getBenchmark().endsWith(".redo")) {
+            image.undo();
+        }
+    }
+}
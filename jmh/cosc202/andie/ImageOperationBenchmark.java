@@ -0,0 +1,146 @@
+package cosc202.andie;
+
+import java.awt.Color;
+import java.awt.Font;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.util.ResourceBundle;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * <p>
+ * Benchmarks for the {@link ImageOperation}s that have no radius.
+ * </p>
+ *
+ * <p>
+ * Operations that work in place are applied to the same image over and over,
+ * which costs the same as starting from a fresh copy each time.
+ * Each operation is timed both on its own and through the
+ * {@link TileScheduler}, which is how ANDIE applies it, and which only splits
+ * up the operations that can be applied in tiles.
+ * {@link SelectRegion} is left out, as it draws whatever region was last
+ * selected with the mouse.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see RadiusFilterBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true" })
+public class ImageOperationBenchmark {
+
+    /** The size of the image in megapixels. */
+    @Param({ "1", "12", "48" })
+    public int megapixels;
+
+    /** The class name of the operation to benchmark. */
+    @Param({ "BrightnessContrast", "ConvertToGrey", "CopyPreview", "CropImage", "CycleColour", "DrawShapes",
+            "DrawText", "EmbossFilter", "Flip", "InvertColour", "Resize", "Rotate", "Saturator", "SepiaToneFilter",
+            "SharpenFilter", "SobelFilter", "SoftBlur", "VignetteFilter" })
+    public String operation;
+
+    /** The image to apply the operation to. */
+    private BufferedImage image;
+    /** The operation. */
+    private ImageOperation op;
+
+    /**
+     * Create the image and the operation.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.random(megapixels);
+        op = create(operation, image);
+    }
+
+    /**
+     * Apply the operation to the image.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public BufferedImage apply() {
+        return op.apply(image);
+    }
+
+    /**
+     * Apply the operation to the image in tiles, in parallel, as ANDIE does.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public BufferedImage applyTiled() {
+        return TileScheduler.apply(op, image);
+    }
+
+    /**
+     * <p>
+     * Create an operation by name, with typical settings.
+     * </p>
+     *
+     * @param name  The class name of the operation.
+     * @param image The image the operation will be applied to.
+     * @return The operation.
+     */
+    static ImageOperation create(String name, BufferedImage image) {
+        ResourceBundle bundle = ResourceBundle.getBundle("LanguageBundle");
+        Point topLeft = new Point(image.getWidth() / 4, image.getHeight() / 4);
+        Point bottomRight = new Point(3 * image.getWidth() / 4, 3 * image.getHeight() / 4);
+        switch (name) {
+            case "BrightnessContrast":
+                return new BrightnessContrast(20, 30);
+            case "ConvertToGrey":
+                return new ConvertToGrey();
+            case "CopyPreview":
+                return new CopyPreview(image);
+            case "CropImage":
+                return new CropImage(topLeft, bottomRight);
+            case "CycleColour":
+                return new CycleColour(new String[] { bundle.getString("green"), bundle.getString("blue"),
+                        bundle.getString("red") });
+            case "DrawShapes":
+                DrawShapes shape = new DrawShapes(1);
+                shape.setColor(Color.RED);
+                shape.setRegion(topLeft, bottomRight);
+                return shape;
+            case "DrawText":
+                DrawText text = new DrawText("ANDIE", 200, "SansSerif", Font.BOLD);
+                text.setColor(Color.RED);
+                text.setRegion(topLeft, bottomRight);
+                return text;
+            case "EmbossFilter":
+                return new EmbossFilter(1);
+            case "Flip":
+                return new Flip(true);
+            case "InvertColour":
+                return new InvertColour();
+            case "Resize":
+                return new Resize(50);
+            case "Rotate":
+                return new Rotate(90);
+            case "Saturator":
+                return new Saturator(1.5f);
+            case "SepiaToneFilter":
+                return new SepiaToneFilter();
+            case "SharpenFilter":
+                return new SharpenFilter();
+            case "SobelFilter":
+                return new SobelFilter(1);
+            case "SoftBlur":
+                return new SoftBlur();
+            case "VignetteFilter":
+                return new VignetteFilter();
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+}
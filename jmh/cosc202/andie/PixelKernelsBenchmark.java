@@ -0,0 +1,127 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.Arrays;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * <p>
+ * Benchmarks comparing the plain and vector versions of the {@link PixelKernels}.
+ * </p>
+ *
+ * <p>
+ * Each benchmark runs a kernel over every pixel of the image on a single
+ * thread, so the difference between the two versions is the speedup per core.
+ * The vector version is only used when the benchmark is forked with the
+ * <code>jdk.incubator.vector</code> module; otherwise both rows show the plain
+ * version.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true", "--add-modules=jdk.incubator.vector" })
+public class PixelKernelsBenchmark {
+
+    /** The size of the image in megapixels. */
+    @Param({ "1", "12" })
+    public int megapixels;
+
+    /** Which version of the kernels to run: scalar or vector. */
+    @Param({ "scalar", "vector" })
+    public String kernels;
+
+    /** The version of the kernels being run. */
+    private PixelKernels backend;
+    /** The width of the image. */
+    private int width;
+    /** The pixels of the image. */
+    private int[] src;
+    /** The pixels to write the result to. */
+    private int[] dst;
+    /** The index offsets of a 5x5 kernel. */
+    private int[] delta;
+    /** The weights of a 5x5 mean kernel. */
+    private float[] weight;
+    /** The index offsets of a 1-D kernel of radius 5 down each column. */
+    private int[] column;
+    /** The weights of a 1-D mean kernel of radius 5. */
+    private float[] line;
+    /** The index offsets of a 3x3 kernel. */
+    private int[] edges;
+    /** The weights of a 3x3 Sobel kernel. */
+    private float[] sobel;
+
+    /**
+     * Create the image and kernels.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        backend = kernels.equals("vector") ? PixelKernels.get() : PixelKernels.scalar();
+        BufferedImage image = BenchmarkImages.random(megapixels);
+        width = image.getWidth();
+        src = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+        dst = new int[src.length];
+        delta = new int[25];
+        for (int t = 0; t < delta.length; t++) {
+            delta[t] = (t / 5 - 2) * width + t % 5 - 2;
+        }
+        weight = new float[delta.length];
+        Arrays.fill(weight, 1.0f / weight.length);
+        column = new int[11];
+        for (int t = 0; t < column.length; t++) {
+            column[t] = (t - 5) * width;
+        }
+        line = new float[column.length];
+        Arrays.fill(line, 1.0f / line.length);
+        edges = new int[9];
+        for (int t = 0; t < edges.length; t++) {
+            edges[t] = (t / 3 - 1) * width + t % 3 - 1;
+        }
+        sobel = new float[] { -1, 0, 1, -2, 0, 2, -1, 0, 1 };
+    }
+
+    /**
+     * Convolve every pixel away from the top and bottom edges with the 5x5 kernel.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public int[] convolve() {
+        backend.convolve(src, dst, 2 * width + 2, src.length - 2 * width - 2, delta, weight, true, false, 0);
+        return dst;
+    }
+
+    /**
+     * Convolve every pixel away from the top and bottom edges with the 1-D
+     * kernel, as the vertical pass of a separable convolution does.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public int[] convolveColumns() {
+        backend.convolve(src, dst, 5 * width, src.length - 5 * width, column, line, true, false, 0.5f);
+        return dst;
+    }
+
+    /**
+     * Convolve every pixel away from the top and bottom edges with a 3x3
+     * kernel, halving and shifting the colours as edge detection does.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public int[] convolveWithOffset() {
+        backend.convolve(src, dst, 2 * width + 2, src.length - 2 * width - 2, edges, sobel, true, true, 0);
+        return dst;
+    }
+}
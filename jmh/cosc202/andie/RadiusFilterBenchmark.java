@@ -0,0 +1,116 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.TimeUnit;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * <p>
+ * Benchmarks for the {@link ImageOperation}s that take a radius.
+ * </p>
+ *
+ * <p>
+ * The radius ranges over the whole of what the filter dialogs allow and beyond,
+ * to show how the running time of each filter grows with it.
+ * Each filter is timed both on its own, on one thread, and through the
+ * {@link TileScheduler}, which is how ANDIE applies it.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see ImageOperationBenchmark
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2)
+@Measurement(iterations = 5)
+@Fork(value = 1, jvmArgsAppend = { "-Xmx8g", "-Djava.awt.headless=true" })
+public class RadiusFilterBenchmark {
+
+    /** The size of the image in megapixels. */
+    @Param({ "1", "12", "48" })
+    public int megapixels;
+
+    /** The radius of the filter. */
+    @Param({ "1", "2", "5", "10", "20" })
+    public int radius;
+
+    /** The class name of the filter to benchmark. */
+    @Param({ "BlockMeanFilter", "GaussianBlur", "MaximumFilter", "MeanFilter", "MedianFilter", "MinimumFilter",
+            "MorphologicalClose", "MorphologicalGradient", "MorphologicalOpen", "RandomScattering", "TileFilter" })
+    public String filter;
+
+    /** The image to apply the filter to. */
+    private BufferedImage image;
+    /** The filter. */
+    private ImageOperation op;
+
+    /**
+     * Create the image and the filter.
+     */
+    @Setup(Level.Trial)
+    public void setUp() {
+        image = BenchmarkImages.random(megapixels);
+        op = create(filter, radius);
+    }
+
+    /**
+     * Apply the filter to the image.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public BufferedImage apply() {
+        return op.apply(image);
+    }
+
+    /**
+     * Apply the filter to the image in tiles, in parallel, as ANDIE does.
+     *
+     * @return The result, so that it is not optimised away.
+     */
+    @Benchmark
+    public BufferedImage applyTiled() {
+        return TileScheduler.apply(op, image);
+    }
+
+    /**
+     * Create a filter by name.
+     *
+     * @param name   The class name of the filter.
+     * @param radius The radius of the filter.
+     * @return The filter.
+     */
+    static ImageOperation create(String name, int radius) {
+        switch (name) {
+            case "BlockMeanFilter":
+                return new BlockMeanFilter(radius);
+            case "GaussianBlur":
+                return new GaussianBlur(radius);
+            case "MaximumFilter":
+                return new MaximumFilter(radius);
+            case "MeanFilter":
+                return new MeanFilter(radius);
+            case "MedianFilter":
+                return new MedianFilter(radius);
+            case "MinimumFilter":
+                return new MinimumFilter(radius);
+            case "MorphologicalClose":
+                return new MorphologicalClose(radius);
+            case "MorphologicalGradient":
+                return new MorphologicalGradient(radius);
+            case "MorphologicalOpen":
+                return new MorphologicalOpen(radius);
+            case "RandomScattering":
+                return new RandomScattering(radius);
+            case "TileFilter":
+                return new TileFilter(radius);
+            default:
+                throw new IllegalArgumentException(name);
+        }
+    }
+}
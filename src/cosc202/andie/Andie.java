@@ -84,6 +84,7 @@ public class Andie {
                     if (optionRotate == JOptionPane.CANCEL_OPTION) {
                         return;
                     } else if (optionRotate == JOptionPane.OK_OPTION) {
+                        ImageAction.getTarget().getImage().discardJournal();
                         System.exit(0);
                     }
                 } else {
@@ -95,9 +96,21 @@ public class Andie {
         // The main content area is an ImagePanel
         ImagePanel imagePanel = new ImagePanel();
         ImageAction.setTarget(imagePanel);
+        // Edit images too large for the screen as a proxy, and only render them in full on export
+        imagePanel.getImage().setProxySize(Toolkit.getDefaultToolkit().getScreenSize());
         JScrollPane scrollPane = new JScrollPane(imagePanel);
         frame.add(scrollPane, BorderLayout.CENTER);
 
+        // Show the progress of long-running operations along the bottom of the frame
+        JProgressBar progressBar = new JProgressBar(0, 100);
+        progressBar.setStringPainted(true);
+        progressBar.setVisible(false);
+        imagePanel.getExecutor().setProgressListener(percent -> {
+            progressBar.setVisible(percent >= 0);
+            progressBar.setValue(Math.max(percent, 0));
+        });
+        frame.add(progressBar, BorderLayout.SOUTH);
+
         // Add the keyboard shortcuts
         KeyListener keyboardShortcuts = KeyboardShortcut.createShortcuts();
         frame.addKeyListener(keyboardShortcuts);
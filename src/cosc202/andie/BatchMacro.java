@@ -0,0 +1,412 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.*;
+import java.text.MessageFormat;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import javax.imageio.ImageIO;
+
+/**
+ * <p>
+ * Applies a saved macro to every image matching a glob, without the ANDIE
+ * window.
+ * </p>
+ *
+ * <p>
+ * Run it through Gradle with the <code>mainClass</code> property, for example:
+ * </p>
+ *
+ * <pre>
+ * gradle run -PmainClass=cosc202.andie.BatchMacro --args="Macro.ops photos/*.png edited 4"
+ * </pre>
+ *
+ * <p>
+ * The arguments are the macro file, a glob for the input images, the directory
+ * to write the results to, and optionally the number of threads to process
+ * images on, which defaults to the number of processors.
+ * Each result is written with the same name and format as its input.
+ * The macro is applied from the top of its stack down, as it is by
+ * {@link EditableImage#applyMacro()}.
+ * </p>
+ *
+ * <p>
+ * Decoding, processing and encoding run on separate bounded pools, so one
+ * image can be read or written while others are being processed.
+ * Only a few images per processing thread are in flight at once, so memory use
+ * does not grow with the number of images.
+ * When every image is done, the throughput and the percentiles of the time
+ * taken for each image are printed.
+ * </p>
+ *
+ * <p>
+ * If every operation in the macro is a {@link LocalOperation}, images in a
+ * format that can be written a band at a time, such as TIFF, are instead
+ * streamed through the macro by the {@link StreamingExport}, so that they are
+ * never held in memory whole.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public class BatchMacro {
+
+    /** The number of images that may be in flight for each processing thread. */
+    static final int IN_FLIGHT_PER_THREAD = 2;
+
+    /**
+     * The outcome of a batch.
+     */
+    static final class Report {
+
+        /** The time in nanoseconds each image took, from starting to read it to finishing writing it, sorted. */
+        final long[] latencies;
+        /** Why each image that could not be processed failed, by path. */
+        final SortedMap<Path, String> failures;
+        /** The time in nanoseconds the whole batch took. */
+        final long elapsed;
+
+        /**
+         * Create a new Report.
+         *
+         * @param latencies The time each image that was processed took.
+         * @param failures  Why each image that could not be processed failed, by path.
+         * @param elapsed   The time the whole batch took.
+         */
+        Report(long[] latencies, SortedMap<Path, String> failures, long elapsed) {
+            this.latencies = latencies;
+            this.failures = failures;
+            this.elapsed = elapsed;
+            Arrays.sort(this.latencies);
+        }
+
+        /**
+         * Get the number of images processed.
+         *
+         * @return The number of images processed.
+         */
+        int getImages() {
+            return latencies.length;
+        }
+
+        /**
+         * Get the number of images processed per second.
+         *
+         * @return The throughput.
+         */
+        double getThroughput() {
+            return latencies.length / Math.max(elapsed / 1e9, 1e-9);
+        }
+
+        /**
+         * Get a percentile of the time taken for each image.
+         *
+         * @param percent The percentile, from 0 to 100.
+         * @return The time in nanoseconds that this percent of images took at most, or 0 if none were processed.
+         */
+        long getLatency(double percent) {
+            if (latencies.length == 0) {
+                return 0;
+            }
+            int rank = (int) Math.ceil(percent / 100 * latencies.length);
+            return latencies[Math.min(latencies.length - 1, Math.max(0, rank - 1))];
+        }
+    }
+
+    private BatchMacro() {
+    }
+
+    /**
+     * <p>
+     * Run a macro over a set of images.
+     * </p>
+     *
+     * @param args The macro file, the input glob, the output directory, and optionally the number of threads.
+     * @throws Exception If something goes wrong.
+     */
+    public static void main(String[] args) throws Exception {
+        System.setProperty("java.awt.headless", "true");
+        ResourceBundle bundle = ResourceBundle.getBundle("LanguageBundle");
+        if (args.length < 3 || args.length > 4) {
+            System.err.println(bundle.getString("batchUsage"));
+            System.exit(2);
+        }
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : Runtime.getRuntime().availableProcessors();
+        List<Path> inputs = match(args[1]);
+        if (inputs.isEmpty()) {
+            System.err.println(MessageFormat.format(bundle.getString("batchNoImages"), args[1]));
+            System.exit(1);
+        }
+
+        Report report = run(new File(args[0]), inputs, Paths.get(args[2]), threads);
+        for (Map.Entry<Path, String> failure : report.failures.entrySet()) {
+            System.err.println(MessageFormat.format(bundle.getString("batchFailed"), failure.getKey(),
+                    failure.getValue()));
+        }
+        System.out.println(MessageFormat.format(bundle.getString("batchSummary"), report.getImages(),
+                String.format("%.2f", report.elapsed / 1e9), String.format("%.2f", report.getThroughput())));
+        System.out.println(MessageFormat.format(bundle.getString("batchLatency"), millis(report.getLatency(50)),
+                millis(report.getLatency(90)), millis(report.getLatency(99)), millis(report.getLatency(100))));
+        System.exit(report.failures.isEmpty() ? 0 : 1);
+    }
+
+    /**
+     * Format a time in nanoseconds as milliseconds.
+     *
+     * @param nanos The time in nanoseconds.
+     * @return The time in milliseconds, to one decimal place.
+     */
+    private static String millis(long nanos) {
+        return String.format("%.1f", nanos / 1e6);
+    }
+
+    /**
+     * <p>
+     * Find the files matching a glob.
+     * </p>
+     *
+     * <p>
+     * The search starts from the longest leading part of the glob with no
+     * wildcards in it, so <code>photos/**&#47;*.png</code> searches everything
+     * under <code>photos</code>.
+     * </p>
+     *
+     * @param glob The glob.
+     * @return The matching files, sorted by path.
+     * @throws IOException If a directory cannot be searched.
+     */
+    static List<Path> match(String glob) throws IOException {
+        PathMatcher matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+        Path root = Paths.get(glob).getRoot();
+        Path base = root != null ? root : Paths.get("");
+        for (Path part : Paths.get(glob)) {
+            if (part.toString().matches(".*[*?\\[\\]{}].*")) {
+                break;
+            }
+            base = base.resolve(part);
+        }
+        if (Files.isRegularFile(base)) {
+            return Collections.singletonList(base);
+        }
+        if (!Files.isDirectory(base)) {
+            return Collections.emptyList();
+        }
+        // A relative glob with no directory part is searched for from the working directory
+        boolean here = base.toString().isEmpty();
+        Path start = here ? Paths.get(".") : base;
+        try (Stream<Path> paths = Files.walk(start)) {
+            return paths.map(path -> here ? start.relativize(path) : path)
+                    .filter(path -> Files.isRegularFile(path) && matcher.matches(path))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    /**
+     * <p>
+     * Read a macro, in the order it is applied.
+     * </p>
+     *
+     * @param macroFile The macro file.
+     * @return The operations in the macro, from the top of its stack down.
+     * @throws IOException If the macro cannot be read.
+     */
+    static List<ImageOperation> readMacro(File macroFile) throws IOException {
+        List<ImageOperation> macro = new ArrayList<ImageOperation>();
+        try (OpsFile.Reader reader = OpsFile.read(macroFile)) {
+            ImageOperation op;
+            while ((op = reader.next()) != null) {
+                macro.add(op);
+            }
+        }
+        Collections.reverse(macro);
+        return macro;
+    }
+
+    /**
+     * <p>
+     * Apply a macro to a set of images, writing each result to a directory.
+     * </p>
+     *
+     * <p>
+     * Each image gets its own copy of the macro, as some operations keep
+     * working state in their fields.
+     * Images that can be streamed are read, processed and written a band at a
+     * time on a processing thread.
+     * </p>
+     *
+     * @param macroFile The macro file.
+     * @param inputs    The images to process.
+     * @param outputDir The directory to write the results to, which is created if need be.
+     * @param threads   The number of threads to process images on.
+     * @return The outcome.
+     * @throws IOException If the macro cannot be read, or the output directory cannot be created.
+     * @throws InterruptedException If interrupted while waiting for the images.
+     */
+    static Report run(File macroFile, List<Path> inputs, Path outputDir, int threads)
+            throws IOException, InterruptedException {
+        boolean local = readMacro(macroFile).stream().allMatch(op -> op instanceof LocalOperation);
+        Files.createDirectories(outputDir);
+        threads = Math.max(1, threads);
+        int ioThreads = Math.max(1, threads / 2);
+        ExecutorService decoders = pool("ANDIE batch decode", ioThreads);
+        ExecutorService processors = pool("ANDIE batch process", threads);
+        ExecutorService encoders = pool("ANDIE batch encode", ioThreads);
+        Semaphore inFlight = new Semaphore(IN_FLIGHT_PER_THREAD * threads);
+        Queue<Long> latencies = new ConcurrentLinkedQueue<Long>();
+        Map<Path, String> failures = new ConcurrentHashMap<Path, String>();
+        List<CompletableFuture<Void>> images = new ArrayList<CompletableFuture<Void>>();
+
+        long start = System.nanoTime();
+        try {
+            for (Path input : inputs) {
+                // Wait for room, so that decoding does not run far ahead of processing
+                inFlight.acquire();
+                long imageStart = System.nanoTime();
+                File output = outputDir.resolve(input.getFileName()).toFile();
+                CompletableFuture<Void> image;
+                if (local && StreamingExport.canStream(output)) {
+                    image = CompletableFuture.runAsync(() -> stream(macroFile, input, output), processors);
+                } else {
+                    image = CompletableFuture
+                            .supplyAsync(() -> decode(input), decoders)
+                            .thenApplyAsync(decoded -> process(macroFile, decoded), processors)
+                            .thenAcceptAsync(processed -> encode(processed, input, outputDir), encoders);
+                }
+                images.add(image.handle((done, e) -> {
+                    inFlight.release();
+                    if (e == null) {
+                        latencies.add(System.nanoTime() - imageStart);
+                    } else {
+                        Throwable cause = e instanceof CompletionException ? e.getCause() : e;
+                        failures.put(input, cause.getMessage() != null ? cause.getMessage()
+                                : cause.getClass().getSimpleName());
+                    }
+                    return null;
+                }));
+            }
+            CompletableFuture.allOf(images.toArray(new CompletableFuture<?>[0])).join();
+        } finally {
+            decoders.shutdownNow();
+            processors.shutdownNow();
+            encoders.shutdownNow();
+        }
+        long elapsed = System.nanoTime() - start;
+        long[] times = latencies.stream().mapToLong(Long::longValue).toArray();
+        return new Report(times, new TreeMap<Path, String>(failures), elapsed);
+    }
+
+    /**
+     * Create a pool of daemon threads.
+     *
+     * @param name The name of the threads.
+     * @param size The number of threads.
+     * @return The pool.
+     */
+    private static ExecutorService pool(String name, int size) {
+        return Executors.newFixedThreadPool(size, r -> {
+            Thread thread = new Thread(r, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Read an image.
+     *
+     * @param input The image file.
+     * @return The image, in the {@link WorkingFormat}.
+     * @throws CompletionException If the image cannot be read.
+     */
+    private static BufferedImage decode(Path input) {
+        try {
+            BufferedImage image = ImageIO.read(input.toFile());
+            if (image == null) {
+                throw new IOException(ResourceBundle.getBundle("LanguageBundle").getString("notAnImageFile"));
+            }
+            return WorkingFormat.convert(image);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Apply a macro to an image.
+     *
+     * @param macroFile The macro file.
+     * @param image     The image.
+     * @return The result.
+     * @throws CompletionException If the macro cannot be read.
+     */
+    private static BufferedImage process(File macroFile, BufferedImage image) {
+        List<ImageOperation> macro;
+        try {
+            macro = readMacro(macroFile);
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+        for (int i = 0; i < macro.size(); i++) {
+            // Runs of point operations are applied in a single pass, as they are when editing
+            List<PointOperation> run = PointPipeline.run(macro, i);
+            BufferedImage result;
+            if (run.size() > 1) {
+                result = PointPipeline.apply(image, run);
+                i += run.size() - 1;
+            } else {
+                result = TileScheduler.apply(macro.get(i), image);
+            }
+            if (result != image) {
+                // The next image of the same size can reuse the input
+                ImagePool.release(image);
+            }
+            image = result;
+        }
+        return image;
+    }
+
+    /**
+     * Apply a macro to an image file a band at a time, writing the result in the
+     * same format.
+     *
+     * @param macroFile The macro file.
+     * @param input     The image file.
+     * @param output    The file to write the result to.
+     * @throws CompletionException If the macro or image cannot be read, or the result cannot be written.
+     */
+    private static void stream(File macroFile, Path input, File output) {
+        try {
+            StreamingExport.export(input.toFile(), readMacro(macroFile), output, new OperationMonitor());
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        }
+    }
+
+    /**
+     * Write an image in the same format as the file it was read from.
+     *
+     * @param image     The image.
+     * @param input     The file it was read from.
+     * @param outputDir The directory to write it to.
+     * @throws CompletionException If the image cannot be written.
+     */
+    private static void encode(BufferedImage image, Path input, Path outputDir) {
+        String name = input.getFileName().toString();
+        String extension = name.substring(1 + name.lastIndexOf(".")).toLowerCase();
+        File output = outputDir.resolve(name).toFile();
+        try {
+            if (!WorkingFormat.write(image, extension, output)) {
+                throw new IOException(ResourceBundle.getBundle("LanguageBundle").getString("notAnImageFile"));
+            }
+        } catch (IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            ImagePool.release(image);
+        }
+    }
+}
@@ -1,13 +1,11 @@
 package cosc202.andie;
 
-import java.awt.image.*;
-
 /**
  * <p>
  * ImageOperation to change the Brightness and Contrast of an image.
  * </p>
  */
-public class BrightnessContrast  implements ImageOperation, java.io.Serializable {
+public class BrightnessContrast  implements PointOperation, InPlaceOperation, java.io.Serializable {
 
     /**
      * Defining Brightness and Contrast variables
@@ -37,29 +35,35 @@ public class BrightnessContrast  implements ImageOperation, java.io.Serializable
     }
 
     /**
-     * Applies the Adjustment to the image
+     * Adjusts a colour value, keeping it in the range 0 to 255.
      * 
-     * @param input The input image.
-     * @return The brightened and contrasted image.
+     * @param colour The colour value to adjust.
+     * @return The adjusted colour value.
      */
-    public BufferedImage apply(BufferedImage input) {
+    private int clampedAdjust(int colour) {
+        return Math.min(Math.max(adjust(colour), 0), 255);
+    }
 
-        for (int y = 0; y < input.getHeight(); y++) {
-            for (int x = 0; x < input.getWidth(); x++) {
-                
-                int argb = input.getRGB(x, y);
-                int r = (argb & 0x00FF0000) >> 16;
-                int g = (argb & 0x0000FF00) >> 8;
-                int b = (argb & 0x000000FF);
+    /**
+     * Applies the Adjustment to a single pixel.
+     * 
+     * @param argb The pixel, as packed ARGB.
+     * @return The brightened and contrasted pixel.
+     */
+    public int filterRGB(int argb) {
+        int r = (argb & 0x00FF0000) >> 16;
+        int g = (argb & 0x0000FF00) >> 8;
+        int b = (argb & 0x000000FF);
 
-                int newR = Math.min(Math.max(adjust(r), 0), 255);
-                int newG = Math.min(Math.max(adjust(g), 0), 255);
-                int newB = Math.min(Math.max(adjust(b), 0), 255);
+        return (clampedAdjust(r) << 16) | (clampedAdjust(g) << 8) | clampedAdjust(b);
+    }
 
-                argb = (newR << 16) | (newG << 8) | newB;
-                input.setRGB(x, y, argb);
-            }
-        }
-        return input;
+    /**
+     * The Adjustment treats each colour channel the same way, so it can be done with lookup tables.
+     * 
+     * @return The lookup tables for the Adjustment.
+     */
+    public ChannelMap channelMap() {
+        return ChannelMap.of(this::clampedAdjust, 0);
     }
-}
\ No newline at end of file
+}
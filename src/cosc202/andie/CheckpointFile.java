@@ -0,0 +1,217 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.util.*;
+
+/**
+ * <p>
+ * Saves checkpoints of an image's history beside its <code>.ops</code> file,
+ * so that reopening the image does not have to apply every operation again.
+ * </p>
+ *
+ * <p>
+ * The file, with <code>.checkpoints</code> added to the name of the
+ * <code>.ops</code> file, holds the final image and a few of the
+ * {@link CheckpointStore}'s intermediate checkpoints.
+ * Each checkpoint is keyed by a hash of the original image's pixels chained
+ * with the {@link OpsFile} record of every operation up to it, so a checkpoint
+ * is only used if the image and the operations before it are the same as when
+ * it was saved.
+ * When an image is opened, the deepest checkpoint that still matches is
+ * memory-mapped and copied out, and only the operations after it are replayed.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see EditableImage
+ */
+final class CheckpointFile {
+
+    /** The suffix added to the name of the operations file to get its checkpoints. */
+    static final String SUFFIX = ".checkpoints";
+    /** The first four bytes of a checkpoints file, "ANOC". */
+    static final int MAGIC = 0x414E4F43;
+    /** The version of the layout of the file. */
+    static final int VERSION = 1;
+    /** The most checkpoints saved, including the final image. */
+    static final int MAX_SAVED = 3;
+
+    /** The length of a hash in bytes. */
+    private static final int HASH_LENGTH = 32;
+
+    private CheckpointFile() {
+    }
+
+    /**
+     * Get the checkpoints file for an operations file.
+     *
+     * @param opsFile The operations file.
+     * @return The checkpoints file, which may not exist.
+     */
+    static File checkpointFile(File opsFile) {
+        return new File(opsFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * <p>
+     * Hash every prefix of a list of operations.
+     * </p>
+     *
+     * @param originalHash The hash of the original image.
+     * @param ops          The operations.
+     * @param depth        The number of operations to hash.
+     * @return The hashes, where the hash at index i covers the original and the first i operations.
+     * @throws IOException If one of the operations cannot be stored.
+     */
+    static byte[][] prefixHashes(ByteBuffer originalHash, List<ImageOperation> ops, int depth) throws IOException {
+        byte[][] hashes = new byte[depth + 1][];
+        hashes[0] = originalHash.array();
+        Map<ByteBuffer, BufferedImage> images = new HashMap<ByteBuffer, BufferedImage>();
+        for (int i = 0; i < depth; i++) {
+            ByteArrayOutputStream record = new ByteArrayOutputStream();
+            OpsFile.writeOperation(ops.get(i), new DataOutputStream(record), images);
+            MessageDigest digest = OpsFile.sha256();
+            digest.update(hashes[i]);
+            digest.update(record.toByteArray());
+            hashes[i + 1] = digest.digest();
+        }
+        return hashes;
+    }
+
+    /**
+     * <p>
+     * Write checkpoints for a list of operations.
+     * </p>
+     *
+     * <p>
+     * Only the deepest {@link #MAX_SAVED} checkpoints are written.
+     * </p>
+     *
+     * @param opsFile      The operations file the checkpoints go beside.
+     * @param originalHash The hash of the original image.
+     * @param baseWidth    The width of the image the operations are replayed on.
+     * @param baseHeight   The height of the image the operations are replayed on.
+     * @param ops          The operations.
+     * @param images       The checkpoints, by the number of operations applied to produce them.
+     * @throws IOException If the file cannot be written.
+     */
+    static void write(File opsFile, ByteBuffer originalHash, int baseWidth, int baseHeight,
+            List<ImageOperation> ops, SortedMap<Integer, BufferedImage> images) throws IOException {
+        List<Integer> depths = new ArrayList<Integer>(images.keySet());
+        depths = depths.subList(Math.max(0, depths.size() - MAX_SAVED), depths.size());
+        byte[][] hashes = prefixHashes(originalHash, ops, depths.isEmpty() ? 0 : depths.get(depths.size() - 1));
+        File file = checkpointFile(opsFile);
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.write(originalHash.array());
+            out.writeInt(baseWidth);
+            out.writeInt(baseHeight);
+            out.writeInt(depths.size());
+            for (int depth : depths) {
+                BufferedImage image = images.get(depth);
+                int width = image.getWidth();
+                out.writeInt(depth);
+                out.write(hashes[depth]);
+                out.writeInt(width);
+                out.writeInt(image.getHeight());
+                out.writeBoolean(image.getColorModel().hasAlpha());
+                int[] row = new int[width];
+                for (int y = 0; y < image.getHeight(); y++) {
+                    image.getRGB(0, y, width, 1, row, 0, width);
+                    for (int argb : row) {
+                        out.writeInt(argb);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            file.delete();
+            throw e;
+        }
+    }
+
+    /**
+     * <p>
+     * Read the deepest checkpoint that matches a list of operations.
+     * </p>
+     *
+     * @param opsFile      The operations file the checkpoints are beside.
+     * @param originalHash The hash of the original image.
+     * @param baseWidth    The width of the image the operations are replayed on.
+     * @param baseHeight   The height of the image the operations are replayed on.
+     * @param ops          The operations.
+     * @return The number of operations applied to produce the checkpoint, and its image, or null if none match.
+     * @throws IOException If the file exists but cannot be read.
+     */
+    static Map.Entry<Integer, BufferedImage> read(File opsFile, ByteBuffer originalHash, int baseWidth,
+            int baseHeight, List<ImageOperation> ops) throws IOException {
+        File file = checkpointFile(opsFile);
+        if (!file.exists()) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(6 + HASH_LENGTH + 12);
+            channel.read(header, 0);
+            header.flip();
+            if (header.remaining() < header.capacity() || header.getInt() != MAGIC
+                    || header.getShort() > VERSION) {
+                throw new IOException(file.getPath());
+            }
+            byte[] hash = new byte[HASH_LENGTH];
+            header.get(hash);
+            if (!ByteBuffer.wrap(hash).equals(originalHash) || header.getInt() != baseWidth
+                    || header.getInt() != baseHeight) {
+                // Saved for a different image
+                return null;
+            }
+            int count = header.getInt();
+
+            // Find where each checkpoint starts, without reading the pixels
+            long position = header.capacity();
+            int best = -1;
+            long bestPosition = 0;
+            byte[][] hashes = prefixHashes(originalHash, ops, ops.size());
+            ByteBuffer entry = ByteBuffer.allocate(4 + HASH_LENGTH + 9);
+            for (int i = 0; i < count; i++) {
+                entry.clear();
+                channel.read(entry, position);
+                entry.flip();
+                if (entry.remaining() < entry.capacity()) {
+                    throw new IOException(file.getPath());
+                }
+                int depth = entry.getInt();
+                entry.get(hash);
+                long pixels = (long) entry.getInt() * entry.getInt();
+                if (depth > best && depth <= ops.size() && Arrays.equals(hash, hashes[depth])) {
+                    best = depth;
+                    bestPosition = position;
+                }
+                position += entry.capacity() + 4 * pixels;
+            }
+            if (best < 0) {
+                return null;
+            }
+
+            entry.clear();
+            channel.read(entry, bestPosition);
+            entry.position(4 + HASH_LENGTH);
+            int width = entry.getInt();
+            int height = entry.getInt();
+            BufferedImage image = new BufferedImage(width, height,
+                    entry.get() != 0 ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            channel.map(FileChannel.MapMode.READ_ONLY, bestPosition + entry.capacity(), 4L * pixels.length)
+                    .asIntBuffer().get(pixels);
+            return new AbstractMap.SimpleImmutableEntry<Integer, BufferedImage>(best, image);
+        }
+    }
+}
@@ -0,0 +1,502 @@
+package cosc202.andie;
+
+import java.awt.Rectangle;
+import java.awt.image.*;
+import java.util.*;
+
+/**
+ * <p>
+ * A store of materialised snapshots of an {@link EditableImage}'s history.
+ * </p>
+ *
+ * <p>
+ * Without checkpoints, undoing an operation means making a fresh copy of the
+ * original image and re-applying every {@link ImageOperation} on the stack.
+ * The CheckpointStore keeps a copy of the image after every
+ * {@link getInterval()}th operation, and after any operation that took longer
+ * than {@link getCostThreshold()} milliseconds, so that replaying only has to
+ * start from the nearest checkpoint at or below the target depth.
+ * </p>
+ *
+ * <p>
+ * Checkpoints are keyed by their depth, the number of operations that had been
+ * applied to the original image to produce them.
+ * The total size of the stored snapshots is kept under a memory budget by
+ * evicting the checkpoints that are cheapest to recompute.
+ * </p>
+ *
+ * <p>
+ * The store also keeps patches, the pixels each {@link RegionOperation} drew
+ * over, so that undoing one only has to put those pixels back.
+ * Patches share the memory budget, and the oldest are given up first.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+class CheckpointStore {
+
+    /** The default number of operations between regular checkpoints. */
+    public static final int DEFAULT_INTERVAL = 10;
+    /** The default cost, in milliseconds, above which an operation is always checkpointed. */
+    public static final long DEFAULT_COST_THRESHOLD = 500;
+    /** The default memory budget, a quarter of the maximum heap size. */
+    public static final long DEFAULT_MEMORY_BUDGET = Runtime.getRuntime().maxMemory() / 4;
+
+    /**
+     * A single stored snapshot.
+     */
+    private static class Checkpoint {
+        /** The operation whose result this snapshot holds. */
+        ImageOperation op;
+        /** The snapshot itself. */
+        BufferedImage image;
+        /** The approximate size of the snapshot in bytes. */
+        long bytes;
+        /** The time in nanoseconds spent on operations since the previous checkpoint. */
+        long replayCost;
+    }
+
+    /**
+     * The pixels a region operation drew over.
+     */
+    private static class Patch {
+        /** The operation that drew over the pixels. */
+        ImageOperation op;
+        /** Where the pixels are in the image. */
+        Rectangle bounds;
+        /** The pixels as they were before the operation. */
+        BufferedImage pixels;
+        /** The approximate size of the pixels in bytes. */
+        long bytes;
+    }
+
+    /** The stored checkpoints, keyed by depth. */
+    private TreeMap<Integer, Checkpoint> checkpoints;
+    /** The stored patches, keyed by the depth of the operation that drew over them. */
+    private TreeMap<Integer, Patch> patches;
+    /** The number of operations between regular checkpoints. */
+    private int interval;
+    /** The cost in milliseconds above which an operation is always checkpointed. */
+    private long costThreshold;
+    /** The maximum number of bytes to spend on checkpoints. */
+    private long memoryBudget;
+    /** The number of bytes currently spent on checkpoints. */
+    private long usedBytes;
+    /** Operation time accumulated since the last checkpoint was recorded. */
+    private long pendingCost;
+
+    /**
+     * <p>
+     * Create a new CheckpointStore with the default settings.
+     * </p>
+     */
+    public CheckpointStore() {
+        this(DEFAULT_INTERVAL, DEFAULT_COST_THRESHOLD, DEFAULT_MEMORY_BUDGET);
+    }
+
+    /**
+     * <p>
+     * Create a new CheckpointStore.
+     * </p>
+     *
+     * @param interval      The number of operations between regular checkpoints.
+     * @param costThreshold The cost in milliseconds above which an operation is
+     *                      always checkpointed.
+     * @param memoryBudget  The maximum number of bytes to spend on checkpoints.
+     */
+    public CheckpointStore(int interval, long costThreshold, long memoryBudget) {
+        checkpoints = new TreeMap<Integer, Checkpoint>();
+        patches = new TreeMap<Integer, Patch>();
+        setInterval(interval);
+        setCostThreshold(costThreshold);
+        setMemoryBudget(memoryBudget);
+    }
+
+    /**
+     * Gets the number of operations between regular checkpoints.
+     *
+     * @return The number of operations between regular checkpoints.
+     */
+    public int getInterval() {
+        return interval;
+    }
+
+    /**
+     * Sets the number of operations between regular checkpoints.
+     *
+     * @param interval The number of operations between regular checkpoints, at
+     *                 least 1.
+     */
+    public void setInterval(int interval) {
+        this.interval = Math.max(1, interval);
+    }
+
+    /**
+     * Gets the cost above which an operation is always checkpointed.
+     *
+     * @return The cost threshold in milliseconds.
+     */
+    public long getCostThreshold() {
+        return costThreshold;
+    }
+
+    /**
+     * Sets the cost above which an operation is always checkpointed.
+     *
+     * @param costThreshold The cost threshold in milliseconds.
+     */
+    public void setCostThreshold(long costThreshold) {
+        this.costThreshold = Math.max(0, costThreshold);
+    }
+
+    /**
+     * Gets the maximum number of bytes to spend on checkpoints.
+     *
+     * @return The memory budget in bytes.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Sets the maximum number of bytes to spend on checkpoints, evicting
+     * checkpoints if the new budget is already exceeded.
+     *
+     * @param memoryBudget The memory budget in bytes.
+     */
+    public void setMemoryBudget(long memoryBudget) {
+        this.memoryBudget = Math.max(0, memoryBudget);
+        evict();
+    }
+
+    /**
+     * Gets the number of bytes currently spent on checkpoints and patches.
+     *
+     * @return The number of bytes currently spent on checkpoints and patches.
+     */
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    /**
+     * Gets the number of checkpoints currently stored.
+     *
+     * @return The number of checkpoints.
+     */
+    public int size() {
+        return checkpoints.size();
+    }
+
+    /**
+     * <p>
+     * Record the result of applying an operation.
+     * </p>
+     *
+     * <p>
+     * The image is copied and stored if its depth falls on the regular interval
+     * or the operation took longer than the cost threshold, and there is room in
+     * the memory budget.
+     * </p>
+     *
+     * @param depth The number of operations applied to produce the image.
+     * @param op    The operation that produced the image.
+     * @param image The result of the operation.
+     * @param cost  The time in nanoseconds the operation took.
+     */
+    public void record(int depth, ImageOperation op, BufferedImage image, long cost) {
+        pendingCost += cost;
+        Checkpoint existing = checkpoints.get(depth);
+        if (existing != null && existing.op == op) {
+            pendingCost = 0;
+            return;
+        }
+        boolean regular = depth % interval == 0;
+        boolean expensive = cost / 1000000 >= costThreshold;
+        if (!regular && !expensive) {
+            return;
+        }
+        long bytes = sizeOf(image);
+        if (bytes > memoryBudget) {
+            return;
+        }
+        remove(depth);
+
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.op = op;
+        checkpoint.image = WorkingFormat.copy(image);
+        checkpoint.bytes = bytes;
+        checkpoint.replayCost = pendingCost;
+        checkpoints.put(depth, checkpoint);
+        usedBytes += bytes;
+        pendingCost = 0;
+        evict();
+    }
+
+    /**
+     * <p>
+     * Store an image as a checkpoint, whatever its depth and cost.
+     * </p>
+     *
+     * <p>
+     * This is used for checkpoints read back from a {@link CheckpointFile}.
+     * The image is stored as it is, rather than copied, as long as there is room
+     * in the memory budget.
+     * </p>
+     *
+     * @param depth The number of operations applied to produce the image.
+     * @param op    The operation that produced the image.
+     * @param image The result of the operation.
+     */
+    public void add(int depth, ImageOperation op, BufferedImage image) {
+        long bytes = sizeOf(image);
+        if (bytes > memoryBudget) {
+            return;
+        }
+        remove(depth);
+        Checkpoint checkpoint = new Checkpoint();
+        checkpoint.op = op;
+        checkpoint.image = image;
+        checkpoint.bytes = bytes;
+        checkpoints.put(depth, checkpoint);
+        usedBytes += bytes;
+        evict();
+    }
+
+    /**
+     * <p>
+     * Keep the pixels a region operation is about to draw over.
+     * </p>
+     *
+     * <p>
+     * The pixels are stored as they are, so they must be a copy.
+     * </p>
+     *
+     * @param depth  The number of operations applied once the region operation is.
+     * @param op     The region operation.
+     * @param bounds Where the pixels are in the image.
+     * @param pixels The pixels as they were before the operation.
+     */
+    public void recordPatch(int depth, ImageOperation op, Rectangle bounds, BufferedImage pixels) {
+        long bytes = sizeOf(pixels);
+        if (bytes > memoryBudget) {
+            return;
+        }
+        removePatch(depth);
+        Patch patch = new Patch();
+        patch.op = op;
+        patch.bounds = new Rectangle(bounds);
+        patch.pixels = pixels;
+        patch.bytes = bytes;
+        patches.put(depth, patch);
+        usedBytes += bytes;
+        evict();
+    }
+
+    /**
+     * <p>
+     * Find the pixels drawn over by the operation at the given depth.
+     * </p>
+     *
+     * <p>
+     * A patch is only valid if the operation that drew over it is still the
+     * operation at that depth in the given history.
+     * The patch is kept, since it stays valid if the operation is undone and
+     * redone.
+     * </p>
+     *
+     * @param ops   The current sequence of operations.
+     * @param depth The depth of the operation.
+     * @return Where the pixels are, and the pixels as they were before the operation, or null if there is no
+     *         valid patch.
+     */
+    public Map.Entry<Rectangle, BufferedImage> patch(List<ImageOperation> ops, int depth) {
+        Patch patch = patches.get(depth);
+        if (patch == null || depth <= 0 || depth > ops.size() || ops.get(depth - 1) != patch.op) {
+            return null;
+        }
+        return new AbstractMap.SimpleImmutableEntry<Rectangle, BufferedImage>(new Rectangle(patch.bounds),
+                patch.pixels);
+    }
+
+    /**
+     * <p>
+     * Get the valid checkpoints, so that they can be saved.
+     * </p>
+     *
+     * <p>
+     * The images are not copied, and must not be modified.
+     * </p>
+     *
+     * @param ops The current sequence of operations.
+     * @return The image of each valid checkpoint, by depth.
+     */
+    public SortedMap<Integer, BufferedImage> snapshots(List<ImageOperation> ops) {
+        SortedMap<Integer, BufferedImage> snapshots = new TreeMap<Integer, BufferedImage>();
+        for (Map.Entry<Integer, Checkpoint> entry : checkpoints.entrySet()) {
+            if (has(ops, entry.getKey())) {
+                snapshots.put(entry.getKey(), entry.getValue().image);
+            }
+        }
+        return snapshots;
+    }
+
+    /**
+     * <p>
+     * Check whether there is a valid checkpoint at exactly the given depth.
+     * </p>
+     *
+     * @param ops   The current sequence of operations.
+     * @param depth The depth to check.
+     * @return True if the image at that depth can be restored without replay.
+     */
+    public boolean has(List<ImageOperation> ops, int depth) {
+        Checkpoint checkpoint = checkpoints.get(depth);
+        return checkpoint != null && depth > 0 && depth <= ops.size() && ops.get(depth - 1) == checkpoint.op;
+    }
+
+    /**
+     * <p>
+     * Find the deepest valid checkpoint at or below the given depth.
+     * </p>
+     *
+     * <p>
+     * A checkpoint is only valid if the operation that produced it is still the
+     * operation at that depth in the given history.
+     * The returned image is a copy, so it may be freely modified by operations
+     * that work in-place.
+     * </p>
+     *
+     * @param ops   The current sequence of operations.
+     * @param depth The depth to restore.
+     * @return The depth of the checkpoint, and a copy of its image, or null if
+     *         there is no usable checkpoint.
+     */
+    public Map.Entry<Integer, BufferedImage> restore(List<ImageOperation> ops, int depth) {
+        Map.Entry<Integer, Checkpoint> entry = checkpoints.floorEntry(depth);
+        while (entry != null) {
+            int key = entry.getKey();
+            if (key > 0 && key <= ops.size() && ops.get(key - 1) == entry.getValue().op) {
+                pendingCost = 0;
+                return new AbstractMap.SimpleImmutableEntry<Integer, BufferedImage>(key,
+                        WorkingFormat.copy(entry.getValue().image));
+            }
+            remove(key);
+            entry = checkpoints.floorEntry(key - 1);
+        }
+        return null;
+    }
+
+    /**
+     * <p>
+     * Discard all checkpoints deeper than the given depth.
+     * </p>
+     *
+     * <p>
+     * This is needed when a new operation replaces the history above a point,
+     * since the checkpoints above it no longer describe the image.
+     * </p>
+     *
+     * @param depth The deepest checkpoint to keep.
+     */
+    public void discardAbove(int depth) {
+        while (!checkpoints.isEmpty() && checkpoints.lastKey() > depth) {
+            remove(checkpoints.lastKey());
+        }
+        while (!patches.isEmpty() && patches.lastKey() > depth) {
+            removePatch(patches.lastKey());
+        }
+    }
+
+    /**
+     * <p>
+     * Discard all checkpoints, for example when a new image is opened.
+     * </p>
+     */
+    public void clear() {
+        for (Checkpoint checkpoint : checkpoints.values()) {
+            ImagePool.release(checkpoint.image);
+        }
+        checkpoints.clear();
+        patches.clear();
+        usedBytes = 0;
+        pendingCost = 0;
+    }
+
+    /**
+     * Remove the checkpoint at the given depth, if there is one.
+     *
+     * @param depth The depth of the checkpoint to remove.
+     */
+    private void remove(int depth) {
+        Checkpoint removed = checkpoints.remove(depth);
+        if (removed != null) {
+            // Only copies of the image were ever handed out, so it can be reused
+            ImagePool.release(removed.image);
+            usedBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * Remove the patch for the given depth, if there is one.
+     *
+     * @param depth The depth of the operation that drew over the patch.
+     */
+    private void removePatch(int depth) {
+        Patch removed = patches.remove(depth);
+        if (removed != null) {
+            usedBytes -= removed.bytes;
+        }
+    }
+
+    /**
+     * <p>
+     * Evict patches and checkpoints until the memory budget is respected.
+     * </p>
+     *
+     * <p>
+     * Patches are given up first, starting with the oldest, as the operations
+     * they belong to are the least likely to be undone, and can still be undone
+     * by replaying from a checkpoint.
+     * </p>
+     *
+     * <p>
+     * The checkpoint with the smallest replay cost since its predecessor is
+     * evicted first, since it is the cheapest one to do without.
+     * Its cost is carried over to the next checkpoint, which now has to replay
+     * the evicted span as well.
+     * </p>
+     */
+    private void evict() {
+        while (usedBytes > memoryBudget && !patches.isEmpty()) {
+            removePatch(patches.firstKey());
+        }
+        while (usedBytes > memoryBudget && !checkpoints.isEmpty()) {
+            Map.Entry<Integer, Checkpoint> cheapest = null;
+            for (Map.Entry<Integer, Checkpoint> entry : checkpoints.entrySet()) {
+                if (cheapest == null || entry.getValue().replayCost < cheapest.getValue().replayCost) {
+                    cheapest = entry;
+                }
+            }
+            Map.Entry<Integer, Checkpoint> next = checkpoints.higherEntry(cheapest.getKey());
+            if (next != null) {
+                next.getValue().replayCost += cheapest.getValue().replayCost;
+            }
+            remove(cheapest.getKey());
+        }
+    }
+
+    /**
+     * Estimate the memory used by an image.
+     *
+     * @param image The image to measure.
+     * @return The approximate size of the image's pixel data in bytes.
+     */
+    static long sizeOf(BufferedImage image) {
+        DataBuffer buffer = image.getRaster().getDataBuffer();
+        long elementBytes = DataBuffer.getDataTypeSize(buffer.getDataType()) / 8;
+        return (long) buffer.getSize() * buffer.getNumBanks() * elementBytes;
+    }
+}
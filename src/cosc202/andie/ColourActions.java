@@ -109,9 +109,7 @@ public class ColourActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.getImage().apply(new ConvertToGrey());
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new ConvertToGrey());
         }
 
     }
@@ -136,9 +134,7 @@ public class ColourActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.getImage().apply(new InvertColour());
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new InvertColour());
         }
 
     }
@@ -209,10 +205,7 @@ public class ColourActions {
                     String[] colours = new String[] { colour1, colour2, colour3 };
 
                     // Apply the effect
-                    target.getImage().apply(new CycleColour(colours));
-
-                    target.repaint();
-                    target.getParent().revalidate();
+                    target.getExecutor().apply(new CycleColour(colours));
                     // Close the preview frame
                     previewFrame.dispose();
                 }
@@ -333,6 +326,22 @@ public class ColourActions {
             SpinnerNumberModel cSpinnerModel = new SpinnerNumberModel(0, min, max, 1);
             JSpinner cSpinner = new JSpinner(cSpinnerModel);
 
+            /*
+             * Preview the effect on the image while the values are chosen. Each spinner follows
+             * its slider, so listening to the sliders is enough
+             */
+            LivePreview preview = new LivePreview(target);
+            ChangeListener previewListener = change -> preview
+                    .update(new BrightnessContrast(bSlider.getValue(), cSlider.getValue()));
+            bSlider.addChangeListener(previewListener);
+            cSlider.addChangeListener(previewListener);
+            frame.addWindowListener(new WindowAdapter() {
+                @Override
+                public void windowClosed(WindowEvent e) {
+                    preview.close();
+                }
+            });
+
             /*
              * ChangeListeners to update slider and spinner to the same number when changed
              */
@@ -362,9 +371,7 @@ public class ColourActions {
                     int contrast = cSlider.getValue();
 
                     // Apply the effect
-                    target.getImage().apply(new BrightnessContrast(brightness, contrast));
-                    target.repaint();
-                    target.getParent().revalidate();
+                    target.getExecutor().apply(new BrightnessContrast(brightness, contrast));
                     // Close the preview frame
                     frame.dispose();
                 }
@@ -466,14 +473,17 @@ public class ColourActions {
             Dimension size = new Dimension(300, 50);
             slider.setPreferredSize(size);
 
+            // Preview the saturation on the image while the amount is chosen
+            LivePreview preview = new LivePreview(target);
+            slider.addChangeListener(change -> preview.update(new Saturator((float) slider.getValue() / 100)));
+
             int choice = JOptionPane.showOptionDialog(null, slider, bundle.getString("chooseSaturationAmount"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             if (choice == JOptionPane.OK_OPTION) {
                 float amount = (float) slider.getValue() / 100;
-                target.getImage().apply(new Saturator(amount));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new Saturator(amount));
             } else if (choice == JOptionPane.CANCEL_OPTION) {
                 return;
             }
@@ -1,7 +1,5 @@
 package cosc202.andie;
 
-import java.awt.image.*;
-
 /**
  * <p>
  * ImageOperation to convert an image from colour to greyscale.
@@ -21,7 +19,7 @@ import java.awt.image.*;
  * @author Steven Mills
  * @version 1.0
  */
-public class ConvertToGrey implements ImageOperation, java.io.Serializable {
+public class ConvertToGrey implements PointOperation, InPlaceOperation, java.io.Serializable {
 
     /**
      * <p>
@@ -34,7 +32,7 @@ public class ConvertToGrey implements ImageOperation, java.io.Serializable {
 
     /**
      * <p>
-     * Apply greyscale conversion to an image.
+     * Apply greyscale conversion to a single pixel.
      * </p>
      * 
      * <p>
@@ -44,31 +42,22 @@ public class ConvertToGrey implements ImageOperation, java.io.Serializable {
      * least to blue.
      * </p>
      * 
-     * @param input The image to be converted to greyscale
-     * @return The resulting greyscale image.
+     * @param argb The pixel to be converted to greyscale, as packed ARGB
+     * @return The resulting grey pixel.
      */
-    public BufferedImage apply(BufferedImage input) {
-
-        for (int y = 0; y < input.getHeight(); ++y) {
-            for (int x = 0; x < input.getWidth(); ++x) {
-                int argb = input.getRGB(x, y);
-                /*
-                 * >> sets shifted-in bits to match the sign (high order) bit
-                 * >>> sets shifted-in bits to zero always
-                 */
-                int a = (argb & 0xFF000000) >>> 24;
-                int r = (argb & 0x00FF0000) >> 16;
-                int g = (argb & 0x0000FF00) >> 8;
-                int b = (argb & 0x000000FF);
-
-                int grey = (int) Math.round(0.3 * r + 0.6 * g + 0.1 * b);
-
-                argb = (a << 24) | (grey << 16) | (grey << 8) | grey;
-                input.setRGB(x, y, argb);
-            }
-        }
-
-        return input;
+    public int filterRGB(int argb) {
+        /*
+         * >> sets shifted-in bits to match the sign (high order) bit
+         * >>> sets shifted-in bits to zero always
+         */
+        int a = (argb & 0xFF000000) >>> 24;
+        int r = (argb & 0x00FF0000) >> 16;
+        int g = (argb & 0x0000FF00) >> 8;
+        int b = (argb & 0x000000FF);
+
+        int grey = (int) Math.round(0.3 * r + 0.6 * g + 0.1 * b);
+
+        return (a << 24) | (grey << 16) | (grey << 8) | grey;
     }
 
 }
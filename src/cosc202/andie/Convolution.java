@@ -1,13 +1,43 @@
 package cosc202.andie;
 
 import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
 import java.awt.image.Kernel;
+import java.awt.image.SinglePixelPackedSampleModel;
+import java.awt.image.WritableRaster;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
+ * <p>
  * Class for convolving images using kernels.
+ * </p>
+ *
+ * <p>
+ * The image is split into horizontal bands which are convolved in parallel on
+ * the common fork-join pool.
+ * Each band reads its own rows plus a halo of {@code radius} rows above and
+ * below, straight from the image's pixel array where possible, and writes only
+ * its own rows of the output.
+ * Pixels far enough from the edge that the whole kernel lies inside the image
+ * skip the clamping used for edge pixels, and each run of them is convolved by
+ * {@link PixelKernels}, several pixels at a time where the Vector API is available.
+ * </p>
+ *
+ * <p>
+ * Kernels that are the outer product of two 1-D kernels, such as the mean and
+ * Gaussian kernels, can instead be applied as two 1-D passes with
+ * {@link #convolveSeparable}.
+ * </p>
  */
 public class Convolution {
-    
+
+    /**
+     * The fewest rows in a band that is worth splitting any further.
+     */
+    private static final int MIN_BAND_ROWS = 16;
 
     /**
      * Default Constructor
@@ -18,12 +48,12 @@ public class Convolution {
      * <p>
      * Convolution Method
      * </p>
-     * 
+     *
      * <p>
      * Convolves an image with a specefied kernel.
      * Pixels outside the image take the colour value of the nearest valid pixel.
      * </p>
-     * 
+     *
      * @param input The image to convolve
      * @param output The convolved image
      * @param kernel The kernel to apply
@@ -31,60 +61,43 @@ public class Convolution {
      * @return The convolved image
      */
     public BufferedImage convolveImage(BufferedImage input, BufferedImage output, Kernel kernel, int radius) {
-        float[] matrix = kernel.getKernelData(null);
-        int col = kernel.getWidth();
-        for (int y=0; y < input.getHeight(); y++) {         // For each pixel in image
-            for (int x=0; x < input.getWidth(); x++) {
-                float newA = 0;
-                float newR = 0;
-                float newG = 0;
-                float newB = 0;
-                for (int ky = -radius; ky <= radius; ky++) {        // For each pixel in kernel
-                    for (int kx = -radius; kx <= radius; kx++) {
-                        if (matrix[(ky+radius)*col+kx+radius] == 0) continue;   // Ignore pixels that are 0 in the kernel
-
-                        int pixelX = Math.min(Math.max(x+kx, 0), input.getWidth()-1);   // If pixel is outside of the image, use the nearest pixel instead
-                        int pixelY = Math.min(Math.max(y+ky, 0), input.getHeight()-1);
-
-                        int argb = input.getRGB(pixelX, pixelY);    // Get colour of the pixel
-                        int a = (argb & 0xFF000000) >> 24;
-                        int r = (argb & 0x00FF0000) >> 16;
-                        int g = (argb & 0x0000FF00) >> 8;
-                        int b = (argb & 0x000000FF);
-
-                        newA += a * matrix[(ky+radius)*col+kx+radius];      // Add pixels weighted colour to the final pixel colour
-                        newR += r * matrix[(ky+radius)*col+kx+radius];
-                        newG += g * matrix[(ky+radius)*col+kx+radius];
-                        newB += b * matrix[(ky+radius)*col+kx+radius];
-                    }
-                }
-
-                int a = (int) Math.min(Math.max(newA, 0), 255);         // Turn into int and clamp to colour range
-                int r = (int) Math.min(Math.max(newR, 0), 255);
-                int g = (int) Math.min(Math.max(newG, 0), 255);
-                int b = (int) Math.min(Math.max(newB, 0), 255);
-                
-                int argb = (a << 24) | (r << 16) | (g << 8) | b;        // Set output pixel colour to new colour
-                output.setRGB(x, y, argb);
-            }
-        }
-        return output;
+        return convolveImage(input, output, kernel, radius, new OperationMonitor());
+    }
+
+    /**
+     * <p>
+     * As {@link #convolveImage(BufferedImage, BufferedImage, Kernel, int)}, reporting
+     * progress after each band and stopping if the monitor is cancelled.
+     * </p>
+     *
+     * @param input The image to convolve
+     * @param output The convolved image
+     * @param kernel The kernel to apply
+     * @param radius The radius of the kernel
+     * @param monitor The monitor to report progress to
+     * @return The convolved image
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled
+     */
+    public BufferedImage convolveImage(BufferedImage input, BufferedImage output, Kernel kernel, int radius, OperationMonitor monitor) {
+        return convolve(input, output, kernel, radius, false, monitor);
     }
 
     /**
      * <p>
      * Convolution with offset Method
      * </p>
-     * 
+     *
      * <p>
      * Convolves an image with a specefied kernel.
-     * 
+     *
      * Pixels outside the image take the colour value of the nearest valid pixel.
-     * 
-     * Negative results from the convolution are accounted for by being shifted by an 
-     * offset instead of being clipped - useful for edge detection filters. 
+     *
+     * Negative results from the convolution are accounted for by being shifted by an
+     * offset instead of being clipped - useful for edge detection filters.
+     * Each pixel keeps its own alpha, rather than becoming as transparent as the
+     * edges in its alpha channel.
      * </p>
-     * 
+     *
      * @param input The image to convolve
      * @param output The convolved image
      * @param kernel The kernel to apply
@@ -92,43 +105,480 @@ public class Convolution {
      * @return The convolved image
      */
     public BufferedImage convolveImageWithOffset(BufferedImage input, BufferedImage output, Kernel kernel, int radius) {
+        return convolveImageWithOffset(input, output, kernel, radius, new OperationMonitor());
+    }
+
+    /**
+     * <p>
+     * As {@link #convolveImageWithOffset(BufferedImage, BufferedImage, Kernel, int)}, reporting
+     * progress after each band and stopping if the monitor is cancelled.
+     * </p>
+     *
+     * @param input The image to convolve
+     * @param output The convolved image
+     * @param kernel The kernel to apply
+     * @param radius The radius of the kernel
+     * @param monitor The monitor to report progress to
+     * @return The convolved image
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled
+     */
+    public BufferedImage convolveImageWithOffset(BufferedImage input, BufferedImage output, Kernel kernel, int radius, OperationMonitor monitor) {
+        return convolve(input, output, kernel, radius, true, monitor);
+    }
+
+    /**
+     * <p>
+     * Separable convolution Method
+     * </p>
+     *
+     * <p>
+     * Convolves an image with a kernel that is the outer product of a vertical
+     * and a horizontal 1-D kernel, as a horizontal pass followed by a vertical
+     * pass.
+     * This costs O(r) per pixel rather than the O(r&sup2;) of
+     * {@link #convolveImage(BufferedImage, BufferedImage, Kernel, int)}.
+     * Pixels outside the image take the colour value of the nearest valid pixel.
+     * </p>
+     *
+     * <p>
+     * The result of the horizontal pass is rounded to whole colour values, so
+     * the output may differ from the equivalent 2-D convolution by one colour
+     * level.
+     * Both 1-D kernels should have non-negative weights, as negative
+     * intermediate values are clipped.
+     * </p>
+     *
+     * @param input The image to convolve
+     * @param output The convolved image
+     * @param horizontal The 1-D kernel to apply along each row, of length 2*radius+1
+     * @param vertical The 1-D kernel to apply down each column, of length 2*radius+1
+     * @param monitor The monitor to report progress to
+     * @return The convolved image
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled
+     */
+    public BufferedImage convolveSeparable(BufferedImage input, BufferedImage output, float[] horizontal, float[] vertical, OperationMonitor monitor) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        monitor.checkCancelled();
+
+        boolean alpha = output.getColorModel().hasAlpha();
+        int[] src = readPixels(input, alpha);
+        int[] temp = new int[width * height];
+        int[] dst = writablePixels(output);
+        boolean direct = dst != null && dst != src;
+        if (!direct) {
+            dst = new int[width * height];
+        }
+
+        // Each row counts twice towards progress, once for each pass
+        AtomicInteger rowsDone = new AtomicInteger();
+        int[] rowTaps = taps(horizontal, 1);
+        int[] columnTaps = taps(vertical, width);
+        int[] rowDst = temp;
+        int[] columnDst = dst;
+        forEachBand(height, 2 * height, monitor, rowsDone,
+                (startY, endY) -> convolveLine(src, rowDst, width, height, rowTaps, horizontal, 1, alpha, true, startY, endY));
+        forEachBand(height, 2 * height, monitor, rowsDone,
+                (startY, endY) -> convolveLine(rowDst, columnDst, width, height, columnTaps, vertical, width, alpha, false, startY, endY));
+
+        if (!direct) {
+            output.setRGB(0, 0, width, height, dst, 0, width);
+        }
+        monitor.progress(2 * height, 2 * height);
+        return output;
+    }
+
+    /**
+     * <p>
+     * Convolve an image, optionally shifting the colour channels by an offset.
+     * </p>
+     *
+     * @param input The image to convolve
+     * @param output The convolved image
+     * @param kernel The kernel to apply
+     * @param radius The radius of the kernel
+     * @param offset Whether to halve and shift the colour channels instead of clipping negative values
+     * @param monitor The monitor to report progress to
+     * @return The convolved image
+     */
+    private BufferedImage convolve(BufferedImage input, BufferedImage output, Kernel kernel, int radius, boolean offset, OperationMonitor monitor) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        monitor.checkCancelled();
+
+        // Gather the non-zero taps of the kernel, in the same order the kernel is scanned
         float[] matrix = kernel.getKernelData(null);
         int col = kernel.getWidth();
-        for (int y=0; y < input.getHeight(); y++) {         // For each pixel in image
-            for (int x=0; x < input.getWidth(); x++) {
-                float newA = 0;
-                float newR = 0;
-                float newG = 0;
-                float newB = 0;
-                for (int ky = -radius; ky <= radius; ky++) {        // For each pixel in kernel
-                    for (int kx = -radius; kx <= radius; kx++) {
-                        if (matrix[(ky+radius)*col+kx+radius] == 0) continue;   // Ignore pixels that are 0 in the kernel
-
-                        int pixelX = Math.min(Math.max(x+kx, 0), input.getWidth()-1);   // If pixel is outside of the image, use the nearest pixel instead
-                        int pixelY = Math.min(Math.max(y+ky, 0), input.getHeight()-1);
-
-                        int argb = input.getRGB(pixelX, pixelY);    // Get colour of the pixel
-                        int a = (argb & 0xFF000000) >> 24;
-                        int r = (argb & 0x00FF0000) >> 16;
-                        int g = (argb & 0x0000FF00) >> 8;
-                        int b = (argb & 0x000000FF);
-
-                        newA += a * matrix[(ky+radius)*col+kx+radius];      // Add pixels weighted colour to the final pixel colour
-                        newR += r * matrix[(ky+radius)*col+kx+radius];
-                        newG += g * matrix[(ky+radius)*col+kx+radius];
-                        newB += b * matrix[(ky+radius)*col+kx+radius];
-                    }
-                }
-
-                int a = (int) Math.min(Math.max(newA, 0), 255);         // Turn into int and clamp to colour range
-                int r = (int) Math.min(Math.max(newR / 2 + 127, 0), 255);
-                int g = (int) Math.min(Math.max(newG / 2 + 127, 0), 255);
-                int b = (int) Math.min(Math.max(newB / 2 + 127, 0), 255);
-                
-                int argb = (a << 24) | (r << 16) | (g << 8) | b;        // Set output pixel colour to new colour
-                output.setRGB(x, y, argb);
+        int[] dx = new int[(2*radius+1) * (2*radius+1)];
+        int[] dy = new int[dx.length];
+        float[] weights = new float[dx.length];
+        int taps = 0;
+        for (int ky = -radius; ky <= radius; ky++) {        // For each pixel in kernel
+            for (int kx = -radius; kx <= radius; kx++) {
+                if (matrix[(ky+radius)*col+kx+radius] == 0) continue;   // Ignore pixels that are 0 in the kernel
+                dx[taps] = kx;
+                dy[taps] = ky;
+                weights[taps] = matrix[(ky+radius)*col+kx+radius];
+                taps++;
             }
         }
+        int[] tapX = Arrays.copyOf(dx, taps);
+        int[] tapY = Arrays.copyOf(dy, taps);
+        float[] weight = Arrays.copyOf(weights, taps);
+
+        boolean alpha = output.getColorModel().hasAlpha();
+        int[] src = readPixels(input, alpha);
+        int[] out = writablePixels(output);
+        boolean direct = out != null && out != src;
+        int[] dst = direct ? out : new int[width * height];
+
+        forEachBand(height, height, monitor, new AtomicInteger(),
+                (startY, endY) -> convolveRows(src, dst, width, height, tapX, tapY, weight, alpha, offset, startY, endY));
+
+        if (!direct) {
+            output.setRGB(0, 0, width, height, dst, 0, width);
+        }
+        monitor.progress(height, height);
         return output;
     }
+
+    /**
+     * <p>
+     * Convolve a band of rows with a 2-D kernel.
+     * </p>
+     *
+     * @param src    The input pixels.
+     * @param dst    The output pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param dx     The x offsets of the non-zero kernel taps.
+     * @param dy     The y offsets of the non-zero kernel taps.
+     * @param weight The weights of the non-zero kernel taps.
+     * @param alpha  Whether to compute the alpha channel.
+     * @param offset Whether to halve and shift the colour channels.
+     * @param startY The first row of the band.
+     * @param endY   The row after the last row of the band.
+     */
+    private static void convolveRows(int[] src, int[] dst, int width, int height, int[] dx, int[] dy, float[] weight,
+            boolean alpha, boolean offset, int startY, int endY) {
+        int radiusX = 0;
+        int radiusY = 0;
+        int[] delta = new int[dx.length];
+        for (int t = 0; t < dx.length; t++) {
+            radiusX = Math.max(radiusX, Math.abs(dx[t]));
+            radiusY = Math.max(radiusY, Math.abs(dy[t]));
+            delta[t] = dy[t] * width + dx[t];
+        }
+        PixelKernels kernels = PixelKernels.get();
+        for (int y = startY; y < endY; y++) {          // For each row in the band
+            // The whole kernel lies inside the image from start to end, so no clamping is needed there
+            boolean interiorRow = y >= radiusY && y < height - radiusY;
+            int start = interiorRow ? Math.min(radiusX, width) : width;
+            int end = Math.max(width - radiusX, start);
+            for (int x = 0; x < start; x++) {
+                dst[y * width + x] = edgePixel(src, width, height, dx, dy, weight, alpha, offset, x, y);
+            }
+            kernels.convolve(src, dst, y * width + start, y * width + end, delta, weight, alpha, offset, 0);
+            for (int x = end; x < width; x++) {
+                dst[y * width + x] = edgePixel(src, width, height, dx, dy, weight, alpha, offset, x, y);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Convolve a pixel near the edge of the image with a 2-D kernel.
+     * </p>
+     *
+     * @param src    The input pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param dx     The x offsets of the non-zero kernel taps.
+     * @param dy     The y offsets of the non-zero kernel taps.
+     * @param weight The weights of the non-zero kernel taps.
+     * @param alpha  Whether to compute the alpha channel.
+     * @param offset Whether to halve and shift the colour channels.
+     * @param x      The column of the pixel.
+     * @param y      The row of the pixel.
+     * @return The convolved pixel.
+     */
+    private static int edgePixel(int[] src, int width, int height, int[] dx, int[] dy, float[] weight,
+            boolean alpha, boolean offset, int x, int y) {
+        float newA = 0;
+        float newR = 0;
+        float newG = 0;
+        float newB = 0;
+        for (int t = 0; t < dx.length; t++) {
+            int pixelX = Math.min(Math.max(x+dx[t], 0), width-1);   // If pixel is outside of the image, use the nearest pixel instead
+            int pixelY = Math.min(Math.max(y+dy[t], 0), height-1);
+            int argb = src[pixelY * width + pixelX];
+            float w = weight[t];
+            newA += (argb >>> 24) * w;
+            newR += ((argb >> 16) & 0xFF) * w;
+            newG += ((argb >> 8) & 0xFF) * w;
+            newB += (argb & 0xFF) * w;
+        }
+        return PixelKernels.pack(newA, newR, newG, newB, src[y * width + x], alpha, offset, 0);
+    }
+
+    /**
+     * <p>
+     * Convolve a band of rows with a 1-D kernel, along either the rows or the columns.
+     * </p>
+     *
+     * @param src    The input pixels.
+     * @param dst    The output pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param delta  The index offset of each kernel tap, from {@link #taps(float[], int)}.
+     * @param weight The weights of the kernel.
+     * @param step   The index offset between neighbouring taps, 1 along a row or width down a column.
+     * @param alpha  Whether to compute the alpha channel.
+     * @param round  Whether to round rather than truncate, for intermediate results.
+     * @param startY The first row of the band.
+     * @param endY   The row after the last row of the band.
+     */
+    private static void convolveLine(int[] src, int[] dst, int width, int height, int[] delta, float[] weight, int step,
+            boolean alpha, boolean round, int startY, int endY) {
+        int radius = weight.length / 2;
+        boolean horizontal = step == 1;
+        float bias = round ? 0.5f : 0;
+        PixelKernels kernels = PixelKernels.get();
+        for (int y = startY; y < endY; y++) {
+            // The whole kernel lies inside the image from start to end, so no clamping is needed there
+            int start;
+            if (horizontal) {
+                start = Math.min(radius, width);
+            } else {
+                start = y >= radius && y < height - radius ? 0 : width;
+            }
+            int end = horizontal ? Math.max(width - radius, start) : width;
+            for (int x = 0; x < start; x++) {
+                dst[y * width + x] = edgePixel(src, width, height, weight, horizontal, alpha, bias, x, y);
+            }
+            kernels.convolve(src, dst, y * width + start, y * width + end, delta, weight, alpha, false, bias);
+            for (int x = end; x < width; x++) {
+                dst[y * width + x] = edgePixel(src, width, height, weight, horizontal, alpha, bias, x, y);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Convolve a pixel near the edge of the image with a 1-D kernel.
+     * </p>
+     *
+     * @param src        The input pixels.
+     * @param width      The width of the image.
+     * @param height     The height of the image.
+     * @param weight     The weights of the kernel.
+     * @param horizontal Whether the kernel lies along the row rather than down the column.
+     * @param alpha      Whether to compute the alpha channel.
+     * @param bias       The amount to add to each channel before it is truncated.
+     * @param x          The column of the pixel.
+     * @param y          The row of the pixel.
+     * @return The convolved pixel.
+     */
+    private static int edgePixel(int[] src, int width, int height, float[] weight, boolean horizontal,
+            boolean alpha, float bias, int x, int y) {
+        int radius = weight.length / 2;
+        int position = horizontal ? x : y;
+        int length = horizontal ? width : height;
+        float newA = 0;
+        float newR = 0;
+        float newG = 0;
+        float newB = 0;
+        for (int t = 0; t < weight.length; t++) {
+            int p = Math.min(Math.max(position + t - radius, 0), length - 1);   // Use the nearest pixel inside the image
+            int argb = horizontal ? src[y * width + p] : src[p * width + x];
+            float w = weight[t];
+            newA += (argb >>> 24) * w;
+            newR += ((argb >> 16) & 0xFF) * w;
+            newG += ((argb >> 8) & 0xFF) * w;
+            newB += (argb & 0xFF) * w;
+        }
+        return PixelKernels.pack(newA, newR, newG, newB, src[y * width + x], alpha, false, bias);
+    }
+
+    /**
+     * Work out the index offset of each tap of a 1-D kernel.
+     *
+     * @param weight The weights of the kernel.
+     * @param step   The index offset between neighbouring taps.
+     * @return The index offset of each tap from the centre pixel.
+     */
+    private static int[] taps(float[] weight, int step) {
+        int[] delta = new int[weight.length];
+        for (int t = 0; t < weight.length; t++) {
+            delta[t] = (t - weight.length / 2) * step;
+        }
+        return delta;
+    }
+
+    /**
+     * <p>
+     * Process the rows of an image in parallel bands on the common fork-join pool.
+     * </p>
+     *
+     * <p>
+     * This is shared with other neighbourhood filters that split their work
+     * into row bands in the same way.
+     * </p>
+     *
+     * @param height    The number of rows in the image.
+     * @param totalRows The total number of rows the operation will process, for reporting progress.
+     * @param monitor   The monitor to report progress to.
+     * @param rowsDone  The number of rows finished so far.
+     * @param rows      The work to do on each band.
+     */
+    static void forEachBand(int height, int totalRows, OperationMonitor monitor, AtomicInteger rowsDone, Rows rows) {
+        ForkJoinPool.commonPool().invoke(new Band(rows, 0, height, totalRows, monitor, rowsDone));
+    }
+
+    /**
+     * Work done on a band of rows.
+     */
+    interface Rows {
+        /**
+         * Process a band of rows.
+         *
+         * @param startY The first row of the band.
+         * @param endY   The row after the last row of the band.
+         */
+        void process(int startY, int endY);
+    }
+
+    /**
+     * <p>
+     * A horizontal band of rows to be processed.
+     * </p>
+     *
+     * <p>
+     * Bands larger than {@link #MIN_BAND_ROWS} are split in half until there are
+     * enough bands to keep every thread in the pool busy.
+     * Each band checks for cancellation before it starts, and reports progress
+     * when it finishes.
+     * </p>
+     */
+    private static class Band extends RecursiveAction {
+
+        /** The work to do on the band. */
+        private final Rows rows;
+        /** The first row of the band. */
+        private final int startY;
+        /** The row after the last row of the band. */
+        private final int endY;
+        /** The total number of rows the operation will process. */
+        private final int totalRows;
+        /** The monitor to report progress to. */
+        private final OperationMonitor monitor;
+        /** The number of rows finished across all bands. */
+        private final AtomicInteger rowsDone;
+
+        /**
+         * Create a new Band.
+         *
+         * @param rows      The work to do on the band.
+         * @param startY    The first row of the band.
+         * @param endY      The row after the last row of the band.
+         * @param totalRows The total number of rows the operation will process.
+         * @param monitor   The monitor to report progress to.
+         * @param rowsDone  The number of rows finished across all bands.
+         */
+        Band(Rows rows, int startY, int endY, int totalRows, OperationMonitor monitor, AtomicInteger rowsDone) {
+            this.rows = rows;
+            this.startY = startY;
+            this.endY = endY;
+            this.totalRows = totalRows;
+            this.monitor = monitor;
+            this.rowsDone = rowsDone;
+        }
+
+        @Override
+        protected void compute() {
+            int count = endY - startY;
+            if (count > MIN_BAND_ROWS && getSurplusQueuedTaskCount() <= 2) {
+                int midY = startY + count / 2;
+                invokeAll(new Band(rows, startY, midY, totalRows, monitor, rowsDone),
+                        new Band(rows, midY, endY, totalRows, monitor, rowsDone));
+                return;
+            }
+            monitor.checkCancelled();
+            rows.process(startY, endY);
+            synchronized (monitor) {
+                monitor.progress(rowsDone.addAndGet(count), totalRows);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Get the pixels of an image as packed ARGB values.
+     * </p>
+     *
+     * <p>
+     * Images stored as one ARGB int per pixel are read straight from their
+     * data buffer without copying, as are {@link BufferedImage#TYPE_INT_RGB}
+     * images when their alpha is not needed.
+     * Other images are converted with {@link BufferedImage#getRGB}.
+     * </p>
+     *
+     * @param image The image to read.
+     * @param alpha Whether the alpha byte of each pixel must be correct.
+     * @return The pixels of the image, row by row.
+     */
+    static int[] readPixels(BufferedImage image, boolean alpha) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB
+                || (!alpha && image.getType() == BufferedImage.TYPE_INT_RGB)) {
+            int[] pixels = packedPixels(image);
+            if (pixels != null) {
+                return pixels;
+            }
+        }
+        return image.getRGB(0, 0, image.getWidth(), image.getHeight(), null, 0, image.getWidth());
+    }
+
+    /**
+     * <p>
+     * Get the data buffer of an image that can be written to as packed ARGB values.
+     * </p>
+     *
+     * <p>
+     * This is only possible for {@link BufferedImage#TYPE_INT_ARGB} images, and
+     * {@link BufferedImage#TYPE_INT_RGB} images, which ignore the alpha byte.
+     * </p>
+     *
+     * @param image The image to write to.
+     * @return The pixels of the image, or null if they must be written with
+     *         {@link BufferedImage#setRGB}.
+     */
+    static int[] writablePixels(BufferedImage image) {
+        if (image.getType() == BufferedImage.TYPE_INT_ARGB || image.getType() == BufferedImage.TYPE_INT_RGB) {
+            return packedPixels(image);
+        }
+        return null;
+    }
+
+    /**
+     * Get the backing array of an image with one int per pixel and no padding.
+     *
+     * @param image The image to read.
+     * @return The backing array, or null if the image is not laid out that way.
+     */
+    private static int[] packedPixels(BufferedImage image) {
+        WritableRaster raster = image.getRaster();
+        if (!(raster.getDataBuffer() instanceof DataBufferInt)
+                || !(raster.getSampleModel() instanceof SinglePixelPackedSampleModel)
+                || raster.getSampleModelTranslateX() != 0 || raster.getSampleModelTranslateY() != 0
+                || raster.getDataBuffer().getNumBanks() != 1) {
+            return null;
+        }
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        if (model.getScanlineStride() != image.getWidth() || buffer.getOffset() != 0
+                || buffer.getSize() != image.getWidth() * image.getHeight()) {
+            return null;
+        }
+        return buffer.getData();
+    }
 }
@@ -87,18 +87,13 @@ public class CopyPreview implements ImageOperation, java.io.Serializable {
      * @return The resulting new image.
      */
     public BufferedImage apply(BufferedImage input) {
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_ARGB);
-        // Iterate through each pixel
-        for (int y = 0; y < image.getHeight(); y++) {
-            for (int x = 0; x < image.getWidth(); x++) {
-                // Get the color of the pixel from the preview image
-                int argb = image.getRGB(x, y);
-
-                // Set the same pixel on the output image to the same color
-                output.setRGB(x, y, argb);
-            }
+        PixelBuffer pixels = PixelBuffer.read(image);
+        PixelBuffer output = PixelBuffer.create(input.getWidth(), input.getHeight());
+        // Copy each row of the preview image onto the output image
+        for (int y = 0; y < pixels.height; y++) {
+            System.arraycopy(pixels.data, pixels.index(0, y), output.data, output.index(0, y), pixels.width);
         }
-        return output;
+        return output.getImage();
     }
 
 }
@@ -7,7 +7,7 @@ import java.awt.image.RasterFormatException;
 /**
  * Class to crop image to specified area.
  */
-public class CropImage implements ImageOperation, java.io.Serializable {
+public class CropImage implements ScalableOperation, java.io.Serializable {
 
     /** Start point of the crop area on X axis */
     int startPointX;
@@ -75,8 +75,20 @@ public class CropImage implements ImageOperation, java.io.Serializable {
      *         MouseListener.
      */
     public BufferedImage apply(BufferedImage input) throws RasterFormatException {
-        BufferedImage output = input.getSubimage(getX(), getY(), getWidth(), getHeight());
+        // The crop is copied out, so that it does not keep the whole input alive or share its pixels
+        BufferedImage output = WorkingFormat.copy(input.getSubimage(getX(), getY(), getWidth(), getHeight()));
         MyMouseListener.setIsRegionSelection(false);
         return output;
     }
+
+    /**
+     * Gets a copy of this crop for the same image at a different resolution.
+     * 
+     * @param factor The size of the other image relative to this one.
+     * @return A crop of the same area of the other image.
+     */
+    public ImageOperation scaled(double factor) {
+        return new CropImage(ScalableOperation.scale(new Point(startPointX, startPointY), factor),
+                ScalableOperation.scale(new Point(endPointX, endPointY), factor));
+    }
 }
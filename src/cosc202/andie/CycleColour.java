@@ -1,13 +1,12 @@
 package cosc202.andie;
 
-import java.awt.image.*;
 import java.util.ResourceBundle;
 
 /**
  * ImageOperation to cycle the colour values of an image in a user specified
  * direction.
  */
-public class CycleColour implements ImageOperation, java.io.Serializable {
+public class CycleColour implements PointOperation, InPlaceOperation, java.io.Serializable {
 
     /**
      *  Language Bundle for Multilingual Support
@@ -48,38 +47,59 @@ public class CycleColour implements ImageOperation, java.io.Serializable {
     }
 
     /**
-     * Cycles each colour value in the direction specified
+     * Works out which input channel each output channel is taken from.
      * 
-     * @param input The image to be colour cycled
-     * @return The resulting cycled image.
+     * @return For red, green and blue in turn, the input channel it is taken from
+     *         (0 for red, 1 for green, 2 for blue), or -1 if it is left empty.
      */
-    public BufferedImage apply(BufferedImage input) {
-        int[] rgbValues = new int[3];
-
-        for (int y = 0; y < input.getHeight(); ++y) {
-            for (int x = 0; x < input.getWidth(); ++x) {
-                int argb = input.getRGB(x, y);
-                int a = (argb & 0xFF000000) >> 24;
-                int r = (argb & 0x00FF0000) >> 16;
-                int g = (argb & 0x0000FF00) >> 8;
-                int b = (argb & 0x000000FF);
+    private int[] sources() {
+        int[] sources = {-1, -1, -1};
 
-                int[] rgb = new int[] {r, g, b};
+        //Check each of the colours selected and set the sources accordingly
+        for (int i = 0; i < sources.length; i++) {
+            if (colours[i] == bundle.getString("red")) sources[0] = i;
+            else if (colours[i] == bundle.getString("green")) sources[1] = i;
+            else if (colours[i] == bundle.getString("blue")) sources[2] = i;
+        }
+        return sources;
+    }
 
-                //Check each of the colours selected and set the rgbValues accordingly
-                for (int i = 0; i < rgb.length; i++) {
-                    if (colours[i] == bundle.getString("red")) rgbValues[0] = rgb[i];
-                    else if (colours[i] == bundle.getString("green")) rgbValues[1] = rgb[i];
-                    else if (colours[i] == bundle.getString("blue")) rgbValues[2] = rgb[i];
-                }
+    /**
+     * Cycles each colour value of a single pixel in the direction specified
+     * 
+     * @param argb The pixel to be colour cycled, as packed ARGB
+     * @return The resulting cycled pixel.
+     */
+    public int filterRGB(int argb) {
+        int[] rgb = new int[] {(argb >> 16) & 0xFF, (argb >> 8) & 0xFF, argb & 0xFF};
+        int[] sources = sources();
+        int[] rgbValues = new int[3];
+        for (int i = 0; i < rgbValues.length; i++) {
+            if (sources[i] >= 0) rgbValues[i] = rgb[sources[i]];
+        }
 
-                argb = (a << 24) | (rgbValues[0] << 16) | (rgbValues[1] << 8) | rgbValues[2];
+        return (argb & 0xFF000000) | (rgbValues[0] << 16) | (rgbValues[1] << 8) | rgbValues[2];
+    }
 
-                input.setRGB(x, y, argb);
-            }
+    /**
+     * Cycling only moves whole channels around, so it can be done with lookup tables
+     * 
+     * @return The lookup tables for cycling.
+     */
+    public ChannelMap channelMap() {
+        int[] identity = new int[256];
+        for (int v = 0; v < 256; v++) {
+            identity[v] = v;
         }
-
-        return input;
+        int[] sources = sources();
+        // The channel map counts channels from blue upwards, the other way round to rgb
+        int[] mapSources = new int[3];
+        int[][] tables = new int[3][];
+        for (int i = 0; i < sources.length; i++) {
+            mapSources[2 - i] = sources[i] >= 0 ? 2 - sources[i] : 0;
+            tables[2 - i] = sources[i] >= 0 ? identity : new int[256];
+        }
+        return new ChannelMap(mapSources, tables, -1);
     }
 
 }
@@ -7,7 +7,7 @@ import java.awt.image.BufferedImage;
  * Draws shapes onto the input image based on user input of type of shape,
  * rectangle, oval or line. As well as colour of the shape.
  */
-public class DrawShapes implements ImageOperation, java.io.Serializable {
+public class DrawShapes implements ScalableOperation, RegionOperation, java.io.Serializable {
 
     /** The type of shape to be drawn */
     private int shapeType;
@@ -37,6 +37,25 @@ public class DrawShapes implements ImageOperation, java.io.Serializable {
         MyMouseListener.setShapeType(shapeType);
     }
 
+    /**
+     * Creates an empty shape, without changing the shape type of the drawing
+     * tool, for {@link OpsFile} to read a saved shape into.
+     */
+    DrawShapes() {
+    }
+
+    /**
+     * Copies a shape, without changing the shape type of the drawing tool.
+     * 
+     * @param other The shape to copy.
+     */
+    private DrawShapes(DrawShapes other) {
+        this.shapeType = other.shapeType;
+        this.colourToDraw = other.colourToDraw;
+        this.startPoint = other.startPoint;
+        this.endPoint = other.endPoint;
+    }
+
     /**
      * Sets the colour for the drawing tool.
      * 
@@ -111,4 +130,27 @@ public class DrawShapes implements ImageOperation, java.io.Serializable {
         g2d.dispose();
         return input;
     }
+
+    /**
+     * Gets the part of the image the shape covers.
+     * 
+     * @return The bounds of the shape, including the end points of a line.
+     */
+    public Rectangle getBounds() {
+        // Lines are drawn through both end points, so they reach one pixel further than a filled shape
+        return new Rectangle(Math.min(startPoint.x, endPoint.x), Math.min(startPoint.y, endPoint.y),
+                Math.abs(startPoint.x - endPoint.x) + 1, Math.abs(startPoint.y - endPoint.y) + 1);
+    }
+
+    /**
+     * Gets a copy of this shape for the same image at a different resolution.
+     * 
+     * @param factor The size of the other image relative to this one.
+     * @return The same shape, with its region scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        DrawShapes shape = new DrawShapes(this);
+        shape.setRegion(ScalableOperation.scale(startPoint, factor), ScalableOperation.scale(endPoint, factor));
+        return shape;
+    }
 }
\ No newline at end of file
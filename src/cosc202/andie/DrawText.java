@@ -1,13 +1,14 @@
 package cosc202.andie;
 
 import java.awt.*;
+import java.awt.font.FontRenderContext;
 import java.awt.image.BufferedImage;
 
 /**
  * Draws text of a users choice onto the image. Allows for customisation of all
  * parts of text including, size, colour, style and font.
  */
-public class DrawText implements ImageOperation, java.io.Serializable {
+public class DrawText implements ScalableOperation, RegionOperation, java.io.Serializable {
 
     /** The text to be drawn on the image */
     private String text;
@@ -48,6 +49,28 @@ public class DrawText implements ImageOperation, java.io.Serializable {
         MyMouseListener.setFontStyle(fontStyle);
     }
 
+    /**
+     * Creates empty text, without changing the settings of the text tool, for
+     * {@link OpsFile} to read saved text into.
+     */
+    DrawText() {
+    }
+
+    /**
+     * Copies some text, without changing the settings of the text tool.
+     * 
+     * @param other The text to copy.
+     */
+    private DrawText(DrawText other) {
+        this.text = other.text;
+        this.colourToDraw = other.colourToDraw;
+        this.fontSize = other.fontSize;
+        this.fontType = other.fontType;
+        this.fontStyle = other.fontStyle;
+        this.startPoint = other.startPoint;
+        this.endPoint = other.endPoint;
+    }
+
     /**
      * Sets the colour for the drawing tool.
      * 
@@ -165,4 +188,31 @@ public class DrawText implements ImageOperation, java.io.Serializable {
         return input;
     }
 
+    /**
+     * Gets the part of the image the text covers.
+     * 
+     * @return The bounds of the text as it is drawn onto an image.
+     */
+    public Rectangle getBounds() {
+        // Measured the way an image's own graphics draws it, with no antialiasing
+        FontRenderContext context = new FontRenderContext(null, false, false);
+        Rectangle bounds = new Font(fontType, fontStyle, fontSize).createGlyphVector(context, text)
+                .getPixelBounds(context, Math.min(startPoint.x, endPoint.x), Math.min(startPoint.y, endPoint.y));
+        bounds.grow(1, 1);
+        return bounds;
+    }
+
+    /**
+     * Gets a copy of this text for the same image at a different resolution.
+     * 
+     * @param factor The size of the other image relative to this one.
+     * @return The same text, with its font size and region scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        DrawText copy = new DrawText(this);
+        copy.setFontSize(ScalableOperation.scale(fontSize, factor));
+        copy.setRegion(ScalableOperation.scale(startPoint, factor), ScalableOperation.scale(endPoint, factor));
+        return copy;
+    }
+
 }
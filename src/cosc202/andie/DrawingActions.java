@@ -212,9 +212,7 @@ public class DrawingActions {
                 drawText.setFontSize(MyMouseListener.getFontSize());
                 drawText.setFont(MyMouseListener.getFont());
                 drawText.setFontStyle(MyMouseListener.getFontStyle());
-                target.getImage().apply(drawText);
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(drawText);
             } else {
                 Object[] options = { bundle.getString("okOption"), bundle.getString("cancelOption") };
                 int option = JOptionPane.showOptionDialog(null, bundle.getString("drawingPopUp"),
@@ -41,6 +41,7 @@ public class EditActions {
         actions = new ArrayList<Action>();
         actions.add(new UndoAction(bundle.getString("undo"), null, bundle.getString("undo"), Integer.valueOf(KeyEvent.VK_Z)));
         actions.add(new RedoAction(bundle.getString("redo"), null, bundle.getString("redo"), Integer.valueOf(KeyEvent.VK_Y)));
+        actions.add(new CancelAction(bundle.getString("cancelOperation"), null, bundle.getString("cancelOperationDesc"), Integer.valueOf(KeyEvent.VK_C)));
     }
 
     /**
@@ -96,9 +97,7 @@ public class EditActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.getImage().undo();
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().undo();
         }
     }
 
@@ -138,9 +137,49 @@ public class EditActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.getImage().redo();
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().redo();
+        }
+    }
+
+
+    /**
+     * <p>
+     * Action to cancel the {@link ImageOperation} that is currently running.
+     * </p>
+     * 
+     * @see OperationExecutor#cancelAll()
+     */
+    public class CancelAction extends ImageAction {
+
+        /**
+         * <p>
+         * Create a new cancel action.
+         * </p>
+         * 
+         * @param name     The name of the action (ignored if null).
+         * @param icon     An icon to use to represent the action (ignored if null).
+         * @param desc     A brief description of the action (ignored if null).
+         * @param mnemonic A mnemonic key to use as a shortcut (ignored if null).
+         */
+        CancelAction(String name, ImageIcon icon, String desc, Integer mnemonic) {
+            super(name, icon, desc, mnemonic);
+        }
+
+        /**
+         * <p>
+         * Callback for when the cancel action is triggered.
+         * </p>
+         * 
+         * <p>
+         * This method is called whenever the CancelAction is triggered.
+         * It stops the operation that is currently running and discards any that
+         * are waiting, leaving the image as it was before them.
+         * </p>
+         * 
+         * @param e The event triggering this callback.
+         */
+        public void actionPerformed(ActionEvent e) {
+            target.getExecutor().cancelAll();
         }
     }
 
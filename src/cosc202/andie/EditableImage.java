@@ -2,9 +2,16 @@ package cosc202.andie;
 
 import java.util.*;
 import java.io.*;
+import java.awt.Dimension;
+import java.awt.Graphics2D;
+import java.awt.Rectangle;
+import java.awt.RenderingHints;
 import java.awt.image.*;
+import java.nio.ByteBuffer;
+import java.nio.file.*;
 import javax.imageio.*;
 import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
 
 /**
  * <p>
@@ -31,6 +38,32 @@ import javax.swing.JOptionPane;
  * </p>
  * 
  * <p>
+ * {@link RegionOperation}s, such as drawing a shape, are applied to the current
+ * image in place, and only the pixels they drew over are kept to undo them.
+ * The part of the image that changed is recorded with the new
+ * {@link getVersion version}, so views of the image only need to update that
+ * part.
+ * </p>
+ * 
+ * <p>
+ * Images with more pixels than the {@link getTiledThreshold tiled threshold}
+ * are too large to keep several copies of in memory, so they are held as
+ * {@link TiledImage}s on disk instead.
+ * Only {@link LocalOperation}s can be applied to these images, one tile at a
+ * time.
+ * </p>
+ * 
+ * <p>
+ * Images larger than the {@link setProxySize proxy size} are instead edited
+ * as a downscaled proxy, so that each edit only has to process as many pixels
+ * as can be shown on screen.
+ * The operations are kept in terms of the full-resolution image, and are only
+ * applied to it when the image is exported.
+ * Once the image is resized to a given width and height it is edited at full
+ * resolution instead.
+ * </p>
+ * 
+ * <p>
  * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
  * 4.0</a>
  * </p>
@@ -47,8 +80,20 @@ class EditableImage {
     private BufferedImage original;
     /**
      * The current image, the result of applying {@link ops} to {@link original}.
+     * Volatile because it is replaced by the {@link OperationExecutor}'s worker
+     * thread while the panel reads it to paint.
+     */
+    private volatile BufferedImage current;
+    /**
+     * The number of times the current image has changed, so that views of it,
+     * such as the {@link ImagePanel}'s {@link ImagePyramid}, know when to update.
+     */
+    private volatile long version;
+    /**
+     * The part of the current image that changed to make it, keyed by the version
+     * it made, or null if the whole image may have changed.
      */
-    private BufferedImage current;
+    private volatile Map.Entry<Long, Rectangle> damage;
     /** The sequence of operations currently applied to the image. */
     private Stack<ImageOperation> ops;
     /** A memory of 'undone' operations to support 'redo'. */
@@ -63,6 +108,29 @@ class EditableImage {
     private String macroFilename;
     /** Is the macro currently recording? */
     private boolean macroRecording = false;
+    /** Snapshots of the image part way through {@link ops}, to speed up undo and redo. */
+    private CheckpointStore checkpoints;
+    /** The journal of edits since the operations were last saved, or null if there is no image. */
+    private OpsJournal journal;
+    /** The hash of the original image's pixels, which saved checkpoints are keyed by, or null if it is tiled. */
+    private ByteBuffer originalHash;
+    /** The original image, if it is too large to hold in memory. This should never be altered by ANDIE. */
+    private TiledImage originalTiles;
+    /**
+     * The result of applying {@link ops} to {@link originalTiles}, if the image is
+     * too large to hold in memory.
+     */
+    private volatile TiledImage currentTiles;
+    /** The file the tiled image was read from, which save copies rather than encoding it again. */
+    private String tilesFilename;
+    /** The number of pixels above which images are held as tiles. */
+    private long tiledThreshold;
+    /** The largest size of image to edit at full resolution, or null to always edit at full resolution. */
+    private Dimension proxySize;
+    /** A downscaled copy of {@link original} that edits are shown on, or null if there is none. */
+    private BufferedImage proxy;
+    /** The size of {@link proxy} relative to {@link original}. */
+    private double proxyScale;
 
     /**
      * <p>
@@ -80,6 +148,12 @@ class EditableImage {
         ops = new Stack<ImageOperation>();
         redoOps = new Stack<ImageOperation>();
         macroOps = new Stack<ImageOperation>();
+        checkpoints = new CheckpointStore();
+        // Leave room for the undo checkpoints and a few working copies of the image
+        tiledThreshold = Runtime.getRuntime().maxMemory() / 32;
+        proxySize = null;
+        proxy = null;
+        proxyScale = 1.0;
         imageFilename = null;
         opsFilename = null;
         macroFilename = null;
@@ -93,7 +167,118 @@ class EditableImage {
      * @return True if there is an image, false otherwise.
      */
     public boolean hasImage() {
-        return current != null;
+        return current != null || currentTiles != null;
+    }
+
+    /**
+     * <p>
+     * Check if the image is too large to hold in memory, and is held as tiles.
+     * </p>
+     * 
+     * @return True if the image is tiled, false otherwise.
+     */
+    public boolean isTiled() {
+        return currentTiles != null;
+    }
+
+    /**
+     * <p>
+     * Get the width of the current image.
+     * </p>
+     * 
+     * @return The width of the current image, whether or not it is tiled.
+     */
+    public int getWidth() {
+        TiledImage tiles = currentTiles;
+        return tiles != null ? tiles.getWidth() : current.getWidth();
+    }
+
+    /**
+     * <p>
+     * Get the height of the current image.
+     * </p>
+     * 
+     * @return The height of the current image, whether or not it is tiled.
+     */
+    public int getHeight() {
+        TiledImage tiles = currentTiles;
+        return tiles != null ? tiles.getHeight() : current.getHeight();
+    }
+
+    /**
+     * <p>
+     * Get the number of pixels above which images are held as tiles.
+     * </p>
+     * 
+     * @return The tiled threshold in pixels.
+     */
+    public long getTiledThreshold() {
+        return tiledThreshold;
+    }
+
+    /**
+     * <p>
+     * Set the number of pixels above which images are held as tiles.
+     * </p>
+     * 
+     * <p>
+     * This only affects images opened afterwards.
+     * </p>
+     * 
+     * @param tiledThreshold The tiled threshold in pixels.
+     */
+    public void setTiledThreshold(long tiledThreshold) {
+        this.tiledThreshold = tiledThreshold;
+    }
+
+    /**
+     * <p>
+     * Check if the image is being edited as a downscaled proxy.
+     * </p>
+     * 
+     * @return True if edits are shown on a proxy, false if they are shown at full resolution.
+     */
+    public boolean isProxy() {
+        return proxy != null;
+    }
+
+    /**
+     * <p>
+     * Get the size of the proxy relative to the full-resolution image.
+     * </p>
+     * 
+     * @return The scale of the proxy, or 1 if there is no proxy.
+     */
+    public double getProxyScale() {
+        return proxyScale;
+    }
+
+    /**
+     * <p>
+     * Get the largest size of image that is edited at full resolution.
+     * </p>
+     * 
+     * @return The proxy size, or null if images are always edited at full resolution.
+     */
+    public Dimension getProxySize() {
+        return proxySize;
+    }
+
+    /**
+     * <p>
+     * Set the largest size of image that is edited at full resolution.
+     * </p>
+     * 
+     * <p>
+     * Larger images are edited as a proxy scaled down to fit within this size,
+     * usually the size of the screen.
+     * This only affects images opened afterwards.
+     * </p>
+     * 
+     * @param proxySize The proxy size, or null to always edit at full resolution.
+     */
+    public void setProxySize(Dimension proxySize) {
+        this.proxySize = proxySize;
     }
 
     /**
@@ -132,6 +317,47 @@ class EditableImage {
         return macroOps;
     }
 
+    /**
+     * <p>
+     * Returns the store of checkpoints used to speed up undo and redo, so that its
+     * interval, cost threshold and memory budget can be configured.
+     * </p>
+     * 
+     * @return The checkpoint store for this image.
+     */
+    public CheckpointStore getCheckpoints() {
+        return checkpoints;
+    }
+
+    /**
+     * <p>
+     * Returns the journal of edits made since the operations were last saved.
+     * </p>
+     * 
+     * @return The journal, or null if there is no image or it could not be opened.
+     */
+    OpsJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * <p>
+     * Throw away the edits made since the operations were last saved, so that
+     * they are not replayed the next time the image is opened.
+     * </p>
+     * 
+     * <p>
+     * This is called when the user chooses to close the image without saving.
+     * Edits made after this are no longer journaled.
+     * </p>
+     */
+    public synchronized void discardJournal() {
+        if (journal != null) {
+            journal.delete();
+            journal = null;
+        }
+    }
+
     /**
      * <p>
      * Make a 'deep' copy of a BufferedImage.
@@ -174,7 +400,7 @@ class EditableImage {
      * @param bi The BufferedImage to copy.
      * @return A deep copy of the input.
      */
-    private static BufferedImage deepCopy(BufferedImage bi) {
+    static BufferedImage deepCopy(BufferedImage bi) {
         ColorModel cm = bi.getColorModel();
         boolean isAlphaPremultiplied = cm.isAlphaPremultiplied();
         WritableRaster raster = bi.copyData(null);
@@ -195,39 +421,90 @@ class EditableImage {
      * read the operations from <code>some/path/to/image.png.ops</code>.
      * </p>
      * 
+     * <p>
+     * Images larger than the tiled threshold are read into a {@link TiledImage}
+     * a band at a time, so that the whole image is never held in memory.
+     * Other images are converted to the {@link WorkingFormat} as they are read.
+     * </p>
+     * 
      * @param filePath The file to open the image from.
      * @throws IOException If something goes wrong.
      */
-    public void open(String filePath) throws IOException {
+    public synchronized void open(String filePath) throws IOException {
         imageFilename = filePath;
         opsFilename = imageFilename + ".ops";
+        if (journal != null) {
+            journal.close();
+            journal = null;
+        }
         File imageFile = new File(imageFilename);
-        original = ImageIO.read(imageFile);
-        current = deepCopy(original);
+        Dimension size = TiledImage.size(imageFile);
+        TiledImage oldTiles = originalTiles;
+        if (size != null && (long) size.width * size.height > tiledThreshold) {
+            originalTiles = TiledImage.read(imageFile);
+            tilesFilename = imageFilename;
+            original = null;
+            originalHash = null;
+            setCurrent(null);
+            proxy = null;
+            proxyScale = 1.0;
+        } else {
+            BufferedImage decoded = ImageIO.read(imageFile);
+            originalHash = OpsFile.hash(decoded);
+            // Every operation reads and writes the same format from here on
+            original = WorkingFormat.convert(decoded);
+            makeProxy();
+            setCurrent(WorkingFormat.copy(proxy != null ? proxy : original));
+            originalTiles = null;
+        }
+        replaceTiles(originalTiles);
+        if (oldTiles != null) {
+            oldTiles.close();
+        }
+        checkpoints.clear();
 
-        try {
-            FileInputStream fileIn = new FileInputStream(this.opsFilename);
-            ObjectInputStream objIn = new ObjectInputStream(fileIn);
-
-            // Silence the Java compiler warning about type casting.
-            // Understanding the cause of the warning is way beyond
-            // the scope of COSC202, but if you're interested, it has
-            // to do with "type erasure" in Java: the compiler cannot
-            // produce code that fails at this point in all cases in
-            // which there is actually a type mismatch for one of the
-            // elements within the Stack, i.e., a non-ImageOperation.
-            @SuppressWarnings("unchecked")
-            Stack<ImageOperation> opsFromFile = (Stack<ImageOperation>) objIn.readObject();
+        try (OpsFile.Reader reader = OpsFile.read(new File(this.opsFilename))) {
+            // Operations are decoded one at a time as they are pushed
+            Stack<ImageOperation> opsFromFile = new Stack<ImageOperation>();
+            ImageOperation op;
+            while ((op = reader.next()) != null) {
+                opsFromFile.push(op);
+            }
             ops = opsFromFile;
             redoOps.clear();
-            objIn.close();
-            fileIn.close();
 
         } catch (Exception ex) {
             // Could be no file or something else. Carry on for now.
             ops.clear();
             redoOps.clear();
         }
+
+        // Replay any edits that were not saved before ANDIE last stopped
+        try {
+            journal = OpsJournal.open(new File(this.opsFilename), ops, redoOps);
+        } catch (IOException ex) {
+            // The journal is left alone, and edits are not journaled
+            journal = null;
+        }
+        if (proxy != null && ops.stream().anyMatch(EditableImage::fixesSize)) {
+            proxy = null;
+            proxyScale = 1.0;
+            setCurrent(WorkingFormat.copy(original));
+        }
+
+        // Start from the deepest saved checkpoint, rather than applying every operation again
+        if (originalHash != null) {
+            BufferedImage base = proxy != null ? proxy : original;
+            try {
+                Map.Entry<Integer, BufferedImage> saved = CheckpointFile.read(new File(this.opsFilename),
+                        originalHash, base.getWidth(), base.getHeight(), ops);
+                if (saved != null) {
+                    checkpoints.add(saved.getKey(), ops.get(saved.getKey() - 1), saved.getValue());
+                }
+            } catch (IOException ex) {
+                // Replay from the original instead
+            }
+        }
         this.refresh();
     }
 
@@ -245,6 +522,14 @@ class EditableImage {
      * the current operations to <code>some/path/to/image.png.ops</code>.
      * </p>
      * 
+     * <p>
+     * The operations are written in the {@link OpsFile} format, with any images
+     * they hold in a side file with <code>.blobs</code> added.
+     * The {@link OpsJournal} of edits made since the last save is then emptied,
+     * and the current image is saved as a {@link CheckpointFile} so that the
+     * image can be reopened without applying every operation again.
+     * </p>
+     * 
      * @throws IOException If something goes wrong.
      */
     public void save() throws IOException {
@@ -259,31 +544,66 @@ class EditableImage {
         try {
             String extension = imageFilename.substring(1 + imageFilename.lastIndexOf(".")).toLowerCase();
 
+            if (originalTiles != null) {
+                // The original is unchanged, so copy its file rather than encoding it again
+                String tilesExtension = tilesFilename.substring(1 + tilesFilename.lastIndexOf(".")).toLowerCase();
+                if (!extension.equals(tilesExtension)) {
+                    showDialog("saveFileExtensionNotSuitable", "error", JOptionPane.ERROR_MESSAGE);
+                    return;
+                }
+                Path source = Paths.get(tilesFilename);
+                Path target = Paths.get(imageFilename);
+                if (!Files.exists(target) || !Files.isSameFile(source, target)) {
+                    Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                }
+                tilesFilename = imageFilename;
             // Check if the file is being saved as an image file, if not then return
-            if (!ImageIO.write(original, extension, new File(imageFilename))) {
-                Object[] options = { bundle.getString("okOption") };
-                JOptionPane.showOptionDialog(null, bundle.getString("saveFileExtensionNotSuitable"),
-                        bundle.getString("error"),
-                        JOptionPane.OK_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+            } else if (!WorkingFormat.write(original, extension, new File(imageFilename))) {
+                showDialog("saveFileExtensionNotSuitable", "error", JOptionPane.ERROR_MESSAGE);
                 return;
             }
 
-            ImageIO.write(original, extension, new File(imageFilename));
-            // Write operations file
-            FileOutputStream fileOut = new FileOutputStream(this.opsFilename);
-            ObjectOutputStream objOut = new ObjectOutputStream(fileOut);
-            objOut.writeObject(this.ops);
-            objOut.close();
-            fileOut.close();
+            // Write operations file, which now holds everything in the journal
+            synchronized (this) {
+                OpsFile.write(this.ops, new File(this.opsFilename));
+                if (journal != null) {
+                    journal = journal.compact(new File(this.opsFilename));
+                }
+                saveCheckpoints();
+            }
         } catch (NullPointerException e) {
 
-            Object[] options = { bundle.getString("okOption") };
-            JOptionPane.showOptionDialog(null, bundle.getString("fileIsNull"), bundle.getString("error"),
-                    JOptionPane.OK_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+            showDialog("fileIsNull", "error", JOptionPane.ERROR_MESSAGE);
         }
 
     }
 
+    /**
+     * <p>
+     * Save the current image, and the deepest checkpoints below it, beside the
+     * operations file.
+     * </p>
+     * 
+     * <p>
+     * Tiled images have no checkpoints, so any old checkpoints file is deleted
+     * instead.
+     * </p>
+     * 
+     * @throws IOException If the checkpoints cannot be written.
+     */
+    private void saveCheckpoints() throws IOException {
+        File opsFile = new File(this.opsFilename);
+        if (originalHash == null || current == null) {
+            CheckpointFile.checkpointFile(opsFile).delete();
+            return;
+        }
+        SortedMap<Integer, BufferedImage> images = checkpoints.snapshots(ops);
+        images.put(ops.size(), current);
+        images.remove(0);
+        BufferedImage base = proxy != null ? proxy : original;
+        CheckpointFile.write(opsFile, originalHash, base.getWidth(), base.getHeight(), ops, images);
+    }
+
     /**
      * <p>
      * Save an image to a specified file.
@@ -315,6 +635,13 @@ class EditableImage {
      * Export an image to the file provided as a parameter.
      * </p>
      * 
+     * <p>
+     * Tiled images are written a band at a time by the {@link StreamingExport},
+     * which can only write some formats, such as TIFF.
+     * If the image is being edited as a proxy, the operations are applied to the
+     * full-resolution original first.
+     * </p>
+     * 
      * @param imageFilename The file location to save the image to.
      * @throws IOException If something goes wrong.
      */
@@ -323,12 +650,30 @@ class EditableImage {
         // Update bundle in case of language change
         bundle = ResourceBundle.getBundle("LanguageBundle");
 
+        if (isTiled()) {
+            // The whole image will not fit in memory, so write it a band at a time
+            File target = new File(imageFilename);
+            if (!StreamingExport.canStream(target)) {
+                showDialog("imageTooLargeToExport", "error", JOptionPane.ERROR_MESSAGE);
+                return;
+            }
+            StreamingExport.export(currentTiles, target, new OperationMonitor());
+            return;
+        }
+
+        BufferedImage image = proxy != null ? renderFullResolution() : current;
+
         // Write image file based on file extension
         String extension = imageFilename.substring(1 + imageFilename.lastIndexOf(".")).toLowerCase();
-        ImageIO.write(current, extension, new File(imageFilename));
-        // Check the file extension is an image extension
-        if (!ImageIO.write(current, extension, new File(imageFilename))) {
-            throw new IOException(bundle.getString("notAnImageFile"));
+        try {
+            // Check the file extension is an image extension
+            if (!WorkingFormat.write(image, extension, new File(imageFilename))) {
+                throw new IOException(bundle.getString("notAnImageFile"));
+            }
+        } finally {
+            if (image != current) {
+                ImagePool.release(image);
+            }
         }
     }
 
@@ -379,11 +724,7 @@ class EditableImage {
         this.macroFilename = this.imageFilename.substring(0, this.imageFilename.lastIndexOf("\\")) + "\\Macro.ops";
 
         // Write macro file
-        FileOutputStream fileOut = new FileOutputStream(this.macroFilename);
-        ObjectOutputStream objOut = new ObjectOutputStream(fileOut);
-        objOut.writeObject(this.macroOps);
-        objOut.close();
-        fileOut.close();
+        OpsFile.write(this.macroOps, new File(this.macroFilename));
     }
 
     /**
@@ -393,23 +734,36 @@ class EditableImage {
      * 
      * @throws IOException If something goes wrong.
      */
-    public void applyMacro() throws IOException {
+    public synchronized void applyMacro() throws IOException {
 
         // Update bundle in case of language change
         bundle = ResourceBundle.getBundle("LanguageBundle");
 
+        int depth = ops.size();
         try {
-            Stack<ImageOperation> tempStack = new Stack<>();
-            tempStack.addAll(macroOps);
-            while (!tempStack.isEmpty()) {
-                ImageOperation currOperation = tempStack.pop();
-                current = currOperation.apply(current);
-                ops.add(currOperation);
+            // The macro is applied from the top of its stack down
+            List<ImageOperation> macro = new ArrayList<ImageOperation>(macroOps);
+            Collections.reverse(macro);
+            if (isTiled()) {
+                ops.addAll(macro);
+                replaceTiles(replayTiles(currentTiles, depth));
+            } else {
+                // Work on a copy so that the displayed image only changes once the whole macro is done
+                BufferedImage image = WorkingFormat.copy(current);
+                checkpoints.discardAbove(depth);
+                ops.addAll(macro);
+                if (proxy != null && macro.stream().anyMatch(EditableImage::fixesSize)) {
+                    leaveProxy();
+                } else {
+                    setCurrent(replay(image, depth));
+                }
+            }
+            for (ImageOperation op : macro) {
+                journalApplied(op);
             }
         } catch (NullPointerException e) {
-            Object[] options = { bundle.getString("okOption") };
-            JOptionPane.showOptionDialog(null, bundle.getString("couldNotApplyMacro"), bundle.getString("error"),
-                    JOptionPane.OK_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+            ops.setSize(depth);
+            showDialog("couldNotApplyMacro", "error", JOptionPane.ERROR_MESSAGE);
         }
 
     }
@@ -421,23 +775,183 @@ class EditableImage {
      * 
      * @param op The operation to apply.
      */
-    public void apply(ImageOperation op) {
+    public synchronized void apply(ImageOperation op) {
         
         // Update bundle in case of language change
         bundle = ResourceBundle.getBundle("LanguageBundle");
 
         try {
-            if (macroRecording) {
-                macroOps.add(op);
+            if (isTiled()) {
+                applyTiled(op, new OperationMonitor());
+                return;
             }
-            current = op.apply(current);
-            ops.add(op);
+            if (op instanceof RegionOperation && current != null) {
+                ImageOperation stored = push(op);
+                checkpoints.record(ops.size(), stored, current, applyRegion((RegionOperation) op, ops.size()));
+                journalApplied(stored);
+                return;
+            }
+            long start = System.nanoTime();
+            // The current image is on screen, so an operation that changes its input is given a copy
+            BufferedImage input = op instanceof InPlaceOperation ? WorkingFormat.copy(current) : current;
+            BufferedImage result = op.apply(input);
+            commit(op, result, System.nanoTime() - start);
 
+        } catch (IOException e) {
+
+            showDialog("couldNotWriteTiles", "error", JOptionPane.ERROR_MESSAGE);
         } catch (NullPointerException e) {
 
-            Object[] options = { bundle.getString("okOption") };
-            JOptionPane.showOptionDialog(null, bundle.getString("imageNotFound"), bundle.getString("error"),
-                    JOptionPane.OK_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+            showDialog("imageNotFound", "error", JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    /**
+     * <p>
+     * Record an {@link ImageOperation} that has already been applied elsewhere.
+     * </p>
+     * 
+     * <p>
+     * This lets an operation be computed on a copy of the current image, for
+     * example by the {@link OperationExecutor}, and then published as the new
+     * current image in a single step.
+     * </p>
+     * 
+     * <p>
+     * If the image is being edited as a proxy, the operation was applied to the
+     * proxy, and is recorded scaled up to the full-resolution image.
+     * </p>
+     * 
+     * @param op     The operation that was applied.
+     * @param result The result of applying the operation to the current image.
+     * @param cost   The time in nanoseconds the operation took.
+     */
+    public synchronized void commit(ImageOperation op, BufferedImage result, long cost) {
+        op = push(op);
+        if (proxy != null && fixesSize(op)) {
+            leaveProxy();
+        } else {
+            setCurrent(result);
+            checkpoints.record(ops.size(), op, result, cost);
+        }
+        journalApplied(op);
+    }
+
+    /**
+     * <p>
+     * Add a newly applied {@link ImageOperation} to the top of the stack.
+     * </p>
+     * 
+     * <p>
+     * Checkpoints above the operation no longer describe the image, so they are
+     * discarded, and the operation is added to the macro if one is recording.
+     * </p>
+     * 
+     * @param op The operation, in terms of the image being shown.
+     * @return The operation as it is stored, in terms of the full-resolution image.
+     */
+    private ImageOperation push(ImageOperation op) {
+        op = scaleOperation(op, 1.0 / proxyScale);
+        if (macroRecording) {
+            macroOps.add(op);
+        }
+        checkpoints.discardAbove(ops.size());
+        ops.add(op);
+        return op;
+    }
+
+    /**
+     * <p>
+     * Apply a {@link RegionOperation} to the current image in place.
+     * </p>
+     * 
+     * <p>
+     * The pixels the operation draws over are kept first, so that undoing it
+     * only has to put them back.
+     * </p>
+     * 
+     * @param op    The operation, in terms of the image being shown.
+     * @param depth The depth of the operation in {@link ops}.
+     * @return The time in nanoseconds the operation took.
+     */
+    private long applyRegion(RegionOperation op, int depth) {
+        long start = System.nanoTime();
+        Rectangle bounds = op.getBounds().intersection(new Rectangle(current.getWidth(), current.getHeight()));
+        BufferedImage under = null;
+        if (!bounds.isEmpty()) {
+            WritableRaster pixels = current.getRaster().createCompatibleWritableRaster(bounds.width, bounds.height);
+            pixels.setDataElements(0, 0, current.getRaster().createChild(bounds.x, bounds.y, bounds.width,
+                    bounds.height, 0, 0, null));
+            under = new BufferedImage(current.getColorModel(), pixels, current.isAlphaPremultiplied(), null);
+        }
+        BufferedImage result = op.apply(current);
+        if (result != current) {
+            // The operation made a new image after all, so the kept pixels cannot undo it
+            setCurrent(result);
+        } else {
+            if (under != null) {
+                checkpoints.recordPatch(depth, ops.get(depth - 1), bounds, under);
+            }
+            setCurrent(result, bounds);
+        }
+        return System.nanoTime() - start;
+    }
+
+    /**
+     * <p>
+     * Apply an {@link ImageOperation} to a tiled image, one tile at a time.
+     * </p>
+     * 
+     * <p>
+     * The result is computed without holding the lock on this image, like an
+     * operation applied by the {@link OperationExecutor}, and then committed in
+     * a single step.
+     * Operations that are not {@link LocalOperation}s cannot be applied to a tiled
+     * image, and the user is told so instead.
+     * </p>
+     * 
+     * @param op      The operation to apply.
+     * @param monitor The monitor to report progress to and check for cancellation.
+     * @throws IOException If the tiles for the result cannot be written.
+     */
+    public void applyTiled(ImageOperation op, OperationMonitor monitor) throws IOException {
+
+        // Update bundle in case of language change
+        bundle = ResourceBundle.getBundle("LanguageBundle");
+
+        if (!(op instanceof LocalOperation)) {
+            showDialog("imageTooLargeForOperation", "message", JOptionPane.INFORMATION_MESSAGE);
+            return;
+        }
+        TiledImage result = currentTiles.apply((LocalOperation) op, monitor);
+        commitTiled(op, result);
+    }
+
+    /**
+     * <p>
+     * Record an {@link ImageOperation} that has already been applied to the tiles.
+     * </p>
+     * 
+     * @param op     The operation that was applied.
+     * @param result The result of applying the operation to the current tiles.
+     */
+    private synchronized void commitTiled(ImageOperation op, TiledImage result) {
+        if (macroRecording) {
+            macroOps.add(op);
+        }
+        replaceTiles(result);
+        ops.add(op);
+        journalApplied(op);
+    }
+
+    /**
+     * Add an operation that has been applied to the journal, if there is one.
+     * 
+     * @param op The operation.
+     */
+    private void journalApplied(ImageOperation op) {
+        if (journal != null) {
+            journal.applied(op);
         }
     }
 
@@ -446,19 +960,28 @@ class EditableImage {
      * Undo the last {@link ImageOperation} applied to the image.
      * </p>
      */
-    public void undo() {
+    public synchronized void undo() {
 
         // Update bundle in case of language change
         bundle = ResourceBundle.getBundle("LanguageBundle");
 
         try {
+            Map.Entry<Rectangle, BufferedImage> patch = isTiled() ? null : checkpoints.patch(ops, ops.size());
             redoOps.push(ops.pop());
-            refresh();
+            if (patch != null) {
+                // Only the pixels the operation drew over need to be put back
+                Rectangle bounds = patch.getKey();
+                current.getRaster().setDataElements(bounds.x, bounds.y, patch.getValue().getRaster());
+                setCurrent(current, bounds);
+            } else {
+                refresh();
+            }
+            if (journal != null) {
+                journal.undone();
+            }
         } catch (EmptyStackException e) {
 
-            Object[] options = { bundle.getString("okOption") };
-            JOptionPane.showOptionDialog(null, bundle.getString("noOpsToUndo"), bundle.getString("message"),
-                    JOptionPane.OK_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, null);
+            showDialog("noOpsToUndo", "message", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
@@ -467,18 +990,44 @@ class EditableImage {
      * Reapply the most recently {@link undo}ne {@link ImageOperation} to the image.
      * </p>
      */
-    public void redo() {
+    public synchronized void redo() {
 
         // Update bundle in case of language change
         bundle = ResourceBundle.getBundle("LanguageBundle");
 
         try {
-            apply(redoOps.pop());
+            ImageOperation op = redoOps.pop();
+            ops.add(op);
+            ImageOperation scaled = scaleOperation(op, proxyScale);
+            if (proxy != null && fixesSize(op)) {
+                leaveProxy();
+            } else if (isTiled()) {
+                replaceTiles(replayTiles(currentTiles, ops.size() - 1));
+            } else if (scaled instanceof RegionOperation) {
+                // Drawing over the current image again is cheaper than copying a checkpoint
+                checkpoints.record(ops.size(), op, current, applyRegion((RegionOperation) scaled, ops.size()));
+            } else if (checkpoints.has(ops, ops.size())) {
+                // The redone result is still stored, so there is nothing to recompute
+                setCurrent(checkpoints.restore(ops, ops.size()).getValue());
+            } else {
+                long start = System.nanoTime();
+                BufferedImage input = scaled instanceof InPlaceOperation ? WorkingFormat.copy(current) : current;
+                setCurrent(scaled.apply(input));
+                checkpoints.record(ops.size(), op, current, System.nanoTime() - start);
+            }
+            if (macroRecording) {
+                macroOps.add(op);
+            }
+            if (journal != null) {
+                journal.redone();
+            }
+        } catch (NullPointerException e) {
+
+            ops.pop();
+            showDialog("imageNotFound", "error", JOptionPane.ERROR_MESSAGE);
         } catch (EmptyStackException e) {
 
-            Object[] options = { bundle.getString("okOption") };
-            JOptionPane.showOptionDialog(null, bundle.getString("noOpsToRedo"), bundle.getString("message"),
-                    JOptionPane.OK_OPTION, JOptionPane.INFORMATION_MESSAGE, null, options, null);
+            showDialog("noOpsToRedo", "message", JOptionPane.INFORMATION_MESSAGE);
         }
     }
 
@@ -488,12 +1037,62 @@ class EditableImage {
      * </p>
      * 
      * @return The result of applying all of the current operations to the
-     *         {@link original} image.
+     *         {@link original} image, or null if the image is tiled.
      */
     public BufferedImage getCurrentImage() {
         return current;
     }
 
+    /**
+     * <p>
+     * Get the number of times the current image has changed.
+     * </p>
+     * 
+     * <p>
+     * Operations may change the current image in place, so views of it should
+     * compare versions rather than images to know when it has changed.
+     * </p>
+     * 
+     * @return The version of the current image.
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    /**
+     * <p>
+     * Get the part of the current image that changed to make a version of it.
+     * </p>
+     * 
+     * <p>
+     * This is only known when the version is the latest, and it was made by
+     * changing the current image in place, such as by a {@link RegionOperation}
+     * or undoing one.
+     * </p>
+     * 
+     * @param version The version of the current image.
+     * @return The bounds of the change, or null if the whole image may have changed.
+     */
+    public Rectangle getDamage(long version) {
+        Map.Entry<Long, Rectangle> latest = damage;
+        if (latest == null || latest.getKey() != version || this.version != version) {
+            return null;
+        }
+        return new Rectangle(latest.getValue());
+    }
+
+    /**
+     * <p>
+     * Get the current image after the operations have been applied, if it is tiled.
+     * </p>
+     * 
+     * @return The result of applying all of the current operations to the
+     *         {@link originalTiles}, or null if the image is not tiled.
+     */
+    public TiledImage getTiledImage() {
+        return currentTiles;
+    }
+
     /**
      * <p>
      * Reapply the current list of operations to the original.
@@ -507,12 +1106,314 @@ class EditableImage {
      * {@link current}
      * cannot be easily incrementally updated.
      * </p>
+     * 
+     * <p>
+     * Rather than always starting from the original, replay starts from the
+     * nearest stored checkpoint, so only the operations applied since then are
+     * repeated.
+     * Tiled images have no checkpoints, and are always replayed from the original.
+     * </p>
      */
     private void refresh() {
-        current = deepCopy(original);
-        for (ImageOperation op : ops) {
-            current = op.apply(current);
+        if (originalTiles != null) {
+            replaceTiles(replayTiles(originalTiles, 0));
+            return;
+        }
+        int start = 0;
+        BufferedImage image;
+        Map.Entry<Integer, BufferedImage> checkpoint = checkpoints.restore(ops, ops.size());
+        if (checkpoint != null) {
+            start = checkpoint.getKey();
+            image = checkpoint.getValue();
+        } else {
+            image = WorkingFormat.copy(proxy != null ? proxy : original);
+        }
+        // Only publish the finished result, never an intermediate one
+        setCurrent(replay(image, start));
+    }
+
+    /**
+     * <p>
+     * Apply the operations in {@link ops} from a given depth onwards to an image.
+     * </p>
+     * 
+     * <p>
+     * Runs of consecutive {@link PointOperation}s are applied together by the
+     * {@link PointPipeline}, in a single pass over the image.
+     * Checkpoints are only recorded at the end of each such run.
+     * The image belongs to this method, and each operation's input is released
+     * to the {@link ImagePool} once it has been replaced.
+     * If the image is being edited as a proxy, each operation is scaled to the
+     * proxy first.
+     * </p>
+     * 
+     * @param image The image after the first depth operations.
+     * @param depth The number of operations already applied to the image.
+     * @return The image after all of the operations.
+     */
+    private BufferedImage replay(BufferedImage image, int depth) {
+        for (int i = depth; i < ops.size(); i++) {
+            List<PointOperation> run = PointPipeline.run(ops, i);
+            long opStart = System.nanoTime();
+            BufferedImage result;
+            if (run.size() > 1) {
+                result = PointPipeline.apply(image, run);
+                i += run.size() - 1;
+            } else {
+                result = TileScheduler.apply(scaleOperation(ops.get(i), proxyScale), image);
+            }
+            if (result != image) {
+                // Nothing else has seen the input, so the next operation can write over it
+                ImagePool.release(image);
+            }
+            image = result;
+            checkpoints.record(i + 1, ops.get(i), image, System.nanoTime() - opStart);
+        }
+        return image;
+    }
+
+    /**
+     * <p>
+     * Apply the operations in {@link ops} from a given depth onwards to a tiled image.
+     * </p>
+     * 
+     * <p>
+     * If an operation cannot be applied to tiles, it and every operation after
+     * it are removed from {@link ops}, and the user is told why.
+     * </p>
+     * 
+     * @param tiles The image after the first depth operations, which is left open.
+     * @param depth The number of operations already applied to the image.
+     * @return The image after all of the operations.
+     */
+    private TiledImage replayTiles(TiledImage tiles, int depth) {
+        TiledImage image = tiles;
+        for (int i = depth; i < ops.size(); i++) {
+            String error = null;
+            TiledImage next = null;
+            if (!(ops.get(i) instanceof LocalOperation)) {
+                error = "imageTooLargeForOperation";
+            } else {
+                try {
+                    next = image.apply((LocalOperation) ops.get(i), new OperationMonitor());
+                } catch (IOException e) {
+                    error = "couldNotWriteTiles";
+                }
+            }
+            if (error != null) {
+                ops.setSize(i);
+                showDialog(error, "error", JOptionPane.ERROR_MESSAGE);
+                break;
+            }
+            if (image != tiles) {
+                image.close();
+            }
+            image = next;
+        }
+        return image;
+    }
+
+    /**
+     * <p>
+     * Replace the current image, and count the change.
+     * </p>
+     * 
+     * @param image The new current image.
+     */
+    private void setCurrent(BufferedImage image) {
+        setCurrent(image, null);
+    }
+
+    /**
+     * <p>
+     * Replace the current image, and count the change, recording which part of
+     * the image changed.
+     * </p>
+     * 
+     * @param image  The new current image.
+     * @param bounds The part of the image that changed, or null if the whole image may have changed.
+     */
+    private void setCurrent(BufferedImage image, Rectangle bounds) {
+        // The damage is recorded first, so that whoever sees the new version also sees its damage
+        damage = bounds == null ? null
+                : new AbstractMap.SimpleImmutableEntry<Long, Rectangle>(version + 1, new Rectangle(bounds));
+        current = image;
+        version++;
+    }
+
+    /**
+     * <p>
+     * Replace the current tiles, closing the old ones unless they are the original.
+     * </p>
+     * 
+     * @param tiles The new current tiles, or null if the image is not tiled.
+     */
+    private void replaceTiles(TiledImage tiles) {
+        TiledImage old = currentTiles;
+        currentTiles = tiles;
+        version++;
+        if (old != null && old != tiles && old != originalTiles) {
+            old.close();
+        }
+    }
+
+    /**
+     * <p>
+     * Make a proxy of the original image, if it is larger than the proxy size.
+     * </p>
+     * 
+     * <p>
+     * The original is halved repeatedly before being scaled to its final size,
+     * because a single bilinear step from a much larger image skips over most of
+     * its pixels.
+     * </p>
+     */
+    private void makeProxy() {
+        proxy = null;
+        proxyScale = 1.0;
+        if (original == null || proxySize == null
+                || (original.getWidth() <= proxySize.width && original.getHeight() <= proxySize.height)) {
+            return;
+        }
+        proxyScale = Math.min((double) proxySize.width / original.getWidth(),
+                (double) proxySize.height / original.getHeight());
+        int width = Math.max(1, (int) Math.round(original.getWidth() * proxyScale));
+        int height = Math.max(1, (int) Math.round(original.getHeight() * proxyScale));
+        BufferedImage image = original;
+        while (image.getWidth() / 2 >= width && image.getHeight() / 2 >= height) {
+            image = resample(image, image.getWidth() / 2, image.getHeight() / 2);
+        }
+        proxy = resample(image, width, height);
+    }
+
+    /**
+     * Resize an image with bilinear interpolation.
+     * 
+     * @param image  The image to resize.
+     * @param width  The new width.
+     * @param height The new height.
+     * @return A new image of the given size.
+     */
+    private static BufferedImage resample(BufferedImage image, int width, int height) {
+        BufferedImage output = WorkingFormat.create(width, height);
+        Graphics2D g2 = output.createGraphics();
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(image, 0, 0, width, height, null);
+        g2.dispose();
+        return output;
+    }
+
+    /**
+     * <p>
+     * Show a message to the user.
+     * </p>
+     * 
+     * <p>
+     * Edits usually run on the {@link OperationExecutor}'s worker thread, and a
+     * modal dialog shown from there could deadlock with the event dispatch
+     * thread, so the dialog is always shown later on the event dispatch thread.
+     * </p>
+     * 
+     * @param messageKey The key of the message in the language bundle.
+     * @param titleKey   The key of the dialog's title in the language bundle.
+     * @param type       The type of message, such as {@link JOptionPane#ERROR_MESSAGE}.
+     */
+    private void showDialog(String messageKey, String titleKey, int type) {
+        Object[] options = { bundle.getString("okOption") };
+        String message = bundle.getString(messageKey);
+        String title = bundle.getString(titleKey);
+        SwingUtilities.invokeLater(() -> JOptionPane.showOptionDialog(null, message, title,
+                JOptionPane.OK_OPTION, type, null, options, null));
+    }
+
+    /**
+     * <p>
+     * Scale an operation's sizes, if it has any.
+     * </p>
+     * 
+     * @param op     The operation.
+     * @param factor The factor to scale by.
+     * @return The scaled operation, or op itself if it is not a {@link ScalableOperation} or the factor is 1.
+     */
+    private static ImageOperation scaleOperation(ImageOperation op, double factor) {
+        if (factor == 1.0 || !(op instanceof ScalableOperation)) {
+            return op;
+        }
+        return ((ScalableOperation) op).scaled(factor);
+    }
+
+    /**
+     * <p>
+     * Check whether an operation gives an image of a fixed size, whatever size
+     * of image it is applied to.
+     * </p>
+     * 
+     * <p>
+     * After such an operation the proxy and the full-resolution image are the
+     * same size, so the proxy no longer has a fixed scale to the image it stands
+     * in for.
+     * </p>
+     * 
+     * @param op The operation.
+     * @return True if the operation is a {@link Resize} to a given width and height.
+     */
+    private static boolean fixesSize(ImageOperation op) {
+        return op instanceof Resize && ((Resize) op).isAbsolute();
+    }
+
+    /**
+     * <p>
+     * Stop editing the image as a proxy, and show it at full resolution.
+     * </p>
+     * 
+     * <p>
+     * This is done once the image is resized to a given width and height, as
+     * from then on what is shown must be what is exported.
+     * The checkpoints were made from the proxy, so they are discarded and the
+     * operations are applied again to the original.
+     * </p>
+     */
+    private void leaveProxy() {
+        proxy = null;
+        proxyScale = 1.0;
+        checkpoints.clear();
+        refresh();
+    }
+
+    /**
+     * <p>
+     * Apply the operations to the full-resolution original, for export.
+     * </p>
+     * 
+     * <p>
+     * Only the list of operations is read while holding the lock, so the image
+     * can still be edited while it renders.
+     * </p>
+     * 
+     * @return The full-resolution result of applying all of the operations.
+     */
+    private BufferedImage renderFullResolution() {
+        List<ImageOperation> snapshot;
+        BufferedImage image;
+        synchronized (this) {
+            snapshot = new ArrayList<ImageOperation>(ops);
+            image = WorkingFormat.copy(original);
+        }
+        for (int i = 0; i < snapshot.size(); i++) {
+            List<PointOperation> run = PointPipeline.run(snapshot, i);
+            BufferedImage result;
+            if (run.size() > 1) {
+                result = PointPipeline.apply(image, run);
+                i += run.size() - 1;
+            } else {
+                result = TileScheduler.apply(snapshot.get(i), image);
+            }
+            if (result != image) {
+                ImagePool.release(image);
+            }
+            image = result;
         }
+        return image;
     }
 
 }
@@ -15,7 +15,7 @@ import java.awt.image.*;
  * 
  * @see cosc202.andie.Convolution
  */
-public class EmbossFilter implements ImageOperation, java.io.Serializable{
+public class EmbossFilter implements LocalOperation, java.io.Serializable{
 
     /**
      * The radius of the filter
@@ -28,7 +28,7 @@ public class EmbossFilter implements ImageOperation, java.io.Serializable{
     /**
      * The kernels to apply to the image
      */
-    private float[][] kernels = new float[][]{{0, -1, 0, 0, 0, 0, 0, 1, 0},
+    private final float[][] kernels = new float[][]{{0, -1, 0, 0, 0, 0, 0, 1, 0},
                                               {0, 0, -1, 0, 0, 0, 1, 0, 0},
                                               {0, 0, 0, 1, 0, -1, 0, 0, 0},
                                               {1, 0, 0, 0, 0, 0, 0, 0, -1},
@@ -73,7 +73,7 @@ public class EmbossFilter implements ImageOperation, java.io.Serializable{
 
         Kernel kernel = new Kernel(2*RADIUS+1, 2*RADIUS+1, array);
         //BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
         output = convolution.convolveImageWithOffset(input, output, kernel, RADIUS);
         return output;
     }
@@ -87,4 +87,13 @@ public class EmbossFilter implements ImageOperation, java.io.Serializable{
         return choice;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return RADIUS;
+    }
+
 }
@@ -137,19 +137,20 @@ public class FileActions {
                 int result = fileChooser.showOpenDialog(target);
 
                 if (result == JFileChooser.APPROVE_OPTION) {
+                    Runnable openFailed = () -> JOptionPane.showOptionDialog(null,
+                            bundle.getString("incorrectFileType"), bundle.getString("error"),
+                            JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
                     try {
                         isFileSaved = false;
                         imageFilepath = fileChooser.getSelectedFile().getCanonicalPath();
-                        target.getImage().open(imageFilepath);
+                        // Operations still queued for the old image should not land on the new one
+                        target.getExecutor().cancelAll();
+                        // The image is opened in the background, once the edit still running has stopped
+                        target.getExecutor().open(imageFilepath, openFailed);
                     } catch (IOException ex) {
-                        JOptionPane.showOptionDialog(null, bundle.getString("incorrectFileType"),
-                                bundle.getString("error"),
-                                JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+                        openFailed.run();
                     }
                 }
-
-                target.repaint();
-                target.getParent().revalidate();
             }
 
         }
@@ -192,15 +193,8 @@ public class FileActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            try {
-                target.getImage().save();
-                isFileSaved = true;
-            } catch (IOException ex) {
-
-                Object[] options = { bundle.getString("okOption"), bundle.getString("cancelOption") };
-                JOptionPane.showOptionDialog(null, bundle.getString("couldNotSaveImage"), bundle.getString("error"),
-                        JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
-            }
+            // The image is saved in the background, after any edits still running
+            target.getExecutor().save(null, () -> isFileSaved = true, saveFailed());
         }
 
     }
@@ -247,12 +241,10 @@ public class FileActions {
             if (result == JFileChooser.APPROVE_OPTION) {
                 try {
                     String imageFilepath = fileChooser.getSelectedFile().getCanonicalPath();
-                    target.getImage().saveAs(imageFilepath);
+                    // The image is saved in the background, after any edits still running
+                    target.getExecutor().save(imageFilepath, () -> {}, saveFailed());
                 } catch (IOException ex) {
-
-                    Object[] options = { bundle.getString("okOption"), bundle.getString("cancelOption") };
-                    JOptionPane.showOptionDialog(null, bundle.getString("couldNotSaveImage"), bundle.getString("error"),
-                            JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+                    saveFailed().run();
                 }
             }
         }
@@ -290,6 +282,8 @@ public class FileActions {
          * <p>
          * This method is called whenever the FileExportAction is triggered.
          * It prompts the user to select a file and saves the image to it.
+         * The image is written in the background, after any edits still running,
+         * as it may first need rendering at full resolution.
          * </p>
          * 
          * @param e The event triggering this callback.
@@ -299,15 +293,17 @@ public class FileActions {
             int result = fileChooser.showSaveDialog(target);
 
             if (result == JFileChooser.APPROVE_OPTION) {
-                try {
-                    String imageFilepath = fileChooser.getSelectedFile().getCanonicalPath();
-                    target.getImage().export(imageFilepath);
-                } catch (IOException ex) {
-
+                Runnable exportFailed = () -> {
                     Object[] options = { bundle.getString("okOption"), bundle.getString("cancelOption") };
                     JOptionPane.showOptionDialog(null, bundle.getString("couldNotExportImage"),
                             bundle.getString("error"),
                             JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+                };
+                try {
+                    String imageFilepath = fileChooser.getSelectedFile().getCanonicalPath();
+                    target.getExecutor().export(imageFilepath, exportFailed);
+                } catch (IOException ex) {
+                    exportFailed.run();
                 }
             }
         }
@@ -360,6 +356,7 @@ public class FileActions {
                 if (optionRotate == JOptionPane.CANCEL_OPTION) {
                     return;
                 } else if (optionRotate == JOptionPane.OK_OPTION) {
+                    ImageAction.getTarget().getImage().discardJournal();
                     System.exit(0);
                 }
             } else {
@@ -369,6 +366,21 @@ public class FileActions {
 
     }
 
+    /**
+     * <p>
+     * Get the callback that tells the user an image could not be saved.
+     * </p>
+     * 
+     * @return A callback to run on the event dispatch thread.
+     */
+    private Runnable saveFailed() {
+        return () -> {
+            Object[] options = { bundle.getString("okOption"), bundle.getString("cancelOption") };
+            JOptionPane.showOptionDialog(null, bundle.getString("couldNotSaveImage"), bundle.getString("error"),
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
+        };
+    }
+
     /**
      * <p>
      * Public method to return whether file is saved
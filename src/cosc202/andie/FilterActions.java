@@ -64,6 +64,12 @@ public class FilterActions {
                 bundle.getString("minimumFilterDesc"), Integer.valueOf(KeyEvent.VK_P)));
         actions.add(new MaximumFilterAction(bundle.getString("maximumFilter"), null,
                 bundle.getString("maximumFilterDesc"), Integer.valueOf(KeyEvent.VK_Q)));
+        actions.add(new MorphologicalOpenAction(bundle.getString("morphologicalOpen"), null,
+                bundle.getString("morphologicalOpenDesc"), Integer.valueOf(KeyEvent.VK_O)));
+        actions.add(new MorphologicalCloseAction(bundle.getString("morphologicalClose"), null,
+                bundle.getString("morphologicalCloseDesc"), Integer.valueOf(KeyEvent.VK_C)));
+        actions.add(new MorphologicalGradientAction(bundle.getString("morphologicalGradient"), null,
+                bundle.getString("morphologicalGradientDesc"), Integer.valueOf(KeyEvent.VK_D)));
         actions.add(new SepiaToneFilterAction(bundle.getString("sepiaToneFilter"), null,
                 bundle.getString("sepiaToneFilterDesc"), Integer.valueOf(KeyEvent.VK_J)));
         actions.add(new VignetteFilterAction(bundle.getString("vignetteFilter"), null,
@@ -134,8 +140,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MeanFilter(radiusModel.getNumber().intValue())));
+            preview.update(new MeanFilter(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -144,9 +156,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
             
                 //create and apply the filter with the radius
-                target.getImage().apply(new MeanFilter(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new MeanFilter(radius));
             }
             
         }
@@ -191,9 +201,7 @@ public class FilterActions {
          */
         public void actionPerformed(ActionEvent e) {
             // Create and apply the filter
-            target.getImage().apply(new SoftBlur());
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new SoftBlur());
         }
     }
 
@@ -219,9 +227,7 @@ public class FilterActions {
         }
 
         public void actionPerformed(ActionEvent e) {
-            target.getImage().apply(new SharpenFilter());
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new SharpenFilter());
         }
     }
 
@@ -270,8 +276,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MedianFilter(radiusModel.getNumber().intValue())));
+            preview.update(new MedianFilter(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -280,9 +292,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
 
                 // Create and apply the filter
-                target.getImage().apply(new MedianFilter(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new MedianFilter(radius));
             }
         }
 
@@ -329,8 +339,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new GaussianBlur(radiusModel.getNumber().intValue())));
+            preview.update(new GaussianBlur(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -339,9 +355,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
 
                 // Create and apply the filter
-                target.getImage().apply(new GaussianBlur(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new GaussianBlur(radius));
             }
         }
 
@@ -393,9 +407,7 @@ public class FilterActions {
             // Check the return value from the dialog box.
             if (choice >= 0 && choice < options.length) {
                 // Create and apply the filter
-                target.getImage().apply(new EmbossFilter(choice));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new EmbossFilter(choice));
             } else {
                 return;
             }
@@ -451,9 +463,7 @@ public class FilterActions {
             // Check the return value from the dialog box.
             if (choice >= 0 && choice < options.length) {
                 // Create and apply the filter
-                target.getImage().apply(new SobelFilter(choice));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new SobelFilter(choice));
             } else {
                 return;
             }
@@ -503,8 +513,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new RandomScattering(radiusModel.getNumber().intValue())));
+            preview.update(new RandomScattering(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -513,9 +529,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
 
                 // Create and apply the filter
-                target.getImage().apply(new RandomScattering(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new RandomScattering(radius));
             }
         }
 
@@ -566,8 +580,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new TileFilter(radiusModel.getNumber().intValue())));
+            preview.update(new TileFilter(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -576,9 +596,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
 
                 // Create and apply the filter
-                target.getImage().apply(new TileFilter(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new TileFilter(radius));
             }
         }
 
@@ -632,8 +650,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new BlockMeanFilter(radiusModel.getNumber().intValue())));
+            preview.update(new BlockMeanFilter(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -643,9 +667,7 @@ public class FilterActions {
             }
 
             // Create and apply the filter
-            target.getImage().apply(new TileFilter(radius));
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new BlockMeanFilter(radius));
         }
 
     }
@@ -694,8 +716,14 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MaximumFilter(radiusModel.getNumber().intValue())));
+            preview.update(new MaximumFilter(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -704,9 +732,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
 
                 // Create and apply the filter
-                target.getImage().apply(new MaximumFilter(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new MaximumFilter(radius));
             }
         }
 
@@ -756,8 +782,212 @@ public class FilterActions {
             // Pop-up dialog box to ask for the radius value.
             SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
             JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MinimumFilter(radiusModel.getNumber().intValue())));
+            preview.update(new MinimumFilter(radiusModel.getNumber().intValue()));
+            int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
+
+            // Check the return value from the dialog box.
+            if (option == JOptionPane.CANCEL_OPTION) {
+                return;
+            } else if (option == JOptionPane.OK_OPTION) {
+                radius = radiusModel.getNumber().intValue();
+
+                // Create and apply the filter
+                target.getExecutor().apply(new MinimumFilter(radius));
+            }
+        }
+
+    }
+
+    /**<p>
+     * Action to apply a morphological opening to an image.
+     * </p>
+     * 
+     * @see MorphologicalOpen
+     */
+    public class MorphologicalOpenAction extends ImageAction {
+
+        /**
+         * Create a new morphological opening action.
+         * 
+         * @param name     The name of the action (ignored if null).
+         * @param icon     An icon to use to represent the action (ignored if null).
+         * @param desc     A brief description of the action (ignored if null).
+         * @param mnemonic A mnemonic key to use as a shortcut (ignored if null).
+         */
+        MorphologicalOpenAction(String name, ImageIcon icon, String desc, Integer mnemonic) {
+            super(name, icon, desc, mnemonic);
+        }
+
+        /**
+         * <p>
+         * Callback for when the morphological opening action is triggered.
+         * </p>
+         * 
+         * <p>
+         * This method is called whenever the MorphologicalOpenAction is triggered.
+         * It prompts the user for a filter radius, then applies an appropriately sized
+         * {@link MorphologicalOpen}.
+         * </p>
+         * 
+         * @param e The event triggering this callback.
+         */
+        public void actionPerformed(ActionEvent e) {
+
+            // Determine the radius - ask the user.
+            int radius = 1;
+            
+            // Defining Object for Mulilingual Support
+            Object[] options = {bundle.getString("okOption"), bundle.getString("cancelOption")};
+
+            // Pop-up dialog box to ask for the radius value.
+            SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
+            JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MorphologicalOpen(radiusModel.getNumber().intValue())));
+            preview.update(new MorphologicalOpen(radiusModel.getNumber().intValue()));
+            int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
+
+            // Check the return value from the dialog box.
+            if (option == JOptionPane.CANCEL_OPTION) {
+                return;
+            } else if (option == JOptionPane.OK_OPTION) {
+                radius = radiusModel.getNumber().intValue();
+
+                // Create and apply the filter
+                target.getExecutor().apply(new MorphologicalOpen(radius));
+            }
+        }
+
+    }
+
+    /**<p>
+     * Action to apply a morphological closing to an image.
+     * </p>
+     * 
+     * @see MorphologicalClose
+     */
+    public class MorphologicalCloseAction extends ImageAction {
+
+        /**
+         * Create a new morphological closing action.
+         * 
+         * @param name     The name of the action (ignored if null).
+         * @param icon     An icon to use to represent the action (ignored if null).
+         * @param desc     A brief description of the action (ignored if null).
+         * @param mnemonic A mnemonic key to use as a shortcut (ignored if null).
+         */
+        MorphologicalCloseAction(String name, ImageIcon icon, String desc, Integer mnemonic) {
+            super(name, icon, desc, mnemonic);
+        }
+
+        /**
+         * <p>
+         * Callback for when the morphological closing action is triggered.
+         * </p>
+         * 
+         * <p>
+         * This method is called whenever the MorphologicalCloseAction is triggered.
+         * It prompts the user for a filter radius, then applies an appropriately sized
+         * {@link MorphologicalClose}.
+         * </p>
+         * 
+         * @param e The event triggering this callback.
+         */
+        public void actionPerformed(ActionEvent e) {
+
+            // Determine the radius - ask the user.
+            int radius = 1;
+            
+            // Defining Object for Mulilingual Support
+            Object[] options = {bundle.getString("okOption"), bundle.getString("cancelOption")};
+
+            // Pop-up dialog box to ask for the radius value.
+            SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
+            JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MorphologicalClose(radiusModel.getNumber().intValue())));
+            preview.update(new MorphologicalClose(radiusModel.getNumber().intValue()));
+            int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
+                    JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
+
+            // Check the return value from the dialog box.
+            if (option == JOptionPane.CANCEL_OPTION) {
+                return;
+            } else if (option == JOptionPane.OK_OPTION) {
+                radius = radiusModel.getNumber().intValue();
+
+                // Create and apply the filter
+                target.getExecutor().apply(new MorphologicalClose(radius));
+            }
+        }
+
+    }
+
+    /**<p>
+     * Action to outline an image with a morphological gradient.
+     * </p>
+     * 
+     * @see MorphologicalGradient
+     */
+    public class MorphologicalGradientAction extends ImageAction {
+
+        /**
+         * Create a new morphological gradient action.
+         * 
+         * @param name     The name of the action (ignored if null).
+         * @param icon     An icon to use to represent the action (ignored if null).
+         * @param desc     A brief description of the action (ignored if null).
+         * @param mnemonic A mnemonic key to use as a shortcut (ignored if null).
+         */
+        MorphologicalGradientAction(String name, ImageIcon icon, String desc, Integer mnemonic) {
+            super(name, icon, desc, mnemonic);
+        }
+
+        /**
+         * <p>
+         * Callback for when the morphological gradient action is triggered.
+         * </p>
+         * 
+         * <p>
+         * This method is called whenever the MorphologicalGradientAction is triggered.
+         * It prompts the user for a filter radius, then applies an appropriately sized
+         * {@link MorphologicalGradient}.
+         * </p>
+         * 
+         * @param e The event triggering this callback.
+         */
+        public void actionPerformed(ActionEvent e) {
+
+            // Determine the radius - ask the user.
+            int radius = 1;
+            
+            // Defining Object for Mulilingual Support
+            Object[] options = {bundle.getString("okOption"), bundle.getString("cancelOption")};
+
+            // Pop-up dialog box to ask for the radius value.
+            SpinnerNumberModel radiusModel = new SpinnerNumberModel(1, 1, 10, 1);
+            JSpinner radiusSpinner = new JSpinner(radiusModel);
+
+            // Preview the filter on the image while the radius is chosen
+            LivePreview preview = new LivePreview(target);
+            radiusSpinner.addChangeListener(change -> preview.update(new MorphologicalGradient(radiusModel.getNumber().intValue())));
+            preview.update(new MorphologicalGradient(radiusModel.getNumber().intValue()));
             int option = JOptionPane.showOptionDialog(null, radiusSpinner, bundle.getString("enterFilterRadius"),
                     JOptionPane.OK_CANCEL_OPTION, JOptionPane.QUESTION_MESSAGE, null, options, null);
+            preview.close();
 
             // Check the return value from the dialog box.
             if (option == JOptionPane.CANCEL_OPTION) {
@@ -766,9 +996,7 @@ public class FilterActions {
                 radius = radiusModel.getNumber().intValue();
 
                 // Create and apply the filter
-                target.getImage().apply(new MinimumFilter(radius));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new MorphologicalGradient(radius));
             }
         }
 
@@ -804,9 +1032,7 @@ public class FilterActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.getImage().apply(new SepiaToneFilter());
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new SepiaToneFilter());
         }
     }
 
@@ -840,9 +1066,7 @@ public class FilterActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.getImage().apply(new VignetteFilter());
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new VignetteFilter());
         }
     }
 }
@@ -77,7 +77,7 @@ public class Flip implements ImageOperation, java.io.Serializable {
         AffineTransform transform = new AffineTransform();
 
         // Create a new BufferedImage with input's dimensions
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), input.getType());
+        BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
         Graphics2D g2d = output.createGraphics();
 
         if (isVerticalFlip) {
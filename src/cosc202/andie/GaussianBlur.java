@@ -1,7 +1,6 @@
 package cosc202.andie;
 
 import java.awt.image.*;
-import java.util.*;
 import java.text.DecimalFormat;
 
 /**
@@ -16,7 +15,7 @@ import java.text.DecimalFormat;
  * 
  * @see java.awt.image.ConvolveOp
  */
-public class GaussianBlur implements ImageOperation, java.io.Serializable {
+public class GaussianBlur implements ProgressiveImageOperation, LocalOperation, ScalableOperation, java.io.Serializable {
 
     /**
      * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a
@@ -24,6 +23,12 @@ public class GaussianBlur implements ImageOperation, java.io.Serializable {
      */
     private int radius;
 
+    /**
+     * The largest radius that is applied as two 1-D passes, which stay within one
+     * colour level of the full kernel up to this radius.
+     */
+    static final int MAX_SEPARABLE_RADIUS = 3;
+
     /**
      * <p>
      * Construct a Gaussian Blur filter with the given size.
@@ -62,61 +67,70 @@ public class GaussianBlur implements ImageOperation, java.io.Serializable {
      * matrix are determined by a 2-dimensional Gaussian function.
      * </p>
      * 
+     * <p>
+     * The Gaussian is separable, so up to {@link #MAX_SEPARABLE_RADIUS} the
+     * kernel is split into the sums of its columns and rows, and the image is
+     * convolved along the rows and then down the columns.
+     * Each entry of the kernel is rounded to three decimals, which zeroes its
+     * corners, so it is not exactly separable, and at larger radii the two
+     * passes can differ from the full kernel by more than one colour level.
+     * Larger radii are convolved with the full kernel instead.
+     * </p>
+     * 
      * @param input The image to apply the blur to.
+     * @param monitor The monitor to report progress to.
      * @return The resulting blurred image.
      */
-    public BufferedImage apply(BufferedImage input) {
-        DecimalFormat df = new DecimalFormat("#.###");
-        int d = 2 * radius + 1;
-        float[][] array2D = new float[d][d];
-        for (int i = 0; i < d; i++) {
-            for (int j = 0; j < d; j++) {
-                double val = gaussian(j - radius, i - radius, ((double) radius) / 3.0);
-                array2D[i][j] = Float.valueOf(df.format(val));
-            }
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
+        Kernel kernel = kernel();
+        BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
+        Convolution conv = new Convolution();
+        if (radius > MAX_SEPARABLE_RADIUS) {
+            return conv.convolveImage(input, output, kernel, radius, monitor);
         }
 
-        // flatten the 2D array into an arraylist
-        ArrayList<Float> al = new ArrayList<Float>();
-        for (int i = 0; i < array2D.length; i++) {
-            for (int j = 0; j < array2D[i].length; j++) {
-                al.add(array2D[i][j]);
+        // Sum the columns and rows of the kernel into the two 1-D kernels
+        int d = kernel.getWidth();
+        float[] weights = kernel.getKernelData(null);
+        float[] horizontal = new float[d];
+        float[] vertical = new float[d];
+        for (int i = 0; i < d; i++) {
+            for (int j = 0; j < d; j++) {
+                horizontal[j] += weights[i * d + j];
+                vertical[i] += weights[i * d + j];
             }
         }
+        return conv.convolveSeparable(input, output, horizontal, vertical, monitor);
+    }
 
-        /**
-         * Convert the arraylist into an array of floats, while adding each entry to
-         * find the sum of entries "total"
-         */
-        float[] array = new float[al.size()];
+    /**
+     * <p>
+     * Builds the normalised 2-D Gaussian kernel of size 2*radius + 1.
+     * </p>
+     * 
+     * <p>
+     * Each entry is rounded to three decimals, and the kernel is then divided by
+     * its total so that the image does not get brighter as it is blurred.
+     * </p>
+     * 
+     * @return The square kernel.
+     */
+    Kernel kernel() {
+        DecimalFormat df = new DecimalFormat("#.###");
+        int d = 2 * radius + 1;
+        float[] array = new float[d * d];
         float total = 0;
-        for (int i = 0; i < al.size(); i++) {
-            total += al.get(i);
-            array[i] = al.get(i);
+        for (int i = 0; i < d; i++) {
+            for (int j = 0; j < d; j++) {
+                double val = gaussian(j - radius, i - radius, ((double) radius) / 3.0);
+                array[i * d + j] = Float.valueOf(df.format(val));
+                total += array[i * d + j];
+            }
         }
-
-        /**
-         * Convert the kernel array into a "normalised" kernel by dividing each entry by
-         * total, solving an issue with the image getting brighter instead of blurring
-         * it.
-         */
-        float[] arrayNorm = new float[array.length];
-        for (int i = 0; i < arrayNorm.length; i++) {
-            arrayNorm[i] = array[i] / total;
+        for (int i = 0; i < array.length; i++) {
+            array[i] = array[i] / total;
         }
-
-        /**
-         * Creates a kernel object with the normalised kernel array and colvolves the
-         * image using the kernel.
-         */
-        Kernel kernel = new Kernel(2 * radius + 1, 2 * radius + 1, arrayNorm);
-        /*BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null),
-                input.isAlphaPremultiplied(), null);*/
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
-        Convolution conv = new Convolution();
-        output = conv.convolveImage(input, output, kernel, radius);
-
-        return output;
+        return new Kernel(d, d, array);
     }
 
     /**
@@ -147,4 +161,23 @@ public class GaussianBlur implements ImageOperation, java.io.Serializable {
         return radius;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
+
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new GaussianBlur(ScalableOperation.scale(radius, factor));
+    }
+
 }
@@ -1,6 +1,7 @@
 package cosc202.andie;
 
 import java.awt.*;
+import java.awt.image.BufferedImage;
 import java.util.ResourceBundle;
 
 import javax.swing.*;
@@ -13,6 +14,9 @@ import javax.swing.*;
  * <p>
  * This class extends {@link JPanel} to allow for rendering of an image, as well
  * as zooming in and out.
+ * Only the part of the image inside the clip is drawn, from the level of an
+ * {@link ImagePyramid} nearest the zoom, so scrolling and zooming stay smooth
+ * on large images.
  * 
  * Some code taken from:
  * https://stackoverflow.com/questions/3680221/how-can-i-get-screen-resolution-in-java
@@ -33,6 +37,13 @@ public class ImagePanel extends JPanel {
      */  
     ResourceBundle bundle = ResourceBundle.getBundle("LanguageBundle");
 
+    /** The smallest zoom level, as a percentage. */
+    public static final double MIN_ZOOM = 1;
+    /** The largest zoom level, as a percentage. */
+    public static final double MAX_ZOOM = 3200;
+    /** The factor each zoom in or out changes the zoom level by. */
+    public static final double ZOOM_STEP = 1.25;
+
     /**
      * The image to display in the ImagePanel.
      */
@@ -52,6 +63,14 @@ public class ImagePanel extends JPanel {
      */
     private double scale;
 
+    /** Smaller copies of the current image for drawing it zoomed out, or null if there are none yet. */
+    private ImagePyramid pyramid;
+    /** The version of the current image the pyramid was made from. */
+    private long pyramidVersion;
+
+    /** A preview of an operation to show instead of the current image, or null. */
+    private volatile BufferedImage preview;
+
     /**
      * <p>
      * The mouse listener used on the image panel.
@@ -61,6 +80,11 @@ public class ImagePanel extends JPanel {
      */
     public MyMouseListener mouseListener;
 
+    /**
+     * The executor that applies operations to the image in the background.
+     */
+    private OperationExecutor executor;
+
     /**
      * <p>
      * Create a new ImagePanel.
@@ -73,6 +97,7 @@ public class ImagePanel extends JPanel {
     public ImagePanel() {
         image = new EditableImage();
         scale = 1.0;
+        executor = new OperationExecutor(this);
         mouseListener = new MyMouseListener(this);
         addMouseListener(mouseListener);
         addMouseMotionListener(mouseListener);
@@ -97,6 +122,23 @@ public class ImagePanel extends JPanel {
         return null;
     }
 
+    /**
+     * <p>
+     * Get the executor used to apply operations to the displayed image.
+     * </p>
+     * 
+     * <p>
+     * ImageActions should apply operations through the executor rather than
+     * directly, so that slow operations run in the background and the panel is
+     * repainted when they finish.
+     * </p>
+     *
+     * @return The executor for this panel.
+     */
+    public OperationExecutor getExecutor() {
+        return executor;
+    }
+
     /**
      * <p>
      * Set the currently displayed image
@@ -108,6 +150,66 @@ public class ImagePanel extends JPanel {
         image = newImage;
     }
 
+    /**
+     * <p>
+     * Show a preview instead of the current image.
+     * </p>
+     * 
+     * <p>
+     * The preview may be smaller than the image, and is stretched to cover it.
+     * </p>
+     * 
+     * @param preview The preview to show, or null to show the current image again.
+     * @see LivePreview
+     */
+    public void setPreview(BufferedImage preview) {
+        this.preview = preview;
+    }
+
+    /**
+     * <p>
+     * Get the preview being shown instead of the current image. Used for testing
+     * in LivePreviewTest.
+     * </p>
+     * 
+     * @return The preview, or null if the current image is shown.
+     */
+    public BufferedImage getPreview() {
+        return preview;
+    }
+
+    /**
+     * <p>
+     * Repaint the part of the panel that shows what changed in the image.
+     * </p>
+     * 
+     * <p>
+     * If the image has changed once since it was last painted, and the change
+     * only covered part of it, such as a shape being drawn, only that part is
+     * repainted.
+     * Otherwise the whole panel is.
+     * </p>
+     * 
+     * @see EditableImage#getDamage(long)
+     */
+    public void repaintChanges() {
+        long version = image.getVersion();
+        Rectangle damage = null;
+        if (pyramid != null && preview == null && version == pyramidVersion + 1) {
+            damage = image.getDamage(version);
+        }
+        if (damage == null) {
+            repaint();
+            return;
+        }
+        // Reach a couple of pixels further, for rounding and for smoothing when zoomed out
+        int left = (int) Math.floor(damage.x * scale) - 2;
+        int top = (int) Math.floor(damage.y * scale) - 2;
+        int right = (int) Math.ceil((damage.x + damage.width) * scale) + 2;
+        int bottom = (int) Math.ceil((damage.y + damage.height) * scale) + 2;
+        repaint(left, top, right - left, bottom - top);
+    }
+
     /**
      * <p>
      * Get the current zoom level as a percentage.
@@ -132,17 +234,17 @@ public class ImagePanel extends JPanel {
      * <p>
      * The percentage zoom is used for the external interface, where 100% is the
      * original size, 50% is half-size, etc.
-     * The zoom level is restricted to the range [50, 200].
+     * The zoom level is restricted to the range [{@link MIN_ZOOM}, {@link MAX_ZOOM}].
      * </p>
      * 
      * @param zoomPercent The new zoom level as a percentage.
      */
     public void setZoom(double zoomPercent) {
-        if (zoomPercent < 50) {
-            zoomPercent = 50;
+        if (zoomPercent < MIN_ZOOM) {
+            zoomPercent = MIN_ZOOM;
         }
-        if (zoomPercent > 200) {
-            zoomPercent = 200;
+        if (zoomPercent > MAX_ZOOM) {
+            zoomPercent = MAX_ZOOM;
         }
         scale = zoomPercent / 100;
     }
@@ -163,8 +265,8 @@ public class ImagePanel extends JPanel {
     public Dimension getPreferredSize() {
 
         if (image.hasImage()) {
-            return new Dimension((int) Math.round(image.getCurrentImage().getWidth() * scale),
-                    (int) Math.round(image.getCurrentImage().getHeight() * scale));
+            return new Dimension((int) Math.round(image.getWidth() * scale),
+                    (int) Math.round(image.getHeight() * scale));
         } else {
             Toolkit toolkit = Toolkit.getDefaultToolkit();
 
@@ -189,6 +291,11 @@ public class ImagePanel extends JPanel {
      * (Re)draw the component in the GUI.
      * </p>
      * 
+     * <p>
+     * A tiled image is drawn one tile at a time, and only the tiles that are
+     * visible are read from disk.
+     * </p>
+     * 
      * @param g The Graphics component to draw the image on.
      */
     @Override
@@ -196,13 +303,125 @@ public class ImagePanel extends JPanel {
         super.paintComponent(g);
         if (image.hasImage()) {
             Graphics2D g2 = (Graphics2D) g.create();
-            g2.scale(scale, scale);
             
-            g2.drawImage(image.getCurrentImage(), null, 0, 0);
+            TiledImage tiles = image.getTiledImage();
+            if (tiles != null) {
+                drawTiles(g2, tiles);
+                g2.scale(scale, scale);
+            } else if (preview != null) {
+                drawPreview(g2, preview);
+                g2.scale(scale, scale);
+            } else {
+                drawPyramid(g2);
+                g2.scale(scale, scale);
+            }
             
             // Call drawSelectedRegion() to draw the selected region 
             mouseListener.drawSelectedRegion(g2);
         g2.dispose();
         }  
     }
+
+    /**
+     * <p>
+     * Draw a preview, stretched to the size of the current image.
+     * </p>
+     * 
+     * @param g2      The Graphics, not yet scaled to the zoom level.
+     * @param preview The preview to draw.
+     */
+    private void drawPreview(Graphics2D g2, BufferedImage preview) {
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(preview, 0, 0, (int) Math.round(image.getWidth() * scale),
+                (int) Math.round(image.getHeight() * scale), null);
+    }
+
+    /**
+     * <p>
+     * Draw the part of the current image that falls within the clip.
+     * </p>
+     * 
+     * <p>
+     * The image is drawn from the smallest pyramid level that is at least as
+     * large as the zoom, which is remade whenever the image changes, or only
+     * updated where it changed if that is known.
+     * Zoomed in, pixels are drawn as blocks so that they can be seen clearly.
+     * </p>
+     * 
+     * @param g2 The Graphics, not yet scaled to the zoom level.
+     */
+    private void drawPyramid(Graphics2D g2) {
+        long version = image.getVersion();
+        BufferedImage current = image.getCurrentImage();
+        if (pyramid == null || pyramid.getSource() != current) {
+            pyramid = new ImagePyramid(current);
+        } else if (pyramidVersion != version) {
+            Rectangle damage = version == pyramidVersion + 1 ? image.getDamage(version) : null;
+            if (damage != null) {
+                pyramid.update(damage);
+            } else {
+                pyramid = new ImagePyramid(current);
+            }
+        }
+        pyramidVersion = version;
+        BufferedImage level = pyramid.getLevel(ImagePyramid.levelFor(scale));
+
+        // The size of a pixel of the level on screen
+        double scaleX = scale * current.getWidth() / level.getWidth();
+        double scaleY = scale * current.getHeight() / level.getHeight();
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getPreferredSize());
+        }
+        int left = Math.max(0, (int) Math.floor(clip.x / scaleX));
+        int top = Math.max(0, (int) Math.floor(clip.y / scaleY));
+        int right = Math.min(level.getWidth(), (int) Math.ceil((clip.x + clip.width) / scaleX));
+        int bottom = Math.min(level.getHeight(), (int) Math.ceil((clip.y + clip.height) / scaleY));
+        if (left >= right || top >= bottom) {
+            return;
+        }
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scaleX >= 1
+                ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+                : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        g2.drawImage(level, (int) Math.round(left * scaleX), (int) Math.round(top * scaleY),
+                (int) Math.round(right * scaleX), (int) Math.round(bottom * scaleY), left, top, right, bottom, null);
+    }
+
+    /**
+     * <p>
+     * Draw the tiles of a tiled image that fall within the clip.
+     * </p>
+     * 
+     * <p>
+     * Like an image held in memory, each tile is drawn from the pyramid level
+     * nearest the zoom, which the tiled image makes a tile at a time.
+     * </p>
+     * 
+     * @param g2    The Graphics, not yet scaled to the zoom level.
+     * @param tiles The tiled image to draw.
+     */
+    private void drawTiles(Graphics2D g2, TiledImage tiles) {
+        Rectangle clip = g2.getClipBounds();
+        if (clip == null) {
+            clip = new Rectangle(getPreferredSize());
+        }
+        int level = ImagePyramid.levelFor(scale);
+        int firstColumn = Math.max(0, (int) (clip.x / scale) / TiledImage.TILE_SIZE);
+        int firstRow = Math.max(0, (int) (clip.y / scale) / TiledImage.TILE_SIZE);
+        int lastColumn = Math.min(tiles.getColumns() - 1, (int) ((clip.x + clip.width) / scale) / TiledImage.TILE_SIZE);
+        int lastRow = Math.min(tiles.getRows() - 1, (int) ((clip.y + clip.height) / scale) / TiledImage.TILE_SIZE);
+        g2.setRenderingHint(RenderingHints.KEY_INTERPOLATION, scale >= 1
+                ? RenderingHints.VALUE_INTERPOLATION_NEAREST_NEIGHBOR
+                : RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+        for (int row = firstRow; row <= lastRow; row++) {
+            for (int column = firstColumn; column <= lastColumn; column++) {
+                Rectangle bounds = tiles.getTileBounds(column, row);
+                BufferedImage tile = tiles.getTileImage(column, row, level);
+                g2.drawImage(tile, (int) Math.round(bounds.x * scale), (int) Math.round(bounds.y * scale),
+                        (int) Math.round((bounds.x + bounds.width) * scale),
+                        (int) Math.round((bounds.y + bounds.height) * scale), 0, 0, tile.getWidth(), tile.getHeight(),
+                        null);
+            }
+        }
+    }
 }
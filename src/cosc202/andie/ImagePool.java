@@ -0,0 +1,160 @@
+package cosc202.andie;
+
+import java.awt.image.*;
+import java.lang.ref.SoftReference;
+import java.util.*;
+
+/**
+ * <p>
+ * A pool of images for operations to write their results to.
+ * </p>
+ *
+ * <p>
+ * Most operations make a new full-size image for their output, so replaying
+ * a long list of operations on a large image makes a great deal of garbage,
+ * and the pauses to collect it can be longer than the operations themselves.
+ * Instead, {@link WorkingFormat#create(int, int)} borrows an image from this
+ * pool, and whoever owns an image that is no longer needed can release it back
+ * to be used again.
+ * While operations are replayed, each operation's input is released once its
+ * output is made, so the next operation writes over it and the same two
+ * images are used in turn however many operations there are.
+ * </p>
+ *
+ * <p>
+ * Images are pooled by size and type.
+ * The pool only keeps a couple of images of each of the last few sizes, and
+ * keeps them through soft references, so they are collected if memory runs
+ * short.
+ * </p>
+ *
+ * <p>
+ * An image must only be released by its owner, and only once nothing else
+ * will read it again:
+ * </p>
+ * <ul>
+ * <li>The result of an operation belongs to whoever applied it, and never
+ * shares pixels with its input unless it is the input.</li>
+ * <li>The current image of an {@link EditableImage} may be being shown or
+ * saved, so it is never released.</li>
+ * <li>Checkpoints belong to the {@link CheckpointStore}, which releases them
+ * when they are discarded, and only ever hands out copies of them.</li>
+ * </ul>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class ImagePool {
+
+    /** The most images of each size and type to keep. */
+    private static final int PER_KEY = 2;
+    /** The most sizes and types to keep images of. */
+    private static final int KEYS = 4;
+
+    /** The free images, by key, with the most recently used key last. */
+    private static final Map<Long, Deque<SoftReference<BufferedImage>>> free =
+            new LinkedHashMap<Long, Deque<SoftReference<BufferedImage>>>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(Map.Entry<Long, Deque<SoftReference<BufferedImage>>> eldest) {
+                    return size() > KEYS;
+                }
+            };
+
+    /** There are no instances, only the static methods. */
+    private ImagePool() {
+    }
+
+    /**
+     * Get the key that images of a size and type are pooled by.
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param type   The type of image.
+     * @return The key.
+     */
+    private static long key(int width, int height, int type) {
+        return ((long) type << 56) | ((long) width << 28) | height;
+    }
+
+    /**
+     * <p>
+     * Borrow an image from the pool, or make a new one if there is none free.
+     * </p>
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param type   The type of image, {@link BufferedImage#TYPE_INT_ARGB} or
+     *               {@link BufferedImage#TYPE_INT_RGB}.
+     * @return An image that belongs to the caller, with every pixel zero, as a new image would have.
+     */
+    static BufferedImage borrow(int width, int height, int type) {
+        BufferedImage image = null;
+        synchronized (free) {
+            Deque<SoftReference<BufferedImage>> images = free.get(key(width, height, type));
+            while (image == null && images != null && !images.isEmpty()) {
+                image = images.pop().get();
+            }
+        }
+        if (image == null) {
+            return new BufferedImage(width, height, type);
+        }
+        Arrays.fill(((DataBufferInt) image.getRaster().getDataBuffer()).getData(), 0);
+        return image;
+    }
+
+    /**
+     * <p>
+     * Give an image back to the pool, to be borrowed again.
+     * </p>
+     *
+     * <p>
+     * Images that cannot be pooled, such as subimages that share another image's
+     * pixels, are left to be collected as usual.
+     * </p>
+     *
+     * @param image The image, which the caller must own and not use again.
+     */
+    static void release(BufferedImage image) {
+        if (image == null || !poolable(image)) {
+            return;
+        }
+        long key = key(image.getWidth(), image.getHeight(), image.getType());
+        synchronized (free) {
+            Deque<SoftReference<BufferedImage>> images = free.get(key);
+            if (images == null) {
+                images = new ArrayDeque<SoftReference<BufferedImage>>();
+                free.put(key, images);
+            }
+            for (SoftReference<BufferedImage> ref : images) {
+                if (ref.get() == image) {
+                    return;
+                }
+            }
+            if (images.size() >= PER_KEY) {
+                images.removeLast();
+            }
+            images.push(new SoftReference<BufferedImage>(image));
+        }
+    }
+
+    /**
+     * Check whether an image could have come from {@link #borrow(int, int, int)}.
+     *
+     * @param image The image.
+     * @return True if it is a packed int image that owns all of its pixels.
+     */
+    private static boolean poolable(BufferedImage image) {
+        int type = image.getType();
+        if (type != BufferedImage.TYPE_INT_ARGB && type != BufferedImage.TYPE_INT_RGB) {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        return raster.getParent() == null
+                && raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getDataBuffer().getNumBanks() == 1
+                && raster.getDataBuffer().getOffset() == 0
+                && raster.getDataBuffer().getSize() == image.getWidth() * image.getHeight();
+    }
+}
@@ -0,0 +1,159 @@
+package cosc202.andie;
+
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * A chain of smaller and smaller copies of an image, for drawing it zoomed out.
+ * </p>
+ *
+ * <p>
+ * Level 0 is the image itself, and each level after that is half the width
+ * and height of the one before, with each pixel the mean of the 2x2 pixels it
+ * replaces.
+ * Drawing from the level nearest the zoom means a zoomed-out view never has to
+ * scale down by more than half, so it is both quicker and smoother than
+ * drawing the full image.
+ * Levels are only made the first time they are needed.
+ * When only part of the image changes, only that part of each level made so
+ * far is made again.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see ImagePanel
+ */
+final class ImagePyramid {
+
+    /** The levels made so far, starting with the image itself. */
+    private final List<BufferedImage> levels;
+
+    /**
+     * Create a new pyramid for an image.
+     *
+     * @param image The image at full size.
+     */
+    ImagePyramid(BufferedImage image) {
+        levels = new ArrayList<BufferedImage>();
+        levels.add(image);
+    }
+
+    /**
+     * Get the image the pyramid was made from.
+     *
+     * @return The image at full size.
+     */
+    BufferedImage getSource() {
+        return levels.get(0);
+    }
+
+    /**
+     * <p>
+     * Get the level to draw from at a given zoom.
+     * </p>
+     *
+     * @param scale The zoom, where 1 is full size.
+     * @return The smallest level that is still at least as large as the zoom.
+     */
+    static int levelFor(double scale) {
+        int level = 0;
+        while (scale <= 0.5) {
+            scale *= 2;
+            level++;
+        }
+        return level;
+    }
+
+    /**
+     * <p>
+     * Get a level of the pyramid, making it if need be.
+     * </p>
+     *
+     * @param level The level, where 0 is full size.
+     * @return The level, or the smallest level if the image cannot be halved that many times.
+     */
+    BufferedImage getLevel(int level) {
+        while (levels.size() <= level) {
+            BufferedImage last = levels.get(levels.size() - 1);
+            if (last.getWidth() == 1 && last.getHeight() == 1) {
+                return last;
+            }
+            levels.add(halve(last));
+        }
+        return levels.get(level);
+    }
+
+    /**
+     * <p>
+     * Update the levels made so far after part of the image has changed.
+     * </p>
+     *
+     * @param damage The part of the image that changed.
+     */
+    void update(Rectangle damage) {
+        BufferedImage image = levels.get(0);
+        Rectangle region = damage.intersection(new Rectangle(image.getWidth(), image.getHeight()));
+        for (int level = 1; level < levels.size() && !region.isEmpty(); level++) {
+            BufferedImage source = levels.get(level - 1);
+            BufferedImage target = levels.get(level);
+            // The pixels of this level that average any changed pixel of the one before
+            int left = region.x / 2;
+            int top = region.y / 2;
+            int right = Math.min(target.getWidth(), (region.x + region.width + 1) / 2);
+            int bottom = Math.min(target.getHeight(), (region.y + region.height + 1) / 2);
+            int width = Math.min(2 * (right - left), source.getWidth() - 2 * left);
+            int height = Math.min(2 * (bottom - top), source.getHeight() - 2 * top);
+            BufferedImage half = halve(source.getSubimage(2 * left, 2 * top, width, height));
+            target.setRGB(left, top, right - left, bottom - top, Convolution.readPixels(half, true), 0,
+                    right - left);
+            region = new Rectangle(left, top, right - left, bottom - top);
+        }
+    }
+
+    /**
+     * Halve the width and height of an image, averaging each 2x2 block of pixels.
+     *
+     * @param image The image to halve.
+     * @return A new image, rounded up to a whole number of pixels.
+     */
+    static BufferedImage halve(BufferedImage image) {
+        int width = image.getWidth();
+        int height = image.getHeight();
+        boolean alpha = image.getColorModel().hasAlpha();
+        int[] pixels = Convolution.readPixels(image, alpha);
+        BufferedImage output = new BufferedImage((width + 1) / 2, (height + 1) / 2,
+                alpha ? BufferedImage.TYPE_INT_ARGB : BufferedImage.TYPE_INT_RGB);
+        int outWidth = output.getWidth();
+        int[] result = Convolution.writablePixels(output);
+        Convolution.forEachBand(output.getHeight(), output.getHeight(), new OperationMonitor(), new AtomicInteger(),
+                (startY, endY) -> {
+                    for (int y = startY; y < endY; y++) {
+                        int top = 2 * y * width;
+                        int bottom = Math.min(2 * y + 1, height - 1) * width;
+                        for (int x = 0; x < outWidth; x++) {
+                            int left = 2 * x;
+                            int right = Math.min(2 * x + 1, width - 1);
+                            int a = pixels[top + left];
+                            int b = pixels[top + right];
+                            int c = pixels[bottom + left];
+                            int d = pixels[bottom + right];
+                            int argb = 0;
+                            for (int shift = 0; shift < 32; shift += 8) {
+                                int sum = ((a >>> shift) & 0xff) + ((b >>> shift) & 0xff) + ((c >>> shift) & 0xff)
+                                        + ((d >>> shift) & 0xff);
+                                argb |= ((sum + 2) >> 2) << shift;
+                            }
+                            result[y * outWidth + x] = alpha ? argb : argb | 0xff000000;
+                        }
+                    }
+                });
+        return output;
+    }
+}
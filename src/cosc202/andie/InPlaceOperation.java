@@ -0,0 +1,24 @@
+package cosc202.andie;
+
+/**
+ * <p>
+ * Interface for operations that change their input image and return it,
+ * rather than making a new image.
+ * </p>
+ *
+ * <p>
+ * Every other operation must leave its input as it was, and return an image
+ * that shares no pixels with it, so that the input can be read while the
+ * operation runs and reused once it is done (see {@link ImagePool}).
+ * An operation that changes its input must say so by implementing this
+ * interface, so that it is given a copy of any image that is still in use,
+ * such as the one on screen.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface InPlaceOperation extends ImageOperation {
+}
@@ -5,7 +5,7 @@ import java.awt.image.*;
 /**
  * ImageOperation to invert the colour of an image.
  */
-public class InvertColour implements ImageOperation, java.io.Serializable {
+public class InvertColour implements PointOperation, InPlaceOperation, java.io.Serializable {
 
     /**<p>
      * Create a new InvertColour operation.
@@ -17,32 +17,25 @@ public class InvertColour implements ImageOperation, java.io.Serializable {
 
     /**
      * <p>
-     * Inverts each colour value
+     * Inverts each colour value of a single pixel
      * </p>
      * 
-     * @param input The image to be inverted
-     * @return The resulting inverted image.
+     * @param argb The pixel to be inverted, as packed ARGB
+     * @return The resulting inverted pixel.
      */
-    public BufferedImage apply(BufferedImage input) {
-  
-        for (int y = 0; y < input.getHeight(); ++y) {
-            for (int x = 0; x < input.getWidth(); ++x) {
-                int argb = input.getRGB(x, y);
-                int a = (argb & 0xFF000000) >> 24;
-                int r = (argb & 0x00FF0000) >> 16;
-                int g = (argb & 0x0000FF00) >> 8;
-                int b = (argb & 0x000000FF);
-
-                int rNew = (255-r);
-                int gNew = (255-g);
-                int bNew = (255-b);
+    public int filterRGB(int argb) {
+        return (argb & 0xFF000000) | (~argb & 0x00FFFFFF);
+    }
 
-                argb = (a << 24) | (rNew << 16) | (gNew << 8) | bNew;
-                input.setRGB(x, y, argb);
-            }
-        }
-        
-        return input;
+    /**
+     * <p>
+     * Inverting treats each colour channel the same way, so it can be done with lookup tables
+     * </p>
+     * 
+     * @return The lookup tables for inverting.
+     */
+    public ChannelMap channelMap() {
+        return ChannelMap.of(v -> 255 - v, -1);
     }
     
 }
@@ -108,6 +108,10 @@ public class KeyboardShortcut {
                     Action setLine = drawingActions.new SetLineAction(bundle.getString("setLine"), null,
                             bundle.getString("setLineDesc"), null);
                     setLine.actionPerformed(new ActionEvent(e, 0, null));
+                } else if (e.getKeyCode() == KeyEvent.VK_ESCAPE) {
+                    Action cancelAction = editActions.new CancelAction(bundle.getString("cancelOperation"), null,
+                            bundle.getString("cancelOperationDesc"), null);
+                    cancelAction.actionPerformed(new ActionEvent(e, 0, null));
                 } else {
                     otherKeyPressed = true;
                 }
@@ -0,0 +1,182 @@
+package cosc202.andie;
+
+import java.awt.Dimension;
+import java.awt.GraphicsEnvironment;
+import java.awt.Toolkit;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.*;
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+/**
+ * <p>
+ * Shows the effect of an operation on the image while its settings are still
+ * being chosen.
+ * </p>
+ *
+ * <p>
+ * Dialogs pass the operation their current settings describe to
+ * {@link #update(ImageOperation)} every time a slider or spinner changes.
+ * Updates are debounced, so that dragging a slider only renders once it comes
+ * to rest, and a render that has been overtaken by a newer one is cancelled.
+ * </p>
+ *
+ * <p>
+ * Previews are rendered on a copy of the image shrunk to fit the screen, with
+ * any radius scaled to match, and are shown by the {@link ImagePanel} in place
+ * of the current image.
+ * The {@link EditableImage} and its operations are never changed, so closing
+ * the preview leaves everything exactly as it was.
+ * Tiled images are not previewed.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public class LivePreview {
+
+    /** The time in milliseconds to wait for the settings to stop changing before rendering. */
+    public static final int DELAY = 150;
+
+    /** The panel to show the preview on. */
+    private ImagePanel panel;
+    /** The image the previews are rendered on, or null if there is nothing to preview. */
+    private BufferedImage source;
+    /** The size of {@link source} relative to the current image. */
+    private double sourceScale;
+    /** The thread previews are rendered on. */
+    private ExecutorService worker;
+    /** Waits for the settings to stop changing. */
+    private Timer debounce;
+    /** The latest operation to preview. */
+    private ImageOperation pending;
+    /** The render currently running, or null. */
+    private Future<?> rendering;
+    /** The monitor of the render currently running, or null. */
+    private OperationMonitor monitor;
+    /** The number of renders started, so that results that arrive late can be ignored. */
+    private int generation;
+
+    /**
+     * <p>
+     * Create a new LivePreview for a panel.
+     * </p>
+     *
+     * <p>
+     * The panel's current image is shrunk to fit the screen straight away, so
+     * that each preview only has to process a screen's worth of pixels.
+     * </p>
+     *
+     * @param panel The panel to show the preview on.
+     */
+    public LivePreview(ImagePanel panel) {
+        this.panel = panel;
+        EditableImage image = panel.getImage();
+        if (image.hasImage() && !image.isTiled()) {
+            BufferedImage current = image.getCurrentImage();
+            Dimension screen = GraphicsEnvironment.isHeadless() ? new Dimension(1920, 1080)
+                    : Toolkit.getDefaultToolkit().getScreenSize();
+            ImagePyramid pyramid = new ImagePyramid(current);
+            int level = 0;
+            while (pyramid.getLevel(level).getWidth() > screen.width
+                    || pyramid.getLevel(level).getHeight() > screen.height) {
+                level++;
+            }
+            source = pyramid.getLevel(level);
+            sourceScale = (double) source.getWidth() / current.getWidth();
+        }
+        worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ANDIE preview");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+        debounce = new Timer(DELAY, e -> render());
+        debounce.setRepeats(false);
+    }
+
+    /**
+     * <p>
+     * Preview an operation, once the settings have stopped changing.
+     * </p>
+     *
+     * <p>
+     * This should be called on the event dispatch thread.
+     * </p>
+     *
+     * @param op The operation to preview.
+     */
+    public void update(ImageOperation op) {
+        if (source == null || worker.isShutdown()) {
+            return;
+        }
+        pending = op;
+        debounce.restart();
+    }
+
+    /**
+     * <p>
+     * Stop previewing, and show the current image again.
+     * </p>
+     *
+     * <p>
+     * This should be called when the dialog closes, whether the operation is
+     * applied or cancelled.
+     * </p>
+     */
+    public void close() {
+        debounce.stop();
+        cancelRendering();
+        worker.shutdownNow();
+        generation++;
+        panel.setPreview(null);
+        panel.repaint();
+    }
+
+    /**
+     * Cancel the render currently running, if any.
+     */
+    private void cancelRendering() {
+        if (monitor != null) {
+            monitor.cancel();
+        }
+        if (rendering != null) {
+            rendering.cancel(true);
+        }
+        monitor = null;
+        rendering = null;
+    }
+
+    /**
+     * Start rendering the latest operation, cancelling any render still running.
+     */
+    private void render() {
+        cancelRendering();
+        ImageOperation op = pending;
+        if (op instanceof ScalableOperation) {
+            op = ((ScalableOperation) op).scaled(sourceScale);
+        }
+        ImageOperation scaled = op;
+        OperationMonitor renderMonitor = new OperationMonitor();
+        int renderGeneration = ++generation;
+        monitor = renderMonitor;
+        rendering = worker.submit(() -> {
+            BufferedImage result;
+            try {
+                BufferedImage copy = scaled instanceof InPlaceOperation ? WorkingFormat.copy(source) : source;
+                result = TileScheduler.apply(scaled, copy, renderMonitor);
+            } catch (CancellationException e) {
+                return;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (renderGeneration == generation) {
+                    panel.setPreview(result);
+                    panel.repaint();
+                }
+            });
+        });
+    }
+}
@@ -0,0 +1,30 @@
+package cosc202.andie;
+
+/**
+ * <p>
+ * Interface for operations where each output pixel depends only on the input
+ * pixels near it.
+ * </p>
+ *
+ * <p>
+ * Such an operation can be applied to an image one piece at a time, as long as
+ * each piece is read with a border of extra pixels, the halo, around it.
+ * The {@link TiledImage} relies on this to edit images too large to hold in
+ * memory.
+ * The operation must give an output the same size as its input.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface LocalOperation extends ImageOperation {
+
+    /**
+     * Get how far the operation reaches for each output pixel.
+     *
+     * @return The number of pixels on each side of an output pixel that it can depend on.
+     */
+    public int getHalo();
+}
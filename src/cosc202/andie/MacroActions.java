@@ -3,7 +3,6 @@ package cosc202.andie;
 import java.util.*;
 import java.awt.event.*;
 import javax.swing.*;
-import java.io.IOException;
 
 /**
  * <p>
@@ -188,17 +187,7 @@ public class MacroActions {
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            try {
-                target.getImage().applyMacro();
-            } catch (IOException ex) {
-
-                Object[] options = { bundle.getString("okOption"), bundle.getString("cancelOption") };
-                JOptionPane.showOptionDialog(null, bundle.getString("couldNotApplyMacro"), bundle.getString("error"),
-                        JOptionPane.OK_CANCEL_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null);
-            }
-
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().applyMacro();
         }
 
     }
@@ -1,7 +1,6 @@
 package cosc202.andie;
 
 import java.awt.image.*;
-import java.util.*;
 
 /**
  * <p>
@@ -12,7 +11,7 @@ import java.util.*;
  * 
  * @see java.awt.image.ConvolveOp
  */
-public class MaximumFilter implements ImageOperation, java.io.Serializable {
+public class MaximumFilter implements ProgressiveImageOperation, LocalOperation, ScalableOperation, java.io.Serializable {
     /**
      * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a 5x5 filter, and so forth.
      */
@@ -49,84 +48,24 @@ public class MaximumFilter implements ImageOperation, java.io.Serializable {
         this(1);
     }
 
-    /**
-     * <p>
-     * Constructs a tile from input parameters then outputs the image with the tile edited to be the singular Maximum result of all pixels colours.
-     * </p
-     * >
-     * 
-     * @param array the initial array that represents the tile
-     * @param size the size of the tile
-     * @param input the input image
-     * @param xScalar the x offset of the tile from x = 0
-     * @param yScalar the y offset of the tile from y = 0
-     * @return
-    */
-    private BufferedImage processTile(int x, int y, BufferedImage input, BufferedImage output, int maxX, int maxY){
-        int arrSize = 0;
-        for (int i = x-radius; i <= x+radius; i++){
-            if (i >= 0 && i < maxX){
-                for (int j = y-radius;j <= y+radius; j++){
-                    if (j >= 0 && j < maxY){
-                        arrSize++;
-                    }
-                }
-            }
-        }
-        int count = 0;
-        int[] arr = new int[arrSize];
-        for (int i = x-radius; i <= x+radius; i++){
-            if (i >= 0 && i < maxX){
-                for (int j = y-radius;j <= y+radius; j++){
-                    if (j >= 0 && j < maxY){
-                        int argb = input.getRGB(i, j);
-                        arr[count] = argb;
-                        count++;
-                    }
-                }
-            }
-        }
-        int [] alphas = new int[arrSize];
-        int [] reds = new int[arrSize];
-        int [] greens = new int[arrSize];
-        int [] blues = new int[arrSize];
-        for (int i = 0; i < arr.length; i++){
-            alphas[i] = (arr[i] & 0xFF000000) >> 24;
-            reds[i] = (arr[i] & 0x00FF0000) >> 16;
-            greens[i] = (arr[i] & 0x0000FF00) >> 8;
-            blues[i] = (arr[i] & 0x000000FF);
-        }
-        Arrays.sort(reds);
-        Arrays.sort(greens);
-        Arrays.sort(blues);
-        int argb = (alphas[alphas.length-1] << 24) | (reds[reds.length-1] << 16) | (greens[greens.length-1] << 8) | blues[blues.length-1];
-        output.setRGB(x, y, argb);
-        return output;
-    }
-
     /**
      * <p>
      * Apply a Maximum filter to an image.
      * </p>
      * 
      * <p>
-     * Takes in the image and then gets the size of the image which it uses to proccess the image in tiles
-     * it then applys the Maximum filter to each tile one at a time appliying the changes each time using the process tile function
+     * Each channel of each pixel takes the largest value of that channel over the
+     * pixels of its neighbourhood that lie inside the image.
+     * The filter is run by {@link RunningExtrema}, which costs about three
+     * comparisons per pixel and channel whatever the radius.
      * </p>
      * 
      * @param input The image to apply the Maximum filter to.
+     * @param monitor The monitor to report progress to.
      * @return The resulting image.
      */
-    public BufferedImage apply(BufferedImage input) {
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), input.getType());
-        int maxX = (input.getWidth());
-        int maxY = (input.getHeight());
-        for (int x = 0; x < maxX; x++){
-            for (int y = 0; y < maxY; y++){
-                output = processTile(x, y, input, output, maxX, maxY);
-            }
-        }
-        return output;
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
+        return RunningExtrema.apply(input, radius, monitor, true);
     }
 
     /**
@@ -140,6 +79,23 @@ public class MaximumFilter implements ImageOperation, java.io.Serializable {
         return radius;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
 
-}
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new MaximumFilter(ScalableOperation.scale(radius, factor));
+    }
 
+}
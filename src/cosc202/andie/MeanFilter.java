@@ -1,7 +1,7 @@
 package cosc202.andie;
 
 import java.awt.image.*;
-import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
@@ -21,7 +21,7 @@ import java.util.*;
  * @author Steven Mills
  * @version 1.0
  */
-public class MeanFilter implements ImageOperation, java.io.Serializable {
+public class MeanFilter implements ProgressiveImageOperation, LocalOperation, ScalableOperation, java.io.Serializable {
     
     /**
      * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a 5x5 filter, and so forth.
@@ -66,26 +66,42 @@ public class MeanFilter implements ImageOperation, java.io.Serializable {
      * </p>
      * 
      * <p>
-     * As with many filters, the Mean filter is implemented via convolution.
-     * The size of the convolution kernel is specified by the {@link radius}.  
+     * The mean over each pixel's neighbourhood is read from a {@link SummedAreaTable}
+     * of the image, so the filter takes the same time whatever the {@link radius}.
+     * Pixels past the edge of the image repeat the nearest edge pixel.
      * Larger radii lead to stronger blurring.
      * </p>
      * 
      * @param input The image to apply the Mean filter to.
+     * @param monitor The monitor to report progress to.
      * @return The resulting (blurred)) image.
      */
-    public BufferedImage apply(BufferedImage input) {
-        int size = (2*radius+1) * (2*radius+1);
-        float [] array = new float[size];
-        Arrays.fill(array, 1.0f/size);
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
+        int width = input.getWidth();
+        int height = input.getHeight();
 
-        Kernel kernel = new Kernel(2*radius+1, 2*radius+1, array);
         //BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage output = WorkingFormat.create(width, height);
 
-        Convolution conv = new Convolution();
-        conv.convolveImage(input, output, kernel, radius);
+        boolean alpha = output.getColorModel().hasAlpha();
+        int[] pixels = Convolution.readPixels(input, alpha);
+        int[] out = Convolution.writablePixels(output);
+        int[] dst = out != null ? out : new int[width * height];
+        AtomicInteger rowsDone = new AtomicInteger();
+        int totalRows = SummedAreaTable.steps(width, height, radius) + height;
 
+        SummedAreaTable table = new SummedAreaTable(pixels, width, height, radius, alpha, monitor, rowsDone, totalRows);
+        Convolution.forEachBand(height, totalRows, monitor, rowsDone, (startY, endY) -> {
+            for (int y = startY; y < endY; y++) {
+                for (int x = 0; x < width; x++) {
+                    dst[y * width + x] = table.mean(x - radius, y - radius, x + radius + 1, y + radius + 1);
+                }
+            }
+        });
+
+        if (dst != out) {
+            output.setRGB(0, 0, width, height, dst, 0, width);
+        }
         return output;
     }
 
@@ -98,5 +114,23 @@ public class MeanFilter implements ImageOperation, java.io.Serializable {
         return radius;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
+
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new MeanFilter(ScalableOperation.scale(radius, factor));
+    }
 
 }
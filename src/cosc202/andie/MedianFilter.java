@@ -2,6 +2,7 @@ package cosc202.andie;
 
 import java.awt.image.*;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * <p>
@@ -12,12 +13,17 @@ import java.util.*;
  * 
  * @see java.awt.image.ConvolveOp
  */
-public class MedianFilter implements ImageOperation, java.io.Serializable {
+public class MedianFilter implements ProgressiveImageOperation, LocalOperation, ScalableOperation, java.io.Serializable {
     /**
      * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a 5x5 filter, and so forth.
      */
     private int radius;
 
+    /**
+     * The bit offsets of the red, green, blue and alpha channels in a packed ARGB pixel.
+     */
+    private static final int[] SHIFTS = { 16, 8, 0, 24 };
+
     /**
      * <p>
      * Construct a Median filter with the given size.
@@ -51,82 +57,140 @@ public class MedianFilter implements ImageOperation, java.io.Serializable {
 
     /**
      * <p>
-     * Constructs a tile from input parameters then outputs the image with the tile edited to be the singular median result of all pixels colours.
-     * </p
-     * >
+     * Apply a Median filter to an image.
+     * </p>
      * 
-     * @param array the initial array that represents the tile
-     * @param size the size of the tile
-     * @param input the input image
-     * @param xScalar the x offset of the tile from x = 0
-     * @param yScalar the y offset of the tile from y = 0
-     * @return
-    */
-    private BufferedImage processTile(int x, int y, BufferedImage input, BufferedImage output, int maxX, int maxY){
-        int arrSize = 0;
-        for (int i = x-radius; i <= x+radius; i++){
-            if (i >= 0 && i < maxX){
-                for (int j = y-radius;j <= y+radius; j++){
-                    if (j >= 0 && j < maxY){
-                        arrSize++;
-                    }
-                }
-            }
-        }
-        int count = 0;
-        int[] arr = new int[arrSize];
-        for (int i = x-radius; i <= x+radius; i++){
-            if (i >= 0 && i < maxX){
-                for (int j = y-radius;j <= y+radius; j++){
-                    if (j >= 0 && j < maxY){
-                        int argb = input.getRGB(i, j);
-                        arr[count] = argb;
-                        count++;
-                    }
-                }
-            }
-        }
-        int [] alphas = new int[arrSize];
-        int [] reds = new int[arrSize];
-        int [] greens = new int[arrSize];
-        int [] blues = new int[arrSize];
-        for (int i = 0; i < arr.length; i++){
-            alphas[i] = (arr[i] & 0xFF000000) >> 24;
-            reds[i] = (arr[i] & 0x00FF0000) >> 16;
-            greens[i] = (arr[i] & 0x0000FF00) >> 8;
-            blues[i] = (arr[i] & 0x000000FF);
+     * <p>
+     * Each pixel takes the median of each colour channel over the pixels of its
+     * neighbourhood that lie inside the image.
+     * The image is split into bands of rows which are filtered in parallel.
+     * Within a row, the neighbourhood is kept as a histogram per channel which
+     * slides along one column at a time, so each pixel costs O(radius) rather than
+     * a sort of the whole neighbourhood.
+     * </p>
+     * 
+     * @param input The image to apply the Median filter to.
+     * @param monitor The monitor to report progress to.
+     * @return The resulting image.
+     */
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
+        BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
+        int width = input.getWidth();
+        int height = input.getHeight();
+        boolean alpha = output.getColorModel().hasAlpha();
+        int[] src = Convolution.readPixels(input, alpha);
+        int[] out = Convolution.writablePixels(output);
+        int[] dst = out != null ? out : new int[width * height];
+
+        Convolution.forEachBand(height, height, monitor, new AtomicInteger(),
+                (startY, endY) -> filterRows(src, dst, width, height, alpha, startY, endY));
+
+        if (out == null) {
+            output.setRGB(0, 0, width, height, dst, 0, width);
         }
-        Arrays.sort(reds);
-        Arrays.sort(greens);
-        Arrays.sort(blues);
-        int argb = (alphas[alphas.length/2-1] << 24) | (reds[reds.length/2-1] << 16) | (greens[greens.length/2-1] << 8) | blues[blues.length/2-1];
-        output.setRGB(x, y, argb);
+        monitor.progress(height, height);
         return output;
     }
 
     /**
      * <p>
-     * Apply a Median filter to an image.
+     * Median filter a band of rows using a sliding histogram.
      * </p>
      * 
      * <p>
-     * Takes in the image and then gets the size of the image which it uses to proccess the image in tiles
-     * it then applys the median filter to each tile one at a time appliying the changes each time using the process tile function
+     * Each channel has a fine histogram of 256 bins and a coarse histogram of 16
+     * bins, each covering 16 fine bins.
+     * Moving one pixel to the right removes the column leaving the neighbourhood
+     * and adds the column entering it, and the median is found by scanning the
+     * coarse bins and then at most 16 fine bins.
      * </p>
      * 
-     * @param input The image to apply the Median filter to.
-     * @return The resulting image.
+     * @param src The input pixels, as packed ARGB.
+     * @param dst The output pixels, as packed ARGB.
+     * @param width The width of the image.
+     * @param height The height of the image.
+     * @param alpha Whether to filter the alpha channel.
+     * @param startY The first row of the band.
+     * @param endY The row after the last row of the band.
+     */
+    private void filterRows(int[] src, int[] dst, int width, int height, boolean alpha, int startY, int endY) {
+        int[] fine = new int[4 * 256];
+        int[] coarse = new int[4 * 16];
+        int channels = alpha ? 4 : 3;
+        for (int y = startY; y < endY; y++) {
+            Arrays.fill(fine, 0);
+            Arrays.fill(coarse, 0);
+            int top = Math.max(y - radius, 0);
+            int bottom = Math.min(y + radius, height - 1);
+            for (int x = 0; x <= Math.min(radius, width - 1); x++) {
+                updateColumn(src, fine, coarse, width, x, top, bottom, channels, 1);
+            }
+            for (int x = 0; x < width; x++) {
+                if (x > 0) {
+                    if (x + radius < width) {
+                        updateColumn(src, fine, coarse, width, x + radius, top, bottom, channels, 1);
+                    }
+                    if (x - radius - 1 >= 0) {
+                        updateColumn(src, fine, coarse, width, x - radius - 1, top, bottom, channels, -1);
+                    }
+                }
+                // The median of n values is the one with n/2 values below it
+                int count = (Math.min(x + radius, width - 1) - Math.max(x - radius, 0) + 1) * (bottom - top + 1);
+                int argb = 0;
+                for (int c = 0; c < channels; c++) {
+                    argb |= median(fine, coarse, c, count / 2) << SHIFTS[c];
+                }
+                dst[y * width + x] = argb;
+            }
+        }
+    }
+
+    /**
+     * Add or remove one column of the neighbourhood from the histograms.
+     * 
+     * @param src The input pixels, as packed ARGB.
+     * @param fine The fine histograms.
+     * @param coarse The coarse histograms.
+     * @param width The width of the image.
+     * @param x The column to add or remove.
+     * @param top The first row of the neighbourhood.
+     * @param bottom The last row of the neighbourhood.
+     * @param channels The number of channels to count, 3 to skip alpha.
+     * @param delta 1 to add the column, -1 to remove it.
      */
-    public BufferedImage apply(BufferedImage input) {
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), input.getType());
-        int maxX = (input.getWidth());
-        int maxY = (input.getHeight());
-        for (int x = 0; x < maxX; x++){
-            for (int y = 0; y < maxY; y++){
-                output = processTile(x, y, input, output, maxX, maxY);
+    private static void updateColumn(int[] src, int[] fine, int[] coarse, int width, int x, int top, int bottom, int channels, int delta) {
+        for (int y = top; y <= bottom; y++) {
+            int argb = src[y * width + x];
+            for (int c = 0; c < channels; c++) {
+                int value = (argb >>> SHIFTS[c]) & 0xFF;
+                fine[c * 256 + value] += delta;
+                coarse[c * 16 + (value >> 4)] += delta;
             }
         }
-        return output;
+    }
+
+    /**
+     * Find the value at a given rank in a channel's histogram.
+     * 
+     * @param fine The fine histograms.
+     * @param coarse The coarse histograms.
+     * @param c The channel, 0 to 2 for red, green and blue, 3 for alpha.
+     * @param rank The number of values below the one to find.
+     * @return The value at that rank.
+     */
+    private static int median(int[] fine, int[] coarse, int c, int rank) {
+        int seen = 0;
+        int bin = 0;
+        while (seen + coarse[c * 16 + bin] <= rank) {
+            seen += coarse[c * 16 + bin];
+            bin++;
+        }
+        int value = bin * 16;
+        while (seen + fine[c * 256 + value] <= rank) {
+            seen += fine[c * 256 + value];
+            value++;
+        }
+        return value;
     }
 
     /**
@@ -140,6 +204,23 @@ public class MedianFilter implements ImageOperation, java.io.Serializable {
         return radius;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
 
-}
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new MedianFilter(ScalableOperation.scale(radius, factor));
+    }
 
+}
@@ -0,0 +1,102 @@
+package cosc202.andie;
+
+import java.awt.image.*;
+
+/**
+ * <p>
+ * ImageOperation to apply a morphological closing.
+ * </p>
+ * 
+ * <p>
+ * A closing is a {@link MaximumFilter} followed by a {@link MinimumFilter} of
+ * the same size.
+ * It fills in dark details smaller than the neighbourhood, such as gaps and
+ * thin cracks, while leaving larger dark areas the same shape.
+ * </p>
+ * 
+ * @see RunningExtrema
+ */
+public class MorphologicalClose implements ProgressiveImageOperation, LocalOperation, ScalableOperation, java.io.Serializable {
+    /**
+     * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a 5x5 filter, and so forth.
+     */
+    private int radius;
+
+    /**
+     * <p>
+     * Construct a morphological closing with the given size.
+     * </p>
+     * 
+     * <p>
+     * The size of the filter is the 'radius' of the 'local neighbourhood'.
+     * A size of 1 is a 3x3 filter, 2 is 5x5, and so on.
+     * </p>
+     * 
+     * @param radius The radius of the newly constructed MorphologicalClose
+     */
+    MorphologicalClose(int radius) {
+        this.radius = radius;
+    }
+
+    /**
+     * <p>
+     * Construct a morphological closing with the default size.
+     * </p>
+     * 
+     * <p>
+     * By default, a morphological closing has radius 1.
+     * </p>
+     * 
+     * @see MorphologicalClose(int)
+     */
+    MorphologicalClose() {
+        this(1);
+    }
+
+    /**
+     * <p>
+     * Apply a morphological closing to an image.
+     * </p>
+     * 
+     * <p>
+     * Both filters are run by {@link RunningExtrema}, so the cost does not depend on
+     * the radius.
+     * </p>
+     * 
+     * @param input The image to apply the closing to.
+     * @param monitor The monitor to report progress to.
+     * @return The resulting image.
+     */
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
+        return RunningExtrema.apply(input, radius, monitor, true, false);
+    }
+
+    /**
+     * Gets the radius of the filter.
+     * 
+     * @return The radius of the filter.
+     */
+    public int getRadius(){
+        return radius;
+    }
+
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return Twice the radius of the filter, as it is applied twice.
+     */
+    public int getHalo() {
+        return 2 * radius;
+    }
+
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new MorphologicalClose(ScalableOperation.scale(radius, factor));
+    }
+
+}
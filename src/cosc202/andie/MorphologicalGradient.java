@@ -0,0 +1,120 @@
+package cosc202.andie;
+
+import java.awt.image.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * ImageOperation to apply a morphological gradient.
+ * </p>
+ * 
+ * <p>
+ * The gradient is the difference between a {@link MaximumFilter} and a
+ * {@link MinimumFilter} of the same size, taken channel by channel.
+ * It is large where the colour changes within the neighbourhood, so it outlines
+ * the edges of shapes in the image.
+ * </p>
+ * 
+ * @see RunningExtrema
+ */
+public class MorphologicalGradient implements ProgressiveImageOperation, LocalOperation, ScalableOperation, java.io.Serializable {
+    /**
+     * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a 5x5 filter, and so forth.
+     */
+    private int radius;
+
+    /**
+     * <p>
+     * Construct a morphological gradient with the given size.
+     * </p>
+     * 
+     * <p>
+     * The size of the filter is the 'radius' of the 'local neighbourhood'.
+     * A size of 1 is a 3x3 filter, 2 is 5x5, and so on.
+     * </p>
+     * 
+     * @param radius The radius of the newly constructed MorphologicalGradient
+     */
+    MorphologicalGradient(int radius) {
+        this.radius = radius;
+    }
+
+    /**
+     * <p>
+     * Construct a morphological gradient with the default size.
+     * </p>
+     * 
+     * <p>
+     * By default, a morphological gradient has radius 1.
+     * </p>
+     * 
+     * @see MorphologicalGradient(int)
+     */
+    MorphologicalGradient() {
+        this(1);
+    }
+
+    /**
+     * <p>
+     * Apply a morphological gradient to an image.
+     * </p>
+     * 
+     * <p>
+     * Both filters are run by {@link RunningExtrema} on the original image.
+     * The result is fully opaque, since a difference of alpha values would leave
+     * most of the image transparent.
+     * </p>
+     * 
+     * @param input The image to apply the gradient to.
+     * @param monitor The monitor to report progress to.
+     * @return The resulting image.
+     */
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        BufferedImage output = WorkingFormat.create(width, height);
+        int[] src = Convolution.readPixels(input, output.getColorModel().hasAlpha());
+        int[] dilated = new int[width * height];
+        int[] eroded = new int[width * height];
+        AtomicInteger rowsDone = new AtomicInteger();
+        RunningExtrema.filter(src, dilated, width, height, radius, true, monitor, rowsDone, 4 * height);
+        RunningExtrema.filter(src, eroded, width, height, radius, false, monitor, rowsDone, 4 * height);
+
+        // Each channel of the maximum is at least the same channel of the minimum, so there is no borrow
+        for (int i = 0; i < dilated.length; i++) {
+            dilated[i] = 0xFF000000 | ((dilated[i] & 0xFFFFFF) - (eroded[i] & 0xFFFFFF));
+        }
+        output.setRGB(0, 0, width, height, dilated, 0, width);
+        monitor.progress(4 * height, 4 * height);
+        return output;
+    }
+
+    /**
+     * Gets the radius of the filter.
+     * 
+     * @return The radius of the filter.
+     */
+    public int getRadius(){
+        return radius;
+    }
+
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
+
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new MorphologicalGradient(ScalableOperation.scale(radius, factor));
+    }
+
+}
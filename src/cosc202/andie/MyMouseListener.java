@@ -3,7 +3,6 @@ package cosc202.andie;
 import javax.swing.event.MouseInputAdapter;
 import java.awt.*;
 import java.awt.event.*;
-import java.awt.image.BufferedImage;
 import java.util.ResourceBundle;
 
 import javax.swing.*;
@@ -91,9 +90,8 @@ public class MyMouseListener extends MouseInputAdapter {
     private Rectangle calculateSelectedRegion() {
         try {
 
-            BufferedImage tempImage = target.getImage().getCurrentImage();
-            int maxWidth = tempImage.getWidth();
-            int maxHeight = tempImage.getHeight();
+            int maxWidth = target.getImage().getWidth();
+            int maxHeight = target.getImage().getHeight();
 
             // so that it wont go outside the image
             if (startPoint.x < 0) {
@@ -256,9 +254,7 @@ public class MyMouseListener extends MouseInputAdapter {
         } else {
             if (isCrop) {
                 isDrawing = false;
-                target.getImage().apply(new CropImage(startPoint, endPoint));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new CropImage(startPoint, endPoint));
                 isCrop = false;
                 regionSelectionSelected = false;
             }
@@ -266,9 +262,7 @@ public class MyMouseListener extends MouseInputAdapter {
                 DrawShapes drawShapes = new DrawShapes(MyMouseListener.getShapeType());
                 drawShapes.setRegion(MyMouseListener.getStartPoint(), MyMouseListener.getEndPoint());
                 drawShapes.setColor(MyMouseListener.getColor());
-                target.getImage().apply(drawShapes);
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(drawShapes);
             }
         }
     }
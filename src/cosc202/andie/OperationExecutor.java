@@ -0,0 +1,510 @@
+package cosc202.andie;
+
+import java.awt.Cursor;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.function.IntConsumer;
+import javax.swing.JOptionPane;
+import javax.swing.SwingUtilities;
+
+/**
+ * <p>
+ * Runs {@link ImageOperation}s on a background thread.
+ * </p>
+ *
+ * <p>
+ * Applying an operation directly from an {@link ImageAction} runs it on the
+ * Swing event dispatch thread, which freezes the whole window until a slow
+ * filter finishes.
+ * The OperationExecutor instead queues edits to an {@link ImagePanel}'s
+ * {@link EditableImage} and runs them one at a time on a worker thread, in the
+ * order they were requested.
+ * </p>
+ *
+ * <p>
+ * Each operation reads the current image and writes its result to a new
+ * image, which is only committed to the EditableImage once the operation has
+ * finished, so the panel never shows a partly processed image.
+ * The current image is read while it is being shown, so it is not copied, and
+ * only an {@link InPlaceOperation}, which changes its input, is given a copy of
+ * it.
+ * {@link RegionOperation}s are the exception, as they only draw over a small
+ * part of the image, and copying the whole image would cost far more than
+ * drawing on it, so they draw on the current image directly.
+ * The operation currently running can be cancelled, in which case its result is
+ * thrown away and the image is left exactly as it was.
+ * {@link ProgressiveImageOperation}s stop within one row band of being
+ * cancelled, and report their progress to the progress listener while they run.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public class OperationExecutor {
+
+    /** The panel whose image is edited. */
+    private ImagePanel panel;
+    /** The single worker thread that edits are run on. */
+    private ExecutorService worker;
+    /** Edits that have been submitted but have not yet finished. */
+    private LinkedList<Future<?>> pending;
+    /** The edit currently running on the worker thread, or null. */
+    private volatile Future<?> running;
+    /** The monitor of the operation currently running, or null. */
+    private volatile OperationMonitor monitor;
+    /** Receives progress updates on the event dispatch thread, or null. */
+    private volatile IntConsumer progressListener;
+    /** Held while a result is committed, and while edits are cancelled, so that neither happens part way through the other. */
+    private final Object commitLock = new Object();
+
+    /**
+     * <p>
+     * Create a new OperationExecutor for a panel.
+     * </p>
+     *
+     * @param panel The panel whose image should be edited.
+     */
+    public OperationExecutor(ImagePanel panel) {
+        this.panel = panel;
+        this.pending = new LinkedList<Future<?>>();
+        this.worker = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "ANDIE operations");
+                thread.setDaemon(true);
+                return thread;
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Queue an operation to be applied to the image.
+     * </p>
+     *
+     * @param op The operation to apply.
+     * @return A Future that completes when the operation has been applied or
+     *         cancelled.
+     */
+    public Future<?> apply(ImageOperation op) {
+        return submit(new Runnable() {
+            public void run() {
+                EditableImage image = panel.getImage();
+                if (!image.hasImage()) {
+                    // Let the image report that there is nothing to apply the operation to
+                    image.apply(op);
+                    return;
+                }
+                if (image.isTiled()) {
+                    applyTiled(image, op);
+                    return;
+                }
+                if (op instanceof RegionOperation) {
+                    // Only a small part of the image changes, so it is drawn in place rather than on a copy
+                    image.apply(op);
+                    return;
+                }
+                long start = System.nanoTime();
+                // Only an operation that changes its input needs a copy of the image on screen
+                BufferedImage copy = op instanceof InPlaceOperation ? WorkingFormat.copy(image.getCurrentImage())
+                        : image.getCurrentImage();
+                BufferedImage result;
+                if (op instanceof ProgressiveImageOperation || op instanceof TileOperation) {
+                    OperationMonitor opMonitor = new OperationMonitor(
+                            percent -> SwingUtilities.invokeLater(() -> fireProgress(percent)));
+                    monitor = opMonitor;
+                    try {
+                        result = TileScheduler.apply(op, copy, opMonitor);
+                    } catch (CancellationException e) {
+                        return;
+                    } finally {
+                        monitor = null;
+                    }
+                } else {
+                    result = op.apply(copy);
+                }
+                commitUnlessCancelled(image, op, result, System.nanoTime() - start);
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Commit the result of the running edit, unless it has been cancelled.
+     * </p>
+     *
+     * <p>
+     * The check and the commit are done while holding the same lock that
+     * {@link #cancel()} and {@link #cancelAll()} take, so an edit is either
+     * cancelled before its result is committed, or committed in full before the
+     * cancel takes effect.
+     * </p>
+     *
+     * @param image  The image to commit the result to.
+     * @param op     The operation that was applied.
+     * @param result The result of the operation.
+     * @param cost   How long the operation took, in nanoseconds.
+     */
+    private void commitUnlessCancelled(EditableImage image, ImageOperation op, BufferedImage result, long cost) {
+        synchronized (commitLock) {
+            Future<?> task = running;
+            if (task != null && task.isCancelled()) {
+                return;
+            }
+            image.commit(op, result, cost);
+        }
+    }
+
+    /**
+     * <p>
+     * Apply an operation to a tiled image, one tile at a time.
+     * </p>
+     *
+     * <p>
+     * Every tiled operation reports its progress per tile and can be cancelled
+     * between tiles, whether or not it is a {@link ProgressiveImageOperation}.
+     * </p>
+     *
+     * @param image The image to apply the operation to.
+     * @param op    The operation to apply.
+     */
+    private void applyTiled(EditableImage image, ImageOperation op) {
+        OperationMonitor opMonitor = new OperationMonitor(
+                percent -> SwingUtilities.invokeLater(() -> fireProgress(percent)));
+        monitor = opMonitor;
+        try {
+            image.applyTiled(op, opMonitor);
+        } catch (CancellationException e) {
+            // The image is left as it was
+        } catch (java.io.IOException e) {
+            throw new CompletionException(e);
+        } finally {
+            monitor = null;
+        }
+    }
+
+    /**
+     * <p>
+     * Queue an undo of the most recent operation.
+     * </p>
+     *
+     * @return A Future that completes when the undo has finished.
+     * @see EditableImage#undo()
+     */
+    public Future<?> undo() {
+        return submit(new Runnable() {
+            public void run() {
+                panel.getImage().undo();
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Queue a redo of the most recently undone operation.
+     * </p>
+     *
+     * @return A Future that completes when the redo has finished.
+     * @see EditableImage#redo()
+     */
+    public Future<?> redo() {
+        return submit(new Runnable() {
+            public void run() {
+                panel.getImage().redo();
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Queue the recorded macro to be applied to the image.
+     * </p>
+     *
+     * @return A Future that completes when the macro has been applied.
+     * @see EditableImage#applyMacro()
+     */
+    public Future<?> applyMacro() {
+        return submit(new Runnable() {
+            public void run() {
+                try {
+                    panel.getImage().applyMacro();
+                } catch (java.io.IOException e) {
+                    throw new CompletionException(e);
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Queue an image to be opened in place of the current one.
+     * </p>
+     *
+     * <p>
+     * Any unsaved edits to the current image are discarded first.
+     * Edits still queued for the current image should be cancelled with
+     * {@link #cancelAll()} before this is called, so that they do not land on
+     * the new image.
+     * </p>
+     *
+     * @param imageFilename The file to open the image from.
+     * @param onFailure     Run on the event dispatch thread if the image could not be opened.
+     * @return A Future that completes when the image has been opened.
+     * @see EditableImage#open(String)
+     */
+    public Future<?> open(String imageFilename, Runnable onFailure) {
+        return submit(new Runnable() {
+            public void run() {
+                try {
+                    // The user chose not to keep the unsaved edits to the old image
+                    panel.getImage().discardJournal();
+                    panel.getImage().open(imageFilename);
+                } catch (java.io.IOException e) {
+                    SwingUtilities.invokeLater(onFailure);
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Queue the image to be saved.
+     * </p>
+     *
+     * <p>
+     * The image is saved on the worker thread once the edits before it have
+     * finished, so that the file written includes every operation the user has
+     * asked for.
+     * </p>
+     *
+     * @param imageFilename The file to save the image to, or null to save it to the file it came from.
+     * @param onSuccess     Run on the event dispatch thread once the image has been saved.
+     * @param onFailure     Run on the event dispatch thread if the image could not be saved.
+     * @return A Future that completes when the image has been saved.
+     * @see EditableImage#save()
+     * @see EditableImage#saveAs(String)
+     */
+    public Future<?> save(String imageFilename, Runnable onSuccess, Runnable onFailure) {
+        return submit(new Runnable() {
+            public void run() {
+                try {
+                    if (imageFilename == null) {
+                        panel.getImage().save();
+                    } else {
+                        panel.getImage().saveAs(imageFilename);
+                    }
+                    SwingUtilities.invokeLater(onSuccess);
+                } catch (java.io.IOException e) {
+                    SwingUtilities.invokeLater(onFailure);
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Queue the image to be exported.
+     * </p>
+     *
+     * <p>
+     * Exporting an image edited as a proxy renders it at full resolution first,
+     * which can take as long as any other operation, so it is done on the worker
+     * thread once the edits before it have finished.
+     * </p>
+     *
+     * @param imageFilename The file to export the image to.
+     * @param onFailure     Run on the event dispatch thread if the image could not be exported.
+     * @return A Future that completes when the image has been exported.
+     * @see EditableImage#export(String)
+     */
+    public Future<?> export(String imageFilename, Runnable onFailure) {
+        return submit(new Runnable() {
+            public void run() {
+                try {
+                    panel.getImage().export(imageFilename);
+                } catch (java.io.IOException e) {
+                    SwingUtilities.invokeLater(onFailure);
+                }
+            }
+        });
+    }
+
+    /**
+     * <p>
+     * Cancel the operation that is currently running, if any.
+     * </p>
+     *
+     * <p>
+     * Operations still waiting in the queue will run as normal.
+     * </p>
+     */
+    public void cancel() {
+        OperationMonitor current = monitor;
+        if (current != null) {
+            current.cancel();
+        }
+        synchronized (commitLock) {
+            Future<?> task = running;
+            if (task != null) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Cancel the operation that is currently running, and discard all operations
+     * waiting in the queue.
+     * </p>
+     */
+    public void cancelAll() {
+        List<Future<?>> tasks;
+        synchronized (pending) {
+            tasks = new ArrayList<Future<?>>(pending);
+        }
+        OperationMonitor current = monitor;
+        if (current != null) {
+            current.cancel();
+        }
+        synchronized (commitLock) {
+            for (Future<?> task : tasks) {
+                task.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Set the listener to notify of the progress of long-running operations.
+     * </p>
+     *
+     * <p>
+     * The listener is called on the event dispatch thread with the percentage
+     * complete of the current {@link ProgressiveImageOperation}, or with -1 once
+     * there is no more work to do.
+     * </p>
+     *
+     * @param listener The listener to notify (ignored if null).
+     */
+    public void setProgressListener(IntConsumer listener) {
+        this.progressListener = listener;
+    }
+
+    /**
+     * Tell the user that an edit could not be completed, on the event dispatch
+     * thread.
+     */
+    private void showFailure() {
+        ResourceBundle bundle = ResourceBundle.getBundle("LanguageBundle");
+        Object[] options = { bundle.getString("okOption") };
+        String message = bundle.getString("couldNotApplyOperation");
+        String title = bundle.getString("error");
+        SwingUtilities.invokeLater(() -> JOptionPane.showOptionDialog(panel, message, title,
+                JOptionPane.OK_OPTION, JOptionPane.ERROR_MESSAGE, null, options, null));
+    }
+
+    /**
+     * Pass a progress update to the progress listener, if there is one.
+     *
+     * @param percent The percentage complete, or -1 if idle.
+     */
+    private void fireProgress(int percent) {
+        IntConsumer listener = progressListener;
+        if (listener != null) {
+            listener.accept(percent);
+        }
+    }
+
+    /**
+     * <p>
+     * Check whether there are edits running or waiting to run.
+     * </p>
+     *
+     * @return True if the executor has unfinished work.
+     */
+    public boolean isBusy() {
+        synchronized (pending) {
+            return !pending.isEmpty();
+        }
+    }
+
+    /**
+     * <p>
+     * Submit an edit to the worker thread.
+     * </p>
+     *
+     * @param edit The edit to run.
+     * @return A Future for the edit.
+     */
+    private Future<?> submit(Runnable edit) {
+        EditTask task = new EditTask(edit);
+        synchronized (pending) {
+            pending.add(task);
+        }
+        worker.execute(task);
+        return task;
+    }
+
+    /**
+     * <p>
+     * A queued edit.
+     * </p>
+     *
+     * <p>
+     * While it runs the panel shows a busy cursor, and once it finishes,
+     * successfully or not, the panel is repainted on the event dispatch thread.
+     * If the edit fails, the user is told so, and the image is left as the edit
+     * found it.
+     * </p>
+     */
+    private class EditTask extends FutureTask<Void> {
+
+        /**
+         * Create a new EditTask.
+         *
+         * @param edit The edit to run.
+         */
+        EditTask(Runnable edit) {
+            super(new Runnable() {
+                public void run() {
+                    try {
+                        edit.run();
+                    } catch (CancellationException e) {
+                        // The image is left as it was
+                    } catch (RuntimeException e) {
+                        showFailure();
+                    }
+                }
+            }, null);
+        }
+
+        @Override
+        public void run() {
+            running = this;
+            SwingUtilities.invokeLater(() -> panel.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR)));
+            super.run();
+        }
+
+        @Override
+        protected void done() {
+            synchronized (pending) {
+                pending.remove(this);
+            }
+            if (running == this) {
+                running = null;
+            }
+            SwingUtilities.invokeLater(() -> {
+                if (!isBusy()) {
+                    panel.setCursor(Cursor.getDefaultCursor());
+                    fireProgress(-1);
+                }
+                panel.repaintChanges();
+                if (panel.getParent() != null) {
+                    panel.getParent().revalidate();
+                }
+            });
+        }
+    }
+}
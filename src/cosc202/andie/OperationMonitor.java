@@ -0,0 +1,125 @@
+package cosc202.andie;
+
+import java.util.concurrent.CancellationException;
+import java.util.function.IntConsumer;
+
+/**
+ * <p>
+ * Progress sink and cancellation token for a running {@link ProgressiveImageOperation}.
+ * </p>
+ *
+ * <p>
+ * A long-running operation calls {@link #progress(int, int)} once per row band
+ * of the image it is working on.
+ * Each call checks whether the operation has been cancelled, either through
+ * {@link #cancel()} or by interrupting the thread it is running on, and if so
+ * throws a {@link CancellationException} so the operation stops straight away.
+ * Otherwise the completed fraction is passed on to the progress listener, if
+ * there is one, whenever it changes by at least one percent.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public class OperationMonitor {
+
+    /** Receives the percentage complete, or null if progress is not wanted. */
+    private IntConsumer listener;
+    /** Whether the operation has been asked to stop. */
+    private volatile boolean cancelled;
+    /** The last percentage passed to the listener. */
+    private volatile int lastPercent;
+
+    /**
+     * <p>
+     * Create an OperationMonitor that does not report progress.
+     * </p>
+     *
+     * <p>
+     * The operation can still be stopped with {@link #cancel()} or by
+     * interrupting its thread.
+     * </p>
+     */
+    public OperationMonitor() {
+        this(null);
+    }
+
+    /**
+     * <p>
+     * Create an OperationMonitor that reports progress to a listener.
+     * </p>
+     *
+     * <p>
+     * The listener is called on the thread running the operation, with a
+     * percentage between 0 and 100.
+     * </p>
+     *
+     * @param listener The listener to pass progress to (ignored if null).
+     */
+    public OperationMonitor(IntConsumer listener) {
+        this.listener = listener;
+        this.lastPercent = -1;
+    }
+
+    /**
+     * <p>
+     * Ask the operation to stop at the next row band.
+     * </p>
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * <p>
+     * Check whether the operation has been asked to stop.
+     * </p>
+     *
+     * @return True if {@link #cancel()} has been called or the current thread has
+     *         been interrupted.
+     */
+    public boolean isCancelled() {
+        return cancelled || Thread.currentThread().isInterrupted();
+    }
+
+    /**
+     * <p>
+     * Stop the operation if it has been cancelled.
+     * </p>
+     *
+     * @throws CancellationException If the operation has been cancelled.
+     */
+    public void checkCancelled() {
+        if (isCancelled()) {
+            throw new CancellationException();
+        }
+    }
+
+    /**
+     * <p>
+     * Report how much of the operation is complete.
+     * </p>
+     *
+     * <p>
+     * Operations call this as they start each row band, and once more with
+     * {@code done == total} when they finish.
+     * </p>
+     *
+     * @param done  The number of units (usually rows) completed so far.
+     * @param total The total number of units of work.
+     * @throws CancellationException If the operation has been cancelled.
+     */
+    public void progress(int done, int total) {
+        checkCancelled();
+        if (listener == null || total <= 0) {
+            return;
+        }
+        int percent = (int) Math.min(100, Math.max(0, 100L * done / total));
+        if (percent != lastPercent) {
+            lastPercent = percent;
+            listener.accept(percent);
+        }
+    }
+}
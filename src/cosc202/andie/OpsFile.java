@@ -0,0 +1,695 @@
+package cosc202.andie;
+
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.*;
+import java.lang.reflect.Field;
+import java.lang.reflect.Modifier;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.*;
+import java.util.function.Supplier;
+
+/**
+ * <p>
+ * Reads and writes the operations applied to an image, as saved in its
+ * <code>.ops</code> file.
+ * </p>
+ *
+ * <p>
+ * The file starts with {@link #MAGIC} and a format {@link #VERSION}, followed by
+ * one record per operation.
+ * Each record is tagged with the type of the operation and the version of that
+ * type's settings, and gives the length of the settings so that they are read
+ * as a whole.
+ * Settings are written as named fields, so an operation that has gained a
+ * field since the file was written keeps the value its blank constructor
+ * gives, and fields that have since been removed are skipped.
+ * </p>
+ *
+ * <p>
+ * Images held by operations, such as the one in a {@link CopyPreview}, are not
+ * written into the records.
+ * They go into a side file, with <code>.blobs</code> added to the name, where
+ * each image is stored once under the SHA-256 hash of its pixels and the record
+ * only holds the hash.
+ * The side file is memory-mapped when it is read, and an image is only copied
+ * out of it when the operation holding it is decoded.
+ * </p>
+ *
+ * <p>
+ * Operations are decoded one at a time by a {@link Reader}, which can also read
+ * files written by older versions of ANDIE with Java serialization.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see EditableImage
+ */
+final class OpsFile {
+
+    /** The first four bytes of an operations file, "ANOP". */
+    static final int MAGIC = 0x414E4F50;
+    /** The first four bytes of a side file of images, "ANOB". */
+    static final int BLOBS_MAGIC = 0x414E4F42;
+    /** The version of the layout of the file as a whole. */
+    static final int VERSION = 1;
+    /** The suffix added to the name of the operations file to get its side file. */
+    static final String BLOBS_SUFFIX = ".blobs";
+
+    /** Field types, as written before each field's value. */
+    private static final byte NULL = 0, INT = 1, LONG = 2, FLOAT = 3, DOUBLE = 4, BOOLEAN = 5, STRING = 6,
+            STRINGS = 7, COLOR = 8, POINT = 9, IMAGE = 10;
+
+    /** The length of an image's hash in bytes. */
+    private static final int HASH_LENGTH = 32;
+
+    /**
+     * How one type of operation is stored.
+     */
+    private static final class Format {
+
+        /** The type of operation. */
+        final Class<? extends ImageOperation> type;
+        /** The version of its settings, which is increased whenever the meaning of a field changes. */
+        final int version;
+        /** Makes a blank operation for the fields to be read into. */
+        final Supplier<? extends ImageOperation> blank;
+        /** The fields to write, sorted by name. */
+        final List<Field> fields;
+
+        /**
+         * Create a new Format.
+         *
+         * @param type    The type of operation.
+         * @param version The version of its settings.
+         * @param blank   Makes a blank operation of the type.
+         */
+        Format(Class<? extends ImageOperation> type, int version, Supplier<? extends ImageOperation> blank) {
+            this.type = type;
+            this.version = version;
+            this.blank = blank;
+            fields = new ArrayList<Field>();
+            for (Field field : type.getDeclaredFields()) {
+                int modifiers = field.getModifiers();
+                // Constants and the language bundle are not settings of the operation
+                if (Modifier.isStatic(modifiers) || Modifier.isFinal(modifiers)
+                        || field.getType() == ResourceBundle.class) {
+                    continue;
+                }
+                field.setAccessible(true);
+                fields.add(field);
+            }
+            fields.sort(Comparator.comparing(Field::getName));
+        }
+    }
+
+    /**
+     * The operations that can be stored, where each one's tag is its index plus
+     * one.
+     * New operations must be added at the end, so that the tags already in files
+     * keep their meaning.
+     */
+    private static final List<Format> FORMATS = Arrays.asList(
+            new Format(MeanFilter.class, 1, MeanFilter::new),
+            new Format(SoftBlur.class, 1, SoftBlur::new),
+            new Format(SharpenFilter.class, 1, SharpenFilter::new),
+            new Format(MedianFilter.class, 1, MedianFilter::new),
+            new Format(GaussianBlur.class, 1, GaussianBlur::new),
+            new Format(EmbossFilter.class, 1, EmbossFilter::new),
+            new Format(SobelFilter.class, 1, SobelFilter::new),
+            new Format(RandomScattering.class, 1, RandomScattering::new),
+            new Format(TileFilter.class, 1, TileFilter::new),
+            new Format(BlockMeanFilter.class, 1, BlockMeanFilter::new),
+            new Format(MaximumFilter.class, 1, MaximumFilter::new),
+            new Format(MinimumFilter.class, 1, MinimumFilter::new),
+            new Format(MorphologicalOpen.class, 1, MorphologicalOpen::new),
+            new Format(MorphologicalClose.class, 1, MorphologicalClose::new),
+            new Format(MorphologicalGradient.class, 1, MorphologicalGradient::new),
+            new Format(SepiaToneFilter.class, 1, SepiaToneFilter::new),
+            new Format(VignetteFilter.class, 1, VignetteFilter::new),
+            new Format(ConvertToGrey.class, 1, ConvertToGrey::new),
+            new Format(InvertColour.class, 1, InvertColour::new),
+            new Format(CycleColour.class, 1, () -> new CycleColour(null)),
+            new Format(BrightnessContrast.class, 1, () -> new BrightnessContrast(0, 0)),
+            new Format(Saturator.class, 1, Saturator::new),
+            new Format(Resize.class, 1, Resize::new),
+            new Format(Rotate.class, 1, () -> new Rotate(0)),
+            new Format(Flip.class, 1, () -> new Flip(false)),
+            new Format(SelectRegion.class, 1, SelectRegion::new),
+            new Format(CropImage.class, 1, () -> new CropImage(new Point(), new Point())),
+            new Format(DrawShapes.class, 1, DrawShapes::new),
+            new Format(DrawText.class, 1, DrawText::new),
+            new Format(CopyPreview.class, 1, () -> new CopyPreview(null)));
+
+    private OpsFile() {
+    }
+
+    /**
+     * Get the side file of images for an operations file.
+     *
+     * @param file The operations file.
+     * @return The side file, which may not exist.
+     */
+    static File blobsFile(File file) {
+        return new File(file.getPath() + BLOBS_SUFFIX);
+    }
+
+    /**
+     * <p>
+     * Write a list of operations to a file.
+     * </p>
+     *
+     * <p>
+     * The side file of images is written as well if any of the operations hold
+     * an image, and deleted otherwise.
+     * </p>
+     *
+     * @param ops  The operations, in the order they are applied.
+     * @param file The file to write.
+     * @throws IOException If the file cannot be written, or one of the operations cannot be stored.
+     */
+    static void write(List<ImageOperation> ops, File file) throws IOException {
+        // Images are collected while the records are encoded, each under its hash
+        Map<ByteBuffer, BufferedImage> images = new LinkedHashMap<ByteBuffer, BufferedImage>();
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(file)))) {
+            out.writeInt(MAGIC);
+            out.writeShort(VERSION);
+            out.writeInt(ops.size());
+            for (ImageOperation op : ops) {
+                writeOperation(op, out, images);
+            }
+        }
+
+        File blobs = blobsFile(file);
+        if (images.isEmpty()) {
+            blobs.delete();
+            return;
+        }
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(blobs)))) {
+            out.writeInt(BLOBS_MAGIC);
+            writeBlobs(images, out);
+        }
+    }
+
+    /**
+     * <p>
+     * Write the record for one operation.
+     * </p>
+     *
+     * @param op     The operation.
+     * @param out    The stream to write to.
+     * @param images The images to write to the side file, by hash, which any images held by the operation are added to.
+     * @throws IOException If the record cannot be written, or the operation cannot be stored.
+     */
+    static void writeOperation(ImageOperation op, DataOutputStream out, Map<ByteBuffer, BufferedImage> images)
+            throws IOException {
+        Format format = formatOf(op);
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        writeFields(op, format, new DataOutputStream(record), images);
+        out.writeShort(FORMATS.indexOf(format) + 1);
+        out.writeShort(format.version);
+        out.writeInt(record.size());
+        record.writeTo(out);
+    }
+
+    /**
+     * <p>
+     * Write images as entries of a side file.
+     * </p>
+     *
+     * <p>
+     * Each entry is the image's hash, its width and height, and its pixels.
+     * A new side file starts with {@link #BLOBS_MAGIC}, after which entries can be
+     * appended at any time.
+     * </p>
+     *
+     * @param images The images, by hash.
+     * @param out    The stream to write to.
+     * @throws IOException If the images cannot be written.
+     */
+    static void writeBlobs(Map<ByteBuffer, BufferedImage> images, DataOutputStream out) throws IOException {
+        for (Map.Entry<ByteBuffer, BufferedImage> entry : images.entrySet()) {
+            BufferedImage image = entry.getValue();
+            int width = image.getWidth();
+            out.write(entry.getKey().array());
+            out.writeInt(width);
+            out.writeInt(image.getHeight());
+            int[] row = new int[width];
+            for (int y = 0; y < image.getHeight(); y++) {
+                image.getRGB(0, y, width, 1, row, 0, width);
+                for (int argb : row) {
+                    out.writeInt(argb);
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Open an operations file for reading.
+     * </p>
+     *
+     * @param file The file to read.
+     * @return A reader for the operations in the file.
+     * @throws IOException If the file cannot be opened, or is not an operations file.
+     */
+    static Reader read(File file) throws IOException {
+        return new Reader(file);
+    }
+
+    /**
+     * <p>
+     * Read operation records from a stream, one at a time with
+     * {@link Reader#readOperation()}.
+     * </p>
+     *
+     * <p>
+     * This lets other files, such as the {@link OpsJournal}, hold operation
+     * records among their own data.
+     * Images are read from the file's side file.
+     * </p>
+     *
+     * @param file The file the stream reads, which names the side file.
+     * @param in   The stream, which is closed along with the reader.
+     * @return A reader for the records.
+     */
+    static Reader records(File file, DataInputStream in) {
+        return new Reader(file, in);
+    }
+
+    /**
+     * Find the format of an operation.
+     *
+     * @param op The operation.
+     * @return The format of the operation's type.
+     * @throws IOException If the operation's type cannot be stored.
+     */
+    private static Format formatOf(ImageOperation op) throws IOException {
+        for (Format format : FORMATS) {
+            if (format.type == op.getClass()) {
+                return format;
+            }
+        }
+        throw new IOException(op.getClass().getSimpleName());
+    }
+
+    /**
+     * Write the fields of an operation.
+     *
+     * @param op     The operation.
+     * @param format The format of the operation's type.
+     * @param out    The stream to write to.
+     * @param images The images to write to the side file, by hash, which any images held by the operation are added to.
+     * @throws IOException If a field cannot be written.
+     */
+    private static void writeFields(ImageOperation op, Format format, DataOutputStream out,
+            Map<ByteBuffer, BufferedImage> images) throws IOException {
+        out.writeShort(format.fields.size());
+        for (Field field : format.fields) {
+            Object value;
+            try {
+                value = field.get(op);
+            } catch (IllegalAccessException e) {
+                throw new IOException(field.getName(), e);
+            }
+            out.writeUTF(field.getName());
+            if (value == null) {
+                out.writeByte(NULL);
+            } else if (value instanceof Integer) {
+                out.writeByte(INT);
+                out.writeInt((Integer) value);
+            } else if (value instanceof Long) {
+                out.writeByte(LONG);
+                out.writeLong((Long) value);
+            } else if (value instanceof Float) {
+                out.writeByte(FLOAT);
+                out.writeFloat((Float) value);
+            } else if (value instanceof Double) {
+                out.writeByte(DOUBLE);
+                out.writeDouble((Double) value);
+            } else if (value instanceof Boolean) {
+                out.writeByte(BOOLEAN);
+                out.writeBoolean((Boolean) value);
+            } else if (value instanceof String) {
+                out.writeByte(STRING);
+                out.writeUTF((String) value);
+            } else if (value instanceof String[]) {
+                String[] strings = (String[]) value;
+                out.writeByte(STRINGS);
+                out.writeInt(strings.length);
+                for (String string : strings) {
+                    out.writeUTF(string);
+                }
+            } else if (value instanceof Color) {
+                out.writeByte(COLOR);
+                out.writeInt(((Color) value).getRGB());
+            } else if (value instanceof Point) {
+                out.writeByte(POINT);
+                out.writeInt(((Point) value).x);
+                out.writeInt(((Point) value).y);
+            } else if (value instanceof BufferedImage) {
+                ByteBuffer hash = hash((BufferedImage) value);
+                images.putIfAbsent(hash, (BufferedImage) value);
+                out.writeByte(IMAGE);
+                out.write(hash.array());
+            } else {
+                throw new IOException(format.type.getSimpleName() + "." + field.getName());
+            }
+        }
+    }
+
+    /**
+     * Get a new SHA-256 digest.
+     *
+     * @return The digest.
+     */
+    static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            // Every Java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * Hash the size and pixels of an image.
+     *
+     * @param image The image.
+     * @return The SHA-256 hash of the image.
+     */
+    static ByteBuffer hash(BufferedImage image) {
+        MessageDigest digest = sha256();
+        int width = image.getWidth();
+        ByteBuffer bytes = ByteBuffer.allocate(4 * Math.max(2, width));
+        bytes.putInt(width).putInt(image.getHeight());
+        digest.update(bytes.array(), 0, 8);
+        int[] row = new int[width];
+        for (int y = 0; y < image.getHeight(); y++) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            bytes.clear();
+            bytes.asIntBuffer().put(row);
+            digest.update(bytes.array(), 0, 4 * width);
+        }
+        return ByteBuffer.wrap(digest.digest());
+    }
+
+    /**
+     * <p>
+     * Decodes the operations in a file one at a time.
+     * </p>
+     *
+     * <p>
+     * Only the header is read when the file is opened; each operation is read
+     * when {@link #next()} is called.
+     * </p>
+     */
+    static final class Reader implements Closeable {
+
+        /** The file being read. */
+        private final File file;
+        /** The stream the records are read from. */
+        private final DataInputStream in;
+        /** The operations in a file written with Java serialization, or null. */
+        private Iterator<ImageOperation> legacy;
+        /** The number of records not read yet. */
+        private int remaining;
+        /** The side file of images, or null if it has not been opened. */
+        private FileChannel blobs;
+        /** The offset of each image in the side file, by hash. */
+        private Map<ByteBuffer, Long> offsets;
+
+        /**
+         * Open a file and read its header.
+         *
+         * @param file The file to read.
+         * @throws IOException If the file cannot be opened, or is not an operations file.
+         */
+        private Reader(File file) throws IOException {
+            this.file = file;
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)));
+            try {
+                in.mark(4);
+                if (in.readShort() == ObjectStreamConstants.STREAM_MAGIC) {
+                    in.reset();
+                    legacy = readLegacy().iterator();
+                    return;
+                }
+                in.reset();
+                if (in.readInt() != MAGIC) {
+                    throw new IOException(file.getPath());
+                }
+                if (in.readUnsignedShort() > VERSION) {
+                    throw new IOException(file.getPath());
+                }
+                remaining = in.readInt();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Read records from a stream that has no header.
+         *
+         * @param file The file the stream reads.
+         * @param in   The stream.
+         */
+        private Reader(File file, DataInputStream in) {
+            this.file = file;
+            this.in = in;
+        }
+
+        /**
+         * Read the stack of operations from a file written with Java serialization.
+         *
+         * @return The operations.
+         * @throws IOException If the operations cannot be read.
+         */
+        private List<ImageOperation> readLegacy() throws IOException {
+            try {
+                ObjectInputStream objIn = new ObjectInputStream(in);
+                // The cast cannot be checked because of type erasure, so this only
+                // fails later if something that is not an ImageOperation was saved.
+                @SuppressWarnings("unchecked")
+                Stack<ImageOperation> opsFromFile = (Stack<ImageOperation>) objIn.readObject();
+                return opsFromFile;
+            } catch (ClassNotFoundException | ClassCastException e) {
+                throw new IOException(file.getPath(), e);
+            }
+        }
+
+        /**
+         * <p>
+         * Read the next operation.
+         * </p>
+         *
+         * @return The next operation, or null if there are no more.
+         * @throws IOException If the operation cannot be read, such as when it was written by a newer version of ANDIE.
+         */
+        ImageOperation next() throws IOException {
+            if (legacy != null) {
+                return legacy.hasNext() ? legacy.next() : null;
+            }
+            if (remaining == 0) {
+                return null;
+            }
+            remaining--;
+            return readOperation();
+        }
+
+        /**
+         * <p>
+         * Read the record for one operation.
+         * </p>
+         *
+         * @return The operation.
+         * @throws IOException If the operation cannot be read, such as when it was written by a newer version of ANDIE.
+         */
+        ImageOperation readOperation() throws IOException {
+            int tag = in.readUnsignedShort();
+            int version = in.readUnsignedShort();
+            byte[] record = new byte[in.readInt()];
+            in.readFully(record);
+            if (tag < 1 || tag > FORMATS.size() || version > FORMATS.get(tag - 1).version) {
+                throw new IOException(file.getPath());
+            }
+            Format format = FORMATS.get(tag - 1);
+            ImageOperation op = format.blank.get();
+            readFields(op, format, new DataInputStream(new ByteArrayInputStream(record)));
+            return op;
+        }
+
+        /**
+         * Read the fields of an operation into it.
+         *
+         * @param op     The blank operation.
+         * @param format The format of the operation's type.
+         * @param in     The stream to read the fields from.
+         * @throws IOException If a field cannot be read.
+         */
+        private void readFields(ImageOperation op, Format format, DataInputStream in) throws IOException {
+            int count = in.readUnsignedShort();
+            for (int i = 0; i < count; i++) {
+                String name = in.readUTF();
+                Object value;
+                switch (in.readByte()) {
+                    case NULL:
+                        value = null;
+                        break;
+                    case INT:
+                        value = in.readInt();
+                        break;
+                    case LONG:
+                        value = in.readLong();
+                        break;
+                    case FLOAT:
+                        value = in.readFloat();
+                        break;
+                    case DOUBLE:
+                        value = in.readDouble();
+                        break;
+                    case BOOLEAN:
+                        value = in.readBoolean();
+                        break;
+                    case STRING:
+                        value = in.readUTF();
+                        break;
+                    case STRINGS:
+                        String[] strings = new String[in.readInt()];
+                        for (int s = 0; s < strings.length; s++) {
+                            strings[s] = in.readUTF();
+                        }
+                        value = strings;
+                        break;
+                    case COLOR:
+                        value = new Color(in.readInt(), true);
+                        break;
+                    case POINT:
+                        value = new Point(in.readInt(), in.readInt());
+                        break;
+                    case IMAGE:
+                        byte[] hash = new byte[HASH_LENGTH];
+                        in.readFully(hash);
+                        value = readImage(ByteBuffer.wrap(hash));
+                        break;
+                    default:
+                        throw new IOException(file.getPath());
+                }
+                setField(op, format, name, value);
+            }
+        }
+
+        /**
+         * Set a field of an operation, unless the operation no longer has a field
+         * of that name and type.
+         *
+         * @param op     The operation.
+         * @param format The format of the operation's type.
+         * @param name   The name of the field.
+         * @param value  The value read for it.
+         * @throws IOException If the field cannot be set.
+         */
+        private void setField(ImageOperation op, Format format, String name, Object value) throws IOException {
+            for (Field field : format.fields) {
+                if (!field.getName().equals(name)) {
+                    continue;
+                }
+                Class<?> type = field.getType();
+                boolean fits = value == null ? !type.isPrimitive()
+                        : type.isInstance(value)
+                                || type == int.class && value instanceof Integer
+                                || type == long.class && value instanceof Long
+                                || type == float.class && value instanceof Float
+                                || type == double.class && value instanceof Double
+                                || type == boolean.class && value instanceof Boolean;
+                if (fits) {
+                    try {
+                        field.set(op, value);
+                    } catch (IllegalAccessException e) {
+                        throw new IOException(name, e);
+                    }
+                }
+                return;
+            }
+        }
+
+        /**
+         * Copy an image out of the side file.
+         *
+         * @param hash The hash of the image.
+         * @return The image.
+         * @throws IOException If the side file cannot be read, or does not hold the image.
+         */
+        private BufferedImage readImage(ByteBuffer hash) throws IOException {
+            if (blobs == null) {
+                openBlobs();
+            }
+            Long offset = offsets.get(hash);
+            if (offset == null) {
+                throw new IOException(blobsFile(file).getPath());
+            }
+            ByteBuffer size = ByteBuffer.allocate(8);
+            blobs.read(size, offset);
+            size.flip();
+            int width = size.getInt();
+            int height = size.getInt();
+            BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+            int[] pixels = ((DataBufferInt) image.getRaster().getDataBuffer()).getData();
+            blobs.map(FileChannel.MapMode.READ_ONLY, offset + 8, 4L * pixels.length).asIntBuffer().get(pixels);
+            return image;
+        }
+
+        /**
+         * Open the side file and find where each image in it starts.
+         *
+         * @throws IOException If the side file cannot be read.
+         */
+        private void openBlobs() throws IOException {
+            blobs = FileChannel.open(blobsFile(file).toPath(), StandardOpenOption.READ);
+            offsets = new HashMap<ByteBuffer, Long>();
+            ByteBuffer header = ByteBuffer.allocate(HASH_LENGTH + 8);
+            header.limit(4);
+            blobs.read(header, 0);
+            header.flip();
+            if (header.remaining() < 4 || header.getInt() != BLOBS_MAGIC) {
+                throw new IOException(blobsFile(file).getPath());
+            }
+            long position = 4;
+            while (position < blobs.size()) {
+                header.clear();
+                blobs.read(header, position);
+                header.flip();
+                if (header.remaining() < HASH_LENGTH + 8) {
+                    throw new IOException(blobsFile(file).getPath());
+                }
+                byte[] hash = new byte[HASH_LENGTH];
+                header.get(hash);
+                long pixels = (long) header.getInt() * header.getInt();
+                offsets.put(ByteBuffer.wrap(hash), position + HASH_LENGTH);
+                position += HASH_LENGTH + 8 + 4 * pixels;
+            }
+        }
+
+        /**
+         * Close the file, and the side file if it was opened.
+         *
+         * @throws IOException If a file cannot be closed.
+         */
+        public void close() throws IOException {
+            in.close();
+            if (blobs != null) {
+                blobs.close();
+            }
+        }
+    }
+}
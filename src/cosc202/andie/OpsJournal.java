@@ -0,0 +1,391 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>
+ * An append-only journal of the edits made to an image since its operations
+ * were last saved.
+ * </p>
+ *
+ * <p>
+ * Every operation applied, undone or redone adds one small record to the
+ * journal, beside the <code>.ops</code> file with <code>.journal</code> added.
+ * Records are written by a background thread, which writes all the records
+ * waiting for it at once and then forces them to disk, so a burst of edits
+ * only costs one sync.
+ * When the image is saved the <code>.ops</code> file holds everything, so the
+ * journal is emptied again.
+ * </p>
+ *
+ * <p>
+ * If ANDIE stops without saving, the journal is still there the next time the
+ * image is opened, and its records are replayed on top of the saved
+ * operations.
+ * A record that was only partly written when ANDIE stopped is dropped.
+ * </p>
+ *
+ * <p>
+ * Operations are stored in the {@link OpsFile} record format, with any images
+ * they hold appended to a side file.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see EditableImage
+ */
+final class OpsJournal implements Closeable {
+
+    /** The suffix added to the name of the operations file to get its journal. */
+    static final String SUFFIX = ".journal";
+    /** The first four bytes of a journal, "ANOJ". */
+    static final int MAGIC = 0x414E4F4A;
+    /** The version of the layout of the journal. */
+    static final int VERSION = 1;
+
+    /** Record kinds. */
+    private static final byte APPLY = 1, UNDO = 2, REDO = 3;
+
+    /** The length of the journal's header. */
+    private static final int HEADER_LENGTH = 6;
+
+    /**
+     * Bytes waiting to be written.
+     */
+    private static final class Pending {
+
+        /** The bytes. */
+        final byte[] bytes;
+        /** True if the bytes are entries for the side file of images, rather than a record. */
+        final boolean blob;
+
+        /**
+         * Create a new Pending.
+         *
+         * @param bytes The bytes.
+         * @param blob  True if the bytes are entries for the side file.
+         */
+        Pending(byte[] bytes, boolean blob) {
+            this.bytes = bytes;
+            this.blob = blob;
+        }
+    }
+
+    /** The journal file. */
+    private final File file;
+    /** The records waiting to be written. */
+    private final LinkedBlockingQueue<Pending> queue;
+    /** Writes the records. */
+    private final Thread writer;
+    /** The images already in the side file, by hash. */
+    private final Set<ByteBuffer> written;
+    /** The journal file, or null if it has not been created yet. */
+    private FileChannel channel;
+    /** The length of the journal that holds whole records. */
+    private long length;
+    /** The number of records added, and the number written. */
+    private long added, done;
+    /** True once the journal has been closed, or could not be written. */
+    private volatile boolean closed;
+
+    /**
+     * Start a journal, keeping the first records of an existing one.
+     *
+     * @param file   The journal file.
+     * @param length The length of the existing journal that holds whole records, or 0 to start afresh.
+     */
+    private OpsJournal(File file, long length) {
+        this.file = file;
+        this.length = length;
+        queue = new LinkedBlockingQueue<Pending>();
+        written = new HashSet<ByteBuffer>();
+        writer = new Thread(this::writeRecords, "ANDIE journal");
+        writer.setDaemon(true);
+        writer.start();
+    }
+
+    /**
+     * Get the journal for an operations file.
+     *
+     * @param opsFile The operations file.
+     * @return The journal file, which may not exist.
+     */
+    static File journalFile(File opsFile) {
+        return new File(opsFile.getPath() + SUFFIX);
+    }
+
+    /**
+     * <p>
+     * Open the journal for an operations file, replaying any edits in it.
+     * </p>
+     *
+     * <p>
+     * The edits are replayed onto the stacks of operations read from the
+     * operations file, and the journal carries on from the end of the last
+     * whole record.
+     * </p>
+     *
+     * @param opsFile The operations file.
+     * @param ops     The operations read from the operations file, which replayed edits are applied to.
+     * @param redoOps The operations to redo, which replayed edits are applied to.
+     * @return The journal.
+     * @throws IOException If the journal exists but cannot be read.
+     */
+    static OpsJournal open(File opsFile, Stack<ImageOperation> ops, Stack<ImageOperation> redoOps)
+            throws IOException {
+        File file = journalFile(opsFile);
+        if (!file.exists()) {
+            return new OpsJournal(file, 0);
+        }
+        byte[] bytes = Files.readAllBytes(file.toPath());
+        ByteArrayInputStream buffer = new ByteArrayInputStream(bytes);
+        DataInputStream in = new DataInputStream(buffer);
+        // Replay onto copies, so that the stacks are left alone if the journal cannot be read
+        Stack<ImageOperation> replayedOps = new Stack<ImageOperation>();
+        replayedOps.addAll(ops);
+        Stack<ImageOperation> replayedRedoOps = new Stack<ImageOperation>();
+        replayedRedoOps.addAll(redoOps);
+        long length = 0;
+        try (OpsFile.Reader records = OpsFile.records(file, in)) {
+            if (in.readInt() != MAGIC || in.readUnsignedShort() > VERSION) {
+                throw new IOException(file.getPath());
+            }
+            length = HEADER_LENGTH;
+            while (buffer.available() > 0) {
+                byte kind = in.readByte();
+                if (kind == APPLY) {
+                    replayedOps.push(records.readOperation());
+                } else if (kind == UNDO) {
+                    replayedRedoOps.push(replayedOps.pop());
+                } else if (kind == REDO) {
+                    replayedOps.push(replayedRedoOps.pop());
+                } else {
+                    break;
+                }
+                length = bytes.length - buffer.available();
+            }
+        } catch (EOFException e) {
+            // The last record was cut short, so carry on from the one before
+        } catch (EmptyStackException e) {
+            // The journal does not match the operations file, so it cannot be replayed
+            throw new IOException(file.getPath(), e);
+        }
+        ops.clear();
+        ops.addAll(replayedOps);
+        redoOps.clear();
+        redoOps.addAll(replayedRedoOps);
+        return new OpsJournal(file, length);
+    }
+
+    /**
+     * Record an operation being applied.
+     *
+     * @param op The operation.
+     */
+    void applied(ImageOperation op) {
+        Map<ByteBuffer, BufferedImage> images = new LinkedHashMap<ByteBuffer, BufferedImage>();
+        ByteArrayOutputStream record = new ByteArrayOutputStream();
+        try {
+            DataOutputStream out = new DataOutputStream(record);
+            out.writeByte(APPLY);
+            OpsFile.writeOperation(op, out, images);
+        } catch (IOException e) {
+            // An operation that cannot be stored cannot be saved either, so stop journaling
+            fail();
+            return;
+        }
+        if (!images.isEmpty()) {
+            // Images are sent ahead of the record, as an entry for the side file
+            ByteArrayOutputStream entries = new ByteArrayOutputStream();
+            try {
+                images.keySet().removeAll(written);
+                written.addAll(images.keySet());
+                OpsFile.writeBlobs(images, new DataOutputStream(entries));
+            } catch (IOException e) {
+                fail();
+                return;
+            }
+            add(entries.toByteArray(), true);
+        }
+        add(record.toByteArray(), false);
+    }
+
+    /**
+     * Record the last operation being undone.
+     */
+    void undone() {
+        add(new byte[] { UNDO }, false);
+    }
+
+    /**
+     * Record the last undone operation being redone.
+     */
+    void redone() {
+        add(new byte[] { REDO }, false);
+    }
+
+    /**
+     * Queue bytes for the writer.
+     *
+     * @param bytes The bytes.
+     * @param blob  True if the bytes are side file entries rather than a record.
+     */
+    private synchronized void add(byte[] bytes, boolean blob) {
+        if (closed) {
+            return;
+        }
+        queue.add(new Pending(bytes, blob));
+        added++;
+    }
+
+    /**
+     * <p>
+     * Wait for every record added so far to be written.
+     * </p>
+     */
+    synchronized void flush() {
+        try {
+            while (done < added && !closed) {
+                wait();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * <p>
+     * Empty the journal, once the operations have been saved.
+     * </p>
+     *
+     * @param opsFile The operations file they were saved to, which may be a new one.
+     * @return A new, empty journal for the operations file.
+     */
+    OpsJournal compact(File opsFile) {
+        delete();
+        return new OpsJournal(journalFile(opsFile), 0);
+    }
+
+    /**
+     * <p>
+     * Stop journaling and delete the journal, throwing away the edits in it.
+     * </p>
+     */
+    void delete() {
+        close();
+        file.delete();
+        OpsFile.blobsFile(file).delete();
+    }
+
+    /**
+     * <p>
+     * Stop journaling, once every record added so far has been written.
+     * </p>
+     *
+     * <p>
+     * The journal file is kept, so that its edits are replayed the next time
+     * the image is opened.
+     * </p>
+     */
+    public void close() {
+        flush();
+        synchronized (this) {
+            closed = true;
+            notifyAll();
+        }
+        writer.interrupt();
+        try {
+            writer.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Stop journaling because a record could not be stored, without waiting for
+     * the records already added.
+     */
+    private synchronized void fail() {
+        closed = true;
+        notifyAll();
+    }
+
+    /**
+     * Write records as they are added, until the journal is closed.
+     */
+    private void writeRecords() {
+        List<Pending> batch = new ArrayList<Pending>();
+        try {
+            while (!closed) {
+                batch.add(queue.take());
+                // Everything that arrived while the last batch was being written goes in this one
+                queue.drainTo(batch);
+                write(batch);
+                synchronized (this) {
+                    done += batch.size();
+                    notifyAll();
+                }
+                batch.clear();
+            }
+        } catch (InterruptedException e) {
+            // Closed
+        } catch (IOException e) {
+            fail();
+        } finally {
+            try {
+                if (channel != null) {
+                    channel.close();
+                }
+            } catch (IOException e) {
+                // Nothing more can be written anyway
+            }
+        }
+    }
+
+    /**
+     * Write a batch of records, and force them to disk.
+     *
+     * @param batch The records, and the side file entries they refer to.
+     * @throws IOException If the journal cannot be written.
+     */
+    private void write(List<Pending> batch) throws IOException {
+        ByteArrayOutputStream records = new ByteArrayOutputStream();
+        ByteArrayOutputStream entries = new ByteArrayOutputStream();
+        for (Pending pending : batch) {
+            (pending.blob ? entries : records).write(pending.bytes);
+        }
+        if (entries.size() > 0) {
+            // The images must be on disk before any record that refers to them
+            File blobs = OpsFile.blobsFile(file);
+            try (FileChannel side = FileChannel.open(blobs.toPath(), StandardOpenOption.CREATE,
+                    StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+                if (side.size() == 0) {
+                    side.write(ByteBuffer.allocate(4).putInt(0, OpsFile.BLOBS_MAGIC));
+                }
+                side.write(ByteBuffer.wrap(entries.toByteArray()));
+                side.force(false);
+            }
+        }
+        if (channel == null) {
+            channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+            // Drop anything after the last whole record, or anything left from an old journal
+            channel.truncate(length);
+            if (length == 0) {
+                length += channel.write(ByteBuffer.allocate(HEADER_LENGTH).putInt(MAGIC).putShort((short) VERSION)
+                        .flip(), 0);
+            }
+        }
+        length += channel.write(ByteBuffer.wrap(records.toByteArray()), length);
+        channel.force(false);
+    }
+}
@@ -0,0 +1,183 @@
+package cosc202.andie;
+
+import java.awt.image.*;
+
+/**
+ * <p>
+ * Direct access to the pixels of an image, as packed ARGB ints.
+ * </p>
+ *
+ * <p>
+ * Reading or writing a pixel with {@link BufferedImage#getRGB(int, int)} or
+ * {@link BufferedImage#setRGB(int, int, int)} converts it through the image's
+ * colour model every time, which makes a loop over every pixel many times
+ * slower than indexing an array.
+ * A PixelBuffer instead gives operations the array itself, along with the
+ * offset of the first pixel and the stride between rows, so a pixel is found
+ * at <code>data[offset + y * stride + x]</code>.
+ * </p>
+ *
+ * <p>
+ * A {@link BufferedImage#TYPE_INT_ARGB} image, or a subimage of one, is
+ * accessed in place.
+ * Any other image is converted to ARGB once when it is read, and
+ * {@link #store()} writes the result back to it in one step, so an operation
+ * that changes its input in place works on every type of image.
+ * Whole-image filters that want the pixels without a stride can still use
+ * {@link Convolution#readPixels(BufferedImage, boolean)}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class PixelBuffer {
+
+    /** The pixels, as packed ARGB. */
+    final int[] data;
+    /** The index of the top-left pixel in {@link #data}. */
+    final int offset;
+    /** The distance in {@link #data} from one row to the next. */
+    final int stride;
+    /** The width in pixels. */
+    final int width;
+    /** The height in pixels. */
+    final int height;
+
+    /** The image the pixels belong to. */
+    private final BufferedImage image;
+    /** The image the pixels were copied from, or null if they are the image's own. */
+    private final BufferedImage source;
+
+    /**
+     * Create a new PixelBuffer.
+     *
+     * @param image  The image the pixels belong to, which must be stored as packed ints.
+     * @param source The image the pixels were copied from, or null if they are the image's own.
+     */
+    private PixelBuffer(BufferedImage image, BufferedImage source) {
+        WritableRaster raster = image.getRaster();
+        SinglePixelPackedSampleModel model = (SinglePixelPackedSampleModel) raster.getSampleModel();
+        DataBufferInt buffer = (DataBufferInt) raster.getDataBuffer();
+        this.image = image;
+        this.source = source;
+        this.data = buffer.getData();
+        this.stride = model.getScanlineStride();
+        // A subimage's sample model is translated to where it starts in its parent
+        this.offset = buffer.getOffset() - raster.getSampleModelTranslateY() * stride
+                - raster.getSampleModelTranslateX();
+        this.width = image.getWidth();
+        this.height = image.getHeight();
+    }
+
+    /**
+     * <p>
+     * Get the pixels of an image, converting them to ARGB if need be.
+     * </p>
+     *
+     * @param image The image to read.
+     * @return The image's own pixels if it is stored as ARGB ints, otherwise an ARGB copy of them.
+     */
+    static PixelBuffer read(BufferedImage image) {
+        if (WorkingFormat.is(image)) {
+            return new PixelBuffer(image, null);
+        }
+        return new PixelBuffer(WorkingFormat.convert(image), image);
+    }
+
+    /**
+     * <p>
+     * Create a new image in the {@link WorkingFormat} to write pixels to.
+     * </p>
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @return The pixels of the new image.
+     */
+    static PixelBuffer create(int width, int height) {
+        return new PixelBuffer(WorkingFormat.create(width, height), null);
+    }
+
+    /**
+     * <p>
+     * Create a new image to write pixels to.
+     * </p>
+     *
+     * <p>
+     * An opaque image ignores the alpha byte of the pixels written to it.
+     * </p>
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @param alpha  True for a {@link BufferedImage#TYPE_INT_ARGB} image, false for a
+     *               {@link BufferedImage#TYPE_INT_RGB} one.
+     * @return The pixels of the new image.
+     */
+    static PixelBuffer create(int width, int height, boolean alpha) {
+        if (alpha) {
+            return create(width, height);
+        }
+        return new PixelBuffer(ImagePool.borrow(width, height, BufferedImage.TYPE_INT_RGB), null);
+    }
+
+    /**
+     * Get the index of a pixel in {@link #data}.
+     *
+     * @param x The column of the pixel.
+     * @param y The row of the pixel.
+     * @return The index of the pixel.
+     */
+    int index(int x, int y) {
+        return offset + y * stride + x;
+    }
+
+    /**
+     * Get a pixel.
+     *
+     * @param x The column of the pixel.
+     * @param y The row of the pixel.
+     * @return The pixel, as packed ARGB.
+     */
+    int get(int x, int y) {
+        return data[offset + y * stride + x];
+    }
+
+    /**
+     * Set a pixel.
+     *
+     * @param x    The column of the pixel.
+     * @param y    The row of the pixel.
+     * @param argb The pixel, as packed ARGB.
+     */
+    void set(int x, int y, int argb) {
+        data[offset + y * stride + x] = argb;
+    }
+
+    /**
+     * <p>
+     * Get the image the pixels belong to.
+     * </p>
+     *
+     * @return The image that was read if its pixels were used in place, otherwise the ARGB copy.
+     */
+    BufferedImage getImage() {
+        return image;
+    }
+
+    /**
+     * <p>
+     * Write the pixels back to the image they were read from, if they were
+     * copied out of it.
+     * </p>
+     *
+     * @return The image that was read or created, now holding the pixels.
+     */
+    BufferedImage store() {
+        if (source == null) {
+            return image;
+        }
+        source.setRGB(0, 0, width, height, data, 0, width);
+        return source;
+    }
+}
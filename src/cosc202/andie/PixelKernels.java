@@ -0,0 +1,153 @@
+package cosc202.andie;
+
+/**
+ * <p>
+ * The inner loop of {@link Convolution}, which does per-channel arithmetic on
+ * runs of packed ARGB pixels.
+ * </p>
+ *
+ * <p>
+ * This class does the arithmetic one pixel at a time in plain Java.
+ * When the JVM is started with <code>--add-modules jdk.incubator.vector</code>,
+ * {@link #get()} instead gives a <code>VectorKernels</code>, which does the
+ * same arithmetic for a whole vector of pixels at once with the incubating
+ * Vector API, such as 8 pixels per instruction with AVX2 or 16 with AVX-512.
+ * It is kept in the <code>vector</code> source folder, the only code that is
+ * compiled against the module.
+ * If the module is missing, or the vector version cannot be loaded, or the
+ * <code>andie.vector</code> system property is <code>false</code>, this plain
+ * version is used instead.
+ * </p>
+ *
+ * <p>
+ * Both versions do the same floating point operations in the same order for
+ * each pixel, so they give exactly the same results.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+class PixelKernels {
+
+    /** The plain version. */
+    private static final PixelKernels SCALAR = new PixelKernels();
+    /** The fastest version that could be loaded. */
+    private static final PixelKernels KERNELS = load();
+
+    /**
+     * Create the plain version, or the base of a faster one.
+     */
+    PixelKernels() {
+    }
+
+    /**
+     * <p>
+     * Get the fastest version of the kernels that this JVM can run.
+     * </p>
+     *
+     * @return A <code>VectorKernels</code> if the Vector API is available, otherwise the plain version.
+     */
+    static PixelKernels get() {
+        return KERNELS;
+    }
+
+    /**
+     * Get the plain version of the kernels, to compare the others against.
+     *
+     * @return The kernels that work one pixel at a time.
+     */
+    static PixelKernels scalar() {
+        return SCALAR;
+    }
+
+    /**
+     * Load the vector version of the kernels, if it can be.
+     *
+     * @return The vector version, or the plain version if the Vector API is unavailable or turned off.
+     */
+    private static PixelKernels load() {
+        if (!Boolean.parseBoolean(System.getProperty("andie.vector", "true"))
+                || !ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()) {
+            return SCALAR;
+        }
+        try {
+            // Loaded by name, so that this class still loads when the module is missing
+            return (PixelKernels) Class.forName("cosc202.andie.VectorKernels").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return SCALAR;
+        }
+    }
+
+    /**
+     * <p>
+     * Convolve a run of pixels whose kernel lies wholly inside the image.
+     * </p>
+     *
+     * @param src    The input pixels.
+     * @param dst    The output pixels, which must not be the same array as src.
+     * @param from   The index of the first pixel.
+     * @param to     The index after the last pixel.
+     * @param delta  The index offset of each kernel tap.
+     * @param weight The weight of each kernel tap.
+     * @param alpha  Whether to compute the alpha channel.
+     * @param offset Whether to halve and shift the colour channels, as in {@link #pack}.
+     * @param bias   The amount to add to each channel before it is truncated.
+     */
+    void convolve(int[] src, int[] dst, int from, int to, int[] delta, float[] weight, boolean alpha,
+            boolean offset, float bias) {
+        for (int i = from; i < to; i++) {
+            float newA = 0;
+            float newR = 0;
+            float newG = 0;
+            float newB = 0;
+            for (int t = 0; t < delta.length; t++) {
+                int argb = src[i + delta[t]];
+                float w = weight[t];
+                newA += (argb >>> 24) * w;
+                newR += ((argb >> 16) & 0xFF) * w;
+                newG += ((argb >> 8) & 0xFF) * w;
+                newB += (argb & 0xFF) * w;
+            }
+            dst[i] = pack(newA, newR, newG, newB, src[i], alpha, offset, bias);
+        }
+    }
+
+    /**
+     * <p>
+     * Turn the sums of a convolved pixel into a packed ARGB pixel.
+     * </p>
+     *
+     * <p>
+     * With an offset, the colour channels are halved and shifted by 127 so that
+     * negative sums are kept rather than clipped, and the pixel keeps the alpha
+     * of the input pixel.
+     * </p>
+     *
+     * @param newA   The sum for the alpha channel.
+     * @param newR   The sum for the red channel.
+     * @param newG   The sum for the green channel.
+     * @param newB   The sum for the blue channel.
+     * @param centre The input pixel at the same position.
+     * @param alpha  Whether to keep the alpha channel, rather than leave it 0.
+     * @param offset Whether to halve and shift the colour channels.
+     * @param bias   The amount to add to each channel before it is truncated.
+     * @return The pixel, with each channel clamped to 0 to 255.
+     */
+    static int pack(float newA, float newR, float newG, float newB, int centre, boolean alpha, boolean offset,
+            float bias) {
+        if (offset) {
+            // The edges of the alpha channel are not wanted, so each pixel keeps its own
+            newA = centre >>> 24;
+            newR = newR / 2 + 127;
+            newG = newG / 2 + 127;
+            newB = newB / 2 + 127;
+        }
+        int a = alpha ? (int) Math.min(Math.max(newA + bias, 0), 255) : 0;         // Turn into int and clamp to colour range
+        int r = (int) Math.min(Math.max(newR + bias, 0), 255);
+        int g = (int) Math.min(Math.max(newG + bias, 0), 255);
+        int b = (int) Math.min(Math.max(newB + bias, 0), 255);
+        return (a << 24) | (r << 16) | (g << 8) | b;
+    }
+}
@@ -0,0 +1,76 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.Collections;
+
+/**
+ * <p>
+ * Interface for operations that change each pixel's colour without looking at
+ * any other pixel.
+ * </p>
+ *
+ * <p>
+ * Because the new colour of a pixel depends only on its old colour, a run of
+ * point operations can be done together in a single pass over the image.
+ * The {@link PointPipeline} does this when the operations are replayed or
+ * applied as a macro, and operations that treat each colour channel separately
+ * can also provide a {@link ChannelMap} so that a whole run of them is folded
+ * into one set of lookup tables.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface PointOperation extends LocalOperation {
+
+    /**
+     * Map the colour of a single pixel.
+     *
+     * @param argb The pixel, as packed ARGB.
+     * @return The new pixel, as packed ARGB.
+     */
+    public int filterRGB(int argb);
+
+    /**
+     * <p>
+     * Get the lookup tables for this operation, if it treats each colour channel separately.
+     * </p>
+     *
+     * @return The map with the same effect as {@link #filterRGB(int)}, or null if the channels are mixed together.
+     */
+    public default ChannelMap channelMap() {
+        return null;
+    }
+
+    /**
+     * <p>
+     * Check whether the operation gives a new opaque RGB image rather than changing its input.
+     * </p>
+     *
+     * @return True if the result is a new {@link BufferedImage#TYPE_INT_RGB} image.
+     */
+    public default boolean convertsToRGB() {
+        return false;
+    }
+
+    /**
+     * Get how far the operation reaches for each output pixel.
+     *
+     * @return 0, as each pixel is changed on its own.
+     */
+    public default int getHalo() {
+        return 0;
+    }
+
+    /**
+     * Apply the operation to an image.
+     *
+     * @param input The image to apply the operation to
+     * @return The image resulting from the operation
+     */
+    public default BufferedImage apply(BufferedImage input) {
+        return PointPipeline.apply(input, Collections.singletonList(this));
+    }
+}
@@ -0,0 +1,195 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntUnaryOperator;
+
+/**
+ * <p>
+ * Applies a run of {@link PointOperation}s to an image in a single pass.
+ * </p>
+ *
+ * <p>
+ * Each point operation on its own reads and writes every pixel of the image.
+ * A run of them is instead compiled into a short list of stages that are all
+ * applied to each pixel in turn, so the image is only read and written once.
+ * Neighbouring operations that provide a {@link ChannelMap} are joined into a
+ * single stage of lookup tables, while operations that mix the channels, such as
+ * converting to grey, keep a stage of their own.
+ * </p>
+ *
+ * <p>
+ * The result is the same as applying the operations one after another.
+ * For image types that cannot hold every colour exactly, the operations are
+ * applied one at a time, as the rounding between them would otherwise be lost.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class PointPipeline {
+
+    /**
+     * PointPipeline only has static methods.
+     */
+    private PointPipeline() {
+    }
+
+    /**
+     * <p>
+     * Find the run of point operations starting at a position in a list of operations.
+     * </p>
+     *
+     * @param ops   The operations.
+     * @param start The position of the first operation of the run.
+     * @return The point operations from start up to the next operation that is not one, which may be none.
+     */
+    static List<PointOperation> run(List<ImageOperation> ops, int start) {
+        List<PointOperation> run = new ArrayList<PointOperation>();
+        for (int i = start; i < ops.size() && ops.get(i) instanceof PointOperation; i++) {
+            run.add((PointOperation) ops.get(i));
+        }
+        return run;
+    }
+
+    /**
+     * <p>
+     * Apply a run of point operations to an image.
+     * </p>
+     *
+     * <p>
+     * As with each of the operations on its own, the image is changed in place
+     * unless one of them {@link PointOperation#convertsToRGB() converts} it to RGB.
+     * </p>
+     *
+     * @param input The image to apply the operations to.
+     * @param ops   The operations, in the order they are applied.
+     * @return The resulting image.
+     */
+    static BufferedImage apply(BufferedImage input, List<PointOperation> ops) {
+        if (!exact(input)) {
+            BufferedImage image = input;
+            for (PointOperation op : ops) {
+                image = applyPerPixel(image, op);
+            }
+            return image;
+        }
+
+        BufferedImage output = input;
+        for (PointOperation op : ops) {
+            if (op.convertsToRGB()) {
+                output = ImagePool.borrow(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+                break;
+            }
+        }
+        IntUnaryOperator[] stages = compile(ops);
+
+        int width = input.getWidth();
+        int height = input.getHeight();
+        // Reading and writing the same array is safe, as each pixel only depends on itself
+        int[] pixels = Convolution.readPixels(input, true);
+        int[] out = Convolution.writablePixels(output);
+        int[] dst = out != null ? out : pixels;
+        int mask = output.getColorModel().hasAlpha() ? 0xFFFFFFFF : 0xFFFFFF;
+        Convolution.forEachBand(height, height, new OperationMonitor(), new AtomicInteger(),
+                (startY, endY) -> {
+                    for (int i = startY * width; i < endY * width; i++) {
+                        int argb = pixels[i];
+                        for (IntUnaryOperator stage : stages) {
+                            argb = stage.applyAsInt(argb);
+                        }
+                        dst[i] = argb & mask;
+                    }
+                });
+        if (dst != out) {
+            output.setRGB(0, 0, width, height, dst, 0, width);
+        }
+        return output;
+    }
+
+    /**
+     * <p>
+     * Compile a run of point operations into stages, joining neighbouring channel maps.
+     * </p>
+     *
+     * @param ops The operations, in the order they are applied.
+     * @return The stages to apply to each pixel, in order.
+     */
+    private static IntUnaryOperator[] compile(List<PointOperation> ops) {
+        List<IntUnaryOperator> stages = new ArrayList<IntUnaryOperator>();
+        ChannelMap joined = null;
+        for (PointOperation op : ops) {
+            ChannelMap map = op.channelMap();
+            if (map != null) {
+                joined = joined == null ? map : joined.then(map);
+                continue;
+            }
+            if (joined != null) {
+                stages.add(joined::map);
+                joined = null;
+            }
+            stages.add(op::filterRGB);
+        }
+        if (joined != null) {
+            stages.add(joined::map);
+        }
+        return stages.toArray(new IntUnaryOperator[0]);
+    }
+
+    /**
+     * <p>
+     * Apply a single point operation to an image that does not store every
+     * colour exactly.
+     * </p>
+     *
+     * <p>
+     * The pixels are converted to ARGB once, and written back through the
+     * image's colour model once, so each pixel is rounded to what the image
+     * can store just as it would be by {@link BufferedImage#setRGB}.
+     * </p>
+     *
+     * @param input The image to apply the operation to.
+     * @param op    The operation.
+     * @return The resulting image.
+     */
+    private static BufferedImage applyPerPixel(BufferedImage input, PointOperation op) {
+        PixelBuffer pixels = PixelBuffer.read(input);
+        PixelBuffer output = op.convertsToRGB() ? PixelBuffer.create(pixels.width, pixels.height, false) : pixels;
+        for (int y = 0; y < pixels.height; y++) {
+            for (int x = 0; x < pixels.width; x++) {
+                output.set(x, y, op.filterRGB(pixels.get(x, y)));
+            }
+        }
+        return output.store();
+    }
+
+    /**
+     * <p>
+     * Check whether an image stores every 8-bit colour exactly.
+     * </p>
+     *
+     * <p>
+     * Writing a pixel to such an image and reading it back only ever loses its
+     * alpha, and then only if the image has no alpha channel, which none of the
+     * point operations look at when working out the colour.
+     * </p>
+     *
+     * @param image The image.
+     * @return True if skipping the writes between operations cannot change the result.
+     */
+    private static boolean exact(BufferedImage image) {
+        switch (image.getType()) {
+            case BufferedImage.TYPE_INT_RGB:
+            case BufferedImage.TYPE_INT_ARGB:
+            case BufferedImage.TYPE_INT_BGR:
+            case BufferedImage.TYPE_3BYTE_BGR:
+            case BufferedImage.TYPE_4BYTE_ABGR:
+                return true;
+            default:
+                return false;
+        }
+    }
+}
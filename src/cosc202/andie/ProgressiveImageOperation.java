@@ -0,0 +1,54 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+
+/**
+ * <p>
+ * Interface for operations that can report their progress and be cancelled.
+ * </p>
+ *
+ * <p>
+ * Most {@link ImageOperation}s finish quickly enough that the user never has to
+ * wait for them.
+ * Operations whose running time grows with a radius or the size of the output,
+ * such as neighbourhood filters and resizing, implement this interface instead
+ * so that the {@link OperationExecutor} can show a progress bar and stop them
+ * part way through.
+ * </p>
+ *
+ * <p>
+ * Implementations should call {@link OperationMonitor#progress(int, int)} at
+ * least once per row band of the image.
+ * A cancelled operation ends with a
+ * {@link java.util.concurrent.CancellationException} and its partial result is
+ * discarded.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface ProgressiveImageOperation extends ImageOperation {
+
+    /**
+     * Apply the operation to an image, reporting progress to a monitor.
+     *
+     * @param input   The image to apply the operation to
+     * @param monitor The monitor to report progress to and check for cancellation
+     * @return The image resulting from the operation
+     * @throws java.util.concurrent.CancellationException If the monitor is
+     *                                                    cancelled
+     */
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor);
+
+    /**
+     * Apply the operation to an image without reporting progress.
+     *
+     * @param input The image to apply the operation to
+     * @return The image resulting from the operation
+     */
+    public default BufferedImage apply(BufferedImage input) {
+        return apply(input, new OperationMonitor());
+    }
+}
@@ -1,6 +1,7 @@
 package cosc202.andie;
 
-import java.util.*;
+import java.util.Random;
+import java.util.concurrent.ThreadLocalRandom;
 import java.awt.image.*;
 
 /**
@@ -13,17 +14,12 @@ import java.awt.image.*;
  * in a specefied radius.
  * </p>
  */
-public class RandomScattering implements ImageOperation, java.io.Serializable {
+public class RandomScattering implements ProgressiveImageOperation, TileOperation, ScalableOperation, java.io.Serializable {
     /**
      * The size of radius to use.
      */
     private int radius;
 
-    /**
-     * Declaring Random
-     */
-    static final Random R = new Random();
-
     /**
      * <p>
      * Create the radius of Random Scattering.
@@ -56,37 +52,55 @@ public class RandomScattering implements ImageOperation, java.io.Serializable {
      * </p>
      * 
      * @param input The input image.
+     * @param monitor The monitor to report progress to.
      * @return The filtered image.
      */
-    public BufferedImage apply(BufferedImage input) {
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
         int height = input.getHeight();
         int width = input.getWidth();
 
         //BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+        PixelBuffer pixels = PixelBuffer.read(input);
+        // Each thread has its own generator, so tiles applied at once do not contend for one
+        Random random = ThreadLocalRandom.current();
+        PixelBuffer output = PixelBuffer.create(width, height);
 
         for (int y = 0; y < height; ++y) {       // For each pixel in input image
+            monitor.progress(y, height);
+            // The pixels in the radius that are inside the image
+            int top = Math.max(0, y - radius);
+            int bottom = Math.min(height - 1, y + radius);
             for (int x = 0; x < width; ++x) {
-                ArrayList<Integer> validPixelY = new ArrayList<Integer>();
-                ArrayList<Integer> validPixelX = new ArrayList<Integer>();
-
-                for (int ry = -radius; ry <= radius; ry++) {        // For each pixel in radius
-                    for (int rx = -radius; rx <= radius; rx++) {
-                        int yCoord = y+ry;
-                        int xCoord = x+rx;
-                        if (yCoord >=0 && yCoord < height && xCoord >= 0 && xCoord < width) {   // If pixel in image, add it to ArrayList
-                            validPixelY.add(yCoord);
-                            validPixelX.add(xCoord);
-                        }
-                    }
-                }
+                int left = Math.max(0, x - radius);
+                int columns = Math.min(width - 1, x + radius) - left + 1;
 
-                // Select a random pixel, get its colour and set output to this colour
-                int selectedPixel = R.nextInt(validPixelY.size());
-                int argb = input.getRGB(validPixelX.get(selectedPixel), validPixelY.get(selectedPixel));
-                output.setRGB(x, y, argb);
+                // Select a random pixel, counting row by row, get its colour and set output to this colour
+                int selectedPixel = random.nextInt(columns * (bottom - top + 1));
+                int argb = pixels.get(left + selectedPixel % columns, top + selectedPixel / columns);
+                output.set(x, y, argb);
             }
         }
-        return output;
+        monitor.progress(height, height);
+        return output.getImage();
     }
+
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return radius;
+    }
+
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new RandomScattering(ScalableOperation.scale(radius, factor));
+    }
+
 }
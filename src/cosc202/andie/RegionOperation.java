@@ -0,0 +1,45 @@
+package cosc202.andie;
+
+import java.awt.Rectangle;
+
+/**
+ * <p>
+ * Interface for operations that only change the pixels inside a rectangle,
+ * such as drawing a shape or some text.
+ * </p>
+ *
+ * <p>
+ * Operations describe how much of an image they change by the interfaces
+ * they implement.
+ * A {@link PointOperation} changes each pixel on its own, and a
+ * {@link LocalOperation} looks at the pixels within its halo, but both
+ * change the whole image.
+ * A RegionOperation changes only the pixels within its bounds, and leaves the
+ * rest of the image as it was.
+ * Any other operation is treated as geometric, one that may move every pixel
+ * or change the size of the image, such as a crop or a rotation.
+ * </p>
+ *
+ * <p>
+ * Because so little of the image changes, the {@link EditableImage} applies
+ * these operations to the current image in place, keeps the pixels they cover
+ * so that undoing one only has to put those pixels back, and only updates
+ * that part of the {@link ImagePanel}.
+ * The operation must change its input image and return it, rather than
+ * making a new one.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface RegionOperation extends InPlaceOperation {
+
+    /**
+     * Get the part of the image the operation can change.
+     *
+     * @return The bounds of the change, which may reach past the edges of the image.
+     */
+    public Rectangle getBounds();
+}
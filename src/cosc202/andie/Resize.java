@@ -16,7 +16,7 @@ import java.awt.image.*;
  * @author Toby Munyard
  * @version 1.0
  */
-public class Resize implements ImageOperation, java.io.Serializable {
+public class Resize implements ProgressiveImageOperation, java.io.Serializable {
 
     /**
      * The percentage to scale the image by. Values greater than 100 will scale the
@@ -144,6 +144,23 @@ public class Resize implements ImageOperation, java.io.Serializable {
         return height;
     }
 
+    /**
+     * <p>
+     * Check whether the image is resized to a given width and height.
+     * </p>
+     * 
+     * <p>
+     * Such a resize gives the same size of image whatever size it is applied to,
+     * so unlike a percentage resize it cannot be scaled to a smaller copy of the
+     * image.
+     * </p>
+     * 
+     * @return True if the image is resized to a width and height, false if by a percentage.
+     */
+    public boolean isAbsolute(){
+        return !isPercentageResize;
+    }
+
     /**
      * <p>
      * Resize the given image.
@@ -152,90 +169,124 @@ public class Resize implements ImageOperation, java.io.Serializable {
      * <p>
      * Scales image based on input parameters. Works for both percentage scaling and
      * width/height scaling.
-     * Utilises either area averaging or smooth interpolation depending on whether
-     * the image is getting
-     * larger or smaller.
+     * The image is scaled with area averaging, which is what both
+     * {@link Image#SCALE_AREA_AVERAGING} and {@link Image#SCALE_SMOOTH} select,
+     * whether the image is getting larger or smaller.
      * </p>
      * 
      * @param input The image to resize.
+     * @param monitor The monitor to report progress to.
      * @return The resulting resized image.
      */
-    public BufferedImage apply(BufferedImage input) {
-        Image scaledImg;
-        BufferedImage output;
-
+    public BufferedImage apply(BufferedImage input, OperationMonitor monitor) {
         // Scale using width and height
         if (!isPercentageResize) {
-            // Is the image being scaled down?
-            if (width < input.getWidth() || height < input.getHeight()) {
-                // Image being scaled down
-
-                // Scale the image using tbe new width and height using area averaging
-                scaledImg = input.getScaledInstance(width, height, Image.SCALE_AREA_AVERAGING);
+            return scale(input, width, height, monitor);
+        }
+        // Scale using input width * percentage and height * percentage
+        return scale(input, (int) (input.getWidth() * percentage), (int) (input.getHeight() * percentage), monitor);
+    }
 
-                // Create a new BufferedImage with the new dimensions
-                output = new BufferedImage(scaledImg.getWidth(null), scaledImg.getHeight(null), input.getType());
-                Graphics2D g2d = output.createGraphics();
+    /**
+     * <p>
+     * Scale an image to the given size.
+     * </p>
+     * 
+     * <p>
+     * This does the same work as {@link Image#getScaledInstance(int, int, int)},
+     * but runs the scaling filter directly so that each row of the result can be
+     * reported to the monitor as it is produced.
+     * </p>
+     * 
+     * @param input The image to scale.
+     * @param newWidth The width to scale to.
+     * @param newHeight The height to scale to.
+     * @param monitor The monitor to report progress to.
+     * @return The scaled image.
+     */
+    private BufferedImage scale(BufferedImage input, int newWidth, int newHeight, OperationMonitor monitor) {
+        if (newWidth == 0 || newHeight == 0) {
+            throw new IllegalArgumentException("Width (" + newWidth + ") and height (" + newHeight + ") cannot be <= 0");
+        }
+        ScaledImageConsumer consumer = new ScaledImageConsumer(monitor);
+        ImageProducer producer = new FilteredImageSource(input.getSource(), new AreaAveragingScaleFilter(newWidth, newHeight));
+        producer.startProduction(consumer);
 
-                // Draw the resized image
-                g2d.drawImage(scaledImg, 0, 0, scaledImg.getWidth(null), scaledImg.getHeight(null), null);
-                g2d.dispose();
+        // Create a new BufferedImage with the new dimensions
+        BufferedImage output = WorkingFormat.create(consumer.scaled.width, consumer.scaled.height);
+        Graphics2D g2d = output.createGraphics();
 
-                return output;
-            } else {
-                // Image being scaled up
+        // Draw the resized image
+        g2d.drawImage(consumer.scaled.getImage(), 0, 0, null);
+        g2d.dispose();
 
-                // Scale the image using the new width and height using smooth interpolation
-                scaledImg = input.getScaledInstance(width, height, Image.SCALE_SMOOTH);
+        return output;
+    }
 
-                // Create a new BufferedImage with the new dimensions
-                output = new BufferedImage(scaledImg.getWidth(null), scaledImg.getHeight(null), input.getType());
-                Graphics2D g2d = output.createGraphics();
+    /**
+     * <p>
+     * Collects the rows produced by a scaling filter.
+     * </p>
+     */
+    private static class ScaledImageConsumer implements ImageConsumer {
 
-                // Draw the resized image
-                g2d.drawImage(scaledImg, 0, 0, scaledImg.getWidth(null), scaledImg.getHeight(null), null);
-                g2d.dispose();
+        /** The monitor to report each row to. */
+        private OperationMonitor monitor;
+        /** The pixels of the scaled image. */
+        private PixelBuffer scaled;
 
-                return output;
-            }
+        /**
+         * Create a new ScaledImageConsumer.
+         * 
+         * @param monitor The monitor to report each row to.
+         */
+        ScaledImageConsumer(OperationMonitor monitor) {
+            this.monitor = monitor;
         }
-        // Scale using percentage
-
-        // Is image beng scaled down?
-        if (isScaleDown) {
-            // Image being scaled down
-
-            // Scale the image using input width * percentage and height * percentage using
-            // area avearging
-            scaledImg = input.getScaledInstance((int) (input.getWidth() * percentage),
-                    (int) (input.getHeight() * percentage), Image.SCALE_AREA_AVERAGING);
 
-            // Create a new BufferedImage with the new dimensions
-            output = new BufferedImage(scaledImg.getWidth(null), scaledImg.getHeight(null),input.getType());
-            Graphics2D g2d = output.createGraphics();
+        public void setDimensions(int width, int height) {
+            scaled = PixelBuffer.create(width, height);
+        }
 
-            // Draw the resized image
-            g2d.drawImage(scaledImg, 0, 0, null);
-            g2d.dispose();
+        public void setPixels(int x, int y, int w, int h, ColorModel model, byte[] pixels, int off, int scansize) {
+            for (int j = 0; j < h; j++) {
+                for (int i = 0; i < w; i++) {
+                    scaled.set(x + i, y + j, model.getRGB(pixels[off + j * scansize + i] & 0xFF));
+                }
+            }
+            monitor.progress(y + h, scaled.height);
+        }
 
-            return output;
-        } else {
-            // Image being scaled up
+        public void setPixels(int x, int y, int w, int h, ColorModel model, int[] pixels, int off, int scansize) {
+            if (ColorModel.getRGBdefault().equals(model)) {
+                // Already packed ARGB, so each row is copied as it is
+                for (int j = 0; j < h; j++) {
+                    System.arraycopy(pixels, off + j * scansize, scaled.data, scaled.index(x, y + j), w);
+                }
+            } else {
+                for (int j = 0; j < h; j++) {
+                    for (int i = 0; i < w; i++) {
+                        scaled.set(x + i, y + j, model.getRGB(pixels[off + j * scansize + i]));
+                    }
+                }
+            }
+            monitor.progress(y + h, scaled.height);
+        }
 
-            // Scale the image using input width * percentage and height * percentage using
-            // smooth interpolation
-            scaledImg = input.getScaledInstance((int) (input.getWidth() * percentage),
-                    (int) (input.getHeight() * percentage), Image.SCALE_SMOOTH);
+        public void setProperties(java.util.Hashtable<?, ?> props) {
+            // Properties are not needed
+        }
 
-            // Create a new BufferedImage with the new dimensions
-            output = new BufferedImage(scaledImg.getWidth(null), scaledImg.getHeight(null),input.getType());
-            Graphics2D g2d = output.createGraphics();
+        public void setColorModel(ColorModel model) {
+            // Each call to setPixels gives its own colour model
+        }
 
-            // Draw the resized image
-            g2d.drawImage(scaledImg, 0, 0, null);
-            g2d.dispose();
+        public void setHints(int hints) {
+            // Rows are stored wherever they arrive, so the order does not matter
+        }
 
-            return output;
+        public void imageComplete(int status) {
+            // Production is synchronous, so there is nothing to wait for
         }
     }
 
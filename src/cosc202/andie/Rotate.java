@@ -85,7 +85,7 @@ public class Rotate implements ImageOperation, java.io.Serializable {
         int newHeight = (int) Math.floor(h * cos + w * sin);
 
         // Create a new BufferedImage with the new dimensions
-        BufferedImage output = new BufferedImage(newWidth, newHeight, input.getType());
+        BufferedImage output = WorkingFormat.create(newWidth, newHeight);
         Graphics2D g2d = output.createGraphics();
 
         // Translate the image to the center so rotation doesn't cut off part of the
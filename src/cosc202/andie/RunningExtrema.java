@@ -0,0 +1,210 @@
+package cosc202.andie;
+
+import java.awt.image.BufferedImage;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Separable minimum and maximum filters using the van Herk/Gil-Werman algorithm.
+ * </p>
+ *
+ * <p>
+ * The minimum (or maximum) over a square neighbourhood is the minimum over a
+ * horizontal window of the minimums over vertical windows, so the filter is
+ * done as a horizontal pass followed by a vertical pass.
+ * Each pass splits its line into blocks the size of the window, and keeps
+ * running extrema forwards and backwards through each block.
+ * Any window then covers the end of one block and the start of the next, so its
+ * extreme is found with one more comparison, for about three comparisons per
+ * pixel and channel whatever the radius.
+ * </p>
+ *
+ * <p>
+ * Each channel of a packed ARGB pixel is compared separately.
+ * Pixels outside the image are ignored, in the same way as the original
+ * {@link MinimumFilter} and {@link MaximumFilter}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class RunningExtrema {
+
+    /**
+     * RunningExtrema only has static methods.
+     */
+    private RunningExtrema() {
+    }
+
+    /**
+     * <p>
+     * Apply a sequence of minimum and maximum filters to an image.
+     * </p>
+     *
+     * <p>
+     * A single step is a plain minimum or maximum filter, a minimum followed by
+     * a maximum is a morphological opening, and a maximum followed by a minimum is
+     * a closing.
+     * </p>
+     *
+     * @param input   The image to filter.
+     * @param radius  The radius of the neighbourhood.
+     * @param monitor The monitor to report progress to.
+     * @param steps   For each filter in turn, true for a maximum or false for a minimum.
+     * @return A new image in the {@link WorkingFormat} holding the result.
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled.
+     */
+    static BufferedImage apply(BufferedImage input, int radius, OperationMonitor monitor, boolean... steps) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        BufferedImage output = WorkingFormat.create(width, height);
+        int[] pixels = Convolution.readPixels(input, output.getColorModel().hasAlpha());
+        int[] out = Convolution.writablePixels(output);
+        AtomicInteger rowsDone = new AtomicInteger();
+        int totalRows = 2 * height * steps.length;
+        for (int i = 0; i < steps.length; i++) {
+            int[] dst = i == steps.length - 1 && out != null ? out : new int[width * height];
+            filter(pixels, dst, width, height, radius, steps[i], monitor, rowsDone, totalRows);
+            pixels = dst;
+        }
+        if (pixels != out) {
+            output.setRGB(0, 0, width, height, pixels, 0, width);
+        }
+        monitor.progress(totalRows, totalRows);
+        return output;
+    }
+
+    /**
+     * <p>
+     * Replace each pixel with the minimum or maximum of each channel over its
+     * neighbourhood.
+     * </p>
+     *
+     * @param src       The input pixels, as packed ARGB.
+     * @param dst       The array to write the output pixels to, which must not be src.
+     * @param width     The width of the image.
+     * @param height    The height of the image.
+     * @param radius    The radius of the neighbourhood.
+     * @param max       True for the maximum, false for the minimum.
+     * @param monitor   The monitor to report progress to.
+     * @param rowsDone  The number of rows finished so far, shared with any other passes.
+     * @param totalRows The total number of rows of all passes, two per filter.
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled.
+     */
+    static void filter(int[] src, int[] dst, int width, int height, int radius, boolean max,
+            OperationMonitor monitor, AtomicInteger rowsDone, int totalRows) {
+        int[] rows = new int[width * height];
+        Convolution.forEachBand(height, totalRows, monitor, rowsDone,
+                (startY, endY) -> horizontal(src, rows, width, radius, max, startY, endY));
+        Convolution.forEachBand(height, totalRows, monitor, rowsDone,
+                (startY, endY) -> vertical(rows, dst, width, height, radius, max, startY, endY));
+    }
+
+    /**
+     * Run the horizontal pass over a band of rows.
+     *
+     * @param src    The input pixels.
+     * @param dst    The output pixels.
+     * @param width  The width of the image.
+     * @param radius The radius of the neighbourhood.
+     * @param max    True for the maximum, false for the minimum.
+     * @param startY The first row of the band.
+     * @param endY   The row after the last row of the band.
+     */
+    private static void horizontal(int[] src, int[] dst, int width, int radius, boolean max, int startY, int endY) {
+        int size = 2 * radius + 1;
+        int length = width + 2 * radius;
+        int[] forward = new int[length];
+        int[] backward = new int[length];
+        int identity = max ? 0 : 0xFFFFFFFF;
+        for (int y = startY; y < endY; y++) {
+            int row = y * width;
+            // Index i of the padded line is pixel x = i - radius, with the identity outside the image
+            for (int i = 0; i < length; i++) {
+                int x = i - radius;
+                int value = x >= 0 && x < width ? src[row + x] : identity;
+                forward[i] = i % size == 0 ? value : extreme(forward[i - 1], value, max);
+            }
+            for (int i = length - 1; i >= 0; i--) {
+                int x = i - radius;
+                int value = x >= 0 && x < width ? src[row + x] : identity;
+                backward[i] = i % size == size - 1 || i == length - 1 ? value : extreme(backward[i + 1], value, max);
+            }
+            // The window for pixel x covers padded indices x to x + 2 * radius
+            for (int x = 0; x < width; x++) {
+                dst[row + x] = extreme(backward[x], forward[x + size - 1], max);
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Run the vertical pass over a band of rows.
+     * </p>
+     *
+     * <p>
+     * Whole rows are combined at a time, so the pass reads the image in row
+     * order rather than down each column.
+     * </p>
+     *
+     * @param src    The input pixels.
+     * @param dst    The output pixels.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param radius The radius of the neighbourhood.
+     * @param max    True for the maximum, false for the minimum.
+     * @param startY The first row of the band.
+     * @param endY   The row after the last row of the band.
+     */
+    private static void vertical(int[] src, int[] dst, int width, int height, int radius, boolean max, int startY, int endY) {
+        int size = 2 * radius + 1;
+        // Index i of the padded band is row y = startY - radius + i
+        int length = endY - startY + 2 * radius;
+        int[] forward = new int[length * width];
+        int[] backward = new int[length * width];
+        int identity = max ? 0 : 0xFFFFFFFF;
+        for (int i = 0; i < length; i++) {
+            int y = startY - radius + i;
+            boolean inside = y >= 0 && y < height;
+            boolean blockStart = i % size == 0;
+            for (int x = 0; x < width; x++) {
+                int value = inside ? src[y * width + x] : identity;
+                forward[i * width + x] = blockStart ? value : extreme(forward[(i - 1) * width + x], value, max);
+            }
+        }
+        for (int i = length - 1; i >= 0; i--) {
+            int y = startY - radius + i;
+            boolean inside = y >= 0 && y < height;
+            boolean blockEnd = i % size == size - 1 || i == length - 1;
+            for (int x = 0; x < width; x++) {
+                int value = inside ? src[y * width + x] : identity;
+                backward[i * width + x] = blockEnd ? value : extreme(backward[(i + 1) * width + x], value, max);
+            }
+        }
+        for (int y = startY; y < endY; y++) {
+            int i = y - startY;
+            for (int x = 0; x < width; x++) {
+                dst[y * width + x] = extreme(backward[i * width + x], forward[(i + size - 1) * width + x], max);
+            }
+        }
+    }
+
+    /**
+     * Find the minimum or maximum of each channel of two packed ARGB pixels.
+     *
+     * @param a   The first pixel.
+     * @param b   The second pixel.
+     * @param max True for the maximum, false for the minimum.
+     * @return The pixel made from the extreme of each channel.
+     */
+    private static int extreme(int a, int b, boolean max) {
+        if (max) {
+            return Math.max(a >>> 24, b >>> 24) << 24 | Math.max(a & 0xFF0000, b & 0xFF0000)
+                    | Math.max(a & 0xFF00, b & 0xFF00) | Math.max(a & 0xFF, b & 0xFF);
+        }
+        return Math.min(a >>> 24, b >>> 24) << 24 | Math.min(a & 0xFF0000, b & 0xFF0000)
+                | Math.min(a & 0xFF00, b & 0xFF00) | Math.min(a & 0xFF, b & 0xFF);
+    }
+}
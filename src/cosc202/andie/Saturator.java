@@ -8,7 +8,7 @@ import java.awt.image.BufferedImage;
  * ImageOperation to apply a Saturation filter.
  * </p>
  */
-public class Saturator implements ImageOperation, java.io.Serializable{
+public class Saturator implements TileOperation, java.io.Serializable{
 
     /** Amount of saturation to apply. */
     private float amount;
@@ -46,11 +46,13 @@ public class Saturator implements ImageOperation, java.io.Serializable{
     public BufferedImage apply(BufferedImage image){
         int x = image.getWidth();
         int y = image.getHeight();
-        BufferedImage saturated = new BufferedImage(x, y, BufferedImage.TYPE_INT_RGB);
+        PixelBuffer pixels = PixelBuffer.read(image);
+        PixelBuffer saturated = PixelBuffer.create(x, y);
 
         for(int i = 0; i < x; i++){
             for(int j = 0; j < y; j++){
-                Color unsaturated = new Color(image.getRGB(i, j));
+                int argb = pixels.get(i, j);
+                Color unsaturated = new Color(argb);
                 float[] hsb = Color.RGBtoHSB(unsaturated.getRed(), unsaturated.getGreen(), unsaturated.getBlue(), null);
 
                 hsb[1] *= amount;
@@ -58,11 +60,11 @@ public class Saturator implements ImageOperation, java.io.Serializable{
                 int rgb = Color.HSBtoRGB(hsb[0], hsb[1], hsb[2]);
 
                 
-                saturated.setRGB(i, j, rgb);
+                saturated.set(i, j, (argb & 0xFF000000) | (rgb & 0xFFFFFF));
             }
         }
 
-        return saturated;
+        return saturated.getImage();
 
     }
 
@@ -75,4 +77,13 @@ public class Saturator implements ImageOperation, java.io.Serializable{
         return amount;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return 0, as each pixel is changed on its own.
+     */
+    public int getHalo() {
+        return 0;
+    }
+
 }
@@ -0,0 +1,67 @@
+package cosc202.andie;
+
+import java.awt.Point;
+
+/**
+ * <p>
+ * Interface for operations whose settings are measured in pixels.
+ * </p>
+ *
+ * <p>
+ * A filter radius or a selected region means something different on a
+ * smaller copy of an image, so these operations can give a copy of
+ * themselves with their sizes scaled to match.
+ * The {@link EditableImage} uses this to edit a downscaled proxy of a large
+ * image while keeping its operations in terms of the full-resolution image.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface ScalableOperation extends ImageOperation {
+
+    /**
+     * Get a copy of this operation for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this operation's image.
+     * @return The scaled copy.
+     */
+    public ImageOperation scaled(double factor);
+
+    /**
+     * <p>
+     * Scale a length, such as a radius.
+     * </p>
+     *
+     * <p>
+     * A length that was at least 1 stays at least 1, so that a filter does not
+     * disappear altogether on a small proxy.
+     * </p>
+     *
+     * @param length The length to scale.
+     * @param factor The factor to scale it by.
+     * @return The scaled length, rounded to the nearest pixel.
+     */
+    public static int scale(int length, double factor) {
+        if (length <= 0) {
+            return length;
+        }
+        return Math.max(1, (int) Math.round(length * factor));
+    }
+
+    /**
+     * Scale a point.
+     *
+     * @param point  The point to scale, which may be null.
+     * @param factor The factor to scale it by.
+     * @return The scaled point, rounded to the nearest pixel, or null if the point was null.
+     */
+    public static Point scale(Point point, double factor) {
+        if (point == null) {
+            return null;
+        }
+        return new Point((int) Math.round(point.x * factor), (int) Math.round(point.y * factor));
+    }
+}
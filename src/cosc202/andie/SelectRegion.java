@@ -7,7 +7,7 @@ import java.awt.*;
 /**
  * Selects the region of a image using MouseListener.
  */
-public class SelectRegion implements ImageOperation, java.io.Serializable {
+public class SelectRegion implements ScalableOperation, java.io.Serializable {
 
     /** X value of selected area. */
     int x;
@@ -19,9 +19,24 @@ public class SelectRegion implements ImageOperation, java.io.Serializable {
     int height;
     
     /**
-     * Default Constructor
+     * Default Constructor, which selects the region currently selected with the mouse.
      */
     public SelectRegion(){
+        this(MyMouseListener.getSelectedRegion());
+    }
+
+    /**
+     * Creates a selection of the given region.
+     * 
+     * @param region The region to select, or null to select nothing.
+     */
+    public SelectRegion(Rectangle region){
+        if (region != null) {
+            this.x = region.x;
+            this.y = region.y;
+            this.width = region.width;
+            this.height = region.height;
+        }
     }
 
     /**
@@ -37,11 +52,24 @@ public class SelectRegion implements ImageOperation, java.io.Serializable {
      * @return The resulting selected image.
      */
     public BufferedImage apply(BufferedImage input) {
-        BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
+        BufferedImage output = WorkingFormat.copy(input);
         Graphics2D g2d = output.createGraphics();
         g2d.setColor(Color.RED);
-        g2d.draw(MyMouseListener.getSelectedRegion());
+        g2d.draw(new Rectangle(x, y, width, height));
+        g2d.dispose();
         return output;
     }
 
+    /**
+     * Gets a copy of this selection for the same image at a different resolution.
+     * 
+     * @param factor The size of the other image relative to this one.
+     * @return A selection of the same area of the other image.
+     */
+    public ImageOperation scaled(double factor) {
+        Point start = ScalableOperation.scale(new Point(x, y), factor);
+        Point end = ScalableOperation.scale(new Point(x + width, y + height), factor);
+        return new SelectRegion(new Rectangle(start.x, start.y, end.x - start.x, end.y - start.y));
+    }
+
 }
@@ -1,7 +1,5 @@
 package cosc202.andie;
 
-import java.awt.image.*;
-import java.awt.Color;
 import java.io.Serializable;
 
 /**
@@ -17,55 +15,51 @@ import java.io.Serializable;
  * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA 4.0</a>
  * </p>
  * 
- * @see java.awt.image.BufferedImage
- * @see java.awt.Color
- * @see cosc202.andie.ImageOperation
+ * @see cosc202.andie.PointOperation
  * @see java.io.Serializable
  * @version 1.0
  */
-public class SepiaToneFilter implements ImageOperation, Serializable {
+public class SepiaToneFilter implements PointOperation, TileOperation, Serializable {
 
     /**
      * <p>
-     * Apply a Sepia Tone filter to an image.
+     * Apply a Sepia Tone filter to a single pixel.
      * </p>
      * 
      * <p>
-     * This filter processes each pixel of the image and adjusts its color to give a sepia effect.
+     * This adjusts the colour of the pixel to give a sepia effect.
      * </p>
      * 
-     * @param input The image to apply the Sepia Tone filter to.
-     * @return The resulting image with a sepia tone effect.
+     * @param argb The pixel to apply the Sepia Tone filter to, as packed ARGB.
+     * @return The resulting opaque pixel with a sepia tone effect.
      */
-    public BufferedImage apply(BufferedImage input) {
-        int width = input.getWidth();
-        int height = input.getHeight();
-        BufferedImage sepiaImage = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+    public int filterRGB(int argb) {
+        // Get the RGB components of the current pixel
+        int red = (argb >> 16) & 0xFF;
+        int green = (argb >> 8) & 0xFF;
+        int blue = argb & 0xFF;
 
-        for (int y = 0; y < height; y++) {
-            for (int x = 0; x < width; x++) {
-                Color color = new Color(input.getRGB(x, y));
+        // Calculate the new values using the sepia formula
+        int tr = (int)(0.393 * red + 0.769 * green + 0.189 * blue);
+        int tg = (int)(0.349 * red + 0.686 * green + 0.168 * blue);
+        int tb = (int)(0.272 * red + 0.534 * green + 0.131 * blue);
 
-                // Get the RGB components of the current pixel
-                int red = color.getRed();
-                int green = color.getGreen();
-                int blue = color.getBlue();
+        // Clamp the values to the 0-255 range
+        red = Math.min(255, tr);
+        green = Math.min(255, tg);
+        blue = Math.min(255, tb);
 
-                // Calculate the new values using the sepia formula
-                int tr = (int)(0.393 * red + 0.769 * green + 0.189 * blue);
-                int tg = (int)(0.349 * red + 0.686 * green + 0.168 * blue);
-                int tb = (int)(0.272 * red + 0.534 * green + 0.131 * blue);
-
-                // Clamp the values to the 0-255 range
-                red = Math.min(255, tr);
-                green = Math.min(255, tg);
-                blue = Math.min(255, tb);
-
-                // Set the new RGB value to the sepiaImage
-                sepiaImage.setRGB(x, y, new Color(red, green, blue).getRGB());
-            }
-        }
+        return 0xFF000000 | (red << 16) | (green << 8) | blue;
+    }
 
-        return sepiaImage;
+    /**
+     * <p>
+     * The Sepia Tone filter always gives a new RGB image, leaving the input alone.
+     * </p>
+     * 
+     * @return True.
+     */
+    public boolean convertsToRGB() {
+        return true;
     }
 }
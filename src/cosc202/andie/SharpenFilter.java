@@ -5,7 +5,7 @@ import java.awt.image.*;
 /**
  * ImageOperation to apply a sharpen filter.
  */
-public class SharpenFilter implements ImageOperation, java.io.Serializable {
+public class SharpenFilter implements LocalOperation, java.io.Serializable {
     
 
     /**
@@ -26,7 +26,7 @@ public class SharpenFilter implements ImageOperation, java.io.Serializable {
 
         Kernel kernel = new Kernel(3, 3, array);
         //BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
 
         Convolution conv = new Convolution();
         output = conv.convolveImage(input, output, kernel, 1);
@@ -34,4 +34,13 @@ public class SharpenFilter implements ImageOperation, java.io.Serializable {
         return output;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return 1, as the filter is 3x3.
+     */
+    public int getHalo() {
+        return 1;
+    }
+
 }
@@ -15,7 +15,7 @@ import java.awt.image.Kernel;
  * 
  * @see cosc202.andie.Convolution
  */
-public class SobelFilter implements ImageOperation, java.io.Serializable {
+public class SobelFilter implements LocalOperation, java.io.Serializable {
 
     /**
      * The radius of the filter
@@ -28,7 +28,7 @@ public class SobelFilter implements ImageOperation, java.io.Serializable {
     /**
      * The kernels to apply to the image
      */
-    private float[][] kernels = new float[][]{{-0.5f, 0f, 0.5f, -1f, 0f, 1f, -0.5f, 0f, 0.5f},
+    private final float[][] kernels = new float[][]{{-0.5f, 0f, 0.5f, -1f, 0f, 1f, -0.5f, 0f, 0.5f},
                                               {-0.5f, -1f, -0.5f, 0f, 0f, 0f, 0.5f, 1f, 0.5f}};
     
     
@@ -67,7 +67,7 @@ public class SobelFilter implements ImageOperation, java.io.Serializable {
 
         Kernel kernel = new Kernel(2*RADIUS+1, 2*RADIUS+1, array);
         //BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
-        BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+        BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
 
         output = convolution.convolveImageWithOffset(input, output, kernel, RADIUS);
         return output;
@@ -82,4 +82,13 @@ public class SobelFilter implements ImageOperation, java.io.Serializable {
         return choice;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return The radius of the filter.
+     */
+    public int getHalo() {
+        return RADIUS;
+    }
+
 }
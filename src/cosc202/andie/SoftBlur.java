@@ -4,7 +4,7 @@ import java.awt.image.*;
 /**
  * ImageOperation to apply a spoft blur filter.
  */
-public class SoftBlur implements ImageOperation, java.io.Serializable {
+public class SoftBlur implements LocalOperation, java.io.Serializable {
 
     /**
      * Construct a Soft Blur filter
@@ -26,11 +26,20 @@ public class SoftBlur implements ImageOperation, java.io.Serializable {
     Kernel kernel = new Kernel(3, 3, array);
     // Apply this as a convolution - same code as in MeanFilter
     //BufferedImage output = new BufferedImage(input.getColorModel(), input.copyData(null), input.isAlphaPremultiplied(), null);
-    BufferedImage output = new BufferedImage(input.getWidth(), input.getHeight(), BufferedImage.TYPE_INT_RGB);
+    BufferedImage output = WorkingFormat.create(input.getWidth(), input.getHeight());
     Convolution conv = new Convolution();
     output = conv.convolveImage(input, output, kernel, 1);
     // And we're done
     return output;
     }
 
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return 1, as the filter is 3x3.
+     */
+    public int getHalo() {
+        return 1;
+    }
+
 }
\ No newline at end of file
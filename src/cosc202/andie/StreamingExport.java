@@ -0,0 +1,256 @@
+package cosc202.andie;
+
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.List;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.ImageTypeSpecifier;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageInputStream;
+import javax.imageio.stream.ImageOutputStream;
+
+/**
+ * <p>
+ * Exports images a band of rows at a time, without ever holding the whole
+ * image in memory.
+ * </p>
+ *
+ * <p>
+ * Each band is read from its source, run through the operations, and written
+ * straight into its place in the output file, so the memory used depends on
+ * the width of the image rather than its size.
+ * This needs an {@link ImageWriter} that can write an empty image and then fill
+ * in its pixels, which the standard TIFF writer can.
+ * </p>
+ *
+ * <p>
+ * When reading from an image file, each band is read with enough extra rows
+ * above and below it to cover the halos of all of the {@link LocalOperation}s,
+ * and those rows are dropped again once the operations have been applied.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ *
+ * @see TiledImage
+ */
+final class StreamingExport {
+
+    /** The number of rows written at a time. */
+    static final int BAND_HEIGHT = 256;
+
+    /**
+     * A source of bands of rows.
+     */
+    private interface Bands {
+
+        /**
+         * Get a band of the finished image.
+         *
+         * @param y      The first row of the band.
+         * @param height The number of rows in the band.
+         * @return The band, the full width of the image.
+         * @throws IOException If the band cannot be read.
+         */
+        BufferedImage read(int y, int height) throws IOException;
+    }
+
+    private StreamingExport() {
+    }
+
+    /**
+     * <p>
+     * Check whether images can be streamed to a file.
+     * </p>
+     *
+     * @param target The file to write.
+     * @return True if there is a writer for the file's extension that can write a band at a time.
+     * @throws IOException If the writer cannot be checked.
+     */
+    static boolean canStream(File target) throws IOException {
+        ImageWriter writer = writer(target);
+        if (writer == null) {
+            return false;
+        }
+        // Ask with an output in memory, so that the target is not created
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(new ByteArrayOutputStream())) {
+            writer.setOutput(out);
+            return writer.canWriteEmpty();
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * <p>
+     * Sum the halos of a list of operations.
+     * </p>
+     *
+     * @param ops The operations.
+     * @return The number of rows each band must be read with above and below it.
+     * @throws IllegalArgumentException If one of the operations is not a {@link LocalOperation}.
+     */
+    static int halo(List<ImageOperation> ops) {
+        int halo = 0;
+        for (ImageOperation op : ops) {
+            if (!(op instanceof LocalOperation)) {
+                throw new IllegalArgumentException(op.getClass().getSimpleName());
+            }
+            halo += ((LocalOperation) op).getHalo();
+        }
+        return halo;
+    }
+
+    /**
+     * <p>
+     * Read an image file, apply a list of operations to it and write the result,
+     * a band at a time.
+     * </p>
+     *
+     * @param source  The image file to read.
+     * @param ops     The operations to apply, in order, which must all be {@link LocalOperation}s.
+     * @param target  The image file to write, whose extension gives its format.
+     * @param monitor The monitor to report progress to.
+     * @throws IOException If the source cannot be read or the target cannot be written.
+     * @throws IllegalArgumentException If one of the operations is not a {@link LocalOperation}.
+     */
+    static void export(File source, List<ImageOperation> ops, File target, OperationMonitor monitor)
+            throws IOException {
+        int halo = halo(ops);
+        try (ImageInputStream in = ImageIO.createImageInputStream(source)) {
+            Iterator<ImageReader> readers = in == null ? null : ImageIO.getImageReaders(in);
+            if (readers == null || !readers.hasNext()) {
+                throw new IOException(source.getPath());
+            }
+            ImageReader reader = readers.next();
+            reader.setInput(in, true, true);
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                write(width, height, (y, rows) -> {
+                    // Read the band with the halo rows, cut short at the top and bottom of the image
+                    int top = Math.max(0, y - halo);
+                    int bottom = Math.min(height, y + rows + halo);
+                    Rectangle bounds = new Rectangle(0, top, width, bottom - top);
+                    ImageReadParam param = reader.getDefaultReadParam();
+                    param.setSourceRegion(bounds);
+                    BufferedImage band = reader.read(0, param);
+                    Dimension size = new Dimension(width, height);
+                    for (ImageOperation op : ops) {
+                        band = TileScheduler.applyTile((LocalOperation) op, band, bounds, size);
+                    }
+                    return band.getSubimage(0, y - top, width, rows);
+                }, target, monitor);
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Write a tiled image, a band at a time.
+     * </p>
+     *
+     * @param tiles   The image to write.
+     * @param target  The image file to write, whose extension gives its format.
+     * @param monitor The monitor to report progress to.
+     * @throws IOException If the target cannot be written.
+     */
+    static void export(TiledImage tiles, File target, OperationMonitor monitor) throws IOException {
+        write(tiles.getWidth(), tiles.getHeight(),
+                (y, rows) -> tiles.getRegion(new Rectangle(0, y, tiles.getWidth(), rows)), target, monitor);
+    }
+
+    /**
+     * Write an image a band at a time.
+     *
+     * @param width   The width of the image.
+     * @param height  The height of the image.
+     * @param bands   The source of the bands.
+     * @param target  The image file to write.
+     * @param monitor The monitor to report progress to.
+     * @throws IOException If the target cannot be written, or its format cannot be written a band at a time.
+     */
+    private static void write(int width, int height, Bands bands, File target, OperationMonitor monitor)
+            throws IOException {
+        ImageWriter writer = writer(target);
+        if (writer == null) {
+            throw new IOException(target.getPath());
+        }
+        target.delete();
+        try (ImageOutputStream out = ImageIO.createImageOutputStream(target)) {
+            writer.setOutput(out);
+            if (!writer.canWriteEmpty()) {
+                throw new IOException(target.getPath());
+            }
+            BufferedImage band = bands.read(0, Math.min(BAND_HEIGHT, height));
+            // Every band is written with the layout of the first
+            int type = band.getType() == BufferedImage.TYPE_INT_RGB ? BufferedImage.TYPE_INT_RGB
+                    : BufferedImage.TYPE_INT_ARGB;
+            writer.prepareWriteEmpty(null, ImageTypeSpecifier.createFromBufferedImageType(type), width, height,
+                    null, null, null);
+            for (int y = 0; y < height; y += BAND_HEIGHT) {
+                monitor.checkCancelled();
+                int rows = Math.min(BAND_HEIGHT, height - y);
+                if (y > 0) {
+                    band = bands.read(y, rows);
+                }
+                writer.prepareReplacePixels(0, new Rectangle(0, y, width, rows));
+                ImageWriteParam param = writer.getDefaultWriteParam();
+                param.setDestinationOffset(new Point(0, y));
+                writer.replacePixels(convert(band, type), param);
+                writer.endReplacePixels();
+                monitor.progress(y + rows, height);
+            }
+            writer.endWriteEmpty();
+        } catch (IOException | RuntimeException e) {
+            target.delete();
+            throw e;
+        } finally {
+            writer.dispose();
+        }
+    }
+
+    /**
+     * Copy a band into a new image of the given type, unless it is already that type.
+     *
+     * @param band The band.
+     * @param type The type to convert to.
+     * @return The band as an image of the given type.
+     */
+    private static BufferedImage convert(BufferedImage band, int type) {
+        if (band.getType() == type && band.getMinX() == 0 && band.getMinY() == 0
+                && band.getRaster().getParent() == null) {
+            return band;
+        }
+        BufferedImage copy = new BufferedImage(band.getWidth(), band.getHeight(), type);
+        copy.setRGB(0, 0, band.getWidth(), band.getHeight(),
+                band.getRGB(0, 0, band.getWidth(), band.getHeight(), null, 0, band.getWidth()), 0, band.getWidth());
+        return copy;
+    }
+
+    /**
+     * Find a writer for an image file's extension.
+     *
+     * @param target The image file.
+     * @return The writer, or null if there is none.
+     */
+    private static ImageWriter writer(File target) {
+        String name = target.getName();
+        String extension = name.substring(1 + name.lastIndexOf(".")).toLowerCase();
+        Iterator<ImageWriter> writers = ImageIO.getImageWritersBySuffix(extension);
+        return writers.hasNext() ? writers.next() : null;
+    }
+}
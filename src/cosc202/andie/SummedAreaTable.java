@@ -0,0 +1,189 @@
+package cosc202.andie;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Per-channel summed-area tables (integral images) of a packed ARGB image.
+ * </p>
+ *
+ * <p>
+ * Each entry of a table holds the sum of one channel over every pixel above
+ * and to the left of it, so the sum over any rectangle is found from its four
+ * corners in constant time, whatever its size.
+ * This makes box means such as the {@link MeanFilter} and {@link BlockMeanFilter}
+ * cost the same for any radius.
+ * </p>
+ *
+ * <p>
+ * The tables are built with two parallel prefix-sum passes, one along the rows
+ * and one down the columns.
+ * The sums are kept in int arrays and are allowed to overflow: the corner
+ * differences wrap back around, so the sum over a rectangle is still exact as
+ * long as the rectangle holds fewer than 16 million pixels.
+ * </p>
+ *
+ * <p>
+ * The image can be padded by repeating its edge pixels, so rectangles may reach
+ * up to the padding width outside the image.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class SummedAreaTable {
+
+    /** The amount of edge padding around the image. */
+    private final int pad;
+    /** The width of each table, one more than the padded image width. */
+    private final int stride;
+    /** The tables, indexed by channel: blue, green, red, then alpha if kept. */
+    private final int[][] sums;
+
+    /**
+     * <p>
+     * Build the summed-area tables of an image.
+     * </p>
+     *
+     * @param pixels    The pixels of the image, as packed ARGB.
+     * @param width     The width of the image.
+     * @param height    The height of the image.
+     * @param pad       The number of edge pixels to repeat around the image.
+     * @param alpha     Whether to build a table for the alpha channel.
+     * @param monitor   The monitor to report progress to.
+     * @param rowsDone  The number of rows finished so far, shared with any other passes.
+     * @param totalRows The total number of rows of all passes, including {@link #steps}.
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled.
+     */
+    SummedAreaTable(int[] pixels, int width, int height, int pad, boolean alpha,
+            OperationMonitor monitor, AtomicInteger rowsDone, int totalRows) {
+        this.pad = pad;
+        this.stride = width + 2 * pad + 1;
+        int paddedWidth = width + 2 * pad;
+        int paddedHeight = height + 2 * pad;
+        sums = new int[alpha ? 4 : 3][stride * (paddedHeight + 1)];
+        Convolution.forEachBand(paddedHeight, totalRows, monitor, rowsDone,
+                (startY, endY) -> sumRows(pixels, width, height, startY, endY));
+        // The column pass runs down strips of columns, so its bands count columns rather than rows
+        Convolution.forEachBand(paddedWidth, totalRows, monitor, rowsDone,
+                (startX, endX) -> sumColumns(paddedHeight, startX, endX));
+    }
+
+    /**
+     * <p>
+     * The amount of progress that building a table reports.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param pad    The number of edge pixels to repeat around the image.
+     * @return The number of rows and columns the two passes count.
+     */
+    static int steps(int width, int height, int pad) {
+        return width + height + 4 * pad;
+    }
+
+    /**
+     * <p>
+     * Find the sum of a channel over a rectangle.
+     * </p>
+     *
+     * <p>
+     * The rectangle may reach up to the padding width outside the image.
+     * </p>
+     *
+     * @param channel The channel, 0 for blue, 1 for green, 2 for red and 3 for alpha.
+     * @param left    The first column of the rectangle.
+     * @param top     The first row of the rectangle.
+     * @param right   The column after the last column of the rectangle.
+     * @param bottom  The row after the last row of the rectangle.
+     * @return The sum of the channel over the rectangle.
+     */
+    int sum(int channel, int left, int top, int right, int bottom) {
+        int[] table = sums[channel];
+        int topRow = (top + pad) * stride;
+        int bottomRow = (bottom + pad) * stride;
+        return table[bottomRow + right + pad] - table[bottomRow + left + pad]
+                - table[topRow + right + pad] + table[topRow + left + pad];
+    }
+
+    /**
+     * <p>
+     * Find the mean colour over a rectangle.
+     * </p>
+     *
+     * <p>
+     * Each channel is rounded to the nearest level.
+     * If the table has no alpha channel the result is opaque.
+     * </p>
+     *
+     * @param left   The first column of the rectangle.
+     * @param top    The first row of the rectangle.
+     * @param right  The column after the last column of the rectangle.
+     * @param bottom The row after the last row of the rectangle.
+     * @return The mean colour, as packed ARGB.
+     */
+    int mean(int left, int top, int right, int bottom) {
+        int area = (right - left) * (bottom - top);
+        int half = area / 2;
+        int argb = sums.length == 4 ? 0 : 0xFF000000;
+        for (int c = 0; c < sums.length; c++) {
+            argb |= (int) ((Integer.toUnsignedLong(sum(c, left, top, right, bottom)) + half) / area) << (8 * c);
+        }
+        return argb;
+    }
+
+    /**
+     * Run the row pass over a band of padded rows, summing each row from the left.
+     *
+     * @param pixels The pixels of the image.
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param startY The first padded row of the band.
+     * @param endY   The padded row after the last padded row of the band.
+     */
+    private void sumRows(int[] pixels, int width, int height, int startY, int endY) {
+        int paddedWidth = stride - 1;
+        for (int y = startY; y < endY; y++) {
+            int source = Math.min(Math.max(y - pad, 0), height - 1) * width;
+            int row = (y + 1) * stride + 1;
+            for (int c = 0; c < sums.length; c++) {
+                int[] table = sums[c];
+                int shift = 8 * c;
+                int running = 0;
+                for (int x = 0; x < paddedWidth; x++) {
+                    running += (pixels[source + Math.min(Math.max(x - pad, 0), width - 1)] >>> shift) & 0xFF;
+                    table[row + x] = running;
+                }
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Run the column pass over a strip of padded columns, adding each row to the one below it.
+     * </p>
+     *
+     * <p>
+     * The strip is worked through a row at a time, so the pass reads the tables in
+     * row order rather than down each column.
+     * </p>
+     *
+     * @param paddedHeight The height of the padded image.
+     * @param startX       The first padded column of the strip.
+     * @param endX         The padded column after the last padded column of the strip.
+     */
+    private void sumColumns(int paddedHeight, int startX, int endX) {
+        for (int[] table : sums) {
+            for (int y = 2; y <= paddedHeight; y++) {
+                int row = y * stride + 1;
+                int above = row - stride;
+                for (int x = startX; x < endX; x++) {
+                    table[row + x] += table[above + x];
+                }
+            }
+        }
+    }
+}
@@ -15,7 +15,7 @@ import java.util.*;
  * 
  * @see java.awt.image.ConvolveOp
  */
-public class TileFilter implements ImageOperation, java.io.Serializable {
+public class TileFilter implements InPlaceOperation, ScalableOperation, java.io.Serializable {
     /**
      * The size of filter to apply. A radius of 1 is a 3x3 filter, a radius of 2 a 5x5 filter, and so forth.
      */
@@ -60,12 +60,11 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
      * 
      * @param array the initial array that represents the tile
      * @param size the size of the tile
-     * @param input the input image
+     * @param input the pixels of the input image
      * @param xScalar the x offset of the tile from x = 0
      * @param yScalar the y offset of the tile from y = 0
-     * @return
     */
-    private BufferedImage processTile(int[] array, int size, BufferedImage input, int xScalar, int yScalar){
+    private void processTile(int[] array, int size, PixelBuffer input, int xScalar, int yScalar){
         //this could be done way better
         //its very bad that the method passes in the entire image every time
         
@@ -73,7 +72,7 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         int arrCount = 0;
         for (int y = 0; y < (2*radius+1); y++){
             for (int x = 0; x < (2*radius+1); x++){
-                int argb = input.getRGB(x+xScalar, y+yScalar);
+                int argb = input.get(x+xScalar, y+yScalar);
                 array[arrCount] = argb;
                 arrCount++;
             }
@@ -99,14 +98,12 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         for (int y = 0; y < (2*radius+1); y++){
             for (int x = 0; x < (2*radius+1); x++){
                 int argb = (alphas[alphas.length/2] << 24) | (reds[reds.length/2] << 16) | (greens[greens.length/2] << 8) | blues[blues.length/2];
-                input.setRGB(x+xScalar, y+yScalar, argb);
+                input.set(x+xScalar, y+yScalar, argb);
             }
         }
-        
-        return input;
     }
 
-    private BufferedImage processXEdge(int tempX, BufferedImage input, int maxX, int yScalar){
+    private void processXEdge(int tempX, PixelBuffer input, int maxX, int yScalar){
         //this could be done way better
         //its very bad that the method passes in the entire image every time
         //this is very clunky and inefficent but it works
@@ -114,7 +111,7 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         int[] array = new int[(2*radius+1)*tempX];;
         for (int y = 0; y < (2*radius+1); y++){
             for (int x = 0; x < tempX; x++){
-                int argb = input.getRGB(x+((maxX*(2*radius+1))), y+yScalar);
+                int argb = input.get(x+((maxX*(2*radius+1))), y+yScalar);
                 array[arrCount] = argb;
                 arrCount++;
             }
@@ -147,14 +144,13 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         for (int y = 0; y < (2*radius+1); y++){
             for (int x = 0; x < tempX; x++){
                 int argb = (alphas[0] << 24) | (reds[reds.length/2] << 16) | (greens[greens.length/2] << 8) | blues[blues.length/2];
-                input.setRGB(x+((maxX*(2*radius+1))), y+yScalar, argb);
+                input.set(x+((maxX*(2*radius+1))), y+yScalar, argb);
             }
         }
         //System.out.println("done");
-        return input;
     }
 
-    private BufferedImage processYEdge(int tempY, BufferedImage input, int xScalar, int maxY){
+    private void processYEdge(int tempY, PixelBuffer input, int xScalar, int maxY){
         //this could be done way better
         //its very bad that the method passes in the entire image every time
         //this is very clunky and inefficent but it works
@@ -162,7 +158,7 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         int[] array = new int[(2*radius+1)*tempY];;
         for (int y = 0; y < tempY; y++){
             for (int x = 0; x < (2*radius+1); x++){
-                int argb = input.getRGB(x+xScalar, y+((maxY*(2*radius+1))));
+                int argb = input.get(x+xScalar, y+((maxY*(2*radius+1))));
                 array[arrCount] = argb;
                 arrCount++;
             }
@@ -195,14 +191,13 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         for (int y = 0; y < tempY; y++){
             for (int x = 0; x < (2*radius+1); x++){
                 int argb = (alphas[0] << 24) | (reds[reds.length/2] << 16) | (greens[greens.length/2] << 8) | blues[blues.length/2];
-                input.setRGB(x+xScalar, y+((maxY*(2*radius+1))), argb);
+                input.set(x+xScalar, y+((maxY*(2*radius+1))), argb);
             }
         }
         //System.out.println("done");
-        return input;
     }
 
-    private BufferedImage processEdge(int tempX, int tempY, BufferedImage input, int maxX, int maxY){
+    private void processEdge(int tempX, int tempY, PixelBuffer input, int maxX, int maxY){
         //this could be done way better
         //its very bad that the method passes in the entire image every time
         //this is very clunky and inefficent but it works
@@ -210,7 +205,7 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         int[] array = new int[tempX*tempY];;
         for (int y = 0; y < tempY; y++){
             for (int x = 0; x < tempX; x++){
-                int argb = input.getRGB(x+(maxX*(2*radius+1)), y+((maxY*(2*radius+1))));
+                int argb = input.get(x+(maxX*(2*radius+1)), y+((maxY*(2*radius+1))));
                 array[arrCount] = argb;
                 arrCount++;
             }
@@ -243,11 +238,10 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         for (int y = 0; y < tempY; y++){
             for (int x = 0; x < tempX; x++){
                 int argb = (alphas[0] << 24) | (reds[reds.length/2] << 16) | (greens[greens.length/2] << 8) | blues[blues.length/2];
-                input.setRGB(x+(maxX*(2*radius+1)), y+((maxY*(2*radius+1))), argb);
+                input.set(x+(maxX*(2*radius+1)), y+((maxY*(2*radius+1))), argb);
             }
         }
         //System.out.println("done");
-        return input;
     }
     /**
      * <p>
@@ -267,9 +261,10 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         int [] array = new int[size];
         int maxX = (input.getWidth()/(2*radius+1));
         int maxY = (input.getHeight()/(2*radius+1));
+        PixelBuffer pixels = PixelBuffer.read(input);
         for (int x = 0; x < maxX; x++){
             for (int y = 0; y < maxY; y++){
-                input = processTile(array, size, input, x*(2*radius+1), y*(2*radius+1));
+                processTile(array, size, pixels, x*(2*radius+1), y*(2*radius+1));
             }
             
         }
@@ -278,18 +273,18 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         int tempY = input.getHeight() - (maxY*(2*radius+1));
         if (tempX>0){
             for (int y = 0; y < maxY; y++){
-                input = processXEdge(tempX, input, maxX, y*(2*radius+1));
+                processXEdge(tempX, pixels, maxX, y*(2*radius+1));
             }
         }
         if (tempY>0){
             for (int x = 0; x < maxX; x++){
-                input = processYEdge(tempY, input, x*(2*radius+1), maxY);
+                processYEdge(tempY, pixels, x*(2*radius+1), maxY);
             }
         }
         if ((tempY>0)&&(tempX>0)){
-            input = processEdge(tempX, tempY, input, maxX, maxY);
+            processEdge(tempX, tempY, pixels, maxX, maxY);
         }
-        return input;
+        return pixels.store();
     }
 
     /**
@@ -301,6 +296,16 @@ public class TileFilter implements ImageOperation, java.io.Serializable {
         return radius;
     }
 
+    /**
+     * Get a copy of this filter for the same image at a different resolution.
+     *
+     * @param factor The size of the other image relative to this one.
+     * @return A filter with its radius scaled by the factor.
+     */
+    public ImageOperation scaled(double factor) {
+        return new TileFilter(ScalableOperation.scale(radius, factor));
+    }
+
 
 }
 
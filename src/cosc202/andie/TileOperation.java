@@ -0,0 +1,58 @@
+package cosc202.andie;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+
+/**
+ * <p>
+ * Interface for operations that can be applied to an image as many tiles at
+ * once.
+ * </p>
+ *
+ * <p>
+ * The {@link TileScheduler} splits an image into tiles, reads each with the
+ * operation's halo around it, and applies the operation to the tiles in
+ * parallel, so an operation that implements this interface uses every core
+ * without any threading of its own.
+ * How much of the image each output pixel depends on is given by the
+ * interfaces an operation implements: a halo of 0 for a pointwise operation,
+ * a halo of r for a neighbourhood of radius r, and an operation that is not a
+ * {@link LocalOperation} at all is global, and is always applied to the whole
+ * image.
+ * </p>
+ *
+ * <p>
+ * An operation whose result depends on where a pixel is in the image, such as
+ * a vignette, overrides {@link #applyTile(BufferedImage, Rectangle, Dimension)}
+ * to take account of where the tile is.
+ * Tiles are applied from several threads at once, so the operation must not
+ * change its own fields while it runs.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public interface TileOperation extends LocalOperation {
+
+    /**
+     * <p>
+     * Apply the operation to one tile of a larger image.
+     * </p>
+     *
+     * <p>
+     * By default the tile is treated as an image of its own, which is right
+     * for any operation that does not depend on where a pixel is.
+     * </p>
+     *
+     * @param input  The tile, with its halo.
+     * @param bounds Where the input lies in the whole image.
+     * @param size   The size of the whole image.
+     * @return The result for the input, the same size as it.
+     */
+    public default BufferedImage applyTile(BufferedImage input, Rectangle bounds, Dimension size) {
+        return apply(input);
+    }
+}
@@ -0,0 +1,223 @@
+package cosc202.andie;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * <p>
+ * Applies operations to images as tiles in parallel.
+ * </p>
+ *
+ * <p>
+ * A {@link TileOperation} is applied to square tiles of the image, each read
+ * with the operation's halo around it, cut short at the edges of the image.
+ * The tiles are run on the common fork-join pool, whose threads steal tiles
+ * from each other as they finish, so a tile that takes longer than the others
+ * does not hold the rest up.
+ * Only the part of each result inside its tile is kept, so the output is the
+ * same as applying the operation to the whole image.
+ * </p>
+ *
+ * <p>
+ * Any other operation, and any image small enough to be a single tile, is
+ * applied to the whole image as usual.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class TileScheduler {
+
+    /** The width and height of each tile, not counting its halo. */
+    static final int TILE_SIZE = 256;
+
+    /** There are no instances, only the static methods. */
+    private TileScheduler() {
+    }
+
+    /**
+     * <p>
+     * Apply an operation to an image, in parallel tiles if it can be.
+     * </p>
+     *
+     * @param op    The operation to apply.
+     * @param input The image to apply it to, which is only changed if the operation
+     *              is an {@link InPlaceOperation} applied to the whole image.
+     * @return The result of the operation.
+     */
+    static BufferedImage apply(ImageOperation op, BufferedImage input) {
+        return apply(op, input, new OperationMonitor());
+    }
+
+    /**
+     * <p>
+     * Apply an operation to an image, in parallel tiles if it can be, reporting
+     * progress to a monitor.
+     * </p>
+     *
+     * <p>
+     * Tiled operations report progress after each tile and can be cancelled
+     * between tiles, whether or not they are {@link ProgressiveImageOperation}s.
+     * </p>
+     *
+     * @param op      The operation to apply.
+     * @param input   The image to apply it to, which is only changed if the operation
+     *                is an {@link InPlaceOperation} applied to the whole image.
+     * @param monitor The monitor to report progress to.
+     * @return The result of the operation.
+     * @throws IllegalArgumentException If a tiled operation changes the size of a tile.
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled.
+     */
+    static BufferedImage apply(ImageOperation op, BufferedImage input, OperationMonitor monitor) {
+        int width = input.getWidth();
+        int height = input.getHeight();
+        int columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        int rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        if (!(op instanceof TileOperation) || columns * rows == 1) {
+            // A global operation sees the whole image, as does a tile operation when there is only one tile
+            if (op instanceof ProgressiveImageOperation) {
+                return ((ProgressiveImageOperation) op).apply(input, monitor);
+            }
+            return op.apply(input);
+        }
+        BufferedImage output = WorkingFormat.create(width, height);
+        ForkJoinPool.commonPool().invoke(new Tiles((TileOperation) op, input, output, columns, 0, columns * rows,
+                monitor, new AtomicInteger()));
+        return output;
+    }
+
+    /**
+     * <p>
+     * Apply an operation to a piece of a larger image.
+     * </p>
+     *
+     * <p>
+     * This is how a {@link LocalOperation} is applied to the tiles and bands of
+     * images too large to hold in memory, so that a {@link TileOperation} knows
+     * where each piece is.
+     * </p>
+     *
+     * @param op     The operation to apply.
+     * @param input  The piece, with its halo.
+     * @param bounds Where the piece lies in the whole image.
+     * @param size   The size of the whole image.
+     * @return The result for the piece.
+     */
+    static BufferedImage applyTile(LocalOperation op, BufferedImage input, Rectangle bounds, Dimension size) {
+        if (op instanceof TileOperation) {
+            return ((TileOperation) op).applyTile(input, bounds, size);
+        }
+        return op.apply(input);
+    }
+
+    /**
+     * <p>
+     * A run of tiles to be applied.
+     * </p>
+     *
+     * <p>
+     * Runs are split in half until each is a single tile, which checks for
+     * cancellation before it starts and reports progress when it finishes.
+     * </p>
+     */
+    private static class Tiles extends RecursiveAction {
+
+        /** The operation to apply. */
+        private final TileOperation op;
+        /** The whole input image. */
+        private final BufferedImage input;
+        /** The whole output image. */
+        private final BufferedImage output;
+        /** The number of tiles across the image. */
+        private final int columns;
+        /** The index of the first tile in the run, counting along each row in turn. */
+        private final int start;
+        /** The index after the last tile in the run. */
+        private final int end;
+        /** The monitor to report progress to. */
+        private final OperationMonitor monitor;
+        /** The number of tiles finished across all runs. */
+        private final AtomicInteger done;
+
+        /**
+         * Create a new run of tiles.
+         *
+         * @param op      The operation to apply.
+         * @param input   The whole input image.
+         * @param output  The whole output image.
+         * @param columns The number of tiles across the image.
+         * @param start   The index of the first tile in the run.
+         * @param end     The index after the last tile in the run.
+         * @param monitor The monitor to report progress to.
+         * @param done    The number of tiles finished across all runs.
+         */
+        Tiles(TileOperation op, BufferedImage input, BufferedImage output, int columns, int start, int end,
+                OperationMonitor monitor, AtomicInteger done) {
+            this.op = op;
+            this.input = input;
+            this.output = output;
+            this.columns = columns;
+            this.start = start;
+            this.end = end;
+            this.monitor = monitor;
+            this.done = done;
+        }
+
+        @Override
+        protected void compute() {
+            if (end - start > 1) {
+                int mid = (start + end) >>> 1;
+                invokeAll(new Tiles(op, input, output, columns, start, mid, monitor, done),
+                        new Tiles(op, input, output, columns, mid, end, monitor, done));
+                return;
+            }
+            monitor.checkCancelled();
+            applyTile(start);
+            int total = columns * ((output.getHeight() + TILE_SIZE - 1) / TILE_SIZE);
+            synchronized (monitor) {
+                monitor.progress(done.incrementAndGet(), total);
+            }
+        }
+
+        /**
+         * Apply the operation to one tile and copy its result into the output.
+         *
+         * @param index The index of the tile.
+         */
+        private void applyTile(int index) {
+            Dimension size = new Dimension(input.getWidth(), input.getHeight());
+            Rectangle image = new Rectangle(size);
+            Rectangle tile = new Rectangle(index % columns * TILE_SIZE, index / columns * TILE_SIZE,
+                    TILE_SIZE, TILE_SIZE).intersection(image);
+            Rectangle source = new Rectangle(tile);
+            source.grow(op.getHalo(), op.getHalo());
+            source = source.intersection(image);
+
+            // The tile is copied out so that the operation reads packed pixels, and cannot change the input
+            BufferedImage piece = WorkingFormat.copy(input.getSubimage(source.x, source.y, source.width, source.height));
+            BufferedImage result = op.applyTile(piece, source, size);
+            if (result.getWidth() != source.width || result.getHeight() != source.height) {
+                throw new IllegalArgumentException(op.getClass().getSimpleName());
+            }
+            int left = tile.x - source.x;
+            int top = tile.y - source.y;
+            if (WorkingFormat.is(result)) {
+                output.getRaster().setDataElements(tile.x, tile.y,
+                        result.getRaster().createChild(left, top, tile.width, tile.height, 0, 0, null));
+            } else {
+                int[] pixels = result.getRGB(left, top, tile.width, tile.height, null, 0, tile.width);
+                output.setRGB(tile.x, tile.y, tile.width, tile.height, pixels, 0, tile.width);
+            }
+            if (result != piece) {
+                ImagePool.release(result);
+            }
+            ImagePool.release(piece);
+        }
+    }
+}
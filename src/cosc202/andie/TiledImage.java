@@ -0,0 +1,478 @@
+package cosc202.andie;
+
+import java.awt.Dimension;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageReadParam;
+import javax.imageio.ImageReader;
+import javax.imageio.stream.ImageInputStream;
+
+/**
+ * <p>
+ * An image stored as square tiles in a memory-mapped scratch file.
+ * </p>
+ *
+ * <p>
+ * Images too large to hold in memory as a {@link BufferedImage}, such as
+ * high-resolution scans, are kept on disk instead and only the parts being
+ * worked on are paged in by the operating system.
+ * Each tile is {@link #TILE_SIZE} pixels square and is stored as packed ARGB.
+ * </p>
+ *
+ * <p>
+ * A TiledImage is not changed once it has been filled: applying an operation
+ * gives a new TiledImage, one tile at a time, reading each tile with a halo of
+ * extra pixels around it as set by the {@link LocalOperation}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+public class TiledImage implements Closeable {
+
+    /** The width and height of each tile in pixels. */
+    public static final int TILE_SIZE = 512;
+    /** The number of tiles in each mapped chunk of the scratch file, 64 MB worth. */
+    private static final int TILES_PER_CHUNK = 64;
+    /** The number of pixels of tile images kept for painting, as many as 64 full-size tiles. */
+    private static final long CACHED_PIXELS = 64L * TILE_SIZE * TILE_SIZE;
+
+    /** The width of the image. */
+    private final int width;
+    /** The height of the image. */
+    private final int height;
+    /** The number of columns of tiles. */
+    private final int columns;
+    /** The number of rows of tiles. */
+    private final int rows;
+    /** The scratch file the tiles are stored in. */
+    private final Path file;
+    /** The open scratch file. */
+    private final FileChannel channel;
+    /** The mapped chunks of the scratch file. */
+    private final IntBuffer[] chunks;
+    /** Recently painted tiles, keyed by pyramid level and tile, least recently used first. */
+    private final LinkedHashMap<Long, BufferedImage> cache;
+    /** The number of pixels in {@link cache}. */
+    private long cachedPixels;
+
+    /**
+     * <p>
+     * Create a new TiledImage, with every pixel transparent black.
+     * </p>
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @throws IOException If the scratch file cannot be created.
+     */
+    public TiledImage(int width, int height) throws IOException {
+        this.width = width;
+        this.height = height;
+        this.columns = (width + TILE_SIZE - 1) / TILE_SIZE;
+        this.rows = (height + TILE_SIZE - 1) / TILE_SIZE;
+        this.file = Files.createTempFile("andie", ".tiles");
+        file.toFile().deleteOnExit();
+        this.channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        this.cache = new LinkedHashMap<Long, BufferedImage>(16, 0.75f, true);
+
+        // Everything is mapped up front, so the chunks stay readable even after close
+        long tileBytes = 4L * TILE_SIZE * TILE_SIZE;
+        int tiles = columns * rows;
+        chunks = new IntBuffer[(tiles + TILES_PER_CHUNK - 1) / TILES_PER_CHUNK];
+        try {
+            for (int c = 0; c < chunks.length; c++) {
+                int count = Math.min(TILES_PER_CHUNK, tiles - c * TILES_PER_CHUNK);
+                chunks[c] = channel.map(FileChannel.MapMode.READ_WRITE, c * TILES_PER_CHUNK * tileBytes,
+                        count * tileBytes).order(ByteOrder.nativeOrder()).asIntBuffer();
+            }
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * <p>
+     * Copy a BufferedImage into a new TiledImage.
+     * </p>
+     *
+     * @param image The image to copy.
+     * @return The new TiledImage.
+     * @throws IOException If the scratch file cannot be created.
+     */
+    public static TiledImage of(BufferedImage image) throws IOException {
+        TiledImage tiles = new TiledImage(image.getWidth(), image.getHeight());
+        tiles.setRegion(0, 0, image);
+        return tiles;
+    }
+
+    /**
+     * <p>
+     * Find the size of an image file without reading its pixels.
+     * </p>
+     *
+     * @param imageFile The image file.
+     * @return The size of the image, or null if it is not an image file ImageIO can read.
+     * @throws IOException If the file cannot be read.
+     */
+    public static Dimension size(File imageFile) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(imageFile)) {
+            ImageReader reader = reader(stream);
+            if (reader == null) {
+                return null;
+            }
+            try {
+                return new Dimension(reader.getWidth(0), reader.getHeight(0));
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Read an image file into a new TiledImage.
+     * </p>
+     *
+     * <p>
+     * The file is read a row of tiles at a time, so only one band of the image is
+     * ever held in memory.
+     * </p>
+     *
+     * @param imageFile The image file.
+     * @return The new TiledImage.
+     * @throws IOException If the file cannot be read or is not an image.
+     */
+    public static TiledImage read(File imageFile) throws IOException {
+        try (ImageInputStream stream = ImageIO.createImageInputStream(imageFile)) {
+            ImageReader reader = reader(stream);
+            if (reader == null) {
+                throw new IOException(imageFile.getPath());
+            }
+            try {
+                int width = reader.getWidth(0);
+                int height = reader.getHeight(0);
+                TiledImage tiles = new TiledImage(width, height);
+                try {
+                    for (int y = 0; y < height; y += TILE_SIZE) {
+                        ImageReadParam param = reader.getDefaultReadParam();
+                        param.setSourceRegion(new Rectangle(0, y, width, Math.min(TILE_SIZE, height - y)));
+                        tiles.setRegion(0, y, reader.read(0, param));
+                    }
+                } catch (IOException | RuntimeException e) {
+                    tiles.close();
+                    throw e;
+                }
+                return tiles;
+            } finally {
+                reader.dispose();
+            }
+        }
+    }
+
+    /**
+     * Find a reader for an image stream.
+     *
+     * @param stream The stream, which may be null.
+     * @return A reader with the stream as its input, or null if there is none.
+     */
+    private static ImageReader reader(ImageInputStream stream) {
+        if (stream == null) {
+            return null;
+        }
+        Iterator<ImageReader> readers = ImageIO.getImageReaders(stream);
+        if (!readers.hasNext()) {
+            return null;
+        }
+        ImageReader reader = readers.next();
+        reader.setInput(stream, true, true);
+        return reader;
+    }
+
+    /**
+     * Get the width of the image.
+     *
+     * @return The width of the image.
+     */
+    public int getWidth() {
+        return width;
+    }
+
+    /**
+     * Get the height of the image.
+     *
+     * @return The height of the image.
+     */
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * Get the number of columns of tiles.
+     *
+     * @return The number of columns of tiles.
+     */
+    public int getColumns() {
+        return columns;
+    }
+
+    /**
+     * Get the number of rows of tiles.
+     *
+     * @return The number of rows of tiles.
+     */
+    public int getRows() {
+        return rows;
+    }
+
+    /**
+     * Get the part of the image covered by a tile.
+     *
+     * @param column The column of the tile.
+     * @param row    The row of the tile.
+     * @return The bounds of the tile, which are cut short at the right and bottom edges of the image.
+     */
+    public Rectangle getTileBounds(int column, int row) {
+        int x = column * TILE_SIZE;
+        int y = row * TILE_SIZE;
+        return new Rectangle(x, y, Math.min(TILE_SIZE, width - x), Math.min(TILE_SIZE, height - y));
+    }
+
+    /**
+     * <p>
+     * Read the pixels of a rectangle of the image.
+     * </p>
+     *
+     * @param x      The left of the rectangle.
+     * @param y      The top of the rectangle.
+     * @param w      The width of the rectangle.
+     * @param h      The height of the rectangle.
+     * @param pixels The array to read the pixels into, as packed ARGB, a row at a time.
+     */
+    public void getPixels(int x, int y, int w, int h, int[] pixels) {
+        copy(x, y, w, h, pixels, false);
+    }
+
+    /**
+     * <p>
+     * Write the pixels of a rectangle of the image.
+     * </p>
+     *
+     * @param x      The left of the rectangle.
+     * @param y      The top of the rectangle.
+     * @param w      The width of the rectangle.
+     * @param h      The height of the rectangle.
+     * @param pixels The pixels to write, as packed ARGB, a row at a time.
+     */
+    public void setPixels(int x, int y, int w, int h, int[] pixels) {
+        copy(x, y, w, h, pixels, true);
+        synchronized (cache) {
+            Rectangle changed = new Rectangle(x, y, w, h);
+            Iterator<Map.Entry<Long, BufferedImage>> entries = cache.entrySet().iterator();
+            while (entries.hasNext()) {
+                Map.Entry<Long, BufferedImage> entry = entries.next();
+                int tile = (int) (long) entry.getKey();
+                if (getTileBounds(tile % columns, tile / columns).intersects(changed)) {
+                    cachedPixels -= pixels(entry.getValue());
+                    entries.remove();
+                }
+            }
+        }
+    }
+
+    /**
+     * Copy the pixels of a rectangle between the tiles and an array.
+     *
+     * @param x      The left of the rectangle.
+     * @param y      The top of the rectangle.
+     * @param w      The width of the rectangle.
+     * @param h      The height of the rectangle.
+     * @param pixels The array, holding the rectangle a row at a time.
+     * @param write  True to copy from the array into the tiles, false for the other way.
+     */
+    private void copy(int x, int y, int w, int h, int[] pixels, boolean write) {
+        for (int j = y; j < y + h; j++) {
+            int row = j / TILE_SIZE;
+            int i = x;
+            while (i < x + w) {
+                int column = i / TILE_SIZE;
+                int tile = row * columns + column;
+                int length = Math.min(x + w, (column + 1) * TILE_SIZE) - i;
+                IntBuffer chunk = chunks[tile / TILES_PER_CHUNK];
+                int index = (tile % TILES_PER_CHUNK) * TILE_SIZE * TILE_SIZE + (j % TILE_SIZE) * TILE_SIZE + i % TILE_SIZE;
+                int offset = (j - y) * w + (i - x);
+                if (write) {
+                    chunk.put(index, pixels, offset, length);
+                } else {
+                    chunk.get(index, pixels, offset, length);
+                }
+                i += length;
+            }
+        }
+    }
+
+    /**
+     * <p>
+     * Read a rectangle of the image as a BufferedImage.
+     * </p>
+     *
+     * @param bounds The rectangle to read.
+     * @return A new {@link BufferedImage#TYPE_INT_ARGB} image holding the rectangle.
+     */
+    public BufferedImage getRegion(Rectangle bounds) {
+        BufferedImage region = new BufferedImage(bounds.width, bounds.height, BufferedImage.TYPE_INT_ARGB);
+        int[] pixels = ((DataBufferInt) region.getRaster().getDataBuffer()).getData();
+        getPixels(bounds.x, bounds.y, bounds.width, bounds.height, pixels);
+        return region;
+    }
+
+    /**
+     * <p>
+     * Write a BufferedImage into a rectangle of the image.
+     * </p>
+     *
+     * @param x     The left of the rectangle.
+     * @param y     The top of the rectangle.
+     * @param image The image to write.
+     */
+    public void setRegion(int x, int y, BufferedImage image) {
+        int[] pixels = Convolution.readPixels(image, true);
+        setPixels(x, y, image.getWidth(), image.getHeight(), pixels);
+    }
+
+    /**
+     * <p>
+     * Get a tile as a BufferedImage for painting.
+     * </p>
+     *
+     * <p>
+     * Zoomed out, the tile can be shrunk to a level of an {@link ImagePyramid},
+     * so that the whole image can be shown without keeping all of it in memory.
+     * The most recently used tiles are kept, so that repainting the same view
+     * does not have to read them again.
+     * The returned image must not be changed.
+     * </p>
+     *
+     * @param column The column of the tile.
+     * @param row    The row of the tile.
+     * @param level  The pyramid level, where 0 is full size and each level after is half the size.
+     * @return The tile.
+     */
+    public BufferedImage getTileImage(int column, int row, int level) {
+        long key = ((long) level << 32) | (row * columns + column);
+        synchronized (cache) {
+            BufferedImage tile = cache.get(key);
+            if (tile == null) {
+                tile = getRegion(getTileBounds(column, row));
+                for (int i = 0; i < level && (tile.getWidth() > 1 || tile.getHeight() > 1); i++) {
+                    tile = ImagePyramid.halve(tile);
+                }
+                cache.put(key, tile);
+                cachedPixels += pixels(tile);
+                Iterator<BufferedImage> eldest = cache.values().iterator();
+                while (cachedPixels > CACHED_PIXELS && cache.size() > 1) {
+                    cachedPixels -= pixels(eldest.next());
+                    eldest.remove();
+                }
+            }
+            return tile;
+        }
+    }
+
+    /**
+     * Count the pixels in an image.
+     *
+     * @param image The image.
+     * @return The number of pixels in the image.
+     */
+    private static long pixels(BufferedImage image) {
+        return (long) image.getWidth() * image.getHeight();
+    }
+
+    /**
+     * <p>
+     * Apply an operation to the image one tile at a time.
+     * </p>
+     *
+     * <p>
+     * Each tile is read with the operation's halo of pixels around it, cut short
+     * at the edges of the image, so the result is the same as applying the
+     * operation to the whole image.
+     * </p>
+     *
+     * @param op      The operation to apply.
+     * @param monitor The monitor to report progress to.
+     * @return A new TiledImage holding the result.
+     * @throws IOException If the scratch file for the result cannot be created.
+     * @throws IllegalArgumentException If the operation changes the size of the image.
+     * @throws java.util.concurrent.CancellationException If the monitor is cancelled.
+     */
+    public TiledImage apply(LocalOperation op, OperationMonitor monitor) throws IOException {
+        TiledImage result = new TiledImage(width, height);
+        try {
+            int halo = op.getHalo();
+            Dimension size = new Dimension(width, height);
+            Rectangle image = new Rectangle(size);
+            int done = 0;
+            for (int row = 0; row < rows; row++) {
+                for (int column = 0; column < columns; column++) {
+                    monitor.checkCancelled();
+                    Rectangle tile = getTileBounds(column, row);
+                    Rectangle source = new Rectangle(tile);
+                    source.grow(halo, halo);
+                    source = source.intersection(image);
+
+                    BufferedImage output = TileScheduler.applyTile(op, getRegion(source), source, size);
+                    if (output.getWidth() != source.width || output.getHeight() != source.height) {
+                        throw new IllegalArgumentException(op.getClass().getSimpleName());
+                    }
+                    int[] pixels = output.getRGB(tile.x - source.x, tile.y - source.y, tile.width, tile.height,
+                            null, 0, tile.width);
+                    result.setPixels(tile.x, tile.y, tile.width, tile.height, pixels);
+                    monitor.progress(++done, rows * columns);
+                }
+            }
+        } catch (RuntimeException e) {
+            result.close();
+            throw e;
+        }
+        return result;
+    }
+
+    /**
+     * <p>
+     * Delete the scratch file.
+     * </p>
+     *
+     * <p>
+     * Tiles already mapped can still be read until they are garbage collected,
+     * so painting an image that has just been closed is safe.
+     * </p>
+     */
+    public void close() {
+        synchronized (cache) {
+            cache.clear();
+            cachedPixels = 0;
+        }
+        try {
+            channel.close();
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            // Some systems will not delete a mapped file, so leave it to be deleted on exit
+        }
+    }
+}
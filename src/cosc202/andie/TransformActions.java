@@ -119,9 +119,7 @@ public class TransformActions {
             } else if (optionPercentage == JOptionPane.OK_OPTION) {
                 percentage = percentageModel.getNumber().intValue();
 
-                target.getImage().apply(new Resize(percentage));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new Resize(percentage));
             }
         }
     }
@@ -194,9 +192,7 @@ public class TransformActions {
                 return;
             }
 
-            target.getImage().apply(new Resize(width, height));
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new Resize(width, height));
         }
     }
 
@@ -247,9 +243,7 @@ public class TransformActions {
             } else if (optionRotate == JOptionPane.OK_OPTION) {
                 rotation = rotateModel.getNumber().intValue();
 
-                target.getImage().apply(new Rotate(rotation));
-                target.repaint();
-                target.getParent().revalidate();
+                target.getExecutor().apply(new Rotate(rotation));
             }
         }
     }
@@ -290,9 +284,7 @@ public class TransformActions {
         public void actionPerformed(ActionEvent e) {
             boolean isVerticalFlip = false;
 
-            target.getImage().apply(new Flip(isVerticalFlip));
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new Flip(isVerticalFlip));
 
         }
     }
@@ -333,9 +325,7 @@ public class TransformActions {
         public void actionPerformed(ActionEvent e) {
             boolean isVerticalFlip = true;
 
-            target.getImage().apply(new Flip(isVerticalFlip));
-            target.repaint();
-            target.getParent().revalidate();
+            target.getExecutor().apply(new Flip(isVerticalFlip));
 
         }
     }
@@ -99,13 +99,13 @@ public class ViewActions {
          * 
          * <p>
          * This method is called whenever the ZoomInAction is triggered.
-         * It increases the zoom level by 10%, to a maximum of 200%.
+         * It increases the zoom level by a quarter, to a maximum of 3200%.
          * </p>
          * 
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.setZoom(target.getZoom() + 10);
+            target.setZoom(target.getZoom() * ImagePanel.ZOOM_STEP);
             target.repaint();
             target.getParent().revalidate();
         }
@@ -145,13 +145,13 @@ public class ViewActions {
          * 
          * <p>
          * This method is called whenever the ZoomOutAction is triggered.
-         * It decreases the zoom level by 10%, to a minimum of 50%.
+         * It decreases the zoom level by a fifth, to a minimum of 1%.
          * </p>
          * 
          * @param e The event triggering this callback.
          */
         public void actionPerformed(ActionEvent e) {
-            target.setZoom(target.getZoom() - 10);
+            target.setZoom(target.getZoom() / ImagePanel.ZOOM_STEP);
             target.repaint();
             target.getParent().revalidate();
         }
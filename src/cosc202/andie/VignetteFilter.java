@@ -1,5 +1,7 @@
 package cosc202.andie;
 
+import java.awt.Dimension;
+import java.awt.Rectangle;
 import java.awt.image.*;
 import java.io.Serializable;
 
@@ -22,7 +24,7 @@ import java.io.Serializable;
  * @see java.io.Serializable
  * @version 1.0
  */
-public class VignetteFilter implements ImageOperation, Serializable {
+public class VignetteFilter implements TileOperation, Serializable {
     
     /**
      * <p>
@@ -38,15 +40,37 @@ public class VignetteFilter implements ImageOperation, Serializable {
      * @return The resulting image with a vignette effect.
      */
     public BufferedImage apply(BufferedImage input) {
+        Dimension size = new Dimension(input.getWidth(), input.getHeight());
+        return applyTile(input, new Rectangle(size), size);
+    }
+
+    /**
+     * <p>
+     * Apply the vignette filter to one tile of an image.
+     * </p>
+     * 
+     * <p>
+     * The darkening depends on each pixel's distance from the centre of the
+     * whole image, not the tile.
+     * </p>
+     * 
+     * @param input  The tile.
+     * @param bounds Where the tile lies in the whole image.
+     * @param size   The size of the whole image.
+     * @return The resulting tile with a vignette effect.
+     */
+    public BufferedImage applyTile(BufferedImage input, Rectangle bounds, Dimension size) {
         int width = input.getWidth();
         int height = input.getHeight();
-        int centerX = width / 2;
-        int centerY = height / 2;
+        // The center of the whole image, relative to the tile
+        int centerX = size.width / 2 - bounds.x;
+        int centerY = size.height / 2 - bounds.y;
 
-        BufferedImage output = new BufferedImage(width, height, BufferedImage.TYPE_INT_RGB);
+        PixelBuffer pixels = PixelBuffer.read(input);
+        PixelBuffer output = PixelBuffer.create(width, height);
 
         // Maximum distance from the center of the image
-        double maxDistance = Math.sqrt(centerX * centerX + centerY * centerY);
+        double maxDistance = Math.sqrt((size.width / 2) * (size.width / 2) + (size.height / 2) * (size.height / 2));
 
         // Vignette strength
         double vignetteStrength = 0.5; // Adjust as needed
@@ -61,21 +85,30 @@ public class VignetteFilter implements ImageOperation, Serializable {
                 double vignetteFactor = Math.pow(1 - normalizedDistance, vignetteStrength);
 
                 // Get RGB values of the pixel
-                int rgb = input.getRGB(x, y);
+                int rgb = pixels.get(x, y);
 
                 // Apply vignette effect
                 int red = (int) (vignetteFactor * ((rgb >> 16) & 0xFF));
                 int green = (int) (vignetteFactor * ((rgb >> 8) & 0xFF));
                 int blue = (int) (vignetteFactor * (rgb & 0xFF));
 
-                // Combine RGB values
-                int modifiedRGB = (red << 16) | (green << 8) | blue;
+                // Combine RGB values, keeping the pixel's alpha
+                int modifiedRGB = (rgb & 0xFF000000) | (red << 16) | (green << 8) | blue;
 
                 // Set the modified pixel in the output image
-                output.setRGB(x, y, modifiedRGB);
+                output.set(x, y, modifiedRGB);
             }
         }
 
-        return output;
+        return output.getImage();
+    }
+
+    /**
+     * Get how far the filter reaches for each output pixel.
+     *
+     * @return 0, as each pixel only depends on itself and where it is.
+     */
+    public int getHalo() {
+        return 0;
     }
 }
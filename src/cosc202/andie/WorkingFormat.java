@@ -0,0 +1,148 @@
+package cosc202.andie;
+
+import java.awt.Graphics2D;
+import java.awt.image.*;
+import java.io.File;
+import java.io.IOException;
+import javax.imageio.ImageIO;
+
+/**
+ * <p>
+ * The pixel format that images are edited in.
+ * </p>
+ *
+ * <p>
+ * Images are decoded in whatever format suits the file, such as 3-byte BGR for
+ * a JPEG, a grey or indexed image for some PNGs, or a custom format that has
+ * no {@link BufferedImage} type at all.
+ * Java2D only has fast loops for some of these, and an operation that makes
+ * its output with its input's type cannot make a custom one.
+ * So every image is converted to packed {@link BufferedImage#TYPE_INT_ARGB}
+ * once when it is opened, and operations make their outputs with
+ * {@link #create(int, int)}, so that every operation after the first reads and
+ * writes the same format.
+ * ARGB keeps the transparency of images that have it, and its pixels can be
+ * used in place by {@link PixelBuffer} and
+ * {@link Convolution#readPixels(BufferedImage, boolean)}.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class WorkingFormat {
+
+    /** The type of image that operations work on. */
+    static final int TYPE = BufferedImage.TYPE_INT_ARGB;
+
+    /** There are no instances, only the static methods. */
+    private WorkingFormat() {
+    }
+
+    /**
+     * <p>
+     * Create a new image in the working format.
+     * </p>
+     *
+     * <p>
+     * The image is borrowed from the {@link ImagePool}, and can be released
+     * back to it by its owner.
+     * </p>
+     *
+     * @param width  The width in pixels.
+     * @param height The height in pixels.
+     * @return A new, fully transparent image.
+     */
+    static BufferedImage create(int width, int height) {
+        return ImagePool.borrow(width, height, TYPE);
+    }
+
+    /**
+     * <p>
+     * Copy an image into a new image in the working format.
+     * </p>
+     *
+     * @param image The image to copy, which may be a subimage.
+     * @return A copy that shares no pixels with the image.
+     */
+    static BufferedImage copy(BufferedImage image) {
+        if (!is(image)) {
+            return convert(image);
+        }
+        BufferedImage copy = create(image.getWidth(), image.getHeight());
+        copy.getRaster().setDataElements(0, 0, image.getRaster());
+        return copy;
+    }
+
+    /**
+     * Check whether an image is already in the working format.
+     *
+     * @param image The image to check.
+     * @return True if the image is stored as one packed ARGB int per pixel.
+     */
+    static boolean is(BufferedImage image) {
+        if (image.getType() != TYPE) {
+            return false;
+        }
+        WritableRaster raster = image.getRaster();
+        return raster.getDataBuffer() instanceof DataBufferInt
+                && raster.getDataBuffer().getNumBanks() == 1
+                && raster.getSampleModel() instanceof SinglePixelPackedSampleModel;
+    }
+
+    /**
+     * <p>
+     * Convert an image to the working format.
+     * </p>
+     *
+     * <p>
+     * Each pixel keeps the colour {@link BufferedImage#getRGB(int, int)} gives
+     * for it, so the conversion does not change how the image looks.
+     * </p>
+     *
+     * @param image The image to convert.
+     * @return The image itself if it is already in the working format, otherwise a converted copy.
+     */
+    static BufferedImage convert(BufferedImage image) {
+        if (is(image)) {
+            return image;
+        }
+        int width = image.getWidth();
+        int height = image.getHeight();
+        BufferedImage copy = create(width, height);
+        int[] pixels = ((DataBufferInt) copy.getRaster().getDataBuffer()).getData();
+        image.getRGB(0, 0, width, height, pixels, 0, width);
+        return copy;
+    }
+
+    /**
+     * <p>
+     * Write an image to a file.
+     * </p>
+     *
+     * <p>
+     * Some formats, such as JPEG, cannot hold transparency, so if the image
+     * cannot be written as it is it is drawn onto an opaque image first.
+     * </p>
+     *
+     * @param image  The image.
+     * @param format The name of the format, such as a file extension.
+     * @param file   The file to write to.
+     * @return False if there is no way to write the format.
+     * @throws IOException If the file cannot be written.
+     */
+    static boolean write(BufferedImage image, String format, File file) throws IOException {
+        if (ImageIO.write(image, format, file)) {
+            return true;
+        }
+        if (!image.getColorModel().hasAlpha()) {
+            return false;
+        }
+        BufferedImage opaque = new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB);
+        Graphics2D g2 = opaque.createGraphics();
+        g2.drawImage(image, 0, 0, null);
+        g2.dispose();
+        return ImageIO.write(opaque, format, file);
+    }
+}
@@ -0,0 +1,114 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.file.*;
+import java.util.*;
+import javax.imageio.ImageIO;
+
+/**
+ * Tests for the BatchMacro class.
+ *
+ * @see BatchMacro
+ */
+public class BatchMacroTest {
+
+    /**
+     * Delete a directory and everything in it.
+     *
+     * @param dir The directory.
+     * @throws Exception If something cannot be deleted.
+     */
+    private void deleteAll(Path dir) throws Exception {
+        Files.walk(dir).sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+    }
+
+    @Test
+    void runTest() throws Exception {
+        Path dir = Files.createTempDirectory("andie");
+        try {
+            List<Path> inputs = new ArrayList<Path>();
+            for (int i = 0; i < 3; i++) {
+                BufferedImage image = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+                image.setRGB(0, 0, 0x102030 * i);
+                Path input = dir.resolve("image" + i + ".png");
+                ImageIO.write(image, "png", input.toFile());
+                inputs.add(input);
+            }
+            Path notImage = dir.resolve("notImage.png");
+            Files.write(notImage, new byte[] { 1, 2, 3 });
+            inputs.add(notImage);
+
+            // A macro is stored with its last operation first
+            File macro = dir.resolve("Macro.ops").toFile();
+            OpsFile.write(Arrays.asList(new InvertColour(), new MeanFilter(1)), macro);
+            Assertions.assertTrue(BatchMacro.readMacro(macro).get(0) instanceof MeanFilter);
+
+            Path outputDir = dir.resolve("out");
+            BatchMacro.Report report = BatchMacro.run(macro, inputs, outputDir, 2);
+            Assertions.assertEquals(3, report.getImages());
+            Assertions.assertEquals(Collections.singleton(notImage), report.failures.keySet());
+            Assertions.assertTrue(report.getLatency(50) <= report.getLatency(90));
+            Assertions.assertTrue(report.getLatency(90) <= report.getLatency(100));
+            Assertions.assertTrue(report.getThroughput() > 0);
+
+            for (int i = 0; i < 3; i++) {
+                BufferedImage expected = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+                expected.setRGB(0, 0, 0x102030 * i);
+                expected = new InvertColour().apply(new MeanFilter(1).apply(expected));
+                BufferedImage output = ImageIO.read(outputDir.resolve("image" + i + ".png").toFile());
+                for (int y = 0; y < 10; y++) {
+                    for (int x = 0; x < 20; x++) {
+                        Assertions.assertEquals(expected.getRGB(x, y), output.getRGB(x, y));
+                    }
+                }
+            }
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    @Test
+    void streamTest() throws Exception {
+        Path dir = Files.createTempDirectory("andie");
+        try {
+            // A TIFF is streamed through a macro of local operations a band at a time
+            BufferedImage image = TestImages.random(120, 3 * StreamingExport.BAND_HEIGHT + 20,
+                    BufferedImage.TYPE_INT_RGB);
+            Path input = dir.resolve("image.tiff");
+            ImageIO.write(image, "tiff", input.toFile());
+            File macro = dir.resolve("Macro.ops").toFile();
+            OpsFile.write(Arrays.asList(new InvertColour(), new MeanFilter(2)), macro);
+
+            Path outputDir = dir.resolve("out");
+            BatchMacro.Report report = BatchMacro.run(macro, Arrays.asList(input), outputDir, 2);
+            Assertions.assertEquals(1, report.getImages());
+            Assertions.assertTrue(report.failures.isEmpty());
+            BufferedImage expected = new InvertColour().apply(new MeanFilter(2).apply(image));
+            TestImages.assertSameImage(expected, ImageIO.read(outputDir.resolve("image.tiff").toFile()));
+        } finally {
+            deleteAll(dir);
+        }
+    }
+
+    @Test
+    void matchTest() throws Exception {
+        Path dir = Files.createTempDirectory("andie");
+        try {
+            Files.createDirectories(dir.resolve("sub"));
+            Files.write(dir.resolve("a.png"), new byte[0]);
+            Files.write(dir.resolve("b.jpg"), new byte[0]);
+            Files.write(dir.resolve("sub").resolve("c.png"), new byte[0]);
+
+            Assertions.assertEquals(Arrays.asList(dir.resolve("a.png")), BatchMacro.match(dir + "/*.png"));
+            Assertions.assertEquals(Arrays.asList(dir.resolve("a.png"), dir.resolve("sub").resolve("c.png")),
+                    BatchMacro.match(dir + "/**.png"));
+            Assertions.assertEquals(Arrays.asList(dir.resolve("b.jpg")), BatchMacro.match(dir + "/b.jpg"));
+            Assertions.assertTrue(BatchMacro.match(dir + "/missing/*.png").isEmpty());
+        } finally {
+            deleteAll(dir);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * Tests for the BlockMeanFilter class.
+ *
+ * @see BlockMeanFilter
+ * @see SummedAreaTable
+ */
+public class BlockMeanFilterTest {
+
+    @Test
+    void defaultConstructorTest() {
+        BlockMeanFilter testFilter = new BlockMeanFilter();
+        Assertions.assertEquals(1, testFilter.getRadius());
+    }
+
+    @Test
+    void blockMeanTest() {
+        Random random = new Random(4);
+        BufferedImage testImage = new BufferedImage(11, 8, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                testImage.setRGB(x, y, random.nextInt());
+            }
+        }
+        BufferedImage output = new BlockMeanFilter(1).apply(testImage);
+
+        // Every pixel should hold the rounded mean of its 3x3 block, cut short at the right and bottom edges
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                int left = x - x % 3;
+                int top = y - y % 3;
+                int right = Math.min(left + 3, testImage.getWidth());
+                int bottom = Math.min(top + 3, testImage.getHeight());
+                int count = (right - left) * (bottom - top);
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int sum = 0;
+                    for (int j = top; j < bottom; j++) {
+                        for (int i = left; i < right; i++) {
+                            sum += (testImage.getRGB(i, j) >>> shift) & 0xFF;
+                        }
+                    }
+                    Assertions.assertEquals((sum + count / 2) / count, (output.getRGB(x, y) >>> shift) & 0xFF);
+                }
+            }
+        }
+
+        // The input image should be left alone
+        Assertions.assertNotSame(testImage, output);
+    }
+}
@@ -0,0 +1,80 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.util.*;
+import javax.imageio.ImageIO;
+
+/**
+ * Tests for the CheckpointFile class.
+ *
+ * @see CheckpointFile
+ */
+public class CheckpointFileTest {
+
+    @Test
+    void prefixTest() throws Exception {
+        BufferedImage original = TestImages.random(30, 20, BufferedImage.TYPE_INT_RGB);
+        ByteBuffer hash = OpsFile.hash(original);
+        List<ImageOperation> ops = Arrays.asList(new InvertColour(), new MeanFilter(1), new SoftBlur());
+        SortedMap<Integer, BufferedImage> images = new TreeMap<Integer, BufferedImage>();
+        BufferedImage image = EditableImage.deepCopy(original);
+        for (int i = 0; i < ops.size(); i++) {
+            image = ops.get(i).apply(image);
+            images.put(i + 1, EditableImage.deepCopy(image));
+        }
+        File opsFile = File.createTempFile("andie", ".ops");
+        File file = CheckpointFile.checkpointFile(opsFile);
+        try {
+            CheckpointFile.write(opsFile, hash, 30, 20, ops, images);
+
+            Map.Entry<Integer, BufferedImage> saved = CheckpointFile.read(opsFile, hash, 30, 20, ops);
+            Assertions.assertEquals(3, saved.getKey());
+            Assertions.assertEquals(image.getType(), saved.getValue().getType());
+            TestImages.assertSameImage(image, saved.getValue());
+
+            // Only the checkpoints before the first changed operation still match
+            List<ImageOperation> changed = Arrays.asList(new InvertColour(), new MeanFilter(2), new SoftBlur());
+            Assertions.assertEquals(1, CheckpointFile.read(opsFile, hash, 30, 20, changed).getKey());
+            Assertions.assertEquals(2, CheckpointFile.read(opsFile, hash, 30, 20, ops.subList(0, 2)).getKey());
+
+            // Nothing matches a different image
+            BufferedImage other = TestImages.random(30, 20, BufferedImage.TYPE_INT_RGB);
+            other.setRGB(0, 0, 0);
+            Assertions.assertNull(CheckpointFile.read(opsFile, OpsFile.hash(other), 30, 20, ops));
+            Assertions.assertNull(CheckpointFile.read(opsFile, hash, 15, 10, ops));
+        } finally {
+            opsFile.delete();
+            file.delete();
+        }
+    }
+
+    @Test
+    void reopenTest() throws Exception {
+        File imageFile = File.createTempFile("andie", ".png");
+        File opsFile = new File(imageFile.getPath() + ".ops");
+        File file = CheckpointFile.checkpointFile(opsFile);
+        try {
+            ImageIO.write(TestImages.random(30, 20, BufferedImage.TYPE_INT_RGB), "png", imageFile);
+            EditableImage image = new EditableImage();
+            image.open(imageFile.getPath());
+            image.apply(new InvertColour());
+            image.apply(new MedianFilter(2));
+            image.save();
+            Assertions.assertTrue(file.exists());
+
+            // The saved result is used as it is
+            EditableImage reopened = new EditableImage();
+            reopened.open(imageFile.getPath());
+            Assertions.assertTrue(reopened.getCheckpoints().has(reopened.getOps(), 2));
+            TestImages.assertSameImage(image.getCurrentImage(), reopened.getCurrentImage());
+        } finally {
+            imageFile.delete();
+            opsFile.delete();
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,108 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * Tests for the CheckpointStore class.
+ *
+ * @see CheckpointStore
+ */
+public class CheckpointStoreTest {
+
+    @Test
+    void checkpointsOnIntervalTest() {
+        CheckpointStore store = new CheckpointStore(2, Long.MAX_VALUE, Long.MAX_VALUE);
+        BufferedImage testImage = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        List<ImageOperation> ops = new ArrayList<ImageOperation>();
+
+        // Only every second operation should be kept
+        for (int i = 1; i <= 4; i++) {
+            InvertColour invert = new InvertColour();
+            ops.add(invert);
+            store.record(i, invert, testImage, 0);
+        }
+        Assertions.assertEquals(2, store.size());
+        Assertions.assertTrue(store.has(ops, 2));
+        Assertions.assertFalse(store.has(ops, 3));
+
+        // Restoring depth 3 should start from the checkpoint at depth 2
+        Map.Entry<Integer, BufferedImage> restored = store.restore(ops, 3);
+        Assertions.assertEquals(2, restored.getKey());
+        Assertions.assertNotSame(testImage, restored.getValue());
+    }
+
+    @Test
+    void expensiveOperationTest() {
+        CheckpointStore store = new CheckpointStore(100, 10, Long.MAX_VALUE);
+        BufferedImage testImage = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+
+        // An operation taking 20ms is over the threshold even though it is off the interval
+        store.record(1, new InvertColour(), testImage, 20000000L);
+        Assertions.assertEquals(1, store.size());
+    }
+
+    @Test
+    void changedHistoryTest() {
+        CheckpointStore store = new CheckpointStore(1, Long.MAX_VALUE, Long.MAX_VALUE);
+        BufferedImage testImage = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        List<ImageOperation> ops = new ArrayList<ImageOperation>();
+        ops.add(new InvertColour());
+        store.record(1, ops.get(0), testImage, 0);
+
+        // Replacing the operation at depth 1 invalidates its checkpoint
+        ops.set(0, new InvertColour());
+        Assertions.assertFalse(store.has(ops, 1));
+        Assertions.assertNull(store.restore(ops, 1));
+        Assertions.assertEquals(0, store.size());
+    }
+
+    @Test
+    void memoryBudgetTest() {
+        BufferedImage testImage = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        long imageBytes = CheckpointStore.sizeOf(testImage);
+        CheckpointStore store = new CheckpointStore(1, Long.MAX_VALUE, 2 * imageBytes);
+
+        // Only two images fit in the budget, the cheapest to recompute is evicted
+        store.record(1, new InvertColour(), testImage, 5);
+        store.record(2, new InvertColour(), testImage, 1);
+        store.record(3, new InvertColour(), testImage, 5);
+        Assertions.assertEquals(2, store.size());
+        Assertions.assertTrue(store.getUsedBytes() <= store.getMemoryBudget());
+
+        store.discardAbove(0);
+        Assertions.assertEquals(0, store.size());
+        Assertions.assertEquals(0, store.getUsedBytes());
+    }
+
+    @Test
+    void patchTest() {
+        BufferedImage testImage = new BufferedImage(2, 2, BufferedImage.TYPE_INT_ARGB);
+        long imageBytes = CheckpointStore.sizeOf(testImage);
+        CheckpointStore store = new CheckpointStore(1, Long.MAX_VALUE, 2 * imageBytes);
+        List<ImageOperation> ops = new ArrayList<ImageOperation>();
+        ops.add(new InvertColour());
+        ops.add(new InvertColour());
+        store.recordPatch(2, ops.get(1), new Rectangle(1, 1, 2, 2), testImage);
+
+        // A patch only belongs to the operation that drew over it
+        Map.Entry<Rectangle, BufferedImage> patch = store.patch(ops, 2);
+        Assertions.assertEquals(new Rectangle(1, 1, 2, 2), patch.getKey());
+        Assertions.assertSame(testImage, patch.getValue());
+        Assertions.assertNull(store.patch(ops, 1));
+        Assertions.assertNull(store.patch(ops.subList(0, 1), 2));
+
+        // Patches are given up before checkpoints, oldest first
+        store.record(1, ops.get(0), testImage, 0);
+        store.recordPatch(3, new InvertColour(), new Rectangle(2, 2), testImage);
+        Assertions.assertEquals(1, store.size());
+        Assertions.assertTrue(store.getUsedBytes() <= store.getMemoryBudget());
+        Assertions.assertNull(store.patch(ops, 2));
+
+        store.discardAbove(0);
+        Assertions.assertEquals(0, store.getUsedBytes());
+    }
+}
@@ -0,0 +1,100 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.awt.image.Kernel;
+import java.util.*;
+
+/**
+ * Tests for the Convolution class.
+ *
+ * @see Convolution
+ */
+public class ConvolutionTest {
+
+    @Test
+    void uniformImageTest() {
+        BufferedImage testImage = new BufferedImage(50, 70, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                testImage.setRGB(x, y, 0xFF204060);
+            }
+        }
+        float[] weights = new float[25];
+        Arrays.fill(weights, 1.0f / 25);
+        BufferedImage output = new BufferedImage(50, 70, BufferedImage.TYPE_INT_RGB);
+        new Convolution().convolveImage(testImage, output, new Kernel(5, 5, weights), 2);
+
+        // Edge pixels are clamped, so every pixel should keep its colour
+        for (int y = 0; y < output.getHeight(); y++) {
+            for (int x = 0; x < output.getWidth(); x++) {
+                int rgb = output.getRGB(x, y) & 0xFFFFFF;
+                Assertions.assertTrue(Math.abs(((rgb >> 16) & 0xFF) - 0x20) <= 1);
+                Assertions.assertTrue(Math.abs(((rgb >> 8) & 0xFF) - 0x40) <= 1);
+                Assertions.assertTrue(Math.abs((rgb & 0xFF) - 0x60) <= 1);
+            }
+        }
+    }
+
+    @Test
+    void imageTypeTest() {
+        Random random = new Random(1);
+        BufferedImage argbImage = new BufferedImage(40, 60, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage bgrImage = new BufferedImage(40, 60, BufferedImage.TYPE_3BYTE_BGR);
+        for (int y = 0; y < argbImage.getHeight(); y++) {
+            for (int x = 0; x < argbImage.getWidth(); x++) {
+                int rgb = random.nextInt() | 0xFF000000;
+                argbImage.setRGB(x, y, rgb);
+                bgrImage.setRGB(x, y, rgb);
+            }
+        }
+        float[] weights = { 0, -1, 0, -1, 5, -1, 0, -1, 0 };
+        Kernel kernel = new Kernel(3, 3, weights);
+
+        // Reading the pixel buffer directly should give the same result as getRGB
+        BufferedImage direct = new Convolution().convolveImageWithOffset(argbImage,
+                new BufferedImage(40, 60, BufferedImage.TYPE_INT_RGB), kernel, 1);
+        BufferedImage converted = new Convolution().convolveImageWithOffset(bgrImage,
+                new BufferedImage(40, 60, BufferedImage.TYPE_INT_RGB), kernel, 1);
+        for (int y = 0; y < direct.getHeight(); y++) {
+            for (int x = 0; x < direct.getWidth(); x++) {
+                Assertions.assertEquals(direct.getRGB(x, y), converted.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void separableTest() {
+        Random random = new Random(2);
+        BufferedImage testImage = new BufferedImage(45, 35, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                testImage.setRGB(x, y, random.nextInt() | 0xFF000000);
+            }
+        }
+        float[] horizontal = { 0.1f, 0.2f, 0.4f, 0.2f, 0.1f };
+        float[] vertical = { 0.25f, 0.5f, 0.25f, 0.0f, 0.0f };
+        float[] weights = new float[25];
+        for (int i = 0; i < 5; i++) {
+            for (int j = 0; j < 5; j++) {
+                weights[i * 5 + j] = vertical[i] * horizontal[j];
+            }
+        }
+
+        // Two 1-D passes should match the 2-D outer product kernel to within one colour level
+        BufferedImage full = new Convolution().convolveImage(testImage,
+                new BufferedImage(45, 35, BufferedImage.TYPE_INT_RGB), new Kernel(5, 5, weights), 2);
+        BufferedImage separable = new Convolution().convolveSeparable(testImage,
+                new BufferedImage(45, 35, BufferedImage.TYPE_INT_RGB), horizontal, vertical, new OperationMonitor());
+        for (int y = 0; y < full.getHeight(); y++) {
+            for (int x = 0; x < full.getWidth(); x++) {
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int expected = (full.getRGB(x, y) >> shift) & 0xFF;
+                    int actual = (separable.getRGB(x, y) >> shift) & 0xFF;
+                    Assertions.assertTrue(Math.abs(expected - actual) <= 1);
+                }
+            }
+        }
+    }
+}
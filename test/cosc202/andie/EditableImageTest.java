@@ -1,7 +1,14 @@
 package cosc202.andie;
 
 import org.junit.jupiter.api.Test;
+import java.awt.Color;
+import java.awt.Dimension;
+import java.awt.Point;
+import java.awt.Rectangle;
 import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+import javax.imageio.ImageIO;
 import org.junit.jupiter.api.Assertions;
 
 /**
@@ -62,4 +69,208 @@ public class EditableImageTest {
         Assertions.assertTrue(testEditableImage.getRedoOps().isEmpty());
     }
 
+    @Test
+    void testProxy() throws Exception {
+
+        // Create a random 800x600 image and save it to a file
+        Random random = new Random(202);
+        BufferedImage testImage = new BufferedImage(800, 600, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                testImage.setRGB(x, y, random.nextInt());
+            }
+        }
+        File file = File.createTempFile("andie-proxy", ".png");
+        File exported = File.createTempFile("andie-proxy-export", ".png");
+        EditableImage testEditableImage = new EditableImage();
+        try {
+            ImageIO.write(testImage, "png", file);
+
+            // Open it to be edited as a proxy a quarter of its size
+            testEditableImage.setProxySize(new Dimension(200, 200));
+            testEditableImage.open(file.getPath());
+            Assertions.assertTrue(testEditableImage.isProxy());
+            Assertions.assertEquals(0.25, testEditableImage.getProxyScale());
+            Assertions.assertEquals(200, testEditableImage.getCurrentImage().getWidth());
+            Assertions.assertEquals(150, testEditableImage.getCurrentImage().getHeight());
+
+            // A radius 1 filter on the proxy is recorded as radius 4 on the original
+            testEditableImage.apply(new MeanFilter(1));
+            Assertions.assertEquals(4, ((MeanFilter) testEditableImage.getOps().peek()).getRadius());
+            BufferedImage proxyResult = testEditableImage.getCurrentImage();
+
+            // Undo and redo give the same proxy result
+            testEditableImage.undo();
+            testEditableImage.redo();
+            BufferedImage redone = testEditableImage.getCurrentImage();
+            for (int y = 0; y < proxyResult.getHeight(); y++) {
+                for (int x = 0; x < proxyResult.getWidth(); x++) {
+                    Assertions.assertEquals(proxyResult.getRGB(x, y), redone.getRGB(x, y));
+                }
+            }
+
+            // Export renders the original at full resolution
+            testEditableImage.export(exported.getPath());
+            BufferedImage expected = new MeanFilter(4).apply(testImage);
+            BufferedImage actual = ImageIO.read(exported);
+            Assertions.assertEquals(800, actual.getWidth());
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                }
+            }
+        } finally {
+            testEditableImage.discardJournal();
+            TestImages.delete(file);
+            exported.delete();
+        }
+    }
+
+    @Test
+    void testProxyTileAndSelect() throws Exception {
+
+        // Edit a random 800x600 image as a proxy a quarter of its size
+        BufferedImage testImage = TestImages.random(800, 600, BufferedImage.TYPE_INT_RGB);
+        File file = File.createTempFile("andie-proxy", ".png");
+        File exported = File.createTempFile("andie-proxy-export", ".png");
+        EditableImage testEditableImage = new EditableImage();
+        try {
+            ImageIO.write(testImage, "png", file);
+            testEditableImage.setProxySize(new Dimension(200, 200));
+            testEditableImage.open(file.getPath());
+
+            // The tile size and the selected region are recorded in terms of the original
+            testEditableImage.apply(new TileFilter(1));
+            Assertions.assertEquals(4, ((TileFilter) testEditableImage.getOps().peek()).getRadius());
+            testEditableImage.apply(new SelectRegion(new Rectangle(10, 10, 20, 20)));
+            BufferedImage proxyResult = testEditableImage.getCurrentImage();
+            Assertions.assertEquals(Color.RED.getRGB(), proxyResult.getRGB(10, 20));
+            Assertions.assertEquals(Color.RED.getRGB(), proxyResult.getRGB(30, 20));
+
+            // The export has the selection in the same place as the proxy
+            testEditableImage.export(exported.getPath());
+            BufferedImage expected = new SelectRegion(new Rectangle(40, 40, 80, 80))
+                    .apply(new TileFilter(4).apply(WorkingFormat.convert(testImage)));
+            BufferedImage actual = ImageIO.read(exported);
+            TestImages.assertSameImage(expected, actual);
+            Assertions.assertEquals(Color.RED.getRGB(), actual.getRGB(40, 80));
+            Assertions.assertEquals(Color.RED.getRGB(), actual.getRGB(120, 80));
+        } finally {
+            testEditableImage.discardJournal();
+            TestImages.delete(file);
+            exported.delete();
+        }
+    }
+
+    @Test
+    void testProxyResize() throws Exception {
+
+        // Edit a random 800x600 image as a proxy a quarter of its size
+        BufferedImage testImage = TestImages.random(800, 600, BufferedImage.TYPE_INT_RGB);
+        File file = File.createTempFile("andie-proxy", ".png");
+        File exported = File.createTempFile("andie-proxy-export", ".png");
+        EditableImage testEditableImage = new EditableImage();
+        try {
+            ImageIO.write(testImage, "png", file);
+            testEditableImage.setProxySize(new Dimension(200, 200));
+            testEditableImage.open(file.getPath());
+
+            // Resizing to a given size leaves the proxy, so later edits are not scaled up
+            testEditableImage.apply(new Resize(300, 100));
+            Assertions.assertFalse(testEditableImage.isProxy());
+            Assertions.assertEquals(1.0, testEditableImage.getProxyScale());
+            Assertions.assertEquals(300, testEditableImage.getCurrentImage().getWidth());
+            testEditableImage.apply(new CropImage(new Point(10, 10), new Point(110, 60)));
+            Assertions.assertEquals(100, ((CropImage) testEditableImage.getOps().peek()).getWidth());
+
+            // What is shown is exactly what is exported
+            testEditableImage.export(exported.getPath());
+            TestImages.assertSameImage(testEditableImage.getCurrentImage(), ImageIO.read(exported));
+
+            // Undoing the resize goes back to the full-resolution original
+            testEditableImage.undo();
+            testEditableImage.undo();
+            Assertions.assertEquals(800, testEditableImage.getCurrentImage().getWidth());
+        } finally {
+            testEditableImage.discardJournal();
+            TestImages.delete(file);
+            exported.delete();
+        }
+    }
+
+    @Test
+    void testNoProxy() throws Exception {
+
+        // An image smaller than the proxy size is edited at full resolution
+        BufferedImage testImage = new BufferedImage(100, 50, BufferedImage.TYPE_INT_RGB);
+        File file = File.createTempFile("andie-proxy", ".png");
+        EditableImage testEditableImage = new EditableImage();
+        try {
+            ImageIO.write(testImage, "png", file);
+            testEditableImage.setProxySize(new Dimension(200, 200));
+            testEditableImage.open(file.getPath());
+            Assertions.assertFalse(testEditableImage.isProxy());
+            Assertions.assertEquals(1.0, testEditableImage.getProxyScale());
+            testEditableImage.apply(new MeanFilter(1));
+            Assertions.assertEquals(1, ((MeanFilter) testEditableImage.getOps().peek()).getRadius());
+        } finally {
+            testEditableImage.discardJournal();
+            TestImages.delete(file);
+        }
+    }
+
+    @Test
+    void testRegionUndo() throws Exception {
+
+        // Draw a rectangle onto a random image
+        Random random = new Random(202);
+        BufferedImage testImage = new BufferedImage(60, 40, BufferedImage.TYPE_INT_RGB);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                testImage.setRGB(x, y, random.nextInt());
+            }
+        }
+        File file = File.createTempFile("andie-region", ".png");
+        EditableImage testEditableImage = new EditableImage();
+        try {
+            ImageIO.write(testImage, "png", file);
+            testEditableImage.open(file.getPath());
+            BufferedImage current = testEditableImage.getCurrentImage();
+            DrawShapes shape = new DrawShapes(0);
+            shape.setColor(Color.RED);
+            shape.setRegion(new Point(30, 20), new Point(10, 5));
+            testEditableImage.apply(shape);
+
+            // The shape is drawn in place, and only its bounds are reported as changed
+            Assertions.assertSame(current, testEditableImage.getCurrentImage());
+            Assertions.assertEquals(new Rectangle(10, 5, 21, 16),
+                    testEditableImage.getDamage(testEditableImage.getVersion()));
+            Assertions.assertEquals(Color.RED.getRGB(), current.getRGB(15, 10));
+            Assertions.assertNull(testEditableImage.getDamage(testEditableImage.getVersion() - 1));
+
+            // Undoing puts back the pixels that were drawn over, without replaying
+            testEditableImage.undo();
+            Assertions.assertSame(current, testEditableImage.getCurrentImage());
+            Assertions.assertNotNull(testEditableImage.getDamage(testEditableImage.getVersion()));
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                for (int x = 0; x < testImage.getWidth(); x++) {
+                    Assertions.assertEquals(testImage.getRGB(x, y), current.getRGB(x, y));
+                }
+            }
+
+            // Redoing draws it again, and it can still be undone the same way
+            testEditableImage.redo();
+            Assertions.assertEquals(Color.RED.getRGB(), current.getRGB(15, 10));
+            testEditableImage.undo();
+            Assertions.assertEquals(testImage.getRGB(15, 10), current.getRGB(15, 10));
+
+            // Anything else changes the whole image
+            testEditableImage.apply(new InvertColour());
+            Assertions.assertNull(testEditableImage.getDamage(testEditableImage.getVersion()));
+        } finally {
+            testEditableImage.discardJournal();
+            TestImages.delete(file);
+        }
+    }
+
 }
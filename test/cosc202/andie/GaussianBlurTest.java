@@ -2,6 +2,8 @@ package cosc202.andie;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import java.awt.image.BufferedImage;
+import java.awt.image.Kernel;
+import java.text.DecimalFormat;
 
 /**
  *  testing for gaussian blur
@@ -80,6 +82,61 @@ public class GaussianBlurTest {
         Assertions.assertEquals(testImage.getWidth(), blurredImage.getWidth());
     }
 
+    //test the blur stays within one colour level of the original 2-D convolution, up to the largest radius
+    @Test
+    void separableTest() {
+        BufferedImage[] testImages = { TestImages.opaque(45, 35), checkerboard(45, 35) };
+        for (BufferedImage testImage : testImages) {
+            for (int radius = 1; radius <= 10; radius++) {
+                BufferedImage blurredImage = new GaussianBlur(radius).apply(testImage);
+                BufferedImage full = new Convolution().convolveImage(testImage,
+                        WorkingFormat.create(45, 35), baselineKernel(radius), radius);
+                for (int y = 0; y < full.getHeight(); y++) {
+                    for (int x = 0; x < full.getWidth(); x++) {
+                        for (int shift = 0; shift < 32; shift += 8) {
+                            int expected = (full.getRGB(x, y) >> shift) & 0xFF;
+                            int actual = (blurredImage.getRGB(x, y) >> shift) & 0xFF;
+                            Assertions.assertTrue(Math.abs(expected - actual) <= 1, "radius " + radius);
+                        }
+                    }
+                }
+            }
+        }
+    }
+
+    //the kernel the blur was first written with: each entry of the 2-D Gaussian rounded to three decimals, then normalised
+    private static Kernel baselineKernel(int radius) {
+        DecimalFormat df = new DecimalFormat("#.###");
+        double sigma = radius / 3.0;
+        int d = 2 * radius + 1;
+        float[] array = new float[d * d];
+        float total = 0;
+        for (int i = 0; i < d; i++) {
+            for (int j = 0; j < d; j++) {
+                int x = j - radius;
+                int y = i - radius;
+                double val = (1 / (2 * Math.PI * (sigma * sigma))) * Math.pow(Math.E, -((x * x + y * y) / (2 * sigma * sigma)));
+                array[i * d + j] = Float.valueOf(df.format(val));
+                total += array[i * d + j];
+            }
+        }
+        for (int i = 0; i < array.length; i++) {
+            array[i] = array[i] / total;
+        }
+        return new Kernel(d, d, array);
+    }
+
+    //black and white squares two pixels wide, the pattern furthest from the separable blur
+    private static BufferedImage checkerboard(int width, int height) {
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, ((x / 2 + y / 2) % 2 == 0) ? 0xff000000 : 0xffffffff);
+            }
+        }
+        return image;
+    }
+
     //No way to test for radius values larger than the max (10) or smaller than the min (0) allowed by the Jspinner 
     //as there is no way there could be one of these values passed to radius through the andie interface.
 }
@@ -24,6 +24,17 @@ public class ImagePanelTest {
         ImagePanel testPanel = new ImagePanel();
         testPanel.setZoom(0.0);
         Assertions.assertFalse(testPanel.getZoom() == 100.0);
-        Assertions.assertTrue(testPanel.getZoom() >= 50.0);
+        Assertions.assertTrue(testPanel.getZoom() >= ImagePanel.MIN_ZOOM);
+    }
+
+    @Test
+    void setZoomRange() {
+        ImagePanel testPanel = new ImagePanel();
+        testPanel.setZoom(0.5);
+        Assertions.assertEquals(1.0, testPanel.getZoom());
+        testPanel.setZoom(5000);
+        Assertions.assertEquals(3200.0, testPanel.getZoom());
+        testPanel.setZoom(12.5);
+        Assertions.assertEquals(12.5, testPanel.getZoom());
     }
 }
\ No newline at end of file
@@ -0,0 +1,52 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+
+/**
+ * Tests for the ImagePool class.
+ *
+ * @see ImagePool
+ */
+public class ImagePoolTest {
+
+    @Test
+    void reuseTest() {
+        BufferedImage image = ImagePool.borrow(31, 17, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(3, 4, 0xff102030);
+        ImagePool.release(image);
+        ImagePool.release(image);
+
+        // A released image is lent out once more, cleared as if it were new
+        BufferedImage again = ImagePool.borrow(31, 17, BufferedImage.TYPE_INT_ARGB);
+        Assertions.assertSame(image, again);
+        Assertions.assertEquals(0, again.getRGB(3, 4));
+        Assertions.assertNotSame(image, ImagePool.borrow(31, 17, BufferedImage.TYPE_INT_ARGB));
+
+        // Images are kept apart by type as well as size
+        ImagePool.release(again);
+        Assertions.assertNotSame(again, ImagePool.borrow(31, 17, BufferedImage.TYPE_INT_RGB));
+        Assertions.assertNotSame(again, ImagePool.borrow(17, 31, BufferedImage.TYPE_INT_ARGB));
+        Assertions.assertSame(again, WorkingFormat.create(31, 17));
+    }
+
+    @Test
+    void sharedTest() {
+        // Subimages share their parent's pixels, so are never pooled
+        BufferedImage parent = new BufferedImage(40, 40, BufferedImage.TYPE_INT_ARGB);
+        BufferedImage sub = parent.getSubimage(0, 0, 20, 20);
+        ImagePool.release(sub);
+        Assertions.assertNotSame(sub, ImagePool.borrow(20, 20, BufferedImage.TYPE_INT_ARGB));
+
+        // Operations that do not change their input leave it for the pool to reuse
+        BufferedImage input = WorkingFormat.create(12, 9);
+        input.setRGB(5, 5, 0xffffffff);
+        BufferedImage output = new MeanFilter(1).apply(input);
+        Assertions.assertFalse(new MeanFilter(1) instanceof InPlaceOperation);
+        Assertions.assertEquals(0xffffffff, input.getRGB(5, 5));
+        Assertions.assertSame(input, new InvertColour().apply(input));
+        Assertions.assertTrue(new InvertColour() instanceof InPlaceOperation);
+        Assertions.assertNotSame(input, output);
+    }
+}
@@ -0,0 +1,89 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Tests for the ImagePyramid class.
+ *
+ * @see ImagePyramid
+ */
+public class ImagePyramidTest {
+
+    @Test
+    void levelForTest() {
+        Assertions.assertEquals(0, ImagePyramid.levelFor(32));
+        Assertions.assertEquals(0, ImagePyramid.levelFor(1));
+        Assertions.assertEquals(0, ImagePyramid.levelFor(0.6));
+        Assertions.assertEquals(1, ImagePyramid.levelFor(0.5));
+        Assertions.assertEquals(1, ImagePyramid.levelFor(0.3));
+        Assertions.assertEquals(6, ImagePyramid.levelFor(0.01));
+    }
+
+    @Test
+    void halveTest() {
+        // A 3x2 image, so that the right column has no pair
+        BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_INT_RGB);
+        image.setRGB(0, 0, 0x000000);
+        image.setRGB(1, 0, 0x040404);
+        image.setRGB(0, 1, 0x080808);
+        image.setRGB(1, 1, 0x0c0c0c);
+        image.setRGB(2, 0, 0x102030);
+        image.setRGB(2, 1, 0x302010);
+        BufferedImage half = ImagePyramid.halve(image);
+        Assertions.assertEquals(2, half.getWidth());
+        Assertions.assertEquals(1, half.getHeight());
+        Assertions.assertEquals(0xff060606, half.getRGB(0, 0));
+        Assertions.assertEquals(0xff202020, half.getRGB(1, 0));
+    }
+
+    @Test
+    void getLevelTest() {
+        BufferedImage image = new BufferedImage(100, 30, BufferedImage.TYPE_INT_ARGB);
+        ImagePyramid pyramid = new ImagePyramid(image);
+        Assertions.assertSame(image, pyramid.getLevel(0));
+        Assertions.assertSame(image, pyramid.getSource());
+        Assertions.assertEquals(50, pyramid.getLevel(1).getWidth());
+        Assertions.assertEquals(4, pyramid.getLevel(5).getWidth());
+        Assertions.assertEquals(1, pyramid.getLevel(5).getHeight());
+        Assertions.assertEquals(1, pyramid.getLevel(20).getWidth());
+        Assertions.assertSame(pyramid.getLevel(1), pyramid.getLevel(1));
+    }
+
+    @Test
+    void updateTest() {
+        Random random = new Random(202);
+        BufferedImage image = new BufferedImage(37, 23, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        ImagePyramid pyramid = new ImagePyramid(image);
+        pyramid.getLevel(6);
+
+        // Change a block that straddles the pairs of pixels and the right edge
+        Rectangle damage = new Rectangle(27, 5, 10, 7);
+        for (int y = damage.y; y < damage.y + damage.height; y++) {
+            for (int x = damage.x; x < damage.x + damage.width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        pyramid.update(damage);
+
+        // Every level matches one made from scratch
+        ImagePyramid fresh = new ImagePyramid(image);
+        for (int level = 1; level <= 6; level++) {
+            BufferedImage expected = fresh.getLevel(level);
+            BufferedImage actual = pyramid.getLevel(level);
+            for (int y = 0; y < expected.getHeight(); y++) {
+                for (int x = 0; x < expected.getWidth(); x++) {
+                    Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                }
+            }
+        }
+    }
+}
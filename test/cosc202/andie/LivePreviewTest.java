@@ -0,0 +1,74 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+import javax.swing.SwingUtilities;
+
+/**
+ * Tests for the LivePreview class.
+ *
+ * @see LivePreview
+ */
+public class LivePreviewTest {
+
+    /**
+     * Wait for the panel to show a preview.
+     *
+     * @param panel The panel.
+     * @return The preview, or null if none was shown within a few seconds.
+     * @throws Exception If the wait is interrupted.
+     */
+    private BufferedImage awaitPreview(ImagePanel panel) throws Exception {
+        for (int i = 0; i < 100 && panel.getPreview() == null; i++) {
+            Thread.sleep(50);
+        }
+        return panel.getPreview();
+    }
+
+    @Test
+    void previewTest() throws Exception {
+        BufferedImage testImage = new BufferedImage(40, 30, BufferedImage.TYPE_INT_RGB);
+        testImage.setRGB(5, 5, 0x123456);
+        File file = File.createTempFile("andie-preview", ".png");
+        try {
+            ImageIO.write(testImage, "png", file);
+            ImagePanel panel = new ImagePanel();
+            panel.getImage().open(file.getPath());
+
+            LivePreview[] preview = new LivePreview[1];
+            SwingUtilities.invokeAndWait(() -> {
+                preview[0] = new LivePreview(panel);
+                // Only the last of a quick run of updates is rendered
+                preview[0].update(new MeanFilter(3));
+                preview[0].update(new InvertColour());
+            });
+            BufferedImage shown = awaitPreview(panel);
+            Assertions.assertNotNull(shown);
+            Assertions.assertEquals(0xffedcba9, shown.getRGB(5, 5));
+            Assertions.assertEquals(0xffffffff, shown.getRGB(0, 0));
+
+            // The image and its operations are untouched
+            Assertions.assertTrue(panel.getImage().getOps().isEmpty());
+            Assertions.assertEquals(0xff123456, panel.getImage().getCurrentImage().getRGB(5, 5));
+
+            SwingUtilities.invokeAndWait(() -> preview[0].close());
+            Assertions.assertNull(panel.getPreview());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void noImageTest() throws Exception {
+        ImagePanel panel = new ImagePanel();
+        SwingUtilities.invokeAndWait(() -> {
+            LivePreview preview = new LivePreview(panel);
+            preview.update(new InvertColour());
+            preview.close();
+        });
+        Assertions.assertNull(panel.getPreview());
+    }
+}
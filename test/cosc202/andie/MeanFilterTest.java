@@ -3,6 +3,7 @@ package cosc202.andie;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Assertions;
 import java.awt.image.BufferedImage;
+import java.util.*;
 
 /**
  *  testing for mean filter 
@@ -64,6 +65,35 @@ public class MeanFilterTest {
         Assertions.assertEquals(testImage.getWidth(), filteredImage.getWidth());
     }
 
+    @Test
+    void boxMeanTest(){
+        Random random = new Random(5);
+        BufferedImage testImage = new BufferedImage(17, 13, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                testImage.setRGB(x, y, random.nextInt() | 0xFF000000);
+            }
+        }
+        BufferedImage filteredImage = new MeanFilter(2).apply(testImage);
+
+        // Each pixel should be the rounded mean of its 5x5 neighbourhood, with the edges repeated
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                for (int shift = 0; shift < 24; shift += 8) {
+                    int sum = 0;
+                    for (int j = y - 2; j <= y + 2; j++) {
+                        for (int i = x - 2; i <= x + 2; i++) {
+                            int clampedX = Math.min(Math.max(i, 0), testImage.getWidth() - 1);
+                            int clampedY = Math.min(Math.max(j, 0), testImage.getHeight() - 1);
+                            sum += (testImage.getRGB(clampedX, clampedY) >> shift) & 0xFF;
+                        }
+                    }
+                    Assertions.assertEquals((sum + 12) / 25, (filteredImage.getRGB(x, y) >> shift) & 0xFF);
+                }
+            }
+        }
+    }
+
     //No way to test for radius values larger than the max (10) or smaller than the min (0) allowed by the Jspinner 
     //as there is no way there could be one of these values passed to radius through the andie interface.
 
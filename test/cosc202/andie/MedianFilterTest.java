@@ -64,6 +64,26 @@ public class MedianFilterTest {
         Assertions.assertEquals(testImage.getWidth(), filteredImage.getWidth());
     }
 
+    @Test
+    void centreMedianTest(){
+
+        // Create a 3x3 test image whose centre pixel is the only bright one
+        BufferedImage testImage = new BufferedImage(3, 3, BufferedImage.TYPE_INT_ARGB);
+        int value = 0;
+        for (int y = 0; y < 3; y++) {
+            for (int x = 0; x < 3; x++) {
+                testImage.setRGB(x, y, 0xFF000000 | (value << 16) | (value << 8) | value);
+                value += 10;
+            }
+        }
+        testImage.setRGB(1, 1, 0xFFFFFFFF);
+
+        // The median of the nine values 0, 10, 20, 30, 255, 50, 60, 70, 80 is 50
+        MedianFilter testFilter = new MedianFilter();
+        BufferedImage filteredImage = testFilter.apply(testImage);
+        Assertions.assertEquals(0xFF323232, filteredImage.getRGB(1, 1));
+    }
+
     //No way to test for radius values larger than the max (10) or smaller than the min (0) allowed by the Jspinner 
     //as there is no way there could be one of these values passed to radius through the andie interface.
 
@@ -0,0 +1,69 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.util.*;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Tests for the OperationMonitor class and the operations that report to it.
+ *
+ * @see OperationMonitor
+ * @see ProgressiveImageOperation
+ */
+public class OperationMonitorTest {
+
+    @Test
+    void progressTest() {
+        BufferedImage testImage = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+        List<Integer> reported = new ArrayList<Integer>();
+        OperationMonitor monitor = new OperationMonitor(percent -> reported.add(percent));
+        new MedianFilter(1).apply(testImage, monitor);
+
+        // Progress should only go forwards, and finish at 100%
+        Assertions.assertFalse(reported.isEmpty());
+        for (int i = 1; i < reported.size(); i++) {
+            Assertions.assertTrue(reported.get(i) > reported.get(i - 1));
+        }
+        Assertions.assertEquals(100, reported.get(reported.size() - 1));
+    }
+
+    @Test
+    void resizeProgressTest() {
+        BufferedImage testImage = new BufferedImage(20, 10, BufferedImage.TYPE_INT_ARGB);
+        List<Integer> reported = new ArrayList<Integer>();
+        OperationMonitor monitor = new OperationMonitor(percent -> reported.add(percent));
+        BufferedImage output = new Resize(200).apply(testImage, monitor);
+
+        Assertions.assertEquals(40, output.getWidth());
+        Assertions.assertEquals(20, output.getHeight());
+        Assertions.assertEquals(100, reported.get(reported.size() - 1));
+    }
+
+    @Test
+    void cancelTest() {
+        BufferedImage testImage = new BufferedImage(20, 20, BufferedImage.TYPE_INT_ARGB);
+        OperationMonitor monitor = new OperationMonitor();
+        monitor.cancel();
+        Assertions.assertTrue(monitor.isCancelled());
+
+        // Every operation should stop at the first row band
+        ProgressiveImageOperation[] ops = { new MeanFilter(1), new GaussianBlur(1), new MedianFilter(1),
+                new MinimumFilter(1), new MaximumFilter(1), new RandomScattering(1), new Resize(50) };
+        for (ProgressiveImageOperation op : ops) {
+            Assertions.assertThrows(CancellationException.class, () -> op.apply(testImage, monitor));
+        }
+    }
+
+    @Test
+    void interruptTest() {
+        OperationMonitor monitor = new OperationMonitor();
+        Thread.currentThread().interrupt();
+        try {
+            Assertions.assertThrows(CancellationException.class, () -> monitor.progress(0, 1));
+        } finally {
+            Thread.interrupted();
+        }
+    }
+}
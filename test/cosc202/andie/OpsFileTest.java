@@ -0,0 +1,141 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.Color;
+import java.awt.Point;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.*;
+
+/**
+ * Tests for the OpsFile class.
+ *
+ * @see OpsFile
+ */
+public class OpsFileTest {
+
+    /**
+     * Write operations to a file and read them back.
+     *
+     * @param ops  The operations.
+     * @param file The file to write.
+     * @return The operations read back.
+     * @throws IOException If the file cannot be written or read.
+     */
+    private List<ImageOperation> roundTrip(List<ImageOperation> ops, File file) throws IOException {
+        OpsFile.write(ops, file);
+        List<ImageOperation> read = new ArrayList<ImageOperation>();
+        try (OpsFile.Reader reader = OpsFile.read(file)) {
+            ImageOperation op;
+            while ((op = reader.next()) != null) {
+                read.add(op);
+            }
+        }
+        return read;
+    }
+
+    /**
+     * Check that two lists of operations have the same effect on an image.
+     *
+     * @param expected The expected operations.
+     * @param actual   The actual operations.
+     */
+    private void assertSameEffect(List<ImageOperation> expected, List<ImageOperation> actual) {
+        Assertions.assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            Assertions.assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+            BufferedImage before = TestImages.random(60, 40, BufferedImage.TYPE_INT_ARGB);
+            BufferedImage want = expected.get(i).apply(EditableImage.deepCopy(before));
+            BufferedImage got = actual.get(i).apply(EditableImage.deepCopy(before));
+            TestImages.assertSameImage(want, got);
+        }
+    }
+
+    @Test
+    void roundTripTest() throws Exception {
+        DrawShapes shape = new DrawShapes(1);
+        shape.setColor(new Color(10, 20, 30, 200));
+        shape.setRegion(new Point(5, 6), new Point(30, 25));
+        List<ImageOperation> ops = Arrays.asList(new MeanFilter(2), new InvertColour(),
+                new BrightnessContrast(20, -10), new Saturator(0.5f), new Rotate(90), new Flip(true),
+                new Resize(50f), new CycleColour(new String[] { "green", "blue", "red" }),
+                new CropImage(new Point(2, 3), new Point(40, 30)), shape, new EmbossFilter(3));
+        File file = File.createTempFile("andie", ".ops");
+        try {
+            assertSameEffect(ops, roundTrip(ops, file));
+            Assertions.assertFalse(OpsFile.blobsFile(file).exists());
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void blobsTest() throws Exception {
+        BufferedImage image = TestImages.random(60, 40, BufferedImage.TYPE_INT_ARGB);
+        List<ImageOperation> ops = Arrays.asList(new CopyPreview(image), new MeanFilter(1),
+                new CopyPreview(EditableImage.deepCopy(image)));
+        File file = File.createTempFile("andie", ".ops");
+        File blobs = OpsFile.blobsFile(file);
+        try {
+            assertSameEffect(ops, roundTrip(ops, file));
+            // The same image is only stored once, and not in the operations file
+            long pixels = 4L * image.getWidth() * image.getHeight();
+            Assertions.assertTrue(blobs.length() > pixels && blobs.length() < 2 * pixels);
+            Assertions.assertTrue(file.length() < 200);
+
+            // Without images the side file is removed
+            roundTrip(Arrays.asList(new MeanFilter(1)), file);
+            Assertions.assertFalse(blobs.exists());
+        } finally {
+            file.delete();
+            blobs.delete();
+        }
+    }
+
+    @Test
+    void legacyTest() throws Exception {
+        Stack<ImageOperation> ops = new Stack<ImageOperation>();
+        ops.push(new GaussianBlur(2));
+        ops.push(new SepiaToneFilter());
+        File file = File.createTempFile("andie", ".ops");
+        try {
+            try (ObjectOutputStream out = new ObjectOutputStream(new FileOutputStream(file))) {
+                out.writeObject(ops);
+            }
+            List<ImageOperation> read = new ArrayList<ImageOperation>();
+            try (OpsFile.Reader reader = OpsFile.read(file)) {
+                ImageOperation op;
+                while ((op = reader.next()) != null) {
+                    read.add(op);
+                }
+            }
+            assertSameEffect(ops, read);
+        } finally {
+            file.delete();
+        }
+    }
+
+    @Test
+    void newerVersionTest() throws Exception {
+        File file = File.createTempFile("andie", ".ops");
+        try {
+            OpsFile.write(Arrays.asList(new MeanFilter(2)), file);
+            // Bump the version of the operation's settings beyond what is known
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw")) {
+                raf.seek(12);
+                raf.writeShort(99);
+            }
+            try (OpsFile.Reader reader = OpsFile.read(file)) {
+                Assertions.assertThrows(IOException.class, () -> reader.next());
+            }
+
+            try (FileOutputStream out = new FileOutputStream(file)) {
+                out.write(new byte[] { 1, 2, 3, 4, 5, 6 });
+            }
+            Assertions.assertThrows(IOException.class, () -> OpsFile.read(file));
+        } finally {
+            file.delete();
+        }
+    }
+}
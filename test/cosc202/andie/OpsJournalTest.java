@@ -0,0 +1,115 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.*;
+import java.util.*;
+import javax.imageio.ImageIO;
+
+/**
+ * Tests for the OpsJournal class.
+ *
+ * @see OpsJournal
+ */
+public class OpsJournalTest {
+
+    @Test
+    void replayTest() throws Exception {
+        File opsFile = File.createTempFile("andie", ".ops");
+        File journalFile = OpsJournal.journalFile(opsFile);
+        try {
+            OpsJournal journal = OpsJournal.open(opsFile, new Stack<ImageOperation>(), new Stack<ImageOperation>());
+            journal.applied(new MeanFilter(2));
+            journal.applied(new InvertColour());
+            journal.undone();
+            journal.redone();
+            journal.undone();
+            journal.close();
+
+            Stack<ImageOperation> ops = new Stack<ImageOperation>();
+            Stack<ImageOperation> redoOps = new Stack<ImageOperation>();
+            OpsJournal.open(opsFile, ops, redoOps).close();
+            Assertions.assertEquals(1, ops.size());
+            Assertions.assertTrue(ops.get(0) instanceof MeanFilter);
+            Assertions.assertEquals(1, redoOps.size());
+            Assertions.assertTrue(redoOps.get(0) instanceof InvertColour);
+        } finally {
+            opsFile.delete();
+            journalFile.delete();
+            OpsFile.blobsFile(journalFile).delete();
+        }
+    }
+
+    @Test
+    void tornRecordTest() throws Exception {
+        File opsFile = File.createTempFile("andie", ".ops");
+        File journalFile = OpsJournal.journalFile(opsFile);
+        try {
+            OpsJournal journal = OpsJournal.open(opsFile, new Stack<ImageOperation>(), new Stack<ImageOperation>());
+            journal.applied(new MeanFilter(2));
+            journal.close();
+            // Cut the last record short, as if ANDIE stopped while writing it
+            try (FileOutputStream out = new FileOutputStream(journalFile, true)) {
+                out.write(new byte[] { 1, 0, 1, 0 });
+            }
+
+            Stack<ImageOperation> ops = new Stack<ImageOperation>();
+            journal = OpsJournal.open(opsFile, ops, new Stack<ImageOperation>());
+            Assertions.assertEquals(1, ops.size());
+            // New records go where the broken one was
+            journal.applied(new SoftBlur());
+            journal.close();
+
+            ops.clear();
+            OpsJournal.open(opsFile, ops, new Stack<ImageOperation>()).close();
+            Assertions.assertEquals(2, ops.size());
+            Assertions.assertTrue(ops.get(1) instanceof SoftBlur);
+        } finally {
+            opsFile.delete();
+            journalFile.delete();
+            OpsFile.blobsFile(journalFile).delete();
+        }
+    }
+
+    @Test
+    void recoverTest() throws Exception {
+        BufferedImage testImage = new BufferedImage(20, 10, BufferedImage.TYPE_INT_RGB);
+        File imageFile = File.createTempFile("andie", ".png");
+        File opsFile = new File(imageFile.getPath() + ".ops");
+        File journalFile = OpsJournal.journalFile(opsFile);
+        EditableImage image = new EditableImage();
+        try {
+            ImageIO.write(testImage, "png", imageFile);
+            image.open(imageFile.getPath());
+            image.apply(new InvertColour());
+            image.apply(new MeanFilter(1));
+            image.undo();
+            image.getJournal().flush();
+
+            // Opening the image again, without it being saved, brings back the edits
+            EditableImage recovered = new EditableImage();
+            recovered.open(imageFile.getPath());
+            Assertions.assertEquals(1, recovered.getOps().size());
+            Assertions.assertEquals(1, recovered.getRedoOps().size());
+            Assertions.assertEquals(0xffffffff, recovered.getCurrentImage().getRGB(0, 0));
+            recovered.getJournal().close();
+
+            // Saving compacts the journal into the operations file
+            image.save();
+            Assertions.assertFalse(journalFile.exists());
+            recovered = new EditableImage();
+            recovered.open(imageFile.getPath());
+            Assertions.assertEquals(1, recovered.getOps().size());
+            Assertions.assertTrue(recovered.getRedoOps().isEmpty());
+
+            // Discarded edits are not brought back
+            recovered.apply(new SoftBlur());
+            recovered.discardJournal();
+            Assertions.assertFalse(journalFile.exists());
+        } finally {
+            image.discardJournal();
+            TestImages.delete(imageFile);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+
+/**
+ * Tests for the PixelBuffer class.
+ *
+ * @see PixelBuffer
+ */
+public class PixelBufferTest {
+
+    @Test
+    void inPlaceTest() {
+        BufferedImage image = new BufferedImage(10, 8, BufferedImage.TYPE_INT_ARGB);
+        image.setRGB(4, 3, 0x80102030);
+
+        // A subimage shares its parent's array, one row of the parent apart
+        PixelBuffer pixels = PixelBuffer.read(image.getSubimage(2, 1, 5, 4));
+        Assertions.assertEquals(10, pixels.stride);
+        Assertions.assertEquals(5, pixels.width);
+        Assertions.assertEquals(0x80102030, pixels.get(2, 2));
+        pixels.set(0, 0, 0xff405060);
+        Assertions.assertEquals(0xff405060, image.getRGB(2, 1));
+        Assertions.assertSame(pixels.data, PixelBuffer.read(image).data);
+    }
+
+    @Test
+    void convertedTest() {
+        BufferedImage image = new BufferedImage(3, 2, BufferedImage.TYPE_3BYTE_BGR);
+        image.setRGB(1, 1, 0x102030);
+
+        // Other images are read as opaque ARGB, and only change when stored
+        PixelBuffer pixels = PixelBuffer.read(image);
+        Assertions.assertEquals(BufferedImage.TYPE_INT_ARGB, pixels.getImage().getType());
+        Assertions.assertEquals(0xff102030, pixels.get(1, 1));
+        pixels.set(0, 0, 0xffa0b0c0);
+        Assertions.assertEquals(0xff000000, image.getRGB(0, 0));
+        Assertions.assertSame(image, pixels.store());
+        Assertions.assertEquals(0xffa0b0c0, image.getRGB(0, 0));
+
+        // New opaque images ignore alpha
+        PixelBuffer output = PixelBuffer.create(3, 2, false);
+        output.set(2, 1, 0x00123456);
+        Assertions.assertEquals(0xff123456, output.store().getRGB(2, 1));
+    }
+}
@@ -0,0 +1,56 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.util.Random;
+
+/**
+ * Tests for the PixelKernels class, and the vector version of it where the
+ * Vector API is available.
+ *
+ * @see PixelKernels
+ */
+public class PixelKernelsTest {
+
+    @Test
+    void loadedTest() {
+        if (ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent()
+                && Boolean.parseBoolean(System.getProperty("andie.vector", "true"))) {
+            Assertions.assertNotSame(PixelKernels.scalar(), PixelKernels.get());
+        } else {
+            Assertions.assertSame(PixelKernels.scalar(), PixelKernels.get());
+        }
+    }
+
+    @Test
+    void convolveMatchesScalarTest() {
+        Random random = new Random(25);
+        int width = 53;
+        int[] src = new int[width * 3];
+        for (int i = 0; i < src.length; i++) {
+            src[i] = random.nextInt();
+        }
+        // 3x3 kernels with some negative weights, read around the middle row
+        int[] delta = { -width - 1, -width, -width + 1, -1, 0, 1, width - 1, width, width + 1 };
+        float[] weight = new float[delta.length];
+        boolean[] flags = { false, true };
+        for (int k = 0; k < 20; k++) {
+            for (int t = 0; t < weight.length; t++) {
+                weight[t] = random.nextFloat() * 2 - 0.8f;
+            }
+            for (boolean alpha : flags) {
+                for (boolean offset : flags) {
+                    for (float bias : new float[] { 0, 0.5f }) {
+                        int[] expected = new int[src.length];
+                        int[] actual = new int[src.length];
+                        PixelKernels.scalar().convolve(src, expected, width + 1, 2 * width - 1, delta, weight, alpha, offset, bias);
+                        PixelKernels.get().convolve(src, actual, width + 1, 2 * width - 1, delta, weight, alpha, offset, bias);
+                        for (int i = 0; i < src.length; i++) {
+                            Assertions.assertEquals(expected[i], actual[i]);
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,99 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * Tests for the PointPipeline class and the point operations it applies.
+ *
+ * @see PointPipeline
+ * @see ChannelMap
+ */
+public class PointPipelineTest {
+
+    /**
+     * Create an image of random colours.
+     *
+     * @param type The type of the image.
+     * @param seed The random seed.
+     * @return The image.
+     */
+    private BufferedImage randomImage(int type, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(15, 10, type);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Apply each operation in turn a pixel at a time, as the operations did before they were fused.
+     *
+     * @param image The image to apply the operations to.
+     * @param ops   The operations.
+     * @return The resulting image.
+     */
+    private BufferedImage applyInTurn(BufferedImage image, List<PointOperation> ops) {
+        for (PointOperation op : ops) {
+            BufferedImage output = op.convertsToRGB()
+                    ? new BufferedImage(image.getWidth(), image.getHeight(), BufferedImage.TYPE_INT_RGB)
+                    : image;
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    output.setRGB(x, y, op.filterRGB(image.getRGB(x, y)));
+                }
+            }
+            image = output;
+        }
+        return image;
+    }
+
+    @Test
+    void fusedMatchesInTurnTest() {
+        List<PointOperation> ops = Arrays.asList(new BrightnessContrast(20, 40), new InvertColour(),
+                new ConvertToGrey(), new BrightnessContrast(-10, 15), new InvertColour(), new SepiaToneFilter(),
+                new BrightnessContrast(5, -30));
+        int[] types = { BufferedImage.TYPE_INT_ARGB, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_3BYTE_BGR,
+                BufferedImage.TYPE_BYTE_GRAY };
+        for (int type : types) {
+            for (int length = 1; length <= ops.size(); length++) {
+                List<PointOperation> run = ops.subList(0, length);
+                BufferedImage expected = applyInTurn(randomImage(type, length), run);
+                BufferedImage actual = PointPipeline.apply(randomImage(type, length), run);
+                Assertions.assertEquals(expected.getType(), actual.getType());
+                for (int y = 0; y < expected.getHeight(); y++) {
+                    for (int x = 0; x < expected.getWidth(); x++) {
+                        Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+                    }
+                }
+            }
+        }
+    }
+
+    @Test
+    void channelMapJoinTest() {
+        ChannelMap invert = new InvertColour().channelMap();
+        ChannelMap adjust = new BrightnessContrast(30, -20).channelMap();
+        ChannelMap joined = invert.then(adjust);
+        Random random = new Random(6);
+        for (int i = 0; i < 1000; i++) {
+            int argb = random.nextInt();
+            Assertions.assertEquals(adjust.map(invert.map(argb)), joined.map(argb));
+        }
+    }
+
+    @Test
+    void runTest() {
+        List<ImageOperation> ops = Arrays.asList(new InvertColour(), new ConvertToGrey(), new MeanFilter(1),
+                new InvertColour());
+        Assertions.assertEquals(2, PointPipeline.run(ops, 0).size());
+        Assertions.assertEquals(1, PointPipeline.run(ops, 1).size());
+        Assertions.assertEquals(0, PointPipeline.run(ops, 2).size());
+        Assertions.assertEquals(1, PointPipeline.run(ops, 3).size());
+    }
+}
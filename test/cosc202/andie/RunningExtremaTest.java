@@ -0,0 +1,130 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.util.*;
+
+/**
+ * Tests for the RunningExtrema class and the filters built on it.
+ *
+ * @see RunningExtrema
+ * @see MinimumFilter
+ * @see MaximumFilter
+ */
+public class RunningExtremaTest {
+
+    /**
+     * Create an image of random colours.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param seed   The random seed.
+     * @return The image.
+     */
+    private BufferedImage randomImage(int width, int height, long seed) {
+        Random random = new Random(seed);
+        BufferedImage image = new BufferedImage(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Find the extreme of each channel over the neighbourhood of a pixel by
+     * checking every pixel in it.
+     *
+     * @param image  The image.
+     * @param x      The x coordinate of the pixel.
+     * @param y      The y coordinate of the pixel.
+     * @param radius The radius of the neighbourhood.
+     * @param max    True for the maximum, false for the minimum.
+     * @return The extreme of each channel.
+     */
+    private int bruteForce(BufferedImage image, int x, int y, int radius, boolean max) {
+        int result = 0;
+        for (int shift = 0; shift < 32; shift += 8) {
+            int best = max ? 0 : 255;
+            for (int j = Math.max(0, y - radius); j <= Math.min(image.getHeight() - 1, y + radius); j++) {
+                for (int i = Math.max(0, x - radius); i <= Math.min(image.getWidth() - 1, x + radius); i++) {
+                    int value = (image.getRGB(i, j) >>> shift) & 0xFF;
+                    best = max ? Math.max(best, value) : Math.min(best, value);
+                }
+            }
+            result |= best << shift;
+        }
+        return result;
+    }
+
+    @Test
+    void minimumMaximumTest() {
+        for (int radius = 1; radius <= 4; radius++) {
+            BufferedImage testImage = randomImage(23, 31, radius);
+            BufferedImage minimum = new MinimumFilter(radius).apply(testImage);
+            BufferedImage maximum = new MaximumFilter(radius).apply(testImage);
+            for (int y = 0; y < testImage.getHeight(); y++) {
+                for (int x = 0; x < testImage.getWidth(); x++) {
+                    Assertions.assertEquals(bruteForce(testImage, x, y, radius, false), minimum.getRGB(x, y));
+                    Assertions.assertEquals(bruteForce(testImage, x, y, radius, true), maximum.getRGB(x, y));
+                }
+            }
+        }
+    }
+
+    @Test
+    void radiusLargerThanImageTest() {
+        BufferedImage testImage = randomImage(3, 2, 7);
+        BufferedImage minimum = new MinimumFilter(5).apply(testImage);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                Assertions.assertEquals(bruteForce(testImage, x, y, 5, false), minimum.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void openCloseTest() {
+        BufferedImage testImage = randomImage(20, 20, 3);
+
+        // Opening never brightens and closing never darkens any channel
+        BufferedImage opened = new MorphologicalOpen(2).apply(testImage);
+        BufferedImage closed = new MorphologicalClose(2).apply(testImage);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                for (int shift = 0; shift < 32; shift += 8) {
+                    int original = (testImage.getRGB(x, y) >>> shift) & 0xFF;
+                    Assertions.assertTrue(((opened.getRGB(x, y) >>> shift) & 0xFF) <= original);
+                    Assertions.assertTrue(((closed.getRGB(x, y) >>> shift) & 0xFF) >= original);
+                }
+            }
+        }
+
+        // Opening an opened image changes nothing
+        BufferedImage reopened = new MorphologicalOpen(2).apply(opened);
+        for (int y = 0; y < testImage.getHeight(); y++) {
+            for (int x = 0; x < testImage.getWidth(); x++) {
+                Assertions.assertEquals(opened.getRGB(x, y), reopened.getRGB(x, y));
+            }
+        }
+    }
+
+    @Test
+    void gradientTest() {
+        BufferedImage testImage = new BufferedImage(10, 10, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < 10; y++) {
+            for (int x = 0; x < 10; x++) {
+                testImage.setRGB(x, y, x < 5 ? 0xFF102030 : 0xFF405060);
+            }
+        }
+        BufferedImage gradient = new MorphologicalGradient(1).apply(testImage);
+
+        // Flat areas have no gradient, and the edge has the full difference
+        Assertions.assertEquals(0xFF000000, gradient.getRGB(1, 5));
+        Assertions.assertEquals(0xFF000000, gradient.getRGB(8, 5));
+        Assertions.assertEquals(0xFF303030, gradient.getRGB(4, 5));
+        Assertions.assertEquals(0xFF303030, gradient.getRGB(5, 5));
+    }
+}
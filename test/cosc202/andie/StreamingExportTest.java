@@ -0,0 +1,69 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.*;
+import javax.imageio.ImageIO;
+
+/**
+ * Tests for the StreamingExport class.
+ *
+ * @see StreamingExport
+ */
+public class StreamingExportTest {
+
+    @Test
+    void canStreamTest() throws Exception {
+        Assertions.assertTrue(StreamingExport.canStream(new File("image.tiff")));
+        Assertions.assertTrue(StreamingExport.canStream(new File("image.tif")));
+        Assertions.assertFalse(StreamingExport.canStream(new File("image.png")));
+        Assertions.assertFalse(StreamingExport.canStream(new File("image.txt")));
+    }
+
+    @Test
+    void haloTest() {
+        Assertions.assertEquals(0, StreamingExport.halo(Collections.emptyList()));
+        Assertions.assertEquals(7, StreamingExport.halo(
+                Arrays.asList(new MeanFilter(2), new InvertColour(), new SharpenFilter(), new MorphologicalOpen(2))));
+        Assertions.assertThrows(IllegalArgumentException.class,
+                () -> StreamingExport.halo(Arrays.asList(new MeanFilter(2), new Flip(true))));
+    }
+
+    @Test
+    void exportFileTest() throws Exception {
+        BufferedImage image = TestImages.random(150, 3 * StreamingExport.BAND_HEIGHT + 20,
+                BufferedImage.TYPE_INT_RGB);
+        List<ImageOperation> ops = Arrays.asList(new MeanFilter(2), new InvertColour(), new SharpenFilter(),
+                new MaximumFilter(3));
+        File source = File.createTempFile("andie-stream", ".png");
+        File target = File.createTempFile("andie-stream", ".tiff");
+        try {
+            ImageIO.write(image, "png", source);
+            StreamingExport.export(source, ops, target, new OperationMonitor());
+
+            BufferedImage expected = ImageIO.read(source);
+            for (ImageOperation op : ops) {
+                expected = op.apply(expected);
+            }
+            TestImages.assertSameImage(expected, ImageIO.read(target));
+        } finally {
+            source.delete();
+            target.delete();
+        }
+    }
+
+    @Test
+    void exportTilesTest() throws Exception {
+        BufferedImage image = TestImages.random(150, 3 * StreamingExport.BAND_HEIGHT + 20,
+                BufferedImage.TYPE_INT_RGB);
+        File target = File.createTempFile("andie-stream", ".tif");
+        try (TiledImage tiles = TiledImage.of(image)) {
+            StreamingExport.export(tiles, target, new OperationMonitor());
+            TestImages.assertSameImage(image, ImageIO.read(target));
+        } finally {
+            target.delete();
+        }
+    }
+}
@@ -0,0 +1,84 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.util.Random;
+
+/**
+ * Images of random colours, a check that two images match, and a way to clean
+ * up an image file, shared by the tests that need them.
+ */
+class TestImages {
+
+    /**
+     * Create an image of random colours, the same every time for the same size
+     * and type.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @param type   The type of the image, such as {@link BufferedImage#TYPE_INT_RGB}.
+     * @return The image.
+     */
+    static BufferedImage random(int width, int height, int type) {
+        Random random = new Random(202);
+        BufferedImage image = new BufferedImage(width, height, type);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Create an opaque ARGB image of random colours, the same every time for the
+     * same size.
+     *
+     * @param width  The width of the image.
+     * @param height The height of the image.
+     * @return The image.
+     */
+    static BufferedImage opaque(int width, int height) {
+        BufferedImage image = random(width, height, BufferedImage.TYPE_INT_ARGB);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, 0xff000000 | image.getRGB(x, y));
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Check that two images are the same size and hold the same colours.
+     *
+     * @param expected The expected image.
+     * @param actual   The actual image.
+     */
+    static void assertSameImage(BufferedImage expected, BufferedImage actual) {
+        Assertions.assertEquals(expected.getWidth(), actual.getWidth());
+        Assertions.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); y++) {
+            for (int x = 0; x < expected.getWidth(); x++) {
+                Assertions.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y), "(" + x + ", " + y + ")");
+            }
+        }
+    }
+
+    /**
+     * Delete an image file, with the operations file, journal, blobs and
+     * checkpoints that editing it leaves beside it.
+     *
+     * @param imageFile The image file.
+     */
+    static void delete(File imageFile) {
+        File opsFile = new File(imageFile.getPath() + ".ops");
+        File journalFile = OpsJournal.journalFile(opsFile);
+        imageFile.delete();
+        opsFile.delete();
+        OpsFile.blobsFile(opsFile).delete();
+        CheckpointFile.checkpointFile(opsFile).delete();
+        journalFile.delete();
+        OpsFile.blobsFile(journalFile).delete();
+    }
+}
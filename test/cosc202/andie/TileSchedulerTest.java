@@ -0,0 +1,48 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.util.Random;
+
+/**
+ * Tests for the TileScheduler class.
+ *
+ * @see TileScheduler
+ */
+public class TileSchedulerTest {
+
+    @Test
+    void tiledMatchesWholeTest() {
+        // Several tiles across and down, with smaller tiles at the right and bottom
+        BufferedImage image = WorkingFormat.create(2 * TileScheduler.TILE_SIZE + 37, TileScheduler.TILE_SIZE + 20);
+        Random random = new Random(7);
+        for (int y = 0; y < image.getHeight(); y++) {
+            for (int x = 0; x < image.getWidth(); x++) {
+                image.setRGB(x, y, random.nextInt());
+            }
+        }
+
+        // A neighbourhood filter, to check that each tile is read with its halo
+        MedianFilter median = new MedianFilter(2);
+        TileOperation neighbourhood = new TileOperation() {
+            public BufferedImage apply(BufferedImage input) {
+                return median.apply(input);
+            }
+
+            public int getHalo() {
+                return median.getHalo();
+            }
+        };
+        TileOperation[] ops = { new VignetteFilter(), new Saturator(), new SepiaToneFilter(), neighbourhood };
+        for (TileOperation op : ops) {
+            BufferedImage whole = op.apply(WorkingFormat.copy(image));
+            BufferedImage tiled = TileScheduler.apply(op, image);
+            for (int y = 0; y < image.getHeight(); y++) {
+                for (int x = 0; x < image.getWidth(); x++) {
+                    Assertions.assertEquals(whole.getRGB(x, y), tiled.getRGB(x, y));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.Rectangle;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+
+/**
+ * Tests for the TiledImage class and editing tiled images.
+ *
+ * @see TiledImage
+ */
+public class TiledImageTest {
+
+    @Test
+    void regionTest() throws Exception {
+        BufferedImage image = TestImages.opaque(2 * TiledImage.TILE_SIZE + 37, TiledImage.TILE_SIZE + 11);
+        try (TiledImage tiles = TiledImage.of(image)) {
+            Assertions.assertEquals(3, tiles.getColumns());
+            Assertions.assertEquals(2, tiles.getRows());
+            Assertions.assertEquals(new Rectangle(2 * TiledImage.TILE_SIZE, TiledImage.TILE_SIZE, 37, 11),
+                    tiles.getTileBounds(2, 1));
+
+            // A region spanning all four corners of the middle tiles
+            Rectangle bounds = new Rectangle(400, 400, 600, 120);
+            TestImages.assertSameImage(image.getSubimage(bounds.x, bounds.y, bounds.width, bounds.height),
+                    tiles.getRegion(bounds));
+            TestImages.assertSameImage(image, tiles.getRegion(new Rectangle(image.getWidth(), image.getHeight())));
+        }
+    }
+
+    @Test
+    void tiledApplyTest() throws Exception {
+        BufferedImage image = TestImages.opaque(2 * TiledImage.TILE_SIZE + 37, TiledImage.TILE_SIZE + 11);
+        LocalOperation[] ops = { new MeanFilter(3), new MedianFilter(2), new SharpenFilter(), new MaximumFilter(4),
+                new MorphologicalOpen(2), new InvertColour(), new VignetteFilter(), new Saturator() };
+        try (TiledImage tiles = TiledImage.of(image)) {
+            for (LocalOperation op : ops) {
+                try (TiledImage result = tiles.apply(op, new OperationMonitor())) {
+                    BufferedImage whole = op.apply(EditableImage.deepCopy(image));
+                    TestImages.assertSameImage(whole, result.getRegion(new Rectangle(image.getWidth(), image.getHeight())));
+                }
+            }
+        }
+    }
+
+    @Test
+    void tiledEditableImageTest() throws Exception {
+        BufferedImage image = TestImages.opaque(2 * TiledImage.TILE_SIZE + 37, TiledImage.TILE_SIZE + 11);
+        File file = File.createTempFile("andie-tiled", ".png");
+        EditableImage editable = new EditableImage();
+        try {
+            ImageIO.write(image, "png", file);
+            editable.setTiledThreshold(1000);
+            editable.open(file.getPath());
+            Assertions.assertTrue(editable.isTiled());
+            Assertions.assertNull(editable.getCurrentImage());
+            Assertions.assertEquals(image.getWidth(), editable.getWidth());
+
+            editable.apply(new InvertColour());
+            editable.apply(new MeanFilter(1));
+            Assertions.assertEquals(2, editable.getOps().size());
+            BufferedImage expected = new MeanFilter(1).apply(new InvertColour().apply(EditableImage.deepCopy(image)));
+            Rectangle all = new Rectangle(image.getWidth(), image.getHeight());
+            TestImages.assertSameImage(expected, editable.getTiledImage().getRegion(all));
+
+            editable.undo();
+            editable.undo();
+            TestImages.assertSameImage(image, editable.getTiledImage().getRegion(all));
+            editable.redo();
+            TestImages.assertSameImage(new InvertColour().apply(EditableImage.deepCopy(image)),
+                    editable.getTiledImage().getRegion(all));
+        } finally {
+            editable.discardJournal();
+            TestImages.delete(file);
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package cosc202.andie;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Assertions;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import javax.imageio.ImageIO;
+
+/**
+ * Tests for the WorkingFormat class.
+ *
+ * @see WorkingFormat
+ */
+public class WorkingFormatTest {
+
+    @Test
+    void convertTest() {
+        int[] types = { BufferedImage.TYPE_3BYTE_BGR, BufferedImage.TYPE_INT_RGB, BufferedImage.TYPE_BYTE_GRAY };
+        for (int type : types) {
+            BufferedImage image = new BufferedImage(5, 4, type);
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 5; x++) {
+                    image.setRGB(x, y, 0x3a1f09 * (x + 5 * y));
+                }
+            }
+            BufferedImage converted = WorkingFormat.convert(image);
+            Assertions.assertTrue(WorkingFormat.is(converted));
+            for (int y = 0; y < 4; y++) {
+                for (int x = 0; x < 5; x++) {
+                    Assertions.assertEquals(image.getRGB(x, y), converted.getRGB(x, y));
+                }
+            }
+
+            // Operations keep the format once the image is in it
+            Assertions.assertTrue(WorkingFormat.is(new MedianFilter().apply(converted)));
+            Assertions.assertTrue(WorkingFormat.is(new GaussianBlur().apply(converted)));
+        }
+        BufferedImage argb = WorkingFormat.create(3, 3);
+        Assertions.assertSame(argb, WorkingFormat.convert(argb));
+    }
+
+    @Test
+    void writeTest() throws Exception {
+        File file = File.createTempFile("andie", ".jpg");
+        try {
+            BufferedImage image = WorkingFormat.create(8, 8);
+            image.setRGB(2, 2, 0xffffffff);
+            // JPEG has no alpha channel, so the image is written opaque
+            Assertions.assertTrue(WorkingFormat.write(image, "jpg", file));
+            Assertions.assertFalse(ImageIO.read(file).getColorModel().hasAlpha());
+            Assertions.assertFalse(WorkingFormat.write(image, "notAFormat", file));
+        } finally {
+            file.delete();
+        }
+    }
+}
@@ -0,0 +1,127 @@
+package cosc202.andie;
+
+import jdk.incubator.vector.*;
+
+/**
+ * <p>
+ * The pixel kernels, done for a whole vector of pixels at once with the
+ * incubating Vector API.
+ * </p>
+ *
+ * <p>
+ * Each lane of a vector holds one pixel, so a vector holds as many pixels as
+ * the widest registers the CPU has room for, such as 8 with AVX2.
+ * The channels of all the lanes are unpacked with shifts and masks, summed
+ * together in float lanes, and packed back up, with the pixels at the end of a
+ * run that do not fill a vector left to the plain version.
+ * </p>
+ *
+ * <p>
+ * The Vector API in Java 17 has no fast conversion between int and float
+ * lanes on x86, and boxes every vector that a compiled loop cannot keep in
+ * registers, such as one chosen by a branch.
+ * So channel values are converted with exact bit tricks instead, and the
+ * options are applied through per-call constants rather than branches in the
+ * loop.
+ * </p>
+ *
+ * <p>
+ * This class is only ever loaded by name from {@link PixelKernels#get()},
+ * once the <code>jdk.incubator.vector</code> module is known to be there.
+ * </p>
+ *
+ * <p>
+ * <a href="https://creativecommons.org/licenses/by-nc-sa/4.0/">CC BY-NC-SA
+ * 4.0</a>
+ * </p>
+ */
+final class VectorKernels extends PixelKernels {
+
+    /** The float lanes that the sums are worked out in. */
+    private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+    /** The int lanes that pixels are read into, as many as there are float lanes. */
+    private static final VectorSpecies<Integer> PIXELS = FLOATS.withLanes(int.class);
+    /** The float whose bits are 0x4B000000, which has a unit in the last place of 1. */
+    private static final float MAGIC = 8388608f;
+
+    /**
+     * Create the vector kernels.
+     */
+    VectorKernels() {
+    }
+
+    @Override
+    void convolve(int[] src, int[] dst, int from, int to, int[] delta, float[] weight, boolean alpha,
+            boolean offset, float bias) {
+        // What PixelKernels.pack does with each option, as constants
+        int keepAlpha = alpha ? 0xFF : 0;
+        VectorMask<Float> ownAlpha = FLOATS.maskAll(offset);
+        float scale = offset ? 0.5f : 1;
+        float shift = offset ? 127 : 0;
+
+        int bound = from + PIXELS.loopBound(to - from);
+        int i = from;
+        for (; i < bound; i += PIXELS.length()) {
+            FloatVector newA = FloatVector.zero(FLOATS);
+            FloatVector newR = FloatVector.zero(FLOATS);
+            FloatVector newG = FloatVector.zero(FLOATS);
+            FloatVector newB = FloatVector.zero(FLOATS);
+            for (int t = 0; t < delta.length; t++) {
+                // Neighbouring pixels have neighbouring taps, so each tap is one contiguous load
+                IntVector argb = IntVector.fromArray(PIXELS, src, i + delta[t]);
+                float w = weight[t];
+                newA = newA.add(toFloats(argb.lanewise(VectorOperators.LSHR, 24)).mul(w));
+                newR = newR.add(toFloats(argb.lanewise(VectorOperators.LSHR, 16).and(0xFF)).mul(w));
+                newG = newG.add(toFloats(argb.lanewise(VectorOperators.LSHR, 8).and(0xFF)).mul(w));
+                newB = newB.add(toFloats(argb.and(0xFF)).mul(w));
+            }
+            FloatVector centreA = toFloats(IntVector.fromArray(PIXELS, src, i).lanewise(VectorOperators.LSHR, 24));
+            IntVector a = truncate(newA.blend(centreA, ownAlpha).add(bias)).and(keepAlpha);
+            IntVector r = truncate(newR.mul(scale).add(shift).add(bias));
+            IntVector g = truncate(newG.mul(scale).add(shift).add(bias));
+            IntVector b = truncate(newB.mul(scale).add(shift).add(bias));
+            a.lanewise(VectorOperators.LSHL, 24)
+                    .or(r.lanewise(VectorOperators.LSHL, 16))
+                    .or(g.lanewise(VectorOperators.LSHL, 8))
+                    .or(b)
+                    .intoArray(dst, i);
+        }
+        super.convolve(src, dst, i, to, delta, weight, alpha, offset, bias);
+    }
+
+    /**
+     * <p>
+     * Convert channel values to float lanes.
+     * </p>
+     *
+     * <p>
+     * Setting the bits of {@link #MAGIC} above a value gives a float of exactly
+     * MAGIC plus the value, and taking MAGIC away leaves the value.
+     * </p>
+     *
+     * @param values The values, from 0 to 255.
+     * @return The same values as floats.
+     */
+    private static FloatVector toFloats(IntVector values) {
+        return values.or(0x4B000000).reinterpretAsFloats().sub(MAGIC);
+    }
+
+    /**
+     * <p>
+     * Clamp sums to 0 to 255 and truncate them to ints.
+     * </p>
+     *
+     * <p>
+     * The integer part of a float is its 24-bit mantissa, with the leading 1,
+     * shifted right by 23 less its exponent, which leaves 0 for values under 1.
+     * </p>
+     *
+     * @param sums The sums.
+     * @return The colour values, from 0 to 255.
+     */
+    private static IntVector truncate(FloatVector sums) {
+        IntVector bits = sums.max(0).min(255).reinterpretAsInts();
+        IntVector shift = bits.lanewise(VectorOperators.LSHR, 23).neg().add(150).min(31);
+        return bits.and(0x7FFFFF).or(0x800000).lanewise(VectorOperators.LSHR, shift);
+    }
+}